@@ -0,0 +1,144 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark.events;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import org.matsim.analysis.CalcLegTimes;
+import org.matsim.analysis.LegHistogram;
+import org.matsim.analysis.VolumesAnalyzer;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.events.EventsManagerImpl;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.trafficmonitoring.TravelTimeCalculator;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Replays a recorded events file through an {@link EventsManagerImpl} with the
+ * usual analysis handlers registered, once with the reflective dispatch and once
+ * with direct dispatch.
+ * <p></p>
+ * By default, the events of the equil example scenario are used. Larger files can
+ * be used with <code>-p eventsFile=... -p networkFile=...</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class EventsDispatchBenchmark {
+
+	@Param({"reflective", "direct"})
+	public String dispatch;
+
+	@Param({""})
+	public String eventsFile;
+
+	@Param({""})
+	public String networkFile;
+
+	private List<Event> events;
+	private EventsManager eventsManager;
+	private int iteration = 0;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		Network network = NetworkUtils.createNetwork();
+		if (this.networkFile.isEmpty()) {
+			new MatsimNetworkReader(network).parse(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("equil"), "network.xml"));
+		} else {
+			new MatsimNetworkReader(network).readFile(this.networkFile);
+		}
+
+		final List<Event> recordedEvents = new ArrayList<>();
+		EventsManager recorder = new EventsManagerImpl();
+		recorder.addHandler(new BasicEventHandler() {
+			@Override
+			public void reset(int iteration) {
+			}
+			@Override
+			public void handleEvent(Event event) {
+				recordedEvents.add(event);
+			}
+		});
+		if (this.eventsFile.isEmpty()) {
+			new MatsimEventsReader(recorder).readStream(new GZIPInputStream(
+					IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("equil"), "output_events.xml.gz").openStream()));
+		} else {
+			new MatsimEventsReader(recorder).readFile(this.eventsFile);
+		}
+		this.events = recordedEvents;
+
+		this.eventsManager = new EventsManagerImpl("direct".equals(this.dispatch));
+		this.eventsManager.addHandler(new VolumesAnalyzer(3600, 30 * 3600, network));
+		this.eventsManager.addHandler(new LegHistogram(300));
+		this.eventsManager.addHandler(new CalcLegTimes());
+		this.eventsManager.addHandler(new TravelTimeCalculator(network, new TravelTimeCalculatorConfigGroup()));
+	}
+
+	@Setup(Level.Iteration)
+	public void resetHandlers() {
+		this.eventsManager.resetHandlers(this.iteration++);
+	}
+
+	@Benchmark
+	public int replayEvents() {
+		for (Event event : this.events) {
+			this.eventsManager.processEvent(event);
+		}
+		return this.events.size();
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(EventsDispatchBenchmark.class.getSimpleName())
+				.build();
+		new Runner(options).run();
+	}
+
+}
@@ -0,0 +1,163 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Stack;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventsManagerImpl;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.MatsimXmlParser;
+import org.matsim.core.utils.io.ReadAheadInputStream;
+import org.matsim.examples.ExamplesUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.xml.sax.Attributes;
+
+/**
+ * Measures the throughput of {@link MatsimXmlParser} on a gzip-compressed events file, with the SAX and
+ * the pull parsing backend, and with the decompression done inline or in a separate thread.
+ * <code>countElements</code> only parses the file, <code>readEvents</code> also creates the events.
+ * <p></p>
+ * The compressed file is held in memory, so disk access is not measured. By default, the events of the
+ * equil example scenario are used. Larger (gzip-compressed) files can be used with <code>-p eventsFile=...</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class XmlParsingBenchmark {
+
+	@Param({"sax", "pull"})
+	public String parser;
+
+	@Param({"inline", "readAhead"})
+	public String decompression;
+
+	@Param({""})
+	public String eventsFile;
+
+	private byte[] compressed;
+
+	@Setup
+	public void setUp() throws IOException {
+		System.setProperty("matsim.xmlPullParsing", Boolean.toString("pull".equals(this.parser)));
+		InputStream in;
+		if (this.eventsFile.isEmpty()) {
+			in = IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("equil"), "output_events.xml.gz").openStream();
+		} else {
+			in = new FileInputStream(this.eventsFile);
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try {
+			IOUtils.copyStream(in, out);
+		} finally {
+			in.close();
+		}
+		this.compressed = out.toByteArray();
+	}
+
+	private InputStream openStream() throws IOException {
+		InputStream stream = new GZIPInputStream(new ByteArrayInputStream(this.compressed), 64 * 1024);
+		return "readAhead".equals(this.decompression) ? new ReadAheadInputStream(stream) : stream;
+	}
+
+	@Benchmark
+	public int countElements() throws IOException {
+		ElementCounter counter = new ElementCounter();
+		try (InputStream stream = openStream()) {
+			counter.parse(stream);
+		}
+		return counter.elements + counter.typed;
+	}
+
+	@Benchmark
+	public int readEvents() throws IOException {
+		final int[] count = new int[1];
+		EventsManager events = new EventsManagerImpl();
+		events.addHandler(new BasicEventHandler() {
+			@Override
+			public void reset(int iteration) {
+			}
+			@Override
+			public void handleEvent(Event event) {
+				count[0]++;
+			}
+		});
+		try (InputStream stream = openStream()) {
+			new MatsimEventsReader(events).readStream(stream);
+		}
+		return count[0];
+	}
+
+	private static final class ElementCounter extends MatsimXmlParser {
+		int elements = 0;
+		int typed = 0;
+
+		ElementCounter() {
+			setValidating(false);
+		}
+
+		@Override
+		public void startTag(String name, Attributes atts, Stack<String> context) {
+			this.elements++;
+			if (atts.getValue("type") != null) {
+				this.typed++;
+			}
+		}
+
+		@Override
+		public void endTag(String name, String content, Stack<String> context) {
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(XmlParsingBenchmark.class.getSimpleName())
+				.build();
+		new Runner(options).run();
+	}
+
+}
@@ -0,0 +1,179 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark.qsim;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.core.mobsim.qsim.qnetsimengine.QVehicle;
+import org.matsim.core.mobsim.qsim.qnetsimengine.vehicleq.FIFOVehicleQ;
+import org.matsim.core.mobsim.qsim.qnetsimengine.vehicleq.PassingVehicleQ;
+import org.matsim.vehicles.VehicleType;
+import org.matsim.vehicles.VehicleUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Replays the queue operations of vehicles traversing a link in the QSim: entering the
+ * link's vehicle queue, moving from the queue into the buffer and leaving the buffer
+ * over the node. One operation is one vehicle-link traversal.
+ * <p></p>
+ * <code>linkedList</code> uses the linked lists and the iterator based removal the
+ * QueueWithBuffer used before; the other variants use the current vehicle queues together
+ * with the array based buffer. Run with the GC profiler (as the main method does) and
+ * compare <code>gc.alloc.rate.norm</code>, the bytes allocated per traversal.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class VehicleQueueBenchmark {
+
+	private static final int TRAVERSALS = 10000;
+
+	@Param({"linkedList", "fifoVehicleQ", "passingVehicleQ"})
+	public String queue;
+
+	/**
+	 * The number of vehicles on the link while others enter and leave it.
+	 */
+	@Param({"20"})
+	public int vehiclesOnLink;
+
+	private QVehicle[] vehicles;
+	private Queue<QVehicle> vehQueue;
+	private Queue<QVehicle> buffer;
+	private double now = 0.0;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		VehicleType type = VehicleUtils.getDefaultVehicleType();
+		this.vehicles = new QVehicle[this.vehiclesOnLink + 1];
+		for (int i = 0; i < this.vehicles.length; i++) {
+			this.vehicles[i] = new QVehicle(VehicleUtils.getFactory().createVehicle(Id.createVehicleId(i), type));
+		}
+		switch (this.queue) {
+		case "linkedList":
+			this.vehQueue = new LinkedListVehicleQ();
+			this.buffer = new LinkedList<>();
+			break;
+		case "fifoVehicleQ":
+			this.vehQueue = new FIFOVehicleQ();
+			this.buffer = new ArrayDeque<>();
+			break;
+		case "passingVehicleQ":
+			this.vehQueue = new PassingVehicleQ();
+			this.buffer = new ArrayDeque<>();
+			break;
+		default:
+			throw new IllegalArgumentException("unknown queue " + this.queue);
+		}
+		for (int i = 0; i < this.vehiclesOnLink; i++) {
+			enterLink(this.vehicles[i]);
+		}
+	}
+
+	private void enterLink(QVehicle veh) {
+		this.now += 1.0;
+		veh.setEarliestLinkExitTime(this.now);
+		this.vehQueue.add(veh);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(TRAVERSALS)
+	public int traverseLinks() {
+		int moved = 0;
+		for (int i = 0; i < TRAVERSALS; i++) {
+			// move the first vehicle to the buffer, the way QueueWithBuffer.moveQueueToBuffer() does
+			QVehicle veh = this.vehQueue.peek();
+			this.buffer.add(veh);
+			this.vehQueue.remove(veh);
+			// let it leave over the node and re-enter at the end of the link
+			veh = this.buffer.poll();
+			enterLink(veh);
+			moved++;
+		}
+		return moved;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(VehicleQueueBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(options).run();
+	}
+
+	/**
+	 * The FIFOVehicleQ as it was: backed by a linked list, removing with the iterator of AbstractQueue.
+	 */
+	private static final class LinkedListVehicleQ extends AbstractQueue<QVehicle> {
+		private final LinkedList<QVehicle> vehicleQueue = new LinkedList<>();
+
+		@Override
+		public boolean offer(QVehicle e) {
+			return this.vehicleQueue.offer(e);
+		}
+
+		@Override
+		public QVehicle peek() {
+			return this.vehicleQueue.peek();
+		}
+
+		@Override
+		public QVehicle poll() {
+			return this.vehicleQueue.poll();
+		}
+
+		@Override
+		public Iterator<QVehicle> iterator() {
+			return this.vehicleQueue.iterator();
+		}
+
+		@Override
+		public int size() {
+			return this.vehicleQueue.size();
+		}
+	}
+
+}
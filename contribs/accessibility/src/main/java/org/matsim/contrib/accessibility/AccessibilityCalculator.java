@@ -2,9 +2,11 @@ package org.matsim.contrib.accessibility;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.inject.Inject;
 
@@ -25,6 +27,7 @@ import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.router.costcalculators.TravelDisutilityFactory;
 import org.matsim.core.router.util.TravelTime;
 import org.matsim.core.trafficmonitoring.FreeSpeedTravelTime;
+import org.matsim.core.utils.misc.ParallelUtils;
 import org.matsim.facilities.ActivityFacilities;
 import org.matsim.facilities.ActivityFacilitiesImpl;
 import org.matsim.facilities.ActivityFacility;
@@ -42,6 +45,8 @@ public final class AccessibilityCalculator {
 	private AggregationObject[] aggregatedOpportunities;
 
 	private final Map<Modes4Accessibility, AccessibilityContributionCalculator> calculators = new HashMap<>();
+	// creates further instances of the calculators for the other threads; calculators set from outside have none
+	private final Map<Modes4Accessibility, ContributionCalculatorFactory> calculatorFactories = new HashMap<>();
 
 	private final ArrayList<FacilityDataExchangeInterface> zoneDataExchangeListeners = new ArrayList<>();
 
@@ -106,40 +111,65 @@ public final class AccessibilityCalculator {
 		initDefaultContributionCalculators(travelTimes, travelDisutilityFactories, scenario);
 	}
 	
-	private void initDefaultContributionCalculators(Map<String, TravelTime> travelTimes,
-			Map<String, TravelDisutilityFactory> travelDisutilityFactories, Scenario scenario) {
-		calculators.put(
+	private void initDefaultContributionCalculators(final Map<String, TravelTime> travelTimes,
+			final Map<String, TravelDisutilityFactory> travelDisutilityFactories, final Scenario scenario) {
+		putDefaultContributionCalculator(
 				Modes4Accessibility.car,
-				new NetworkModeAccessibilityExpContributionCalculator(
-						travelTimes.get(TransportMode.car),
-						travelDisutilityFactories.get(TransportMode.car),
-						// new
-//						walkTravelDisutility,
-						// ===
-						null,
-						// new
-						scenario));
-		calculators.put(
+				new ContributionCalculatorFactory() {
+					@Override
+					public AccessibilityContributionCalculator create() {
+						return new NetworkModeAccessibilityExpContributionCalculator(
+								travelTimes.get(TransportMode.car),
+								travelDisutilityFactories.get(TransportMode.car),
+								// new
+//								walkTravelDisutility,
+								// ===
+								null,
+								// new
+								scenario);
+					}
+				});
+		putDefaultContributionCalculator(
 				Modes4Accessibility.freeSpeed,
-				new NetworkModeAccessibilityExpContributionCalculator(
-						new FreeSpeedTravelTime(),
-						travelDisutilityFactories.get(TransportMode.car),
-						// new
-//						walkTravelDisutility,
-						// ===
-						null,
-						// new
-						scenario));
-		calculators.put(
+				new ContributionCalculatorFactory() {
+					@Override
+					public AccessibilityContributionCalculator create() {
+						return new NetworkModeAccessibilityExpContributionCalculator(
+								new FreeSpeedTravelTime(),
+								travelDisutilityFactories.get(TransportMode.car),
+								// new
+//								walkTravelDisutility,
+								// ===
+								null,
+								// new
+								scenario);
+					}
+				});
+		putDefaultContributionCalculator(
 				Modes4Accessibility.walk,
-				new ConstantSpeedAccessibilityExpContributionCalculator(
-						TransportMode.walk,
-						scenario));
-		calculators.put(
+				new ContributionCalculatorFactory() {
+					@Override
+					public AccessibilityContributionCalculator create() {
+						return new ConstantSpeedAccessibilityExpContributionCalculator(
+								TransportMode.walk,
+								scenario);
+					}
+				});
+		putDefaultContributionCalculator(
 				Modes4Accessibility.bike,
-				new ConstantSpeedAccessibilityExpContributionCalculator(
-						TransportMode.bike,
-						scenario));
+				new ContributionCalculatorFactory() {
+					@Override
+					public AccessibilityContributionCalculator create() {
+						return new ConstantSpeedAccessibilityExpContributionCalculator(
+								TransportMode.bike,
+								scenario);
+					}
+				});
+	}
+
+	private void putDefaultContributionCalculator(Modes4Accessibility mode, ContributionCalculatorFactory factory) {
+		this.calculators.put(mode, factory.create());
+		this.calculatorFactories.put(mode, factory);
 	}
 
 	
@@ -205,64 +235,76 @@ public final class AccessibilityCalculator {
 	}
 
 	
-	public final void computeAccessibilities( Double departureTime, ActivityFacilities opportunities) {
+	/**
+	 * The origin nodes are distributed over <code>global.numberOfThreads</code> threads. Every thread has its own
+	 * contribution calculators, and thereby its own least cost path trees; the listeners are informed on the calling thread,
+	 * after all exp sums are computed.  If a calculator was set by {@link #putAccessibilityCalculator} for a computed
+	 * mode, it cannot be replicated, and all nodes are computed on the calling thread.
+	 */
+	public final void computeAccessibilities( final Double departureTime, ActivityFacilities opportunities) {
 		aggregateOpportunities(opportunities, scenario.getNetwork());
 
-		Map<Modes4Accessibility,ExpSum> expSums = new HashMap<>() ;
-		for (Modes4Accessibility mode : Modes4Accessibility.values()) {
-			expSums.put(mode, new ExpSum());
-		}
+		final Modes4Accessibility[] modes = acg.getIsComputingMode().toArray(new Modes4Accessibility[acg.getIsComputingMode().size()]);
 
 		// Condense measuring points (origins) that have the same nearest node on the network
 		Map<Id<Node>, ArrayList<ActivityFacility>> aggregatedOrigins = aggregateMeasurePointsWithSameNearestNode();
-		
-		log.info("Now going through all origins:");
-		ProgressBar bar = new ProgressBar(aggregatedOrigins.size());
-		
-		// go through all nodes (keys) that have a measuring point (origin) assigned
-		for (Id<Node> nodeId : aggregatedOrigins.keySet()) {
-			bar.update();
 
-			Node fromNode = scenario.getNetwork().getNodes().get(nodeId);
+		final Node[] fromNodes = new Node[aggregatedOrigins.size()];
+		final List<ArrayList<ActivityFacility>> originsPerNode = new ArrayList<>(aggregatedOrigins.size());
+		for (Map.Entry<Id<Node>, ArrayList<ActivityFacility>> entry : aggregatedOrigins.entrySet()) {
+			fromNodes[originsPerNode.size()] = scenario.getNetwork().getNodes().get(entry.getKey());
+			originsPerNode.add(entry.getValue());
+		}
+		// per node, the exp sums of all origins of the node, one after the other, in the order of the modes
+		final double[][] expSums = new double[fromNodes.length][];
 
-			for (AccessibilityContributionCalculator calculator : calculators.values()) {
-				calculator.notifyNewOriginNode(fromNode, departureTime);
-			}
+		log.info("Now going through all origins:");
+		final ProgressBar bar = new ProgressBar(fromNodes.length);
 
-			// get list with origins that are assigned to "fromNode"
-			for ( ActivityFacility origin : aggregatedOrigins.get( nodeId ) ) {
-				assert( origin.getCoord() != null );
-				
-				for ( ExpSum expSum : expSums.values() ) {
-					expSum.reset();
-				}
+		int threadCount = Math.min(Math.max(1, scenario.getConfig().global().getNumberOfThreads()), fromNodes.length);
+		for (Modes4Accessibility mode : modes) {
+			if (calculators.containsKey(mode) && !calculatorFactories.containsKey(mode)) {
+				threadCount = 1;
+			}
+		}
 
-				// --------------------------------------------------------------------------------------------------------------
-				// goes through all opportunities, e.g. jobs, (nearest network node) and calculate/add their exp(U) contributions:
-				for (final AggregationObject aggregatedFacility : this.aggregatedOpportunities) {
-					computeAndAddExpUtilContributions( expSums, origin, aggregatedFacility, departureTime );
-					// yyyy might be nicer to not pass gcs into the method. kai, oct'16
+		final AtomicInteger nextNode = new AtomicInteger(0);
+		ParallelUtils.runThreads(threadCount, new ParallelUtils.ThreadTask() {
+			@Override
+			public void run(int thread) {
+				AccessibilityContributionCalculator[] threadCalculators = new AccessibilityContributionCalculator[modes.length];
+				for (int m = 0; m < modes.length; m++) {
+					if (thread == 0) {
+						threadCalculators[m] = calculators.get(modes[m]);
+					} else {
+						ContributionCalculatorFactory factory = calculatorFactories.get(modes[m]);
+						threadCalculators[m] = factory == null ? null : factory.create();
+					}
 				}
-				// --------------------------------------------------------------------------------------------------------------
-				// What does the aggregation of the starting locations save if we do the just ended loop for all starting
-				// points separately anyways?  Answer: The trees need to be computed only once.  (But one could save more.) kai, feb'14
+				computeExpSums(threadCalculators, fromNodes, originsPerNode, departureTime, nextNode, expSums, bar);
+			}
+		});
 
+		for (int node = 0; node < fromNodes.length; node++) {
+			List<ActivityFacility> origins = originsPerNode.get(node);
+			for (int o = 0; o < origins.size(); o++) {
 				// aggregated value
 				Map< Modes4Accessibility, Double> accessibilities  = new HashMap<>() ;
 
-				for ( Modes4Accessibility mode : acg.getIsComputingMode() ) {
+				for (int m = 0; m < modes.length; m++) {
+					double expSum = expSums[node][o * modes.length + m];
 					// TODO introduce here a config parameter "computation mode" that can be set to "rawSum", "minimum" or "exponential/logsum/hansen", dz, sept'16
 					if(!useRawSum){
-						accessibilities.put( mode, inverseOfLogitScaleParameter * Math.log( expSums.get(mode).getSum() ) ) ;
+						accessibilities.put( modes[m], inverseOfLogitScaleParameter * Math.log( expSum ) ) ;
 					} else {
 						// this was used by IVT within SustainCity.  Not sure if we should maintain this; they could, after all, just exp the log results. kai, may'15
-						accessibilities.put( mode, expSums.get(mode).getSum() ) ;
+						accessibilities.put( modes[m], expSum ) ;
 					}
 				}
 
 				for (FacilityDataExchangeInterface zoneDataExchangeInterface : this.zoneDataExchangeListeners) {
 					//log.info("here");
-					zoneDataExchangeInterface.setFacilityAccessibilities(origin, departureTime, accessibilities);
+					zoneDataExchangeInterface.setFacilityAccessibilities(origins.get(o), departureTime, accessibilities);
 				}
 			}
 		}
@@ -271,6 +313,55 @@ public final class AccessibilityCalculator {
 		}
 	}
 
+
+	/**
+	 * Takes origin nodes from the shared counter until all are done, and stores the exp sums of their origins.  A mode
+	 * without a calculator keeps an exp sum of zero.
+	 */
+	private void computeExpSums(AccessibilityContributionCalculator[] modeCalculators, Node[] fromNodes,
+			List<ArrayList<ActivityFacility>> originsPerNode, Double departureTime, AtomicInteger nextNode, double[][] expSums,
+			ProgressBar bar) {
+		int node;
+		while ((node = nextNode.getAndIncrement()) < fromNodes.length) {
+
+			for (AccessibilityContributionCalculator calculator : modeCalculators) {
+				if (calculator != null) {
+					calculator.notifyNewOriginNode(fromNodes[node], departureTime);
+				}
+			}
+
+			// get list with origins that are assigned to "fromNode"
+			List<ActivityFacility> origins = originsPerNode.get(node);
+			double[] nodeExpSums = new double[origins.size() * modeCalculators.length];
+			for (int o = 0; o < origins.size(); o++) {
+				ActivityFacility origin = origins.get(o);
+				assert( origin.getCoord() != null );
+
+				for (int m = 0; m < modeCalculators.length; m++) {
+					AccessibilityContributionCalculator calculator = modeCalculators[m];
+					if (calculator == null) {
+						continue;
+					}
+					// --------------------------------------------------------------------------------------------------------------
+					// goes through all opportunities, e.g. jobs, (nearest network node) and calculate/add their exp(U) contributions:
+					double expSum = 0.;
+					for (final AggregationObject aggregatedFacility : this.aggregatedOpportunities) {
+						expSum += calculator.computeContributionOfOpportunity( origin , aggregatedFacility, departureTime );
+					}
+					nodeExpSums[o * modeCalculators.length + m] = expSum;
+					// --------------------------------------------------------------------------------------------------------------
+					// What does the aggregation of the starting locations save if we do the just ended loop for all starting
+					// points separately anyways?  Answer: The trees need to be computed only once.  (But one could save more.) kai, feb'14
+				}
+			}
+			expSums[node] = nodeExpSums;
+
+			synchronized (bar) {
+				bar.update();
+			}
+		}
+	}
+
 	
 	/**
 	 * This method condenses measuring points (origins) that have the same nearest node on the network
@@ -300,23 +391,6 @@ public final class AccessibilityCalculator {
 	}
 
 	
-	private void computeAndAddExpUtilContributions( Map<Modes4Accessibility,ExpSum> expSums, ActivityFacility origin, 
-			final AggregationObject aggregatedFacility, Double departureTime) 
-	{
-		for ( Map.Entry<Modes4Accessibility, AccessibilityContributionCalculator> calculatorEntry : calculators.entrySet() ) {
-			final Modes4Accessibility mode = calculatorEntry.getKey();
-
-			if ( !this.acg.getIsComputingMode().contains(mode) ) {
-				continue; // XXX should be configured by adding only the relevant calculators
-			}
-
-			final double expVhk = calculatorEntry.getValue().computeContributionOfOpportunity( origin , aggregatedFacility, departureTime );
-
-			expSums.get(mode).addExpUtils( expVhk );
-		}
-	}
-
-	
 	@Deprecated // should be replaced by something like what follows after 
 	public final void setComputingAccessibilityForMode( Modes4Accessibility mode, boolean val ) {
 		this.acg.setComputingAccessibilityForMode(mode, val);
@@ -324,6 +398,7 @@ public final class AccessibilityCalculator {
 	
 	public final void putAccessibilityCalculator( Modes4Accessibility mode, AccessibilityContributionCalculator calc ) {
 		this.calculators.put( mode , calc ) ;
+		this.calculatorFactories.remove( mode ) ;
 	}
 	
 	
@@ -333,34 +408,25 @@ public final class AccessibilityCalculator {
 
 	
 	/**
-	 * stores travel disutilities for different modes
+	 * Creates an instance of the contribution calculator of a mode.  The calculators keep the least cost path tree of the
+	 * current origin node, so every thread needs its own.
 	 */
-	static class ExpSum {
-		// could just use Map<Modes4Accessibility,Double>, but since it is fairly far inside the loop, I leave it with primitive
-		// variables on the (unfounded) intuition that this helps with computational speed.  kai, 
-
-		private double sum  	= 0.;
-
-		void reset() {
-			this.sum		  	= 0.;
-		}
-
-		void addExpUtils(double val){
-			this.sum += val;
-		}
-
-		double getSum(){
-			return this.sum;
-		}
+	private interface ContributionCalculatorFactory {
+		AccessibilityContributionCalculator create();
 	}
 
 	
-	public final void setPtMatrix(PtMatrix ptMatrix) {
-		calculators.put(
+	public final void setPtMatrix(final PtMatrix ptMatrix) {
+		putDefaultContributionCalculator(
 				Modes4Accessibility.pt,
-				PtMatrixAccessibilityContributionCalculator.create(
-						ptMatrix,
-						scenario.getConfig()));
+				new ContributionCalculatorFactory() {
+					@Override
+					public AccessibilityContributionCalculator create() {
+						return PtMatrixAccessibilityContributionCalculator.create(
+								ptMatrix,
+								scenario.getConfig());
+					}
+				});
 	}
 
 	
@@ -43,6 +43,11 @@ import org.matsim.utils.leastcostpathtree.LeastCostPathTree;
 
 	private Node fromNode = null;
 
+	// the terms that only depend on the origin, computed once for all opportunities of an origin
+	private ActivityFacility origin = null;
+	private double expVhiWalk;
+	private double bikeDisutilityRoad2Node;
+
 	public ConstantSpeedAccessibilityExpContributionCalculator(
 			final String mode,
 			final Scenario scenario) {
@@ -79,20 +84,41 @@ import org.matsim.utils.leastcostpathtree.LeastCostPathTree;
 	@Override
 	public void notifyNewOriginNode(Node fromNode, Double departureTime) {
 		this.fromNode = fromNode;
+		this.origin = null;
 		this.lcptTravelDistance.calculate(scenario.getNetwork(), fromNode, departureTime);
 	}
 
 	@Override
 	public double computeContributionOfOpportunity(ActivityFacility origin, AggregationObject destination, Double departureTime) {
+		if ( origin != this.origin ) {
+			computeOriginTerms(origin);
+		}
+
+		// get stored network node (this is the nearest node next to an aggregated work place)
+		Node destinationNode = destination.getNearestNode();
+
+		double sumExpVjkWalk = destination.getSum();
+
+		double travelDistance_meter = lcptTravelDistance.getTree().get(destinationNode.getId()).getCost(); 				// travel link distances on road network for bicycle and walk
+		double bikeDisutility = ((travelDistance_meter/ speedMeterPerHour) * betaTT) + (travelDistance_meter * betaTD);// toll or money ???
+		// This is equivalent to the sum of the exponential of the utilities for all destinations (I had to write it on
+		// paper to check it is correct...)
+		return expVhiWalk * Math.exp(logitScaleParameter * (constant + bikeDisutility + bikeDisutilityRoad2Node)) * sumExpVjkWalk;
+	}
+
+	/**
+	 * Computes the walk from the origin to the network and the travel to the first node, which are the same for all
+	 * opportunities of an origin.
+	 */
+	private void computeOriginTerms(ActivityFacility origin) {
+		this.origin = origin;
+
 		// get the nearest link:
 		Link nearestLink = NetworkUtils.getNearestLinkExactly(((Network)scenario.getNetwork()),origin.getCoord());
 
 		// captures the distance (as walk time) between the origin via the link to the node:
 		Distances distance = NetworkUtil.getDistances2NodeViaGivenLink(origin.getCoord(), nearestLink, fromNode);
 
-		// get stored network node (this is the nearest node next to an aggregated work place)
-		Node destinationNode = destination.getNearestNode();
-
 		// TODO: extract this walk part?
 		// In the state found before modularization (june 15), this was anyway not consistent accross modes
 		// (different for PtMatrix), pointing to the fact that making this mode-specific might make sense.
@@ -101,16 +127,9 @@ import org.matsim.utils.leastcostpathtree.LeastCostPathTree;
 
 		// disutilities to get on or off the network
 		double walkDisutilityMeasuringPoint2Road = (walkTravelTimeMeasuringPoint2Road_h * betaWalkTT) + (distance.getDistancePoint2Intersection() * betaWalkTD);
-		double expVhiWalk = Math.exp(this.logitScaleParameter * walkDisutilityMeasuringPoint2Road);
-		double sumExpVjkWalk = destination.getSum();
-
+		this.expVhiWalk = Math.exp(this.logitScaleParameter * walkDisutilityMeasuringPoint2Road);
 
 		double road2NodeBikeTime_h					= distance.getDistanceIntersection2Node() / speedMeterPerHour;
-		double travelDistance_meter = lcptTravelDistance.getTree().get(destinationNode.getId()).getCost(); 				// travel link distances on road network for bicycle and walk
-		double bikeDisutilityRoad2Node = (road2NodeBikeTime_h * betaTT) + (distance.getDistanceIntersection2Node() * betaTD); // toll or money ???
-		double bikeDisutility = ((travelDistance_meter/ speedMeterPerHour) * betaTT) + (travelDistance_meter * betaTD);// toll or money ???
-		// This is equivalent to the sum of the exponential of the utilities for all destinations (I had to write it on
-		// paper to check it is correct...)
-		return expVhiWalk * Math.exp(logitScaleParameter * (constant + bikeDisutility + bikeDisutilityRoad2Node)) * sumExpVjkWalk;
+		this.bikeDisutilityRoad2Node = (road2NodeBikeTime_h * betaTT) + (distance.getDistanceIntersection2Node() * betaTD); // toll or money ???
 	}
 }
@@ -49,6 +49,15 @@ import org.matsim.roadpricing.RoadPricingSchemeImpl;
 	private Node fromNode = null;
 	private final LeastCostPathTreeExtended lcpt;
 
+	// the terms that only depend on the origin and the departure time, computed once for all opportunities of an origin
+	private ActivityFacility origin = null;
+	private double originDepartureTime;
+	private Link nearestLink;
+	private Distances distance;
+	private Coord projectionCoord;
+	private double expVhiWalk;
+	private double congestedCarDisutilityRoad2Node;
+
 	
 	public NetworkModeAccessibilityExpContributionCalculator(
 			final TravelTime travelTime,
@@ -87,6 +96,7 @@ import org.matsim.roadpricing.RoadPricingSchemeImpl;
 	@Override
 	public void notifyNewOriginNode(Node fromNode, Double departureTime) {
 		this.fromNode = fromNode;
+		this.origin = null;
 		this.lcpt.calculateExtended(scenario.getNetwork(), fromNode, departureTime);
 	}
 	
@@ -95,10 +105,39 @@ import org.matsim.roadpricing.RoadPricingSchemeImpl;
 	@Override
 	public double computeContributionOfOpportunity(ActivityFacility origin, AggregationObject destination, Double departureTime) {
 
-		Link nearestLink = NetworkUtils.getNearestLinkExactly(scenario.getNetwork(), origin.getCoord());
+		if ( origin != this.origin || departureTime != this.originDepartureTime ) {
+			computeOriginTerms(origin, departureTime);
+		}
+		if ( cnt < 10 ) {
+			writeDebuggingOutput(origin, destination, nearestLink, distance, projectionCoord);
+		}
+
+		// === (2) REMAINING TRAVEL ON NETWORK:
+		double congestedCarDisutility = - lcpt.getTree().get(destination.getNearestNode().getId()).getCost();	
+		// travel disutility congested car on road network (including toll)
+		
+		// === (3) Pre-computed effect of all opportunities reachable from destination network node:
+		double sumExpVjkWalk = destination.getSum();
+		// works because something like exp(A+c1) + exp(A+c2) + ... = exp(A) * [ exp(c1) + exp(c2) + ...]  =: exp(A) * sumExpVjkWalk
+		
+		// === (4) Everything together:
+		// note that exp(a+b+c) = exp(a) * exp(b) * exp(c), so for b and c the exponentiation has already been done.
+		return Math.exp(logitScaleParameter * (constCar + congestedCarDisutilityRoad2Node + congestedCarDisutility) ) *
+				expVhiWalk * sumExpVjkWalk;
+	}
+
+
+	/**
+	 * Computes the walk from the origin to the network and the car travel to the first node, which are the same for all
+	 * opportunities of an origin.  The search for the nearest link alone scans all links of the network.
+	 */
+	private void computeOriginTerms(ActivityFacility origin, Double departureTime) {
+		this.origin = origin;
+		this.originDepartureTime = departureTime;
+		this.nearestLink = NetworkUtils.getNearestLinkExactly(scenario.getNetwork(), origin.getCoord());
 
 		// === (1) ORIGIN to LINK to NODE (captures the distance (as walk time) between the origin via the link to the node):
-		Distances distance = NetworkUtil.getDistances2NodeViaGivenLink(origin.getCoord(), nearestLink, fromNode);
+		this.distance = NetworkUtil.getDistances2NodeViaGivenLink(origin.getCoord(), nearestLink, fromNode);
 		
 		// TODO: extract this walk part?
 		// In the state found before modularization (june 15), this was anyway not consistent accross modes
@@ -108,38 +147,25 @@ import org.matsim.roadpricing.RoadPricingSchemeImpl;
 		
 		// (a) disutilities to get on or off the network
 		double walkDisutilityMeasuringPoint2Road = (walkTravelTimeMeasuringPoint2Road_h * betaWalkTT) + (distance.getDistancePoint2Intersection() * betaWalkTD);
-		Coord projectionCoord = CoordUtils.orthogonalProjectionOnLineSegment(nearestLink.getFromNode().getCoord(), nearestLink.getToNode().getCoord(), origin.getCoord());
-		if ( cnt < 10 ) {
-			writeDebuggingOutput(origin, destination, nearestLink, distance, projectionCoord);
-		}
-		double expVhiWalk = Math.exp(this.logitScaleParameter * walkDisutilityMeasuringPoint2Road);
+		this.projectionCoord = CoordUtils.orthogonalProjectionOnLineSegment(nearestLink.getFromNode().getCoord(), nearestLink.getToNode().getCoord(), origin.getCoord());
+		this.expVhiWalk = Math.exp(this.logitScaleParameter * walkDisutilityMeasuringPoint2Road);
 		
 		// (b) TRAVEL ON NETWORK to FIRST NODE:
 		double toll_money = getTollMoney(departureTime, nearestLink, distance);
 		double carSpeedOnNearestLink_meterpersec= nearestLink.getLength() / travelTime.getLinkTravelTime(nearestLink, departureTime, null, null);
 		double road2NodeCongestedCarTime_h 			= distance.getDistanceIntersection2Node() / (carSpeedOnNearestLink_meterpersec * 3600.);
 		
-		double congestedCarDisutilityRoad2Node = (road2NodeCongestedCarTime_h * betaCarTT) 
+		this.congestedCarDisutilityRoad2Node = (road2NodeCongestedCarTime_h * betaCarTT) 
 				+ (distance.getDistanceIntersection2Node() * betaCarTD) + (toll_money * betaCarTMC);
 //		// dzdzdz: replace the above by link disutility multiplied by fraction of link that is used according to the entry point.  (toll should be in there automatically??)
-
-		// === (2) REMAINING TRAVEL ON NETWORK:
-		double congestedCarDisutility = - lcpt.getTree().get(destination.getNearestNode().getId()).getCost();	
-		// travel disutility congested car on road network (including toll)
-		
-		// === (3) Pre-computed effect of all opportunities reachable from destination network node:
-		double sumExpVjkWalk = destination.getSum();
-		// works because something like exp(A+c1) + exp(A+c2) + ... = exp(A) * [ exp(c1) + exp(c2) + ...]  =: exp(A) * sumExpVjkWalk
-		
-		// === (4) Everything together:
-		// note that exp(a+b+c) = exp(a) * exp(b) * exp(c), so for b and c the exponentiation has already been done.
-		return Math.exp(logitScaleParameter * (constCar + congestedCarDisutilityRoad2Node + congestedCarDisutility) ) *
-				expVhiWalk * sumExpVjkWalk;
 	}
 
 
-	private static void writeDebuggingOutput(ActivityFacility origin, AggregationObject destination, Link nearestLink,
+	private static synchronized void writeDebuggingOutput(ActivityFacility origin, AggregationObject destination, Link nearestLink,
 			Distances distance, Coord projectionCoord) {
+		if ( cnt >= 10 ) {
+			return; // the calculators of several threads may pass the unsynchronized check at the same time
+		}
 		cnt ++ ; 
 		log.warn("#############");
 		log.warn("origin.getCoord() = " + origin.getCoord() + " -- destination.getNearestNode() = " + destination.getNearestNode());
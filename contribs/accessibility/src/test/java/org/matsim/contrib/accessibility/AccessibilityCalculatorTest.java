@@ -0,0 +1,178 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.accessibility;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.contrib.accessibility.gis.GridUtils;
+import org.matsim.contrib.accessibility.interfaces.FacilityDataExchangeInterface;
+import org.matsim.contrib.accessibility.utils.AggregationObject;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.costcalculators.OnlyTimeDependentTravelDisutilityFactory;
+import org.matsim.core.router.costcalculators.TravelDisutilityFactory;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.trafficmonitoring.FreeSpeedTravelTime;
+import org.matsim.facilities.ActivityFacilities;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.facilities.FacilitiesUtils;
+
+public class AccessibilityCalculatorTest {
+
+	private static final int GRID_SIZE = 6;
+	private static final double GRID_GAP = 200.;
+
+	/**
+	 * The origin nodes are distributed over the threads; the accessibilities must not depend on the number of threads.
+	 */
+	@Test
+	public void testSeveralThreadsEqualOneThread() {
+		Map<Id<ActivityFacility>, Map<Modes4Accessibility, Double>> oneThread = computeAccessibilities(1, false);
+		Map<Id<ActivityFacility>, Map<Modes4Accessibility, Double>> fourThreads = computeAccessibilities(4, false);
+
+		Assert.assertFalse(oneThread.isEmpty());
+		Assert.assertEquals(oneThread, fourThreads);
+	}
+
+	/**
+	 * A calculator set from outside cannot be replicated, so all origin nodes are computed on the calling thread, with
+	 * the same results.
+	 */
+	@Test
+	public void testCalculatorSetFromOutsideComputedOnCallingThread() {
+		Map<Id<ActivityFacility>, Map<Modes4Accessibility, Double>> oneThread = computeAccessibilities(1, false);
+		Map<Id<ActivityFacility>, Map<Modes4Accessibility, Double>> fallback = computeAccessibilities(4, true);
+
+		Assert.assertEquals(oneThread, fallback);
+	}
+
+	private Map<Id<ActivityFacility>, Map<Modes4Accessibility, Double>> computeAccessibilities(int numberOfThreads,
+			boolean putWalkCalculator) {
+		Config config = ConfigUtils.createConfig();
+		config.global().setNumberOfThreads(numberOfThreads);
+		AccessibilityConfigGroup acg = ConfigUtils.addOrGetModule(config, AccessibilityConfigGroup.GROUP_NAME, AccessibilityConfigGroup.class);
+		acg.setComputingAccessibilityForMode(Modes4Accessibility.freeSpeed, true);
+		acg.setComputingAccessibilityForMode(Modes4Accessibility.car, true);
+		acg.setComputingAccessibilityForMode(Modes4Accessibility.walk, true);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		createGridNetwork(scenario.getNetwork());
+
+		Map<String, TravelTime> travelTimes = new HashMap<>();
+		travelTimes.put(TransportMode.car, new FreeSpeedTravelTime());
+		Map<String, TravelDisutilityFactory> travelDisutilityFactories = new HashMap<>();
+		travelDisutilityFactories.put(TransportMode.car, new OnlyTimeDependentTravelDisutilityFactory());
+
+		AccessibilityCalculator calculator = new AccessibilityCalculator(travelTimes, travelDisutilityFactories, scenario);
+		double max = (GRID_SIZE - 1) * GRID_GAP;
+		calculator.setMeasuringPoints(GridUtils.createGridLayerByGridSizeByBoundingBoxV2(0., 0., max, max, GRID_GAP / 2));
+
+		final Thread caller = Thread.currentThread();
+		final Set<Thread> threads = new HashSet<>();
+		if (putWalkCalculator) {
+			final AccessibilityContributionCalculator walk = new ConstantSpeedAccessibilityExpContributionCalculator(TransportMode.walk, scenario);
+			calculator.putAccessibilityCalculator(Modes4Accessibility.walk, new AccessibilityContributionCalculator() {
+				@Override
+				public void notifyNewOriginNode(Node fromNode, Double departureTime) {
+					walk.notifyNewOriginNode(fromNode, departureTime);
+				}
+
+				@Override
+				public double computeContributionOfOpportunity(ActivityFacility origin, AggregationObject destination, Double departureTime) {
+					synchronized (threads) {
+						threads.add(Thread.currentThread());
+					}
+					return walk.computeContributionOfOpportunity(origin, destination, departureTime);
+				}
+			});
+		}
+
+		final Map<Id<ActivityFacility>, Map<Modes4Accessibility, Double>> results = new HashMap<>();
+		calculator.addFacilityDataExchangeListener(new FacilityDataExchangeInterface() {
+			@Override
+			public void setFacilityAccessibilities(ActivityFacility measurePoint, Double timeOfDay, Map<Modes4Accessibility, Double> accessibilities) {
+				Assert.assertSame(caller, Thread.currentThread());
+				results.put(measurePoint.getId(), new HashMap<>(accessibilities));
+			}
+
+			@Override
+			public void finish() {
+			}
+		});
+
+		calculator.computeAccessibilities(acg.getTimeOfDay(), createOpportunities());
+
+		if (putWalkCalculator) {
+			Assert.assertEquals(1, threads.size());
+			Assert.assertTrue(threads.contains(caller));
+		}
+		return results;
+	}
+
+	private static void createGridNetwork(Network network) {
+		for (int y = 0; y < GRID_SIZE; y++) {
+			for (int x = 0; x < GRID_SIZE; x++) {
+				NetworkUtils.createAndAddNode(network, Id.createNodeId(x + "_" + y), new Coord(x * GRID_GAP, y * GRID_GAP));
+			}
+		}
+		for (int y = 0; y < GRID_SIZE; y++) {
+			for (int x = 0; x < GRID_SIZE; x++) {
+				// slower links towards the upper right, so that not all paths cost the same
+				double freespeed = 10. + x + y;
+				if (x + 1 < GRID_SIZE) {
+					createLinks(network, x + "_" + y, (x + 1) + "_" + y, freespeed);
+				}
+				if (y + 1 < GRID_SIZE) {
+					createLinks(network, x + "_" + y, x + "_" + (y + 1), freespeed);
+				}
+			}
+		}
+	}
+
+	private static void createLinks(Network network, String node1, String node2, double freespeed) {
+		Node from = network.getNodes().get(Id.createNodeId(node1));
+		Node to = network.getNodes().get(Id.createNodeId(node2));
+		NetworkUtils.createAndAddLink(network, Id.createLinkId(node1 + "-" + node2), from, to, GRID_GAP, freespeed, 1000., 1.);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId(node2 + "-" + node1), to, from, GRID_GAP, freespeed, 1000., 1.);
+	}
+
+	private static ActivityFacilities createOpportunities() {
+		ActivityFacilities opportunities = FacilitiesUtils.createActivityFacilities();
+		for (int i = 0; i < 20; i++) {
+			// spread over the grid, off the nodes
+			Coord coord = new Coord((i * 173.) % ((GRID_SIZE - 1) * GRID_GAP), (i * 311.) % ((GRID_SIZE - 1) * GRID_GAP));
+			opportunities.addActivityFacility(opportunities.getFactory().createActivityFacility(Id.create(i, ActivityFacility.class), coord));
+		}
+		return opportunities;
+	}
+
+}
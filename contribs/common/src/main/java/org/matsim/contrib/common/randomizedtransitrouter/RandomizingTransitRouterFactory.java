@@ -24,22 +24,24 @@ import org.matsim.pt.transitSchedule.api.TransitSchedule;
 
 import javax.inject.Inject;
 import javax.inject.Provider;
+import javax.inject.Singleton;
 
 
 /**
  * @author dgrether
  *
  */
+@Singleton
 public class RandomizingTransitRouterFactory implements Provider<TransitRouter> {
 
 	private TransitRouterConfig trConfig;
-	private TransitSchedule schedule;
+	private PreparedTransitSchedule preparedTransitSchedule;
 	private TransitRouterNetwork routerNetwork;
 
     @Inject
 	RandomizingTransitRouterFactory(Config config, TransitSchedule schedule) {
 		this.trConfig = new TransitRouterConfig(config);
-		this.schedule = schedule;
+		this.preparedTransitSchedule = new PreparedTransitSchedule(schedule);
 		this.routerNetwork = TransitRouterNetwork.createFromSchedule(schedule, trConfig.getBeelineWalkConnectionDistance());
 	}
 	
@@ -48,7 +50,7 @@ public class RandomizingTransitRouterFactory implements Provider<TransitRouter>
 		RandomizingTransitRouterTravelTimeAndDisutility ttCalculator = new RandomizingTransitRouterTravelTimeAndDisutility(trConfig);
 		ttCalculator.setDataCollection(RandomizingTransitRouterTravelTimeAndDisutility.DataCollection.randomizedParameters, true) ;
 		ttCalculator.setDataCollection(RandomizingTransitRouterTravelTimeAndDisutility.DataCollection.additionalInformation, false) ;
-		return new TransitRouterImpl(trConfig, new PreparedTransitSchedule(schedule), routerNetwork, ttCalculator, ttCalculator);
+		return new TransitRouterImpl(trConfig, preparedTransitSchedule, routerNetwork, ttCalculator, ttCalculator);
 	}
 
 }
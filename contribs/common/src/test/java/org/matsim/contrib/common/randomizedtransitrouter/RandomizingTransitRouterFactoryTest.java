@@ -0,0 +1,138 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.common.randomizedtransitrouter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.inject.Singleton;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.LinkNetworkRouteImpl;
+import org.matsim.core.utils.misc.ParallelUtils;
+import org.matsim.pt.router.FakeFacility;
+import org.matsim.pt.router.TransitRouter;
+import org.matsim.pt.router.TransitRouterImpl;
+import org.matsim.pt.routes.ExperimentalTransitRoute;
+import org.matsim.pt.transitSchedule.TransitScheduleFactoryImpl;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitScheduleFactory;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+public class RandomizingTransitRouterFactoryTest {
+
+	/**
+	 * The factory is a singleton, so the prepared schedule and the router network are built once, while every router
+	 * gets its own randomized travel disutility.
+	 */
+	@Test
+	public void testRoutersShareNetworkButNotState() {
+		Assert.assertNotNull(RandomizingTransitRouterFactory.class.getAnnotation(Singleton.class));
+
+		RandomizingTransitRouterFactory factory = new RandomizingTransitRouterFactory(ConfigUtils.createConfig(), createSchedule());
+		TransitRouterImpl router1 = (TransitRouterImpl) factory.get();
+		TransitRouterImpl router2 = (TransitRouterImpl) factory.get();
+		Assert.assertNotSame(router1, router2);
+		Assert.assertSame(router1.getTransitRouterNetwork(), router2.getTransitRouterNetwork());
+	}
+
+	/**
+	 * Routers of the shared factory are used by several threads at once, each router by one thread, as in the replanning.
+	 * The randomized parameters change with the person, so the routes may differ, but each must be a valid one.
+	 */
+	@Test
+	public void testRoutersUsedByThreads() {
+		Config config = ConfigUtils.createConfig();
+		final RandomizingTransitRouterFactory factory = new RandomizingTransitRouterFactory(config, createSchedule());
+		final int threads = 4;
+		final TransitRouter[] routers = new TransitRouter[threads];
+		for (int t = 0; t < threads; t++) {
+			routers[t] = factory.get();
+		}
+
+		final int requests = 400;
+		@SuppressWarnings("unchecked")
+		final List<Leg>[] results = new List[requests];
+		ParallelUtils.runRows(requests, 5, threads, new ParallelUtils.RowTask() {
+			@Override
+			public void calcRow(int row, int thread) {
+				Person person = PopulationUtils.getFactory().createPerson(Id.create(row, Person.class));
+				results[row] = routers[thread].calcRoute(new FakeFacility(new Coord(-100, 0)), new FakeFacility(new Coord(20100, 0)), 7 * 3600, person);
+			}
+		});
+
+		for (List<Leg> legs : results) {
+			Assert.assertNotNull(legs);
+			Assert.assertFalse(legs.isEmpty());
+			for (Leg leg : legs) {
+				if (TransportMode.pt.equals(leg.getMode())) {
+					ExperimentalTransitRoute route = (ExperimentalTransitRoute) leg.getRoute();
+					Assert.assertEquals(Id.create("1", TransitStopFacility.class), route.getAccessStopId());
+					Assert.assertEquals(Id.create("2", TransitStopFacility.class), route.getEgressStopId());
+					Assert.assertEquals(Id.create("line", TransitLine.class), route.getLineId());
+				} else {
+					Assert.assertEquals(TransportMode.transit_walk, leg.getMode());
+				}
+			}
+		}
+	}
+
+	/**
+	 * A line every 10 minutes between two stops 20 km apart.
+	 */
+	private static TransitSchedule createSchedule() {
+		TransitScheduleFactory factory = new TransitScheduleFactoryImpl();
+		TransitSchedule schedule = factory.createTransitSchedule();
+		TransitStopFacility stop1 = factory.createTransitStopFacility(Id.create("1", TransitStopFacility.class), new Coord(0, 0), false);
+		TransitStopFacility stop2 = factory.createTransitStopFacility(Id.create("2", TransitStopFacility.class), new Coord(20000, 0), false);
+		stop1.setLinkId(Id.create("1", Link.class));
+		stop2.setLinkId(Id.create("2", Link.class));
+		schedule.addStopFacility(stop1);
+		schedule.addStopFacility(stop2);
+
+		List<TransitRouteStop> stops = new ArrayList<>();
+		stops.add(factory.createTransitRouteStop(stop1, 0, 0));
+		stops.add(factory.createTransitRouteStop(stop2, 900, 900));
+		TransitRoute route = factory.createTransitRoute(Id.create("route", TransitRoute.class),
+				new LinkNetworkRouteImpl(Id.create("1", Link.class), Id.create("2", Link.class)), stops, "train");
+		for (int d = 0; d < 24 * 6; d++) {
+			route.addDeparture(factory.createDeparture(Id.create(d, Departure.class), d * 600));
+		}
+		TransitLine line = factory.createTransitLine(Id.create("line", TransitLine.class));
+		line.addRoute(route);
+		schedule.addTransitLine(line);
+		return schedule;
+	}
+
+}
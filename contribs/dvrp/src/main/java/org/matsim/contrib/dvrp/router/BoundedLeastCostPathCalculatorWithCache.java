@@ -0,0 +1,269 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.dvrp.router;
+
+import java.util.*;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.*;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.contrib.dvrp.util.TimeDiscretizer;
+import org.matsim.core.router.util.*;
+import org.matsim.vehicles.Vehicle;
+
+
+/**
+ * Caches paths per time interval, like {@link DefaultLeastCostPathCalculatorWithCache}, but only up to a
+ * given (estimated) number of bytes. When the budget is exceeded, the least recently used paths are
+ * evicted. Paths are stored as arrays of the indices of their links' Ids. On hits, the links are looked
+ * up in an array indexed by the same indices, which is built from the network once, and the nodes are
+ * the from node followed by the to nodes of the links. Thus, the network must not change while the
+ * cache is used.
+ * <p>
+ * Can be used from several threads. The paths are calculated outside of the lock of the cache, either
+ * with one calculator per thread, or with a single calculator that is used by one thread at a time.
+ */
+public class BoundedLeastCostPathCalculatorWithCache
+    implements LeastCostPathCalculatorWithCache
+{
+    /**
+     * A budget for caches that are not limited by the user.
+     */
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    //rough estimate of a cache entry without the link indices: map entry, key, path object, array
+    //header
+    private static final int ENTRY_BYTES = 128;
+
+    private static final int INDEX_BYTES = 4;
+
+    private static final CompactPath NO_PATH = new CompactPath(new int[0], Double.NaN, Double.NaN);
+
+    private final TimeDiscretizer timeDiscretizer;
+    private final long maxBytes;
+
+    //indexed by Id.index()
+    private final Link[] links;
+
+    private final LeastCostPathCalculator sharedCalculator;
+    private final ThreadLocal<LeastCostPathCalculator> threadCalculators;
+
+    //guarded by itself
+    private final LinkedHashMap<PathKey, CompactPath> pathCache = new LinkedHashMap<>(16, 0.75f,
+            true);
+    private long bytes = 0;
+
+    private final CacheStats cacheStats = new CacheStats();
+
+
+    /**
+     * The calculator is used by one thread at a time.
+     */
+    public BoundedLeastCostPathCalculatorWithCache(LeastCostPathCalculator calculator,
+            Network network, TimeDiscretizer timeDiscretizer, long maxBytes)
+    {
+        this.timeDiscretizer = timeDiscretizer;
+        this.maxBytes = maxBytes;
+        this.links = indexLinks(network);
+        this.sharedCalculator = calculator;
+        this.threadCalculators = null;
+    }
+
+
+    /**
+     * Every thread gets a calculator of its own, created by the factory.
+     */
+    public BoundedLeastCostPathCalculatorWithCache(final LeastCostPathCalculatorFactory factory,
+            final Network network, final TravelDisutility travelDisutility,
+            final TravelTime travelTime, TimeDiscretizer timeDiscretizer, long maxBytes)
+    {
+        this.timeDiscretizer = timeDiscretizer;
+        this.maxBytes = maxBytes;
+        this.links = indexLinks(network);
+        this.sharedCalculator = null;
+        this.threadCalculators = new ThreadLocal<LeastCostPathCalculator>() {
+            @Override
+            protected LeastCostPathCalculator initialValue()
+            {
+                return factory.createPathCalculator(network, travelDisutility, travelTime);
+            }
+        };
+    }
+
+
+    private static Link[] indexLinks(Network network)
+    {
+        Link[] links = new Link[Id.getNumberOfIds(Link.class)];
+        for (Link link : network.getLinks().values()) {
+            links[link.getId().index()] = link;
+        }
+        return links;
+    }
+
+
+    @Override
+    public Path calcLeastCostPath(Node fromNode, Node toNode, double startTime, Person person,
+            Vehicle vehicle)
+    {
+        PathKey key = new PathKey(timeDiscretizer.getIdx(startTime), fromNode.getId().index(),
+                toNode.getId().index());
+        CompactPath compactPath;
+        synchronized (pathCache) {
+            compactPath = pathCache.get(key);
+        }
+
+        if (compactPath != null) {
+            cacheStats.incHits();
+            return compactPath.toPath(fromNode, links);
+        }
+
+        cacheStats.incMisses();
+        Path path = calcPath(fromNode, toNode, timeDiscretizer.discretize(startTime), person,
+                vehicle);
+        compactPath = path == null ? NO_PATH : new CompactPath(path);
+        put(key, compactPath);
+        return path;
+    }
+
+
+    private Path calcPath(Node fromNode, Node toNode, double time, Person person,
+            Vehicle vehicle)
+    {
+        if (sharedCalculator != null) {
+            synchronized (sharedCalculator) {
+                return sharedCalculator.calcLeastCostPath(fromNode, toNode, time, person, vehicle);
+            }
+        }
+        return threadCalculators.get().calcLeastCostPath(fromNode, toNode, time, person, vehicle);
+    }
+
+
+    private void put(PathKey key, CompactPath compactPath)
+    {
+        synchronized (pathCache) {
+            CompactPath old = pathCache.put(key, compactPath);
+            long delta = compactPath.getBytes() - (old == null ? 0 : old.getBytes());
+
+            Iterator<CompactPath> iter = pathCache.values().iterator();
+            while (bytes + delta > maxBytes && iter.hasNext()) {
+                CompactPath eldest = iter.next();
+                if (eldest == compactPath) {//keep at least the path just calculated
+                    break;
+                }
+                iter.remove();
+                delta -= eldest.getBytes();
+                cacheStats.incEvictions();
+            }
+
+            bytes += delta;
+            cacheStats.addBytes(delta);
+        }
+    }
+
+
+    @Override
+    public CacheStats getCacheStats()
+    {
+        return cacheStats;
+    }
+
+
+    private static class PathKey
+    {
+        private final int timeIdx;
+        private final int fromNodeIdx;
+        private final int toNodeIdx;
+
+
+        private PathKey(int timeIdx, int fromNodeIdx, int toNodeIdx)
+        {
+            this.timeIdx = timeIdx;
+            this.fromNodeIdx = fromNodeIdx;
+            this.toNodeIdx = toNodeIdx;
+        }
+
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (! (obj instanceof PathKey)) {
+                return false;
+            }
+            PathKey other = (PathKey)obj;
+            return timeIdx == other.timeIdx && fromNodeIdx == other.fromNodeIdx
+                    && toNodeIdx == other.toNodeIdx;
+        }
+
+
+        @Override
+        public int hashCode()
+        {
+            return (timeIdx * 31 + fromNodeIdx) * 1_000_003 + toNodeIdx;
+        }
+    }
+
+
+    private static class CompactPath
+    {
+        private final int[] linkIdxs;
+        private final double travelTime;
+        private final double travelCost;
+
+
+        private CompactPath(Path path)
+        {
+            this(new int[path.links.size()], path.travelTime, path.travelCost);
+            for (int i = 0; i < linkIdxs.length; i++) {
+                linkIdxs[i] = path.links.get(i).getId().index();
+            }
+        }
+
+
+        private CompactPath(int[] linkIdxs, double travelTime, double travelCost)
+        {
+            this.linkIdxs = linkIdxs;
+            this.travelTime = travelTime;
+            this.travelCost = travelCost;
+        }
+
+
+        private long getBytes()
+        {
+            return ENTRY_BYTES + INDEX_BYTES * (long)linkIdxs.length;
+        }
+
+
+        private Path toPath(Node fromNode, Link[] networkLinks)
+        {
+            if (this == NO_PATH) {
+                return null;
+            }
+            List<Node> nodes = new ArrayList<>(linkIdxs.length + 1);
+            List<Link> links = new ArrayList<>(linkIdxs.length);
+            nodes.add(fromNode);
+            for (int idx : linkIdxs) {
+                Link link = networkLinks[idx];
+                links.add(link);
+                nodes.add(link.getToNode());
+            }
+            return new Path(nodes, links, travelTime, travelCost);
+        }
+    }
+}
@@ -19,39 +19,76 @@
 
 package org.matsim.contrib.dvrp.router;
 
+import java.util.concurrent.atomic.*;
+
 import org.matsim.core.router.util.LeastCostPathCalculator;
 
 
 public interface LeastCostPathCalculatorWithCache
     extends LeastCostPathCalculator
 {
+    /**
+     * Thread-safe, so it can be shared by caches used from several threads.
+     */
     class CacheStats
     {
-        private int hits = 0;
-        private int misses = 0;
+        private final AtomicInteger hits = new AtomicInteger();
+        private final AtomicInteger misses = new AtomicInteger();
+        private final AtomicInteger evictions = new AtomicInteger();
+        private final AtomicLong bytes = new AtomicLong();
 
 
         public void incHits()
         {
-            hits++;
+            hits.incrementAndGet();
         }
 
 
         public void incMisses()
         {
-            misses++;
+            misses.incrementAndGet();
+        }
+
+
+        public void incEvictions()
+        {
+            evictions.incrementAndGet();
+        }
+
+
+        /**
+         * @param delta the change of the (estimated) size of the cache content, in bytes
+         */
+        public void addBytes(long delta)
+        {
+            bytes.addAndGet(delta);
         }
 
 
         public int getHits()
         {
-            return hits;
+            return hits.get();
         }
 
 
         public int getMisses()
         {
-            return misses;
+            return misses.get();
+        }
+
+
+        public int getEvictions()
+        {
+            return evictions.get();
+        }
+
+
+        /**
+         * @return the estimated size of the cache content in bytes, or 0 if not tracked by the cache
+         */
+        public long getBytes()
+        {
+            return bytes.get();
         }
     }
 
@@ -57,8 +57,11 @@ public class DistanceCalculators
         TravelTime ttimeCalc = new FreeSpeedTravelTime();
         TravelDisutility tcostCalc = timeBased ? new TimeAsTravelDisutility(ttimeCalc)
                 : new DistanceAsTravelDisutility();
-        final DijkstraWithDijkstraTreeCache dijkstraTree = new DijkstraWithDijkstraTreeCache(
-                network, tcostCalc, ttimeCalc, TimeDiscretizer.CYCLIC_24_HOURS);
+        //one Dijkstra per thread, the paths are shared within a memory budget
+        final LeastCostPathCalculator router = new BoundedLeastCostPathCalculatorWithCache(
+                new DijkstraFactory(), network, tcostCalc, ttimeCalc,
+                TimeDiscretizer.CYCLIC_24_HOURS,
+                BoundedLeastCostPathCalculatorWithCache.DEFAULT_MAX_BYTES);
 
         return new DistanceCalculator() {
             @Override
@@ -69,7 +72,7 @@ public class DistanceCalculators
                 Node fromNode = NetworkUtils.getNearestNode(networkImpl,coord);
 		final Coord coord1 = to;
                 Node toNode = NetworkUtils.getNearestNode(networkImpl,coord1);
-                return dijkstraTree.calcLeastCostPath(fromNode, toNode, 0, null, null).travelCost;
+                return router.calcLeastCostPath(fromNode, toNode, 0, null, null).travelCost;
             }
         };
     }
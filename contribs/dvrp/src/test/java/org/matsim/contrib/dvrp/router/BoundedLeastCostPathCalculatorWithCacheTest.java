@@ -0,0 +1,213 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.dvrp.router;
+
+import java.util.*;
+
+import org.junit.*;
+import org.matsim.api.core.v01.*;
+import org.matsim.api.core.v01.network.*;
+import org.matsim.contrib.dvrp.router.LeastCostPathCalculatorWithCache.CacheStats;
+import org.matsim.contrib.dvrp.util.TimeDiscretizer;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.util.*;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.trafficmonitoring.FreeSpeedTravelTime;
+import org.matsim.core.utils.misc.ParallelUtils;
+
+
+public class BoundedLeastCostPathCalculatorWithCacheTest
+{
+    private static final int GRID_SIZE = 10;
+    private static final double TIME = 8 * 3600;
+
+    private final TravelTime travelTime = new FreeSpeedTravelTime();
+    private final TravelDisutility travelDisutility = new TimeAsTravelDisutility(travelTime);
+    private final Network network = NetworkUtils.createNetwork();
+    private final List<Node> nodes = new ArrayList<>();
+    private LeastCostPathCalculator dijkstra;
+
+
+    @Before
+    public void setUp()
+    {
+        //grid with random link lengths, so that the least cost paths are unique
+        Random random = new Random(4711);
+        for (int y = 0; y < GRID_SIZE; y++) {
+            for (int x = 0; x < GRID_SIZE; x++) {
+                nodes.add(NetworkUtils.createAndAddNode(network,
+                        Id.createNodeId(x + "_" + y), new Coord(x * 100, y * 100)));
+            }
+        }
+        for (int y = 0; y < GRID_SIZE; y++) {
+            for (int x = 0; x < GRID_SIZE; x++) {
+                if (x + 1 < GRID_SIZE) {
+                    addLinks(getNode(x, y), getNode(x + 1, y), random);
+                }
+                if (y + 1 < GRID_SIZE) {
+                    addLinks(getNode(x, y), getNode(x, y + 1), random);
+                }
+            }
+        }
+        dijkstra = new DijkstraFactory().createPathCalculator(network, travelDisutility,
+                travelTime);
+    }
+
+
+    @Test
+    public void testHits()
+    {
+        BoundedLeastCostPathCalculatorWithCache router = new BoundedLeastCostPathCalculatorWithCache(
+                dijkstra, network, TimeDiscretizer.ACYCLIC_1_HOUR,
+                BoundedLeastCostPathCalculatorWithCache.DEFAULT_MAX_BYTES);
+        Node from = getNode(0, 0);
+        Node to = getNode(GRID_SIZE - 1, GRID_SIZE - 1);
+
+        Path miss = router.calcLeastCostPath(from, to, TIME, null, null);
+        //the same time interval
+        Path hit = router.calcLeastCostPath(from, to, TIME + 600, null, null);
+
+        CacheStats stats = router.getCacheStats();
+        Assert.assertEquals(1, stats.getMisses());
+        Assert.assertEquals(1, stats.getHits());
+        Assert.assertEquals(0, stats.getEvictions());
+        Assert.assertEquals(miss.links, hit.links);
+        Assert.assertEquals(miss.nodes, hit.nodes);
+        Assert.assertEquals(miss.travelTime, hit.travelTime, 0.0);
+        Assert.assertEquals(miss.travelCost, hit.travelCost, 0.0);
+
+        //another time interval
+        router.calcLeastCostPath(from, to, TIME + 3600, null, null);
+        Assert.assertEquals(2, stats.getMisses());
+    }
+
+
+    @Test
+    public void testHitWithoutLinks()
+    {
+        BoundedLeastCostPathCalculatorWithCache router = new BoundedLeastCostPathCalculatorWithCache(
+                dijkstra, network, TimeDiscretizer.ACYCLIC_1_HOUR,
+                BoundedLeastCostPathCalculatorWithCache.DEFAULT_MAX_BYTES);
+        Node node = getNode(3, 3);
+
+        Path miss = router.calcLeastCostPath(node, node, TIME, null, null);
+        Path hit = router.calcLeastCostPath(node, node, TIME, null, null);
+
+        Assert.assertEquals(1, router.getCacheStats().getHits());
+        Assert.assertEquals(miss.nodes, hit.nodes);
+        Assert.assertTrue(hit.links.isEmpty());
+    }
+
+
+    @Test
+    public void testEvictions()
+    {
+        //a few paths across the grid fit in
+        long maxBytes = 1000;
+        BoundedLeastCostPathCalculatorWithCache router = new BoundedLeastCostPathCalculatorWithCache(
+                dijkstra, network, TimeDiscretizer.ACYCLIC_1_HOUR, maxBytes);
+        CacheStats stats = router.getCacheStats();
+
+        for (int i = 0; i < 2; i++) {
+            for (int x = 0; x < GRID_SIZE; x++) {
+                assertPath(getNode(x, 0), getNode(GRID_SIZE - 1 - x, GRID_SIZE - 1),
+                        router.calcLeastCostPath(getNode(x, 0),
+                                getNode(GRID_SIZE - 1 - x, GRID_SIZE - 1), TIME, null, null));
+                Assert.assertTrue(stats.getBytes() <= maxBytes);
+            }
+        }
+
+        //the least recently used paths have been evicted before they were asked for again
+        Assert.assertEquals(0, stats.getHits());
+        Assert.assertEquals(2 * GRID_SIZE, stats.getMisses());
+        Assert.assertTrue(stats.getEvictions() > 0);
+
+        //the last path is still cached
+        router.calcLeastCostPath(getNode(GRID_SIZE - 1, 0), getNode(0, GRID_SIZE - 1), TIME,
+                null, null);
+        Assert.assertEquals(1, stats.getHits());
+    }
+
+
+    @Test
+    public void testConcurrentUse()
+    {
+        final BoundedLeastCostPathCalculatorWithCache router = new BoundedLeastCostPathCalculatorWithCache(
+                new DijkstraFactory(), network, travelDisutility, travelTime,
+                TimeDiscretizer.ACYCLIC_1_HOUR, 20_000);
+
+        //every pair is asked for by several threads, while the cache is evicted
+        final int pairs = 200;
+        final int requests = 4 * pairs;
+        final Path[] paths = new Path[requests];
+        ParallelUtils.runRows(requests, 10, 4, new ParallelUtils.RowTask() {
+            @Override
+            public void calcRow(int row, int thread)
+            {
+                paths[row] = router.calcLeastCostPath(getFromNode(row % pairs),
+                        getToNode(row % pairs), TIME, null, null);
+            }
+        });
+
+        for (int row = 0; row < requests; row++) {
+            assertPath(getFromNode(row % pairs), getToNode(row % pairs), paths[row]);
+        }
+        CacheStats stats = router.getCacheStats();
+        Assert.assertEquals(requests, stats.getHits() + stats.getMisses());
+        Assert.assertTrue(stats.getBytes() <= 20_000);
+    }
+
+
+    private void assertPath(Node from, Node to, Path path)
+    {
+        Path expected = dijkstra.calcLeastCostPath(from, to, TIME, null, null);
+        Assert.assertEquals(expected.links, path.links);
+        Assert.assertEquals(expected.travelTime, path.travelTime, 0.0);
+        Assert.assertEquals(expected.travelCost, path.travelCost, 0.0);
+    }
+
+
+    private Node getFromNode(int pair)
+    {
+        return nodes.get(pair * 7 % nodes.size());
+    }
+
+
+    private Node getToNode(int pair)
+    {
+        return nodes.get(pair * 13 % nodes.size());
+    }
+
+
+    private Node getNode(int x, int y)
+    {
+        return nodes.get(y * GRID_SIZE + x);
+    }
+
+
+    private void addLinks(Node node1, Node node2, Random random)
+    {
+        double length = 100 + random.nextInt(100);
+        NetworkUtils.createAndAddLink(network, Id.createLinkId(node1.getId() + "-" + node2.getId()),
+                node1, node2, length, 10, 1000, 1);
+        NetworkUtils.createAndAddLink(network, Id.createLinkId(node2.getId() + "-" + node1.getId()),
+                node2, node1, length, 10, 1000, 1);
+    }
+}
@@ -21,6 +21,7 @@
  * *********************************************************************** */
 package org.matsim.contrib.emissions;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import org.apache.log4j.Logger;
@@ -67,8 +68,11 @@ import org.matsim.vehicles.Vehicle;
 public class ColdEmissionAnalysisModule {
 	private static final Logger logger = Logger.getLogger(ColdEmissionAnalysisModule.class);
 	
-	private final Map<HbefaColdEmissionFactorKey, HbefaColdEmissionFactor> avgHbefaColdTable;
-	private final Map<HbefaColdEmissionFactorKey, HbefaColdEmissionFactor> detailedHbefaColdTable;
+	private final HbefaColdEmissionFactorTable avgHbefaColdTable;
+	private final HbefaColdEmissionFactorTable detailedHbefaColdTable;
+	
+	// the parsed vehicle description and its rows in the emission factor tables
+	private final Map<String, VehicleInformation> description2vehicleInformation = new HashMap<>();
 	
 	private final EventsManager eventsManager;
 	private final Double emissionEfficiencyFactor;
@@ -96,8 +100,8 @@ public class ColdEmissionAnalysisModule {
 			ColdEmissionAnalysisModuleParameter parameterObject,
 			EventsManager emissionEventsManager, Double emissionEfficiencyFactor) {
 
-		this.avgHbefaColdTable = parameterObject.avgHbefaColdTable;
-		this.detailedHbefaColdTable = parameterObject.detailedHbefaColdTable;
+		this.avgHbefaColdTable = parameterObject.avgHbefaColdTable == null ? null : new HbefaColdEmissionFactorTable(parameterObject.avgHbefaColdTable);
+		this.detailedHbefaColdTable = parameterObject.detailedHbefaColdTable == null ? null : new HbefaColdEmissionFactorTable(parameterObject.detailedHbefaColdTable);
 		this.ecg = parameterObject.ecg;
 		this.eventsManager = emissionEventsManager;
 		this.emissionEfficiencyFactor = emissionEfficiencyFactor;
@@ -116,6 +120,27 @@ public class ColdEmissionAnalysisModule {
 			double parkingDuration,
 			int distance_km) {
 
+		double[] coldEmissionsOfEvent = new double[ColdPollutant.values().length];
+		calculateColdEmissions(vehicle, parkingDuration, distance_km, coldEmissionsOfEvent);
+
+		Map<ColdPollutant, Double> coldEmissions = new HashMap<>();
+		for (ColdPollutant cp : ColdPollutant.values()){
+			coldEmissions.put(cp, coldEmissionsOfEvent[cp.ordinal()]);
+		}
+		Event coldEmissionEvent = new ColdEmissionEvent(eventTime, coldEmissionEventLinkId, vehicle.getId(), coldEmissions);
+		this.eventsManager.processEvent(coldEmissionEvent);
+	}
+
+	/**
+	 * Calculates the cold emissions without throwing an event; the emissions are written into the given array, indexed
+	 * by {@link ColdPollutant#ordinal()}.
+	 */
+	public void calculateColdEmissions(
+			Vehicle vehicle,
+			double parkingDuration,
+			int distance_km,
+			double[] coldEmissions) {
+
 		if(this.ecg.isUsingVehicleTypeIdAsVehicleDescription() ) {
 			if(vehicle.getType().getDescription()==null) {
 				vehicle.getType().setDescription(EmissionDescriptionMarker.BEGIN_EMISSIONS
@@ -125,53 +150,39 @@ public class ColdEmissionAnalysisModule {
 
 		String vehicleDescription = vehicle.getType().getDescription();
 
-		Map<ColdPollutant, Double> coldEmissions = new HashMap<>();
 		if(vehicle.getType().getDescription() == null){
 			throw new RuntimeException("Vehicle type description for vehicle " + vehicle + "is missing. " +
 					"Please make sure that requirements for emission vehicles in "
 					+ EmissionsConfigGroup.GROUP_NAME + " config group are met. Aborting...");
 		}
-		Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple = convertVehicleDescription2VehicleInformationTuple(vehicleDescription);
-		if (vehicleInformationTuple.getFirst() == null){
-			throw new RuntimeException("Vehicle category for vehicle " + vehicle + " is not valid. " +
-					"Please make sure that requirements for emission vehicles in " + 
-					EmissionsConfigGroup.GROUP_NAME + " config group are met. Aborting...");
-		}
-        if(vehicleInformationTuple.getFirst().equals(HbefaVehicleCategory.ZERO_EMISSION_VEHICLE)) {
-			for (ColdPollutant cp : ColdPollutant.values()){
-				coldEmissions.put( cp, 0.0 );
+		VehicleInformation vehicleInformation = this.description2vehicleInformation.get(vehicleDescription);
+		if (vehicleInformation == null) {
+			Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple = convertVehicleDescription2VehicleInformationTuple(vehicleDescription);
+			if (vehicleInformationTuple.getFirst() == null){
+				throw new RuntimeException("Vehicle category for vehicle " + vehicle + " is not valid. " +
+						"Please make sure that requirements for emission vehicles in " + 
+						EmissionsConfigGroup.GROUP_NAME + " config group are met. Aborting...");
 			}
+			vehicleInformation = new VehicleInformation(vehicleInformationTuple);
+			this.description2vehicleInformation.put(vehicleDescription, vehicleInformation);
+		}
+        if(vehicleInformation.vehicleCategory.equals(HbefaVehicleCategory.ZERO_EMISSION_VEHICLE)) {
+			Arrays.fill(coldEmissions, 0.0);
 		} else {
-			coldEmissions = getColdPollutantDoubleMap(vehicle.getId(), parkingDuration, vehicleInformationTuple, distance_km);
+			calculateColdEmissions(vehicle.getId(), parkingDuration, vehicleInformation, distance_km, coldEmissions);
 		}
 
 		// a basic apporach to introduce emission reduced cars:
 		if(emissionEfficiencyFactor != null){
-			coldEmissions = rescaleColdEmissions(coldEmissions);
-		}
-		Event coldEmissionEvent = new ColdEmissionEvent(eventTime, coldEmissionEventLinkId, vehicle.getId(), coldEmissions);
-		this.eventsManager.processEvent(coldEmissionEvent);
-	}
-
-	private Map<ColdPollutant, Double> rescaleColdEmissions(Map<ColdPollutant, Double> coldEmissions) {
-		Map<ColdPollutant, Double> rescaledColdEmissions = new HashMap<>();
-		
-		for(ColdPollutant wp : coldEmissions.keySet()){
-			Double orgValue = coldEmissions.get(wp);
-			Double rescaledValue = emissionEfficiencyFactor * orgValue;
-			rescaledColdEmissions.put(wp, rescaledValue);
+			for (int i = 0; i < coldEmissions.length; i++) {
+				coldEmissions[i] = emissionEfficiencyFactor * coldEmissions[i];
+			}
 		}
-		return rescaledColdEmissions;
 	}
 
-    private Map<ColdPollutant, Double> getColdPollutantDoubleMap(Id<Vehicle> vehicleId, double parkingDuration, Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple, int distance_km) {
-        Map<ColdPollutant, Double> coldEmissionsOfEvent = new HashMap<>();
+    private void calculateColdEmissions(Id<Vehicle> vehicleId, double parkingDuration, VehicleInformation vehicleInformation, int distance_km, double[] coldEmissionsOfEvent) {
 
-        HbefaColdEmissionFactorKey key = new HbefaColdEmissionFactorKey();
-
-        if(vehicleInformationTuple.getFirst().equals(HbefaVehicleCategory.HEAVY_GOODS_VEHICLE)){
-            key.setHbefaVehicleCategory(HbefaVehicleCategory.HEAVY_GOODS_VEHICLE);
-            key.setHbefaVehicleCategory(HbefaVehicleCategory.PASSENGER_CAR);
+        if(vehicleInformation.vehicleCategory.equals(HbefaVehicleCategory.HEAVY_GOODS_VEHICLE)){
             if(vehInfoWarnHDVCnt < maxWarnCnt) {
                 vehInfoWarnHDVCnt++;
                 logger.warn("HBEFA 3.1 does not provide cold start emission factors for " +
@@ -179,59 +190,68 @@ public class ColdEmissionAnalysisModule {
                         ". Setting vehicle category to " + HbefaVehicleCategory.PASSENGER_CAR + "...");
                 if(vehInfoWarnHDVCnt == maxWarnCnt) logger.warn(Gbl.FUTURE_SUPPRESSED);
             }
-        } else{
-            key.setHbefaVehicleCategory(HbefaVehicleCategory.PASSENGER_CAR);
         }
 
-
         int parkingDuration_h = Math.max(1, (int) (parkingDuration / 3600));
         if (parkingDuration_h >= 12) parkingDuration_h = 13;
 
-        key.setHbefaParkingTime(parkingDuration_h);
-
         for (ColdPollutant coldPollutant : ColdPollutant.values()) {
             double generatedEmissions;
             if (distance_km == 1) {
-               generatedEmissions = getTableEmissions(vehicleId, vehicleInformationTuple, 1, key, coldPollutant);
+               generatedEmissions = getTableEmissions(vehicleId, vehicleInformation, parkingDuration_h, 1, coldPollutant);
             } else {
-               generatedEmissions = getTableEmissions(vehicleId, vehicleInformationTuple, 2, key, coldPollutant) - getTableEmissions(vehicleId, vehicleInformationTuple, 1, key, coldPollutant);
+               generatedEmissions = getTableEmissions(vehicleId, vehicleInformation, parkingDuration_h, 2, coldPollutant) - getTableEmissions(vehicleId, vehicleInformation, parkingDuration_h, 1, coldPollutant);
             }
-            coldEmissionsOfEvent.put(coldPollutant, generatedEmissions);
+            coldEmissionsOfEvent[coldPollutant.ordinal()] = generatedEmissions;
         }
-        return coldEmissionsOfEvent;
     }
 
-    private double getTableEmissions(Id<Vehicle> vehicleId, Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple, int distance_km, HbefaColdEmissionFactorKey key, ColdPollutant coldPollutant) {
-        key.setHbefaDistance(distance_km);
+    private double getTableEmissions(Id<Vehicle> vehicleId, VehicleInformation vehicleInformation, int parkingDuration_h, int distance_km, ColdPollutant coldPollutant) {
         double generatedEmissions;
 
-        key.setHbefaComponent(coldPollutant);
-
         if(this.detailedHbefaColdTable != null){ // check if detailed emission factors file is set in config
-            HbefaVehicleAttributes hbefaVehicleAttributes = new HbefaVehicleAttributes();
-            hbefaVehicleAttributes.setHbefaTechnology(vehicleInformationTuple.getSecond().getHbefaTechnology());
-            hbefaVehicleAttributes.setHbefaSizeClass(vehicleInformationTuple.getSecond().getHbefaSizeClass());
-            hbefaVehicleAttributes.setHbefaEmConcept(vehicleInformationTuple.getSecond().getHbefaEmConcept());
-            key.setHbefaVehicleAttributes(hbefaVehicleAttributes);
-
-            if(this.detailedHbefaColdTable.containsKey(key)){
-                generatedEmissions = this.detailedHbefaColdTable.get(key).getColdEmissionFactor();
-            } else {
-                generatedEmissions = this.avgHbefaColdTable.get(key).getColdEmissionFactor();
-
-                if(vehAttributesNotSpecifiedCnt < maxWarnCnt) {
-                    vehAttributesNotSpecifiedCnt++;
-                    logger.warn("Detailed vehicle attributes are not specified correctly for vehicle " + vehicleId + ": " +
-                            "`" + vehicleInformationTuple.getSecond() + "'. Using fleet average values instead.");
-                    if(vehAttributesNotSpecifiedCnt == maxWarnCnt) logger.warn(Gbl.FUTURE_SUPPRESSED);
-                }
+            int column = this.detailedHbefaColdTable.getColumn(parkingDuration_h, distance_km, coldPollutant);
+            if(this.detailedHbefaColdTable.hasEntry(vehicleInformation.detailedRow, column)){
+                return this.detailedHbefaColdTable.getColdEmissionFactor(vehicleInformation.detailedRow, column);
+            }
+            if(vehAttributesNotSpecifiedCnt < maxWarnCnt) {
+                vehAttributesNotSpecifiedCnt++;
+                logger.warn("Detailed vehicle attributes are not specified correctly for vehicle " + vehicleId + ": " +
+                        "`" + vehicleInformation.vehicleAttributes + "'. Using fleet average values instead.");
+                if(vehAttributesNotSpecifiedCnt == maxWarnCnt) logger.warn(Gbl.FUTURE_SUPPRESSED);
             }
-        } else {
-            generatedEmissions = this.avgHbefaColdTable.get(key).getColdEmissionFactor();
         }
+        int column = this.avgHbefaColdTable.getColumn(parkingDuration_h, distance_km, coldPollutant);
+        if(!this.avgHbefaColdTable.hasEntry(vehicleInformation.avgRow, column)){
+            throw new RuntimeException("No cold emission factor for " + coldPollutant + ", parking time " + parkingDuration_h + ", distance " + distance_km 
+                    + " and vehicle " + vehicleId + " (`" + vehicleInformation.vehicleAttributes + "'). Aborting...");
+        }
+        generatedEmissions = this.avgHbefaColdTable.getColdEmissionFactor(vehicleInformation.avgRow, column);
         return generatedEmissions;
     }
 
+    /**
+     * A parsed vehicle description together with its rows in the emission factor tables. HBEFA 3.1 does not provide cold
+     * start emission factors for heavy goods vehicles, so all rows are those of passenger cars.
+     */
+    private final class VehicleInformation {
+        final HbefaVehicleCategory vehicleCategory;
+        final HbefaVehicleAttributes vehicleAttributes;
+        final int avgRow;
+        final int detailedRow;
+
+        VehicleInformation(Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple) {
+            this.vehicleCategory = vehicleInformationTuple.getFirst();
+            this.vehicleAttributes = vehicleInformationTuple.getSecond();
+            // without a detailed table, the average table is looked up with average vehicle attributes
+            HbefaVehicleAttributes avgLookupAttributes = detailedHbefaColdTable != null ? this.vehicleAttributes : new HbefaVehicleAttributes();
+            this.avgRow = avgHbefaColdTable == null ? -1 :
+                    avgHbefaColdTable.getRow(HbefaVehicleCategory.PASSENGER_CAR, avgHbefaColdTable.getVehicleAttributesIndex(avgLookupAttributes));
+            this.detailedRow = detailedHbefaColdTable == null ? -1 :
+                    detailedHbefaColdTable.getRow(HbefaVehicleCategory.PASSENGER_CAR, detailedHbefaColdTable.getVehicleAttributesIndex(this.vehicleAttributes));
+        }
+    }
+
     private Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> convertVehicleDescription2VehicleInformationTuple(String vehicleDescription) {
 		Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple;
 		HbefaVehicleCategory hbefaVehicleCategory = null;
@@ -21,6 +21,7 @@
  * *********************************************************************** */
 package org.matsim.contrib.emissions;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -34,6 +35,7 @@ import org.matsim.contrib.emissions.types.HbefaVehicleAttributes;
 import org.matsim.contrib.emissions.types.HbefaVehicleCategory;
 import org.matsim.contrib.emissions.types.HbefaWarmEmissionFactor;
 import org.matsim.contrib.emissions.types.HbefaWarmEmissionFactorKey;
+import org.matsim.contrib.emissions.types.HbefaWarmEmissionFactorTable;
 import org.matsim.contrib.emissions.types.WarmPollutant;
 import org.matsim.contrib.emissions.utils.EmissionDescriptionMarker;
 import org.matsim.contrib.emissions.utils.EmissionsConfigGroup;
@@ -52,8 +54,11 @@ public class WarmEmissionAnalysisModule {
 
 	private final Map<Integer, String> roadTypeMapping;
 
-	private final Map<HbefaWarmEmissionFactorKey, HbefaWarmEmissionFactor> avgHbefaWarmTable;
-	private final Map<HbefaWarmEmissionFactorKey, HbefaWarmEmissionFactor> detailedHbefaWarmTable;
+	private final HbefaWarmEmissionFactorTable avgHbefaWarmTable;
+	private final HbefaWarmEmissionFactorTable detailedHbefaWarmTable;
+
+	// the parsed vehicle description and its rows in the emission factor tables, per road category
+	private final Map<String, VehicleInformation> description2vehicleInformation = new HashMap<>();
 
 	private final EventsManager eventsManager;
 	private final Double emissionEfficiencyFactor;
@@ -115,8 +120,8 @@ public class WarmEmissionAnalysisModule {
 			System.exit(0);
 		}
 		this.roadTypeMapping = parameterObject.roadTypeMapping;
-		this.avgHbefaWarmTable = parameterObject.avgHbefaWarmTable;
-		this.detailedHbefaWarmTable = parameterObject.detailedHbefaWarmTable;
+		this.avgHbefaWarmTable = parameterObject.avgHbefaWarmTable == null ? null : new HbefaWarmEmissionFactorTable(parameterObject.avgHbefaWarmTable);
+		this.detailedHbefaWarmTable = parameterObject.detailedHbefaWarmTable == null ? null : new HbefaWarmEmissionFactorTable(parameterObject.detailedHbefaWarmTable);
 		this.eventsManager = emissionEventsManager;
 		this.emissionEfficiencyFactor = emissionEfficiencyFactor;
 		this.ecg = parameterObject.ecg;
@@ -141,6 +146,14 @@ public class WarmEmissionAnalysisModule {
 		this.eventsManager.processEvent(warmEmissionEvent);
 	}
 
+	/**
+	 * Same as {@link #throwWarmEmissionEvent(double, Id, Id, Map)}, for emissions indexed by
+	 * {@link WarmPollutant#ordinal()}.
+	 */
+	public void throwWarmEmissionEvent(double leaveTime, Id<Link> linkId, Id<Vehicle> vehicleId, double[] warmEmissions){
+		throwWarmEmissionEvent(leaveTime, linkId, vehicleId, toMap(warmEmissions));
+	}
+
 	public Map<WarmPollutant, Double> checkVehicleInfoAndCalculateWarmEmissions(
 			Vehicle vehicle,
 			int roadType,
@@ -148,6 +161,32 @@ public class WarmEmissionAnalysisModule {
 			double linkLength,
 			double travelTime) {
 
+		double[] warmEmissionsOfEvent = new double[WarmPollutant.values().length];
+		checkVehicleInfoAndCalculateWarmEmissions(vehicle, roadType, freeVelocity, linkLength, travelTime, warmEmissionsOfEvent);
+		return toMap(warmEmissionsOfEvent);
+	}
+
+	private static Map<WarmPollutant, Double> toMap(double[] warmEmissionsOfEvent) {
+		Map<WarmPollutant, Double> warmEmissions = new HashMap<>();
+		for (WarmPollutant warmPollutant : WarmPollutant.values()) {
+			warmEmissions.put(warmPollutant, warmEmissionsOfEvent[warmPollutant.ordinal()]);
+		}
+		return warmEmissions;
+	}
+
+	/**
+	 * Same as {@link #checkVehicleInfoAndCalculateWarmEmissions(Vehicle, int, double, double, double)}, but writes the
+	 * emissions into the given array, indexed by {@link WarmPollutant#ordinal()}, so callers which sum up emissions per
+	 * link or per person do not need a map per event.
+	 */
+	public void checkVehicleInfoAndCalculateWarmEmissions(
+			Vehicle vehicle,
+			int roadType,
+			double freeVelocity,
+			double linkLength,
+			double travelTime,
+			double[] warmEmissions) {
+
 		if(this.ecg.isUsingVehicleTypeIdAsVehicleDescription() ) {
 			if(vehicle.getType().getDescription()==null) {
 				vehicle.getType().setDescription(EmissionDescriptionMarker.BEGIN_EMISSIONS
@@ -155,7 +194,6 @@ public class WarmEmissionAnalysisModule {
 			}
 		}
 
-		Map<WarmPollutant, Double> warmEmissions = new HashMap<>();
 		if(vehicle == null ||
 				(vehicle.getType() == null && vehicle.getType().getDescription() == null) // if both are null together; no vehicle type information.
 				) {
@@ -166,72 +204,52 @@ public class WarmEmissionAnalysisModule {
 
 		String vehicleDescription = vehicle.getType().getDescription();
 
-		Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple = convertVehicleTypeId2VehicleInformationTuple(vehicleDescription);
-		if (vehicleInformationTuple.getFirst() == null){
-			throw new RuntimeException("Vehicle category for vehicle " + vehicle + " is not valid. " +
-					"Please make sure that requirements for emission vehicles in " + 
-					EmissionsConfigGroup.GROUP_NAME + " config group are met. Aborting...");
-		}
-		if(vehicleInformationTuple.getFirst().equals(HbefaVehicleCategory.ZERO_EMISSION_VEHICLE)) {
-			for (WarmPollutant warmPollutant : WarmPollutant.values()) {
-				warmEmissions.put( warmPollutant, 0.0 );
+		VehicleInformation vehicleInformation = this.description2vehicleInformation.get(vehicleDescription);
+		if (vehicleInformation == null) {
+			Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple = convertVehicleTypeId2VehicleInformationTuple(vehicleDescription);
+			if (vehicleInformationTuple.getFirst() == null){
+				throw new RuntimeException("Vehicle category for vehicle " + vehicle + " is not valid. " +
+						"Please make sure that requirements for emission vehicles in " + 
+						EmissionsConfigGroup.GROUP_NAME + " config group are met. Aborting...");
 			}
+			vehicleInformation = new VehicleInformation(vehicleInformationTuple);
+			this.description2vehicleInformation.put(vehicleDescription, vehicleInformation);
+		}
+
+		if(vehicleInformation.vehicleCategory.equals(HbefaVehicleCategory.ZERO_EMISSION_VEHICLE)) {
+			Arrays.fill(warmEmissions, 0.0);
 		} else {
-			warmEmissions = calculateWarmEmissions(vehicle.getId(), travelTime, roadType, freeVelocity, linkLength, vehicleInformationTuple);
+			calculateWarmEmissions(vehicle.getId(), travelTime, roadType, freeVelocity, linkLength, vehicleInformation, warmEmissions);
 		}
 
 		// a basic apporach to introduce emission reduced cars:
 		if(emissionEfficiencyFactor != null){
-			warmEmissions = rescaleWarmEmissions(warmEmissions);
-		}
-		return warmEmissions;
-	}
-	
-	private Map<WarmPollutant, Double> rescaleWarmEmissions(Map<WarmPollutant, Double> warmEmissions) {
-		Map<WarmPollutant, Double> rescaledWarmEmissions = new HashMap<>();
-		
-		for(WarmPollutant wp : warmEmissions.keySet()){
-			Double orgValue = warmEmissions.get(wp);
-			Double rescaledValue = emissionEfficiencyFactor * orgValue;
-			rescaledWarmEmissions.put(wp, rescaledValue);
+			for (int i = 0; i < warmEmissions.length; i++) {
+				warmEmissions[i] = emissionEfficiencyFactor * warmEmissions[i];
+			}
 		}
-		return rescaledWarmEmissions;
 	}
 
-	private Map<WarmPollutant, Double> calculateWarmEmissions(
+	private void calculateWarmEmissions(
 			Id<Vehicle> vehicleId,
 			double travelTime,
 			int roadType,
 			double freeVelocity,
 			double linkLength,
-			Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple) {
-
-		Map<WarmPollutant, Double> warmEmissionsOfEvent = new HashMap<>();
+			VehicleInformation vehicleInformation,
+			double[] warmEmissionsOfEvent) {
 
 		String hbefaRoadTypeName = this.roadTypeMapping.get(roadType);
 
-		HbefaWarmEmissionFactorKey keyFreeFlow = new HbefaWarmEmissionFactorKey();
-		HbefaWarmEmissionFactorKey keyStopAndGo = new HbefaWarmEmissionFactorKey();
-
-		if(vehicleInformationTuple.getFirst().equals(HbefaVehicleCategory.HEAVY_GOODS_VEHICLE)){
-			keyFreeFlow.setHbefaVehicleCategory(HbefaVehicleCategory.HEAVY_GOODS_VEHICLE);
-			keyStopAndGo.setHbefaVehicleCategory(HbefaVehicleCategory.HEAVY_GOODS_VEHICLE);
-		} else{
-			keyFreeFlow.setHbefaVehicleCategory(HbefaVehicleCategory.PASSENGER_CAR);
-			keyStopAndGo.setHbefaVehicleCategory(HbefaVehicleCategory.PASSENGER_CAR);
+		int avgRow = -1;
+		if(this.avgHbefaWarmTable != null){
+			avgRow = this.avgHbefaWarmTable.getRow(vehicleInformation.lookupCategory,
+					this.avgHbefaWarmTable.getRoadCategoryIndex(hbefaRoadTypeName), vehicleInformation.avgAttributesIndex);
 		}
-		keyFreeFlow.setHbefaRoadCategory(hbefaRoadTypeName);
-		keyStopAndGo.setHbefaRoadCategory(hbefaRoadTypeName);
-		keyFreeFlow.setHbefaTrafficSituation(HbefaTrafficSituation.FREEFLOW);
-		keyStopAndGo.setHbefaTrafficSituation(HbefaTrafficSituation.STOPANDGO);
-
+		int detailedRow = -1;
 		if(this.detailedHbefaWarmTable != null){ // check if detailed emission factors file is set in config
-			HbefaVehicleAttributes hbefaVehicleAttributes = new HbefaVehicleAttributes();
-			hbefaVehicleAttributes.setHbefaTechnology(vehicleInformationTuple.getSecond().getHbefaTechnology());
-			hbefaVehicleAttributes.setHbefaSizeClass(vehicleInformationTuple.getSecond().getHbefaSizeClass());
-			hbefaVehicleAttributes.setHbefaEmConcept(vehicleInformationTuple.getSecond().getHbefaEmConcept());
-			keyFreeFlow.setHbefaVehicleAttributes(hbefaVehicleAttributes);
-			keyStopAndGo.setHbefaVehicleAttributes(hbefaVehicleAttributes);
+			detailedRow = this.detailedHbefaWarmTable.getRow(vehicleInformation.lookupCategory,
+					this.detailedHbefaWarmTable.getRoadCategoryIndex(hbefaRoadTypeName), vehicleInformation.detailedAttributesIndex);
 		}
 		
 		double linkLength_km = linkLength / 1000;
@@ -239,7 +257,6 @@ public class WarmEmissionAnalysisModule {
 		double freeFlowSpeed_kmh = freeVelocity * 3.6;
 		double averageSpeed_kmh = linkLength_km / travelTime_h;
 		
-		double freeFlowSpeedFromTable_kmh;
 		double stopGoSpeedFromTable_kmh;
 		double efFreeFlow_gpkm;
 		double efStopGo_gpkm;
@@ -247,37 +264,31 @@ public class WarmEmissionAnalysisModule {
 		for (WarmPollutant warmPollutant : WarmPollutant.values()) {
 			double generatedEmissions;
 
-			keyFreeFlow.setHbefaComponent(warmPollutant);
-			keyStopAndGo.setHbefaComponent(warmPollutant);
+			int columnFreeFlow = HbefaWarmEmissionFactorTable.getColumn(HbefaTrafficSituation.FREEFLOW, warmPollutant);
+			int columnStopAndGo = HbefaWarmEmissionFactorTable.getColumn(HbefaTrafficSituation.STOPANDGO, warmPollutant);
 			
-			if(this.detailedHbefaWarmTable != null){
-				if(this.detailedHbefaWarmTable.get(keyFreeFlow) != null && this.detailedHbefaWarmTable.get(keyStopAndGo) != null){
-					stopGoSpeedFromTable_kmh = this.detailedHbefaWarmTable.get(keyStopAndGo).getSpeed();
-					efFreeFlow_gpkm = this.detailedHbefaWarmTable.get(keyFreeFlow).getWarmEmissionFactor();
-					efStopGo_gpkm = this.detailedHbefaWarmTable.get(keyStopAndGo).getWarmEmissionFactor();
-					freeFlowSpeedFromTable_kmh = this.detailedHbefaWarmTable.get(keyFreeFlow).getSpeed();
-
-				} else {
-					vehAttributesNotSpecifiedCnt++;
-					stopGoSpeedFromTable_kmh = this.avgHbefaWarmTable.get(keyStopAndGo).getSpeed();
-					efFreeFlow_gpkm = this.avgHbefaWarmTable.get(keyFreeFlow).getWarmEmissionFactor();
-					efStopGo_gpkm = this.avgHbefaWarmTable.get(keyStopAndGo).getWarmEmissionFactor();
-					freeFlowSpeedFromTable_kmh = this.avgHbefaWarmTable.get(keyFreeFlow).getSpeed();
+			if(this.detailedHbefaWarmTable != null && this.detailedHbefaWarmTable.hasEntry(detailedRow, columnFreeFlow) && this.detailedHbefaWarmTable.hasEntry(detailedRow, columnStopAndGo)){
+				stopGoSpeedFromTable_kmh = this.detailedHbefaWarmTable.getSpeed(detailedRow, columnStopAndGo);
+				efFreeFlow_gpkm = this.detailedHbefaWarmTable.getWarmEmissionFactor(detailedRow, columnFreeFlow);
+				efStopGo_gpkm = this.detailedHbefaWarmTable.getWarmEmissionFactor(detailedRow, columnStopAndGo);
 
+			} else {
+				if(this.detailedHbefaWarmTable != null){
+					vehAttributesNotSpecifiedCnt++;
                     int maxWarnCnt = 3;
                     if(vehAttributesNotSpecifiedCnt <= maxWarnCnt) {
 						logger.warn("Detailed vehicle attributes are not specified correctly for vehicle " + vehicleId + ": " + 
-								"`" + vehicleInformationTuple.getSecond() + "'. Using fleet average values instead.");
+								"`" + vehicleInformation.vehicleAttributes + "'. Using fleet average values instead.");
 						if(vehAttributesNotSpecifiedCnt == maxWarnCnt) logger.warn(Gbl.FUTURE_SUPPRESSED);
 					}
-//					vehAttributesNotSpecified.add(personId);
 				}
-			} else {
-				stopGoSpeedFromTable_kmh = this.avgHbefaWarmTable.get(keyStopAndGo).getSpeed();
-				efFreeFlow_gpkm = this.avgHbefaWarmTable.get(keyFreeFlow).getWarmEmissionFactor();
-				efStopGo_gpkm = this.avgHbefaWarmTable.get(keyStopAndGo).getWarmEmissionFactor();
-				freeFlowSpeedFromTable_kmh = this.avgHbefaWarmTable.get(keyFreeFlow).getSpeed();
-//				vehAttributesNotSpecified.add(personId);
+				if(this.avgHbefaWarmTable == null || !this.avgHbefaWarmTable.hasEntry(avgRow, columnFreeFlow) || !this.avgHbefaWarmTable.hasEntry(avgRow, columnStopAndGo)){
+					throw new RuntimeException("No warm emission factor for " + warmPollutant + ", road category " + hbefaRoadTypeName 
+							+ " and vehicle " + vehicleId + " (`" + vehicleInformation.vehicleAttributes + "'). Aborting...");
+				}
+				stopGoSpeedFromTable_kmh = this.avgHbefaWarmTable.getSpeed(avgRow, columnStopAndGo);
+				efFreeFlow_gpkm = this.avgHbefaWarmTable.getWarmEmissionFactor(avgRow, columnFreeFlow);
+				efStopGo_gpkm = this.avgHbefaWarmTable.getWarmEmissionFactor(avgRow, columnStopAndGo);
 			}
 			
 			if(averageSpeed_kmh <= 0.0){
@@ -312,11 +323,9 @@ public class WarmEmissionAnalysisModule {
 				freeFlowKmCounter = freeFlowKmCounter + distanceFreeFlow_km;
 			}
 			kmCounter = kmCounter + linkLength_km;
-			warmEmissionsOfEvent.put(warmPollutant, generatedEmissions);
+			warmEmissionsOfEvent[warmPollutant.ordinal()] = generatedEmissions;
 		}
 		emissionEventCounter++;
-//		vehicleIdSet.add(personId);
-		return warmEmissionsOfEvent;
 	}
 
 	private Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> convertVehicleTypeId2VehicleInformationTuple(String vehicleDescription) {
@@ -345,6 +354,28 @@ public class WarmEmissionAnalysisModule {
 		return vehicleInformationTuple;
 	}
 
+	/**
+	 * A parsed vehicle description together with its vehicle attribute indices in the emission factor tables.
+	 */
+	private final class VehicleInformation {
+		final HbefaVehicleCategory vehicleCategory;
+		final HbefaVehicleCategory lookupCategory;
+		final HbefaVehicleAttributes vehicleAttributes;
+		final int avgAttributesIndex;
+		final int detailedAttributesIndex;
+
+		VehicleInformation(Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple) {
+			this.vehicleCategory = vehicleInformationTuple.getFirst();
+			this.lookupCategory = this.vehicleCategory.equals(HbefaVehicleCategory.HEAVY_GOODS_VEHICLE) ?
+					HbefaVehicleCategory.HEAVY_GOODS_VEHICLE : HbefaVehicleCategory.PASSENGER_CAR;
+			this.vehicleAttributes = vehicleInformationTuple.getSecond();
+			// without a detailed table, the average table is looked up with average vehicle attributes
+			HbefaVehicleAttributes avgLookupAttributes = detailedHbefaWarmTable != null ? this.vehicleAttributes : new HbefaVehicleAttributes();
+			this.avgAttributesIndex = avgHbefaWarmTable == null ? -1 : avgHbefaWarmTable.getVehicleAttributesIndex(avgLookupAttributes);
+			this.detailedAttributesIndex = detailedHbefaWarmTable == null ? -1 : detailedHbefaWarmTable.getVehicleAttributesIndex(this.vehicleAttributes);
+		}
+	}
+
 	public int getFreeFlowOccurences() {
 		return freeFlowCounter / WarmPollutant.values().length;
 	}
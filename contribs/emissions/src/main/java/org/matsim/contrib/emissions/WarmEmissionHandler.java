@@ -66,6 +66,9 @@ public class WarmEmissionHandler implements LinkEnterEventHandler, LinkLeaveEven
 	private final Map<Id<Vehicle>, Tuple<Id<Link>, Double>> vehicleLeavesTraffic = new HashMap<>();
 	private final Map<Id<Vehicle>, Tuple<Id<Link>, Double>> vehicleEntersTraffic = new HashMap<>();
 
+	// reused for all link leave events, indexed by WarmPollutant.ordinal()
+	private final double[] warmEmissions = new double[WarmPollutant.values().length];
+
 	public WarmEmissionHandler(
 			Vehicles emissionVehicles,
 			final Network network,
@@ -187,12 +190,13 @@ public class WarmEmissionHandler implements LinkEnterEventHandler, LinkLeaveEven
 			}
 			Vehicle vehicle = this.emissionVehicles.getVehicles().get(vehicleId);
 
-			Map<WarmPollutant, Double> warmEmissions = warmEmissionAnalysisModule.checkVehicleInfoAndCalculateWarmEmissions(
+			warmEmissionAnalysisModule.checkVehicleInfoAndCalculateWarmEmissions(
 					vehicle,
 					roadType,
 					freeVelocity,
 					linkLength,
-					travelTime);
+					travelTime,
+					warmEmissions);
 
 			warmEmissionAnalysisModule.throwWarmEmissionEvent(leaveTime, linkId, vehicleId, warmEmissions);
 		}
@@ -0,0 +1,110 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * HbefaColdEmissionFactorTable.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.contrib.emissions.types;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * A cold emission factor table compiled into arrays, see {@link HbefaWarmEmissionFactorTable}.
+ * <p></p>
+ * A row holds the emission factors of all parking times, distances and pollutants for one vehicle category and set
+ * of vehicle attributes.
+ *
+ */
+public final class HbefaColdEmissionFactorTable {
+
+	private static final int NUMBER_OF_POLLUTANTS = ColdPollutant.values().length;
+
+	private final Map<HbefaVehicleAttributes, Integer> vehicleAttributes2index = new HashMap<>();
+	private final int maxParkingTime;
+	private final int maxDistance;
+
+	private final double[][] factors;
+
+	public HbefaColdEmissionFactorTable(Map<HbefaColdEmissionFactorKey, HbefaColdEmissionFactor> table) {
+		int maxParkingTime = 0;
+		int maxDistance = 0;
+		for (HbefaColdEmissionFactorKey key : table.keySet()) {
+			if (!this.vehicleAttributes2index.containsKey(key.getHbefaVehicleAttributes())) {
+				this.vehicleAttributes2index.put(key.getHbefaVehicleAttributes(), this.vehicleAttributes2index.size());
+			}
+			maxParkingTime = Math.max(maxParkingTime, key.getHbefaParkingTime());
+			maxDistance = Math.max(maxDistance, key.getHbefaDistance());
+		}
+		this.maxParkingTime = maxParkingTime;
+		this.maxDistance = maxDistance;
+
+		this.factors = new double[HbefaVehicleCategory.values().length * this.vehicleAttributes2index.size()][];
+		int rowLength = (maxParkingTime + 1) * (maxDistance + 1) * NUMBER_OF_POLLUTANTS;
+
+		for (Entry<HbefaColdEmissionFactorKey, HbefaColdEmissionFactor> entry : table.entrySet()) {
+			HbefaColdEmissionFactorKey key = entry.getKey();
+			if (key.getHbefaParkingTime() < 0 || key.getHbefaDistance() < 0) {
+				throw new RuntimeException("Negative parking time or distance in cold emission factor key " + key + ". Aborting...");
+			}
+			int row = getRow(key.getHbefaVehicleCategory(), getVehicleAttributesIndex(key.getHbefaVehicleAttributes()));
+			if (this.factors[row] == null) {
+				this.factors[row] = new double[rowLength];
+				Arrays.fill(this.factors[row], Double.NaN);
+			}
+			this.factors[row][getColumn(key.getHbefaParkingTime(), key.getHbefaDistance(), key.getHbefaComponent())] = entry.getValue().getColdEmissionFactor();
+		}
+	}
+
+	/**
+	 * @return the index of the vehicle attributes, or <code>-1</code> if the table has no entry for them
+	 */
+	public int getVehicleAttributesIndex(HbefaVehicleAttributes hbefaVehicleAttributes) {
+		Integer index = this.vehicleAttributes2index.get(hbefaVehicleAttributes);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * @return the row of the emission factors, or <code>-1</code> if the vehicle attributes are unknown
+	 */
+	public int getRow(HbefaVehicleCategory hbefaVehicleCategory, int vehicleAttributesIndex) {
+		if (vehicleAttributesIndex < 0) {
+			return -1;
+		}
+		return hbefaVehicleCategory.ordinal() * this.vehicleAttributes2index.size() + vehicleAttributesIndex;
+	}
+
+	/**
+	 * @return the column of the emission factor, or <code>-1</code> if the parking time or the distance are out of the table's range
+	 */
+	public int getColumn(int hbefaParkingTime, int hbefaDistance, ColdPollutant coldPollutant) {
+		if (hbefaParkingTime < 0 || hbefaParkingTime > this.maxParkingTime || hbefaDistance < 0 || hbefaDistance > this.maxDistance) {
+			return -1;
+		}
+		return (hbefaParkingTime * (this.maxDistance + 1) + hbefaDistance) * NUMBER_OF_POLLUTANTS + coldPollutant.ordinal();
+	}
+
+	public boolean hasEntry(int row, int column) {
+		return row >= 0 && column >= 0 && this.factors[row] != null && !Double.isNaN(this.factors[row][column]);
+	}
+
+	public double getColdEmissionFactor(int row, int column) {
+		return this.factors[row][column];
+	}
+
+}
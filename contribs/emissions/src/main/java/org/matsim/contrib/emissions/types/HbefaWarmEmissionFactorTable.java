@@ -0,0 +1,118 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * HbefaWarmEmissionFactorTable.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.contrib.emissions.types;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * A warm emission factor table compiled into arrays. Road categories and vehicle attributes are numbered once;
+ * a look-up then only indexes arrays instead of hashing a {@link HbefaWarmEmissionFactorKey} (whose hash code is
+ * computed from its string representation) for every pollutant of every link leave event.
+ * <p></p>
+ * A row holds the emission factors and speeds of all traffic situations and pollutants for one vehicle category,
+ * road category and set of vehicle attributes. Rows without any entry in the source table are not allocated.
+ *
+ */
+public final class HbefaWarmEmissionFactorTable {
+
+	private static final int NUMBER_OF_POLLUTANTS = WarmPollutant.values().length;
+	private static final int ROW_LENGTH = HbefaTrafficSituation.values().length * NUMBER_OF_POLLUTANTS;
+
+	private final Map<String, Integer> roadCategory2index = new HashMap<>();
+	private final Map<HbefaVehicleAttributes, Integer> vehicleAttributes2index = new HashMap<>();
+
+	private final double[][] factors;
+	private final double[][] speeds;
+
+	public HbefaWarmEmissionFactorTable(Map<HbefaWarmEmissionFactorKey, HbefaWarmEmissionFactor> table) {
+		for (HbefaWarmEmissionFactorKey key : table.keySet()) {
+			if (!this.roadCategory2index.containsKey(key.getHbefaRoadCategory())) {
+				this.roadCategory2index.put(key.getHbefaRoadCategory(), this.roadCategory2index.size());
+			}
+			if (!this.vehicleAttributes2index.containsKey(key.getHbefaVehicleAttributes())) {
+				this.vehicleAttributes2index.put(key.getHbefaVehicleAttributes(), this.vehicleAttributes2index.size());
+			}
+		}
+
+		int numberOfRows = HbefaVehicleCategory.values().length * this.roadCategory2index.size() * this.vehicleAttributes2index.size();
+		this.factors = new double[numberOfRows][];
+		this.speeds = new double[numberOfRows][];
+
+		for (Entry<HbefaWarmEmissionFactorKey, HbefaWarmEmissionFactor> entry : table.entrySet()) {
+			HbefaWarmEmissionFactorKey key = entry.getKey();
+			int row = getRow(key.getHbefaVehicleCategory(), getRoadCategoryIndex(key.getHbefaRoadCategory()), getVehicleAttributesIndex(key.getHbefaVehicleAttributes()));
+			if (this.factors[row] == null) {
+				this.factors[row] = new double[ROW_LENGTH];
+				this.speeds[row] = new double[ROW_LENGTH];
+				Arrays.fill(this.factors[row], Double.NaN);
+				Arrays.fill(this.speeds[row], Double.NaN);
+			}
+			int column = getColumn(key.getHbefaTrafficSituation(), key.getHbefaComponent());
+			this.factors[row][column] = entry.getValue().getWarmEmissionFactor();
+			this.speeds[row][column] = entry.getValue().getSpeed();
+		}
+	}
+
+	/**
+	 * @return the index of the road category, or <code>-1</code> if the table has no entry for it
+	 */
+	public int getRoadCategoryIndex(String hbefaRoadCategory) {
+		Integer index = this.roadCategory2index.get(hbefaRoadCategory);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * @return the index of the vehicle attributes, or <code>-1</code> if the table has no entry for them
+	 */
+	public int getVehicleAttributesIndex(HbefaVehicleAttributes hbefaVehicleAttributes) {
+		Integer index = this.vehicleAttributes2index.get(hbefaVehicleAttributes);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * @return the row of the emission factors, or <code>-1</code> if the road category or the vehicle attributes are unknown
+	 */
+	public int getRow(HbefaVehicleCategory hbefaVehicleCategory, int roadCategoryIndex, int vehicleAttributesIndex) {
+		if (roadCategoryIndex < 0 || vehicleAttributesIndex < 0) {
+			return -1;
+		}
+		return (hbefaVehicleCategory.ordinal() * this.roadCategory2index.size() + roadCategoryIndex) * this.vehicleAttributes2index.size() + vehicleAttributesIndex;
+	}
+
+	public static int getColumn(HbefaTrafficSituation hbefaTrafficSituation, WarmPollutant warmPollutant) {
+		return hbefaTrafficSituation.ordinal() * NUMBER_OF_POLLUTANTS + warmPollutant.ordinal();
+	}
+
+	public boolean hasEntry(int row, int column) {
+		return row >= 0 && this.factors[row] != null && !Double.isNaN(this.factors[row][column]);
+	}
+
+	public double getWarmEmissionFactor(int row, int column) {
+		return this.factors[row][column];
+	}
+
+	public double getSpeed(int row, int column) {
+		return this.speeds[row][column];
+	}
+
+}
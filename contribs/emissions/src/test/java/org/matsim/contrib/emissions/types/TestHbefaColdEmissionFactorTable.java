@@ -0,0 +1,112 @@
+/* *********************************************************************** *
+ * project: org.matsim.*                                                   *
+ * TestHbefaColdEmissionFactorTable.java                                   *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.emissions.types;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.testcases.MatsimTestUtils;
+
+
+/*
+	* test for org.matsim.contrib.emissions.types.HbefaColdEmissionFactorTable
+	* 1 every entry of the source table is found at its row and column
+	* 2 unknown vehicle attributes, parking times and distances out of range and missing entries are reported as such
+	*/
+
+public class TestHbefaColdEmissionFactorTable {
+
+	private HbefaVehicleAttributes createAttributes(String technology) {
+		HbefaVehicleAttributes attributes = new HbefaVehicleAttributes();
+		attributes.setHbefaTechnology(technology);
+		attributes.setHbefaSizeClass("size class");
+		attributes.setHbefaEmConcept("concept");
+		return attributes;
+	}
+
+	private void put(Map<HbefaColdEmissionFactorKey, HbefaColdEmissionFactor> table, HbefaVehicleCategory vehicleCategory,
+			HbefaVehicleAttributes attributes, int parkingTime, int distance, ColdPollutant coldPollutant, double factor) {
+		HbefaColdEmissionFactorKey key = new HbefaColdEmissionFactorKey();
+		key.setHbefaVehicleCategory(vehicleCategory);
+		key.setHbefaVehicleAttributes(attributes);
+		key.setHbefaParkingTime(parkingTime);
+		key.setHbefaDistance(distance);
+		key.setHbefaComponent(coldPollutant);
+		HbefaColdEmissionFactor value = new HbefaColdEmissionFactor();
+		value.setColdEmissionFactor(factor);
+		table.put(key, value);
+	}
+
+	@Test
+	public final void testLookUp(){
+
+		Map<HbefaColdEmissionFactorKey, HbefaColdEmissionFactor> map = new HashMap<>();
+		double factor = 1.;
+		for (ColdPollutant cp : ColdPollutant.values()) {
+			for (int parkingTime = 0; parkingTime <= 12; parkingTime++) {
+				for (int distance = 1; distance <= 2; distance++) {
+					put(map, HbefaVehicleCategory.PASSENGER_CAR, createAttributes("petrol"), parkingTime, distance, cp, factor);
+					factor++;
+				}
+			}
+			// heavy goods vehicles only for short parking times
+			put(map, HbefaVehicleCategory.HEAVY_GOODS_VEHICLE, createAttributes("diesel"), 1, 1, cp, factor + 1000.);
+		}
+
+		HbefaColdEmissionFactorTable table = new HbefaColdEmissionFactorTable(map);
+
+		for (Map.Entry<HbefaColdEmissionFactorKey, HbefaColdEmissionFactor> entry : map.entrySet()) {
+			HbefaColdEmissionFactorKey key = entry.getKey();
+			int row = table.getRow(key.getHbefaVehicleCategory(), table.getVehicleAttributesIndex(key.getHbefaVehicleAttributes()));
+			int column = table.getColumn(key.getHbefaParkingTime(), key.getHbefaDistance(), key.getHbefaComponent());
+			Assert.assertTrue("missing entry for " + key, table.hasEntry(row, column));
+			Assert.assertEquals("wrong emission factor for " + key, entry.getValue().getColdEmissionFactor(), table.getColdEmissionFactor(row, column), MatsimTestUtils.EPSILON);
+		}
+
+		// an equal but not identical attributes object is found
+		int petrolRow = table.getRow(HbefaVehicleCategory.PASSENGER_CAR, table.getVehicleAttributesIndex(createAttributes("petrol")));
+		Assert.assertTrue(petrolRow >= 0);
+
+		// no entry for a distance of zero, although it is within the range of the table
+		Assert.assertFalse(table.hasEntry(petrolRow, table.getColumn(1, 0, ColdPollutant.NOX)));
+
+		// heavy goods vehicles have no entry for longer parking times, and no entry with the petrol attributes at all
+		int hgvRow = table.getRow(HbefaVehicleCategory.HEAVY_GOODS_VEHICLE, table.getVehicleAttributesIndex(createAttributes("diesel")));
+		Assert.assertTrue(table.hasEntry(hgvRow, table.getColumn(1, 1, ColdPollutant.NOX)));
+		Assert.assertFalse(table.hasEntry(hgvRow, table.getColumn(12, 1, ColdPollutant.NOX)));
+		hgvRow = table.getRow(HbefaVehicleCategory.HEAVY_GOODS_VEHICLE, table.getVehicleAttributesIndex(createAttributes("petrol")));
+		Assert.assertFalse(table.hasEntry(hgvRow, table.getColumn(1, 1, ColdPollutant.NOX)));
+
+		// parking times and distances out of range
+		Assert.assertEquals(-1, table.getColumn(13, 1, ColdPollutant.NOX));
+		Assert.assertEquals(-1, table.getColumn(1, 3, ColdPollutant.NOX));
+		Assert.assertEquals(-1, table.getColumn(-1, 1, ColdPollutant.NOX));
+		Assert.assertFalse(table.hasEntry(petrolRow, -1));
+
+		// unknown vehicle attributes
+		Assert.assertEquals(-1, table.getVehicleAttributesIndex(createAttributes("unknown")));
+		Assert.assertEquals(-1, table.getRow(HbefaVehicleCategory.PASSENGER_CAR, -1));
+		Assert.assertFalse(table.hasEntry(-1, 0));
+	}
+
+}
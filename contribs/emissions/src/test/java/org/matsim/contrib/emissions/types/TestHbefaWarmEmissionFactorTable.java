@@ -0,0 +1,105 @@
+/* *********************************************************************** *
+ * project: org.matsim.*                                                   *
+ * TestHbefaWarmEmissionFactorTable.java                                   *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.emissions.types;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.testcases.MatsimTestUtils;
+
+
+/*
+	* test for org.matsim.contrib.emissions.types.HbefaWarmEmissionFactorTable
+	* 1 every entry of the source table is found at its row and column
+	* 2 unknown road categories or vehicle attributes and missing entries are reported as such
+	*/
+
+public class TestHbefaWarmEmissionFactorTable {
+
+	private final String roadCategory = "URB/Access/30";
+	private final String otherRoadCategory = "RUR/MW/80";
+
+	private HbefaVehicleAttributes createAttributes(String technology) {
+		HbefaVehicleAttributes attributes = new HbefaVehicleAttributes();
+		attributes.setHbefaTechnology(technology);
+		attributes.setHbefaSizeClass("size class");
+		attributes.setHbefaEmConcept("concept");
+		return attributes;
+	}
+
+	private void put(Map<HbefaWarmEmissionFactorKey, HbefaWarmEmissionFactor> table, HbefaVehicleCategory vehicleCategory, String roadCategory,
+			HbefaTrafficSituation trafficSituation, HbefaVehicleAttributes attributes, WarmPollutant warmPollutant, double factor, double speed) {
+		HbefaWarmEmissionFactorKey key = new HbefaWarmEmissionFactorKey();
+		key.setHbefaVehicleCategory(vehicleCategory);
+		key.setHbefaRoadCategory(roadCategory);
+		key.setHbefaTrafficSituation(trafficSituation);
+		key.setHbefaVehicleAttributes(attributes);
+		key.setHbefaComponent(warmPollutant);
+		HbefaWarmEmissionFactor value = new HbefaWarmEmissionFactor();
+		value.setWarmEmissionFactor(factor);
+		value.setSpeed(speed);
+		table.put(key, value);
+	}
+
+	@Test
+	public final void testLookUp(){
+
+		Map<HbefaWarmEmissionFactorKey, HbefaWarmEmissionFactor> map = new HashMap<>();
+		double factor = 1.;
+		for (WarmPollutant wp : WarmPollutant.values()) {
+			put(map, HbefaVehicleCategory.PASSENGER_CAR, roadCategory, HbefaTrafficSituation.FREEFLOW, createAttributes("petrol"), wp, factor, 50.);
+			put(map, HbefaVehicleCategory.PASSENGER_CAR, roadCategory, HbefaTrafficSituation.STOPANDGO, createAttributes("petrol"), wp, factor + 100., 10.);
+			put(map, HbefaVehicleCategory.HEAVY_GOODS_VEHICLE, otherRoadCategory, HbefaTrafficSituation.FREEFLOW, createAttributes("diesel"), wp, factor + 200., 80.);
+			factor++;
+		}
+
+		HbefaWarmEmissionFactorTable table = new HbefaWarmEmissionFactorTable(map);
+
+		for (Map.Entry<HbefaWarmEmissionFactorKey, HbefaWarmEmissionFactor> entry : map.entrySet()) {
+			HbefaWarmEmissionFactorKey key = entry.getKey();
+			int row = table.getRow(key.getHbefaVehicleCategory(), table.getRoadCategoryIndex(key.getHbefaRoadCategory()), table.getVehicleAttributesIndex(key.getHbefaVehicleAttributes()));
+			int column = HbefaWarmEmissionFactorTable.getColumn(key.getHbefaTrafficSituation(), key.getHbefaComponent());
+			Assert.assertTrue("missing entry for " + key, table.hasEntry(row, column));
+			Assert.assertEquals("wrong emission factor for " + key, entry.getValue().getWarmEmissionFactor(), table.getWarmEmissionFactor(row, column), MatsimTestUtils.EPSILON);
+			Assert.assertEquals("wrong speed for " + key, entry.getValue().getSpeed(), table.getSpeed(row, column), MatsimTestUtils.EPSILON);
+		}
+
+		// an equal but not identical attributes object is found
+		int petrolRow = table.getRow(HbefaVehicleCategory.PASSENGER_CAR, table.getRoadCategoryIndex(roadCategory), table.getVehicleAttributesIndex(createAttributes("petrol")));
+		Assert.assertTrue(petrolRow >= 0);
+
+		// heavy goods vehicles have no entry on this road category, and no stop and go entry at all
+		int hgvRow = table.getRow(HbefaVehicleCategory.HEAVY_GOODS_VEHICLE, table.getRoadCategoryIndex(roadCategory), table.getVehicleAttributesIndex(createAttributes("diesel")));
+		Assert.assertFalse(table.hasEntry(hgvRow, HbefaWarmEmissionFactorTable.getColumn(HbefaTrafficSituation.FREEFLOW, WarmPollutant.NOX)));
+		hgvRow = table.getRow(HbefaVehicleCategory.HEAVY_GOODS_VEHICLE, table.getRoadCategoryIndex(otherRoadCategory), table.getVehicleAttributesIndex(createAttributes("diesel")));
+		Assert.assertTrue(table.hasEntry(hgvRow, HbefaWarmEmissionFactorTable.getColumn(HbefaTrafficSituation.FREEFLOW, WarmPollutant.NOX)));
+		Assert.assertFalse(table.hasEntry(hgvRow, HbefaWarmEmissionFactorTable.getColumn(HbefaTrafficSituation.STOPANDGO, WarmPollutant.NOX)));
+
+		// unknown road category and unknown vehicle attributes
+		Assert.assertEquals(-1, table.getRoadCategoryIndex("unknown"));
+		Assert.assertEquals(-1, table.getVehicleAttributesIndex(createAttributes("unknown")));
+		Assert.assertEquals(-1, table.getRow(HbefaVehicleCategory.PASSENGER_CAR, -1, 0));
+		Assert.assertFalse(table.hasEntry(-1, 0));
+	}
+
+}
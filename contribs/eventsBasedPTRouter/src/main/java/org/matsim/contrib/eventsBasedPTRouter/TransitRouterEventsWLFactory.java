@@ -40,6 +40,7 @@ public class TransitRouterEventsWLFactory implements Provider<TransitRouter> {
 
 	private final TransitRouterConfig config;
 	private final TransitRouterNetworkWW routerNetwork;
+	private final PreparedTransitSchedule preparedTransitSchedule;
 	private final Network network;
 	private MatsimServices controler;
 	private final WaitTime waitTime;
@@ -52,10 +53,11 @@ public class TransitRouterEventsWLFactory implements Provider<TransitRouter> {
 		this.controler = controler;
 		this.waitTime = waitTime;
 		routerNetwork = TransitRouterNetworkWW.createFromSchedule(network, controler.getScenario().getTransitSchedule(), this.config.getBeelineWalkConnectionDistance());
+		this.preparedTransitSchedule = new PreparedTransitSchedule(controler.getScenario().getTransitSchedule());
 	}
 	@Override
 	public TransitRouter get() {
-		return new TransitRouterVariableImpl(config, new TransitRouterNetworkTravelTimeAndDisutilityWW(config, network, routerNetwork, controler.getLinkTravelTimes(), waitTime, controler.getConfig().travelTimeCalculator(), controler.getConfig().qsim(), new PreparedTransitSchedule(controler.getScenario().getTransitSchedule())), routerNetwork);
+		return new TransitRouterVariableImpl(config, new TransitRouterNetworkTravelTimeAndDisutilityWW(config, network, routerNetwork, controler.getLinkTravelTimes(), waitTime, controler.getConfig().travelTimeCalculator(), controler.getConfig().qsim(), preparedTransitSchedule), routerNetwork);
 	}
 
 }
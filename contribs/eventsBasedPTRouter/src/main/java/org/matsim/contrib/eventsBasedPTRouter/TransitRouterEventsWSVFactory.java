@@ -40,6 +40,7 @@ public class TransitRouterEventsWSVFactory implements Provider<TransitRouter> {
 
 	private final TransitRouterConfig config;
 	private final TransitRouterNetworkWW routerNetwork;
+	private final PreparedTransitSchedule preparedTransitSchedule;
 	private final Scenario scenario;
 	private final WaitTime waitTime;
 	private final StopStopTime stopStopTime;
@@ -50,6 +51,7 @@ public class TransitRouterEventsWSVFactory implements Provider<TransitRouter> {
 				scenario.getConfig().plansCalcRoute(), scenario.getConfig().transitRouter(),
 				scenario.getConfig().vspExperimental());
 		routerNetwork = TransitRouterNetworkWW.createFromSchedule(scenario.getNetwork(), scenario.getTransitSchedule(), this.config.getBeelineWalkConnectionDistance());
+		this.preparedTransitSchedule = new PreparedTransitSchedule(scenario.getTransitSchedule());
 		this.scenario = scenario;
 		this.waitTime = waitTime;
 		this.stopStopTime = stopStopTime;
@@ -57,7 +59,7 @@ public class TransitRouterEventsWSVFactory implements Provider<TransitRouter> {
 	}
 	@Override
 	public TransitRouter get() {
-		return new TransitRouterVariableImpl(config, new TransitRouterNetworkTravelTimeAndDisutilityWSV(config, routerNetwork, waitTime, stopStopTime, vehicleOccupancy, scenario.getConfig().travelTimeCalculator(), scenario.getConfig().qsim(), new PreparedTransitSchedule(scenario.getTransitSchedule())), routerNetwork);
+		return new TransitRouterVariableImpl(config, new TransitRouterNetworkTravelTimeAndDisutilityWSV(config, routerNetwork, waitTime, stopStopTime, vehicleOccupancy, scenario.getConfig().travelTimeCalculator(), scenario.getConfig().qsim(), preparedTransitSchedule), routerNetwork);
 	}
 
 }
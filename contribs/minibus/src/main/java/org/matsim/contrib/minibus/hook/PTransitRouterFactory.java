@@ -48,6 +48,7 @@ class PTransitRouterFactory implements Provider<TransitRouter> {
 	
 	private boolean needToUpdateRouter = true;
 	private TransitRouterNetwork routerNetwork = null;
+	private PreparedTransitSchedule preparedTransitSchedule = null;
 	private Provider<TransitRouter> routerFactory = null;
 	private TransitSchedule schedule;
 	private RaptorDisutility raptorDisutility;
@@ -89,6 +90,7 @@ class PTransitRouterFactory implements Provider<TransitRouter> {
 				} else {
 					log.warn("Could not create speedy router, fall back to normal one.");
 					this.routerNetwork = TransitRouterNetwork.createFromSchedule(this.schedule, this.transitRouterConfig.getBeelineWalkConnectionDistance());
+					this.preparedTransitSchedule = new PreparedTransitSchedule(this.schedule);
 				}
 			}
 			needToUpdateRouter = false;
@@ -100,9 +102,8 @@ class PTransitRouterFactory implements Provider<TransitRouter> {
 				return this.createRaptorRouter();
 			} else {
 				// no speedy router available - return old one
-				PreparedTransitSchedule preparedTransitSchedule = new PreparedTransitSchedule(schedule);
-				TransitRouterNetworkTravelTimeAndDisutility ttCalculator = new TransitRouterNetworkTravelTimeAndDisutility(this.transitRouterConfig, preparedTransitSchedule);
-				return new TransitRouterImpl(this.transitRouterConfig, preparedTransitSchedule, routerNetwork, ttCalculator, ttCalculator);
+				TransitRouterNetworkTravelTimeAndDisutility ttCalculator = new TransitRouterNetworkTravelTimeAndDisutility(this.transitRouterConfig, this.preparedTransitSchedule);
+				return new TransitRouterImpl(this.transitRouterConfig, this.preparedTransitSchedule, this.routerNetwork, ttCalculator, ttCalculator);
 			}
 		} else {
 			return this.routerFactory.get();
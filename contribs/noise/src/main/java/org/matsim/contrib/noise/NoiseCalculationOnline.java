@@ -126,7 +126,6 @@ public class NoiseCalculationOnline implements BeforeMobsimListener, AfterMobsim
 		this.noiseContext.getTimeInterval2linkId2noiseLinks().clear();
 		
 		for (NoiseReceiverPoint rp : this.noiseContext.getReceiverPoints().values()) {
-			rp.getLinkId2IsolatedImmission().clear();
 			rp.setFinalImmission(0.);
 			rp.setDamageCosts(0.);
 			rp.setDamageCostsPerAffectedAgentUnit(0.);
@@ -0,0 +1,92 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.noise.data;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+
+/**
+ * The isolated immissions of the current time bin, one value per entry of the {@link ReceiverPointLinkMatrix}: the
+ * immission caused by the link alone, and by the link with one more car or HGV.
+ * <p></p>
+ * The receiver points of the matrix read and write their rows through the deprecated map based getters and setters.
+ *
+ */
+public final class IsolatedImmissions {
+
+	private final ReceiverPointLinkMatrix matrix;
+	private final double[] immission;
+	private final double[] immissionPlusOneCar;
+	private final double[] immissionPlusOneHgv;
+
+	public IsolatedImmissions(ReceiverPointLinkMatrix matrix) {
+		this.matrix = matrix;
+		this.immission = new double[matrix.getNumberOfEntries()];
+		this.immissionPlusOneCar = new double[matrix.getNumberOfEntries()];
+		this.immissionPlusOneHgv = new double[matrix.getNumberOfEntries()];
+
+		for (int row = 0; row < matrix.getNumberOfRows(); row++) {
+			matrix.getReceiverPoint(row).setIsolatedImmissions(this, row);
+		}
+	}
+
+	public double[] getImmission() {
+		return this.immission;
+	}
+
+	public double[] getImmissionPlusOneCar() {
+		return this.immissionPlusOneCar;
+	}
+
+	public double[] getImmissionPlusOneHgv() {
+		return this.immissionPlusOneHgv;
+	}
+
+	Map<Id<Link>, Double> getRow(double[] values, int row) {
+		Map<Id<Link>, Double> linkId2value = new HashMap<Id<Link>, Double>();
+		for (int entry = this.matrix.getRowStart(row); entry < this.matrix.getRowEnd(row); entry++) {
+			linkId2value.put(this.matrix.getLinkId(this.matrix.getEntryColumn(entry)), values[entry]);
+		}
+		return linkId2value;
+	}
+
+	/**
+	 * Overwrites the entries of the row; links that are missing in the map get a value of zero.
+	 */
+	void setRow(double[] values, int row, Map<Id<Link>, Double> linkId2value) {
+		int found = 0;
+		for (int entry = this.matrix.getRowStart(row); entry < this.matrix.getRowEnd(row); entry++) {
+			Double value = linkId2value.get(this.matrix.getLinkId(this.matrix.getEntryColumn(entry)));
+			if (value == null) {
+				values[entry] = 0.;
+			} else {
+				values[entry] = value;
+				found++;
+			}
+		}
+		if (found < linkId2value.size()) {
+			throw new RuntimeException("Some of the links are not relevant for receiver point " + this.matrix.getReceiverPoint(row).getId() + ". Aborting...");
+		}
+	}
+
+}
@@ -72,6 +72,7 @@ public class NoiseContext {
 	private double eventTime = Double.MIN_VALUE;
 
 	private final Map<Id<ReceiverPoint>, NoiseReceiverPoint> noiseReceiverPoints;
+	private ReceiverPointLinkMatrix receiverPointLinkMatrix = null;
 	
 	// ############################################
 	
@@ -457,6 +458,16 @@ public class NoiseContext {
 		return noiseReceiverPoints;
 	}
 	
+	/**
+	 * @return the relevant links of all receiver points as a sparse matrix, built on the first call
+	 */
+	public final ReceiverPointLinkMatrix getReceiverPointLinkMatrix() {
+		if (this.receiverPointLinkMatrix == null) {
+			this.receiverPointLinkMatrix = new ReceiverPointLinkMatrix(this.scenario.getNetwork(), this.noiseReceiverPoints.values(), this.noiseParams.getTunnelLinkIDsSet());
+		}
+		return receiverPointLinkMatrix;
+	}
+	
 	public final NoiseConfigGroup getNoiseParams() {
 		return noiseParams;
 	}
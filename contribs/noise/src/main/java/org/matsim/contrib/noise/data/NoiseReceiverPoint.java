@@ -51,9 +51,8 @@ public class NoiseReceiverPoint extends ReceiverPoint {
 	private Map<Id<Link>, Double> linkId2angleCorrection = new HashMap<Id<Link>, Double>();
 			
 	// time-specific information
-	private Map<Id<Link>, Double> linkId2IsolatedImmission = new HashMap<Id<Link>, Double>();
-	private Map<Id<Link>, Double> linkId2IsolatedImmissionPlusOneCar = new HashMap<Id<Link>, Double>();
-	private Map<Id<Link>, Double> linkId2IsolatedImmissionPlusOneHGV = new HashMap<Id<Link>, Double>(); 
+	private IsolatedImmissions isolatedImmissions = null;
+	private int isolatedImmissionsRow = -1;
 	private double finalImmission = 0.;
 	private double affectedAgentUnits = 0.;
 	private double damageCosts;
@@ -84,12 +83,29 @@ public class NoiseReceiverPoint extends ReceiverPoint {
 		this.linkId2angleCorrection = linkId2angleCorrection;
 	}
 
+	void setIsolatedImmissions(IsolatedImmissions isolatedImmissions, int row) {
+		this.isolatedImmissions = isolatedImmissions;
+		this.isolatedImmissionsRow = row;
+	}
+
+	/**
+	 * @deprecated the isolated immissions are held in the arrays of {@link IsolatedImmissions}; this creates a map of
+	 * the current time bin on every call.
+	 */
+	@Deprecated
 	public Map<Id<Link>, Double> getLinkId2IsolatedImmission() {
-		return linkId2IsolatedImmission;
+		if (isolatedImmissions == null) {
+			return new HashMap<Id<Link>, Double>();
+		}
+		return isolatedImmissions.getRow(isolatedImmissions.getImmission(), isolatedImmissionsRow);
 	}
 
+	/**
+	 * @deprecated writes the values into the row of the receiver point in {@link IsolatedImmissions}.
+	 */
+	@Deprecated
 	public void setLinkId2IsolatedImmission(Map<Id<Link>, Double> linkId2IsolatedImmission) {
-		this.linkId2IsolatedImmission = linkId2IsolatedImmission;
+		getIsolatedImmissions().setRow(isolatedImmissions.getImmission(), isolatedImmissionsRow, linkId2IsolatedImmission);
 	}
 
 	public double getFinalImmission() {
@@ -125,22 +141,51 @@ public class NoiseReceiverPoint extends ReceiverPoint {
 		this.affectedAgentUnits = affectedAgentsUnits;
 	}
 
+	/**
+	 * @deprecated see {@link #getLinkId2IsolatedImmission()}
+	 */
+	@Deprecated
 	public Map<Id<Link>, Double> getLinkId2IsolatedImmissionPlusOneCar() {
-		return linkId2IsolatedImmissionPlusOneCar;
+		if (isolatedImmissions == null) {
+			return new HashMap<Id<Link>, Double>();
+		}
+		return isolatedImmissions.getRow(isolatedImmissions.getImmissionPlusOneCar(), isolatedImmissionsRow);
 	}
 
+	/**
+	 * @deprecated see {@link #setLinkId2IsolatedImmission(Map)}
+	 */
+	@Deprecated
 	public void setLinkId2IsolatedImmissionPlusOneCar(
 			Map<Id<Link>, Double> linkId2IsolatedImmissionPlusOneCar) {
-		this.linkId2IsolatedImmissionPlusOneCar = linkId2IsolatedImmissionPlusOneCar;
+		getIsolatedImmissions().setRow(isolatedImmissions.getImmissionPlusOneCar(), isolatedImmissionsRow, linkId2IsolatedImmissionPlusOneCar);
 	}
 
+	/**
+	 * @deprecated see {@link #getLinkId2IsolatedImmission()}
+	 */
+	@Deprecated
 	public Map<Id<Link>, Double> getLinkId2IsolatedImmissionPlusOneHGV() {
-		return linkId2IsolatedImmissionPlusOneHGV;
+		if (isolatedImmissions == null) {
+			return new HashMap<Id<Link>, Double>();
+		}
+		return isolatedImmissions.getRow(isolatedImmissions.getImmissionPlusOneHgv(), isolatedImmissionsRow);
 	}
 
+	/**
+	 * @deprecated see {@link #setLinkId2IsolatedImmission(Map)}
+	 */
+	@Deprecated
 	public void setLinkId2IsolatedImmissionPlusOneHGV(
 			Map<Id<Link>, Double> linkId2IsolatedImmissionPlusOneHGV) {
-		this.linkId2IsolatedImmissionPlusOneHGV = linkId2IsolatedImmissionPlusOneHGV;
+		getIsolatedImmissions().setRow(isolatedImmissions.getImmissionPlusOneHgv(), isolatedImmissionsRow, linkId2IsolatedImmissionPlusOneHGV);
+	}
+
+	private IsolatedImmissions getIsolatedImmissions() {
+		if (isolatedImmissions == null) {
+			throw new RuntimeException("The isolated immissions of receiver point " + getId() + " are not computed yet. Aborting...");
+		}
+		return isolatedImmissions;
 	}
 
 	@Override
@@ -148,11 +193,7 @@ public class NoiseReceiverPoint extends ReceiverPoint {
 		return "NoiseReceiverPoint [personId2actInfos=" + personId2actInfos
 				+ ", linkId2distanceCorrection=" + linkId2distanceCorrection
 				+ ", linkId2angleCorrection=" + linkId2angleCorrection
-				+ ", linkId2IsolatedImmission=" + linkId2IsolatedImmission
-				+ ", linkId2IsolatedImmissionPlusOneCar="
-				+ linkId2IsolatedImmissionPlusOneCar
-				+ ", linkId2IsolatedImmissionPlusOneHGV="
-				+ linkId2IsolatedImmissionPlusOneHGV + ", finalImmission="
+				+ ", finalImmission="
 				+ finalImmission + ", affectedAgentUnits=" + affectedAgentUnits
 				+ ", damageCosts=" + damageCosts + ", damageCostsPerAffectedAgentUnit="
 				+ damageCostsPerAffectedAgentUnit + "]";
@@ -0,0 +1,148 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.noise.data;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+
+/**
+ * The relevant links of all receiver points in compressed sparse row format: one row per receiver point, one column
+ * per network link. An entry holds the sum of the distance and the angle correction of the link at the receiver point,
+ * so the isolated immission of a link is its emission plus the correction of the entry.
+ * <p></p>
+ * The relevant links and their corrections do not change after the {@link NoiseContext} is set up; the matrix is built
+ * once and replaces the per receiver point hash map look-ups in each time bin.
+ *
+ */
+public final class ReceiverPointLinkMatrix {
+
+	private final NoiseReceiverPoint[] receiverPoints;
+	private final Id<Link>[] linkIds;
+	private final Map<Id<Link>, Integer> linkId2column;
+
+	private final int[] rowStart;
+	private final int[] columns;
+	private final double[] corrections;
+	private final boolean[] tunnels;
+
+	@SuppressWarnings("unchecked")
+	ReceiverPointLinkMatrix(Network network, Collection<NoiseReceiverPoint> receiverPoints, Set<Id<Link>> tunnelLinkIds) {
+
+		this.linkIds = new Id[network.getLinks().size()];
+		this.linkId2column = new HashMap<>(network.getLinks().size() * 2);
+		int column = 0;
+		for (Id<Link> linkId : network.getLinks().keySet()) {
+			this.linkIds[column] = linkId;
+			this.linkId2column.put(linkId, column);
+			column++;
+		}
+
+		this.receiverPoints = receiverPoints.toArray(new NoiseReceiverPoint[receiverPoints.size()]);
+		this.rowStart = new int[this.receiverPoints.length + 1];
+		int entries = 0;
+		for (int row = 0; row < this.receiverPoints.length; row++) {
+			this.rowStart[row] = entries;
+			entries += this.receiverPoints[row].getLinkId2distanceCorrection().size();
+		}
+		this.rowStart[this.receiverPoints.length] = entries;
+
+		this.columns = new int[entries];
+		this.corrections = new double[entries];
+		this.tunnels = new boolean[entries];
+
+		int entry = 0;
+		for (NoiseReceiverPoint rp : this.receiverPoints) {
+			for (Map.Entry<Id<Link>, Double> e : rp.getLinkId2distanceCorrection().entrySet()) {
+				Integer linkColumn = this.linkId2column.get(e.getKey());
+				if (linkColumn == null) {
+					throw new RuntimeException("Link " + e.getKey() + " is relevant for receiver point " + rp.getId() + " but not part of the network. Aborting...");
+				}
+				this.columns[entry] = linkColumn;
+				this.corrections[entry] = e.getValue() + rp.getLinkId2angleCorrection().get(e.getKey());
+				this.tunnels[entry] = tunnelLinkIds.contains(e.getKey());
+				entry++;
+			}
+		}
+	}
+
+	public int getNumberOfRows() {
+		return this.receiverPoints.length;
+	}
+
+	public int getNumberOfColumns() {
+		return this.linkIds.length;
+	}
+
+	public int getNumberOfEntries() {
+		return this.columns.length;
+	}
+
+	public NoiseReceiverPoint getReceiverPoint(int row) {
+		return this.receiverPoints[row];
+	}
+
+	public Id<Link> getLinkId(int column) {
+		return this.linkIds[column];
+	}
+
+	/**
+	 * @return the column of the link, or <code>-1</code> if the link is not part of the network
+	 */
+	public int getColumn(Id<Link> linkId) {
+		Integer column = this.linkId2column.get(linkId);
+		return column == null ? -1 : column;
+	}
+
+	/**
+	 * @return the first entry of the row; the entries of the row end before the first entry of the next row
+	 */
+	public int getRowStart(int row) {
+		return this.rowStart[row];
+	}
+
+	public int getRowEnd(int row) {
+		return this.rowStart[row + 1];
+	}
+
+	public int getEntryColumn(int entry) {
+		return this.columns[entry];
+	}
+
+	/**
+	 * @return the distance correction plus the angle correction of the entry
+	 */
+	public double getEntryCorrection(int entry) {
+		return this.corrections[entry];
+	}
+
+	/**
+	 * @return <code>true</code> if the link of the entry is a tunnel link, which does not cause any immission
+	 */
+	public boolean isEntryTunnel(int entry) {
+		return this.tunnels[entry];
+	}
+
+}
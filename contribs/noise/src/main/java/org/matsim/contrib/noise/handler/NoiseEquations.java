@@ -93,6 +93,28 @@ public class NoiseEquations {
 		return resultingNoiseImmission;
 	}
 	
+	/**
+	 * Same as {@link #calculateResultingNoiseImmission(Collection)} for the isolated immissions from index <code>from</code> (inclusive) to <code>to</code> (exclusive).
+	 */
+	public static double calculateResultingNoiseImmission (double[] isolatedImmissions, int from, int to){
+		
+		double resultingNoiseImmission = 0.;
+		
+		if (to > from) {
+			double sumTmp = 0.;
+			for (int i = from; i < to; i++) {
+				if (isolatedImmissions[i] > 0.) {
+					sumTmp = sumTmp + (Math.pow(10, (0.1 * isolatedImmissions[i])));
+				}
+			}
+			resultingNoiseImmission = 10 * Math.log10(sumTmp);
+			if (resultingNoiseImmission < 0) {
+				resultingNoiseImmission = 0.;
+			}
+		}
+		return resultingNoiseImmission;
+	}
+	
 	public static double calculateLCar(double vCar) {
 		
 		double lCar = 27.7 + (10 * Math.log10(1.0 + Math.pow(0.02 * vCar, 3.0)));
@@ -23,10 +23,8 @@
 package org.matsim.contrib.noise.handler;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
@@ -37,16 +35,19 @@ import org.matsim.api.core.v01.events.handler.TransitDriverStartsEventHandler;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.contrib.noise.NoiseWriter;
+import org.matsim.contrib.noise.data.IsolatedImmissions;
 import org.matsim.contrib.noise.data.NoiseAllocationApproach;
 import org.matsim.contrib.noise.data.NoiseContext;
 import org.matsim.contrib.noise.data.NoiseLink;
 import org.matsim.contrib.noise.data.NoiseReceiverPoint;
 import org.matsim.contrib.noise.data.PersonActivityInfo;
-import org.matsim.contrib.noise.data.ReceiverPoint;
+import org.matsim.contrib.noise.data.ReceiverPointLinkMatrix;
 import org.matsim.contrib.noise.events.NoiseEventAffected;
 import org.matsim.contrib.noise.events.NoiseEventCaused;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.utils.collections.Tuple;
+import org.matsim.core.utils.misc.ParallelUtils;
+import org.matsim.core.utils.misc.ParallelUtils.RowTask;
 import org.matsim.core.utils.misc.Time;
 import org.matsim.vehicles.Vehicle;
 
@@ -62,6 +63,8 @@ public class NoiseTimeTracker implements LinkEnterEventHandler, TransitDriverSta
 
 	private static final Logger log = Logger.getLogger(NoiseTimeTracker.class);
 	
+	private static final int ROWS_PER_BLOCK = 64;
+	
 	private final NoiseContext noiseContext;
 	private final String outputDirectoryBasic;
 	private final EventsManager events;
@@ -77,6 +80,23 @@ public class NoiseTimeTracker implements LinkEnterEventHandler, TransitDriverSta
 	
 	private boolean useCompression = false ;
 	
+	// one value per entry of the receiver point link matrix, overwritten in each time bin
+	private ReceiverPointLinkMatrix matrix = null;
+	private double[] isolatedImmission;
+	private double[] isolatedImmissionPlusOneCar;
+	private double[] isolatedImmissionPlusOneHgv;
+	private double[] entryCost;
+	private double[] entryCostHgv;
+	
+	// one value per column (link) of the receiver point link matrix
+	private NoiseLink[] columnNoiseLinks;
+	private double[] columnEmission;
+	private double[] columnEmissionPlusOneCar;
+	private double[] columnEmissionPlusOneHgv;
+	private boolean[] columnIdleEmissionComputed;
+	private double[] columnIdleEmissionPlusOneCar;
+	private double[] columnIdleEmissionPlusOneHgv;
+	
 	public NoiseTimeTracker(NoiseContext noiseContext, EventsManager events, String outputDirectory) {
 		this.noiseContext = noiseContext;
 		this.outputDirectoryBasic = outputDirectory;
@@ -141,7 +161,6 @@ public class NoiseTimeTracker implements LinkEnterEventHandler, TransitDriverSta
 		this.noiseContext.setCurrentTimeBinEndTime(this.noiseContext.getNoiseParams().getTimeBinSizeNoiseComputation());
 		
 		for (NoiseReceiverPoint rp : this.noiseContext.getReceiverPoints().values()) {
-			rp.getLinkId2IsolatedImmission().clear();
 			rp.setFinalImmission(0.);
 			rp.setAffectedAgentUnits(0.);
 			rp.getPersonId2actInfos().clear();
@@ -156,7 +175,6 @@ public class NoiseTimeTracker implements LinkEnterEventHandler, TransitDriverSta
 		this.noiseContext.getNoiseLinks().clear();
 		
 		for (NoiseReceiverPoint rp : this.noiseContext.getReceiverPoints().values()) {
-			rp.getLinkId2IsolatedImmission().clear();
 			rp.setFinalImmission(0.);
 			rp.setAffectedAgentUnits(0.);
 			rp.setDamageCosts(0.);
@@ -204,6 +222,10 @@ public class NoiseTimeTracker implements LinkEnterEventHandler, TransitDriverSta
 
 	private void computeNoiseForCurrentTimeInterval() {
 		
+		if (this.matrix == null) {
+			initializeMatrix();
+		}
+		
 		log.info("Calculating noise emissions...");
 		calculateNoiseEmission();
 		if (writeOutput()) NoiseWriter.writeNoiseEmissionStatsPerHour(this.noiseContext, outputDirectory, useCompression);
@@ -229,6 +251,40 @@ public class NoiseTimeTracker implements LinkEnterEventHandler, TransitDriverSta
 			
 	}
 		
+	private void initializeMatrix() {
+		
+		this.matrix = this.noiseContext.getReceiverPointLinkMatrix();
+		log.info("Number of receiver point link relations: " + this.matrix.getNumberOfEntries());
+		
+		int entries = this.matrix.getNumberOfEntries();
+		IsolatedImmissions isolatedImmissions = new IsolatedImmissions(this.matrix);
+		this.isolatedImmission = isolatedImmissions.getImmission();
+		this.isolatedImmissionPlusOneCar = isolatedImmissions.getImmissionPlusOneCar();
+		this.isolatedImmissionPlusOneHgv = isolatedImmissions.getImmissionPlusOneHgv();
+		this.entryCost = new double[entries];
+		this.entryCostHgv = new double[entries];
+		
+		int columns = this.matrix.getNumberOfColumns();
+		this.columnNoiseLinks = new NoiseLink[columns];
+		this.columnEmission = new double[columns];
+		this.columnEmissionPlusOneCar = new double[columns];
+		this.columnEmissionPlusOneHgv = new double[columns];
+		this.columnIdleEmissionComputed = new boolean[columns];
+		this.columnIdleEmissionPlusOneCar = new double[columns];
+		this.columnIdleEmissionPlusOneHgv = new double[columns];
+	}
+	
+	/**
+	 * Runs the task for all rows of the receiver point link matrix, in blocks of rows. Small grids are split into one
+	 * block per thread.
+	 */
+	private void runInParallel(final RowTask task) {
+		int rows = this.matrix.getNumberOfRows();
+		int numberOfThreads = this.noiseContext.getScenario().getConfig().global().getNumberOfThreads();
+		int rowsPerBlock = Math.max(1, Math.min(ROWS_PER_BLOCK, (rows + numberOfThreads - 1) / Math.max(1, numberOfThreads)));
+		ParallelUtils.runRows(rows, rowsPerBlock, numberOfThreads, task);
+	}
+	
 	private boolean writeOutput() {
 		if (this.noiseContext.getNoiseParams().getWriteOutputIteration() == 0) {
 			return false;
@@ -382,40 +438,41 @@ public class NoiseTimeTracker implements LinkEnterEventHandler, TransitDriverSta
 	 */
 	private void calculateCostSharesPerLinkPerTimeInterval() {
 		
-		Map<Id<ReceiverPoint>, Map<Id<Link>, Double>> rpId2linkId2costShare = new HashMap<Id<ReceiverPoint>, Map<Id<Link>,Double>>();
-
-		for (NoiseReceiverPoint rp : this.noiseContext.getReceiverPoints().values()) {
-										
-			Map<Id<Link>,Double> linkId2costShare = new HashMap<Id<Link>, Double>();
-							
-			if (rp.getDamageCosts() != 0.) {
-				for (Id<Link> linkId : rp.getLinkId2IsolatedImmission().keySet()) {
-										
-					double noiseImmission = rp.getLinkId2IsolatedImmission().get(linkId);
-					double costs = 0.;
-						
-					if (!(noiseImmission == 0.)) {
-						double costShare = NoiseEquations.calculateShareOfResultingNoiseImmission(noiseImmission, rp.getFinalImmission());
-						costs = costShare * rp.getDamageCosts();	
-					}
-					linkId2costShare.put(linkId, costs);
-				}
+		runInParallel(new RowTask() {
+			@Override
+			public void calcRow(int row, int thread) {
+				calculateCostShares(row);
 			}
+		});
+		
+		// summing up the link-based costs
+		for (int row = 0; row < this.matrix.getNumberOfRows(); row++) {
 			
-			rpId2linkId2costShare.put(rp.getId(), linkId2costShare);
+			if (this.matrix.getReceiverPoint(row).getDamageCosts() != 0.) {
+				
+				for (int entry = this.matrix.getRowStart(row); entry < this.matrix.getRowEnd(row); entry++) {
+					NoiseLink noiseLink = this.columnNoiseLinks[this.matrix.getEntryColumn(entry)];
+					noiseLink.setDamageCost(noiseLink.getDamageCost() + this.entryCost[entry]);
+				}
+			}
 		}
+	}
+	
+	private void calculateCostShares(int row) {
 		
-		// summing up the link-based costs
-		for (NoiseReceiverPoint rp : this.noiseContext.getReceiverPoints().values()) {
-
-			if (rp.getDamageCosts() != 0.) {
+		NoiseReceiverPoint rp = this.matrix.getReceiverPoint(row);
+		
+		if (rp.getDamageCosts() != 0.) {
+			for (int entry = this.matrix.getRowStart(row); entry < this.matrix.getRowEnd(row); entry++) {
 				
-				for (Id<Link> linkId : this.noiseContext.getReceiverPoints().get(rp.getId()).getLinkId2distanceCorrection().keySet()) {
-					if (this.noiseContext.getNoiseLinks().containsKey(linkId)) {
-						double sum = this.noiseContext.getNoiseLinks().get(linkId).getDamageCost() + rpId2linkId2costShare.get(rp.getId()).get(linkId);
-						this.noiseContext.getNoiseLinks().get(linkId).setDamageCost(sum);
-					}		
+				double noiseImmission = this.isolatedImmission[entry];
+				double costs = 0.;
+				
+				if (!(noiseImmission == 0.)) {
+					double costShare = NoiseEquations.calculateShareOfResultingNoiseImmission(noiseImmission, rp.getFinalImmission());
+					costs = costShare * rp.getDamageCosts();	
 				}
+				this.entryCost[entry] = costs;
 			}
 		}
 	}
@@ -425,26 +482,24 @@ public class NoiseTimeTracker implements LinkEnterEventHandler, TransitDriverSta
 	 */
 	private void calculateCostsPerVehiclePerLinkPerTimeInterval() {
 		
-		for (Id<Link> linkId : this.noiseContext.getScenario().getNetwork().getLinks().keySet()) {
+		for (int column = 0; column < this.matrix.getNumberOfColumns(); column++) {
 
-			double damageCostPerCar = 0.;
-			double damageCostPerHgv = 0.;
+			NoiseLink noiseLink = this.columnNoiseLinks[column];
 			
-			double damageCostSum = 0.;
-				
-			if (this.noiseContext.getNoiseLinks().containsKey(linkId)) {					
-				damageCostSum = this.noiseContext.getNoiseLinks().get(linkId).getDamageCost();
-			}
-				
-			int nCarAgents = 0;
-			if (this.noiseContext.getNoiseLinks().containsKey(linkId)) {
-				nCarAgents = this.noiseContext.getNoiseLinks().get(linkId).getCarAgentsEntering();
+			int nCarAgents = noiseLink.getCarAgentsEntering();
+			int nHdvAgents = noiseLink.getHgvAgentsEntering();
+			
+			if (nCarAgents == 0 && nHdvAgents == 0) {
+				// no vehicle to allocate the damage cost to
+				continue;
 			}
 			
-			int nHdvAgents = 0;
-			if (this.noiseContext.getNoiseLinks().containsKey(linkId)) {
-				nHdvAgents = this.noiseContext.getNoiseLinks().get(linkId).getHgvAgentsEntering();
-			}	
+			Id<Link> linkId = noiseLink.getId();
+			
+			double damageCostPerCar = 0.;
+			double damageCostPerHgv = 0.;
+			
+			double damageCostSum = noiseLink.getDamageCost();
 			
 			Tuple<Double, Double> vCarVHdv = getV(linkId);
 			double vCar = vCarVHdv.getFirst();
@@ -473,10 +528,10 @@ public class NoiseTimeTracker implements LinkEnterEventHandler, TransitDriverSta
 			}
 			
 			if (damageCostPerCar > 0.) {
-				this.noiseContext.getNoiseLinks().get(linkId).setAverageDamageCostPerCar(damageCostPerCar);
+				noiseLink.setAverageDamageCostPerCar(damageCostPerCar);
 			}
 			if (damageCostPerHgv > 0.) {
-				this.noiseContext.getNoiseLinks().get(linkId).setAverageDamageCostPerHgv(damageCostPerHgv);			
+				noiseLink.setAverageDamageCostPerHgv(damageCostPerHgv);			
 			}
 		}
 	}
@@ -514,52 +569,71 @@ public class NoiseTimeTracker implements LinkEnterEventHandler, TransitDriverSta
 	 * Noise allocation approach: MarginalCost
 	 */
 	private void calculateMarginalDamageCost() {
-		for (NoiseReceiverPoint rp : this.noiseContext.getReceiverPoints().values()) {
-
-			if (rp.getAffectedAgentUnits() != 0.) {
-				for (Id<Link> thisLink : rp.getLinkId2IsolatedImmission().keySet()) {
-										
-					double noiseImmissionPlusOneCarThisLink = NoiseEquations.calculateResultingNoiseImmissionPlusOneVehicle(rp.getFinalImmission(), rp.getLinkId2IsolatedImmission().get(thisLink), rp.getLinkId2IsolatedImmissionPlusOneCar().get(thisLink));
-					double noiseImmissionPlusOneHGVThisLink = NoiseEquations.calculateResultingNoiseImmissionPlusOneVehicle(rp.getFinalImmission(), rp.getLinkId2IsolatedImmission().get(thisLink), rp.getLinkId2IsolatedImmissionPlusOneHGV().get(thisLink));
-					
-					double damageCostsPlusOneCarThisLink = NoiseEquations.calculateDamageCosts(noiseImmissionPlusOneCarThisLink, rp.getAffectedAgentUnits(), this.noiseContext.getCurrentTimeBinEndTime(), this.noiseContext.getNoiseParams().getAnnualCostRate(), this.noiseContext.getNoiseParams().getTimeBinSizeNoiseComputation());
-					double marginalDamageCostCarThisLink = (damageCostsPlusOneCarThisLink - rp.getDamageCosts()) / this.noiseContext.getNoiseParams().getScaleFactor();
-					
-					if (marginalDamageCostCarThisLink < 0.0) {
-						if (Math.abs(marginalDamageCostCarThisLink) < 0.0000000001) {
-							marginalDamageCostCarThisLink = 0.;
-						} else {
-							log.warn("The marginal damage cost per car on link " + thisLink.toString() + " for receiver point " + rp.getId().toString() + " is " + marginalDamageCostCarThisLink + ".");
-							log.warn("final immission: " + rp.getFinalImmission() + " - immission plus one car " + noiseImmissionPlusOneCarThisLink + " - marginal damage cost car: " + marginalDamageCostCarThisLink);
-							log.warn("Setting the marginal damage cost per car to 0.");
-							marginalDamageCostCarThisLink = 0.;
-						}
+		
+		runInParallel(new RowTask() {
+			@Override
+			public void calcRow(int row, int thread) {
+				calculateMarginalDamageCost(row);
+			}
+		});
+		
+		for (int row = 0; row < this.matrix.getNumberOfRows(); row++) {
+			
+			if (this.matrix.getReceiverPoint(row).getAffectedAgentUnits() != 0.) {
+				
+				for (int entry = this.matrix.getRowStart(row); entry < this.matrix.getRowEnd(row); entry++) {
+					NoiseLink noiseLink = this.columnNoiseLinks[this.matrix.getEntryColumn(entry)];
+					noiseLink.setMarginalDamageCostPerCar(noiseLink.getMarginalDamageCostPerCar() + this.entryCost[entry]);
+					noiseLink.setMarginalDamageCostPerHgv(noiseLink.getMarginalDamageCostPerHgv() + this.entryCostHgv[entry]);
+				}
+			}
+		}
+	}
+	
+	private void calculateMarginalDamageCost(int row) {
+		
+		NoiseReceiverPoint rp = this.matrix.getReceiverPoint(row);
+		
+		if (rp.getAffectedAgentUnits() != 0.) {
+			for (int entry = this.matrix.getRowStart(row); entry < this.matrix.getRowEnd(row); entry++) {
+				
+				double noiseImmissionPlusOneCarThisLink = NoiseEquations.calculateResultingNoiseImmissionPlusOneVehicle(rp.getFinalImmission(), this.isolatedImmission[entry], this.isolatedImmissionPlusOneCar[entry]);
+				double noiseImmissionPlusOneHGVThisLink = NoiseEquations.calculateResultingNoiseImmissionPlusOneVehicle(rp.getFinalImmission(), this.isolatedImmission[entry], this.isolatedImmissionPlusOneHgv[entry]);
+				
+				double damageCostsPlusOneCarThisLink = NoiseEquations.calculateDamageCosts(noiseImmissionPlusOneCarThisLink, rp.getAffectedAgentUnits(), this.noiseContext.getCurrentTimeBinEndTime(), this.noiseContext.getNoiseParams().getAnnualCostRate(), this.noiseContext.getNoiseParams().getTimeBinSizeNoiseComputation());
+				double marginalDamageCostCarThisLink = (damageCostsPlusOneCarThisLink - rp.getDamageCosts()) / this.noiseContext.getNoiseParams().getScaleFactor();
+				
+				if (marginalDamageCostCarThisLink < 0.0) {
+					if (Math.abs(marginalDamageCostCarThisLink) < 0.0000000001) {
+						marginalDamageCostCarThisLink = 0.;
+					} else {
+						log.warn("The marginal damage cost per car on link " + this.matrix.getLinkId(this.matrix.getEntryColumn(entry)).toString() + " for receiver point " + rp.getId().toString() + " is " + marginalDamageCostCarThisLink + ".");
+						log.warn("final immission: " + rp.getFinalImmission() + " - immission plus one car " + noiseImmissionPlusOneCarThisLink + " - marginal damage cost car: " + marginalDamageCostCarThisLink);
+						log.warn("Setting the marginal damage cost per car to 0.");
+						marginalDamageCostCarThisLink = 0.;
 					}
-					
-					double damageCostsPlusOneHGVThisLink = NoiseEquations.calculateDamageCosts(noiseImmissionPlusOneHGVThisLink, rp.getAffectedAgentUnits(), this.noiseContext.getCurrentTimeBinEndTime(), this.noiseContext.getNoiseParams().getAnnualCostRate(), this.noiseContext.getNoiseParams().getTimeBinSizeNoiseComputation());
-					double marginalDamageCostHGVThisLink = (damageCostsPlusOneHGVThisLink - rp.getDamageCosts()) / this.noiseContext.getNoiseParams().getScaleFactor();
-					
-					if (marginalDamageCostHGVThisLink < 0.0) {
-						if (Math.abs(marginalDamageCostHGVThisLink) < 0.0000000001) {
-							marginalDamageCostHGVThisLink = 0.;
-						} else {
-							log.warn("The marginal damage cost per HGV on link " + thisLink.toString() + " for receiver point " + rp.getId().toString() + " is " + marginalDamageCostHGVThisLink + ".");
-							log.warn("final immission: " + rp.getFinalImmission() + " - immission plus one car " + noiseImmissionPlusOneCarThisLink + " - marginal damage cost car: " + marginalDamageCostHGVThisLink);
-							log.warn("Setting the marginal damage cost per HGV to 0.");
-							marginalDamageCostHGVThisLink = 0.;
-						}
+				}
+				
+				double damageCostsPlusOneHGVThisLink = NoiseEquations.calculateDamageCosts(noiseImmissionPlusOneHGVThisLink, rp.getAffectedAgentUnits(), this.noiseContext.getCurrentTimeBinEndTime(), this.noiseContext.getNoiseParams().getAnnualCostRate(), this.noiseContext.getNoiseParams().getTimeBinSizeNoiseComputation());
+				double marginalDamageCostHGVThisLink = (damageCostsPlusOneHGVThisLink - rp.getDamageCosts()) / this.noiseContext.getNoiseParams().getScaleFactor();
+				
+				if (marginalDamageCostHGVThisLink < 0.0) {
+					if (Math.abs(marginalDamageCostHGVThisLink) < 0.0000000001) {
+						marginalDamageCostHGVThisLink = 0.;
+					} else {
+						log.warn("The marginal damage cost per HGV on link " + this.matrix.getLinkId(this.matrix.getEntryColumn(entry)).toString() + " for receiver point " + rp.getId().toString() + " is " + marginalDamageCostHGVThisLink + ".");
+						log.warn("final immission: " + rp.getFinalImmission() + " - immission plus one car " + noiseImmissionPlusOneCarThisLink + " - marginal damage cost car: " + marginalDamageCostHGVThisLink);
+						log.warn("Setting the marginal damage cost per HGV to 0.");
+						marginalDamageCostHGVThisLink = 0.;
 					}
-					
-					double marginalDamageCostCarSum = this.noiseContext.getNoiseLinks().get(thisLink).getMarginalDamageCostPerCar() + marginalDamageCostCarThisLink;
-					this.noiseContext.getNoiseLinks().get(thisLink).setMarginalDamageCostPerCar(marginalDamageCostCarSum);
-					
-					double marginalDamageCostHGVSum = this.noiseContext.getNoiseLinks().get(thisLink).getMarginalDamageCostPerHgv() + marginalDamageCostHGVThisLink;
-					this.noiseContext.getNoiseLinks().get(thisLink).setMarginalDamageCostPerHgv(marginalDamageCostHGVSum);
-				}			
-			}	
+				}
+				
+				this.entryCost[entry] = marginalDamageCostCarThisLink;
+				this.entryCostHgv[entry] = marginalDamageCostHGVThisLink;
+			}
 		}
 	}
-
+	
 	private void throwNoiseEventsCaused() {
 		
 		for (Id<Link> linkId : this.noiseContext.getScenario().getNetwork().getLinks().keySet()) {
@@ -650,161 +724,156 @@ public class NoiseTimeTracker implements LinkEnterEventHandler, TransitDriverSta
 	 */
 	private void calculateNoiseImmission() {
 		
-		for (NoiseReceiverPoint rp : this.noiseContext.getReceiverPoints().values()) {
-					
-			Map<Id<Link>, Double> linkId2isolatedImmission = new HashMap<Id<Link>, Double>();
-			Map<Id<Link>, Double> linkId2isolatedImmissionPlusOneCar = new HashMap<Id<Link>, Double>();
-			Map<Id<Link>, Double> linkId2isolatedImmissionPlusOneHGV = new HashMap<Id<Link>, Double>();
-			
-			for(Id<Link> linkId : rp.getLinkId2distanceCorrection().keySet()) {
-				if (this.noiseContext.getNoiseParams().getTunnelLinkIDsSet().contains(linkId)) {
-					linkId2isolatedImmission.put(linkId, 0.);
-					linkId2isolatedImmissionPlusOneCar.put(linkId, 0.);
-					linkId2isolatedImmissionPlusOneHGV.put(linkId, 0.);
-								 			
-			 	} else {
-				
-			 		double noiseImmission = 0.;
-			 		double noiseImmissionPlusOneCar = 0.;
-			 		double noiseImmissionPlusOneHGV = 0.;
-		 		
-			 		if (this.noiseContext.getNoiseLinks().containsKey(linkId)) {
-						if (!(this.noiseContext.getNoiseLinks().get(linkId).getEmission() == 0.)) {
-							noiseImmission = this.noiseContext.getNoiseLinks().get(linkId).getEmission()
-									+ this.noiseContext.getReceiverPoints().get(rp.getId()).getLinkId2distanceCorrection().get(linkId)
-									+ this.noiseContext.getReceiverPoints().get(rp.getId()).getLinkId2angleCorrection().get(linkId)
-									;
-							
-							if (noiseImmission < 0.) {
-								noiseImmission = 0.;
-							}
-						}
-						
-						if (!(this.noiseContext.getNoiseLinks().get(linkId).getEmissionPlusOneCar() == 0.)) {
-							noiseImmissionPlusOneCar = this.noiseContext.getNoiseLinks().get(linkId).getEmissionPlusOneCar()
-									+ this.noiseContext.getReceiverPoints().get(rp.getId()).getLinkId2distanceCorrection().get(linkId)
-									+ this.noiseContext.getReceiverPoints().get(rp.getId()).getLinkId2angleCorrection().get(linkId)
-									;
-							
-							if (noiseImmissionPlusOneCar < 0.) {
-								noiseImmissionPlusOneCar = 0.;
-							}
-						}
-						
-						if (!(this.noiseContext.getNoiseLinks().get(linkId).getEmissionPlusOneHGV() == 0.)) {
-							noiseImmissionPlusOneHGV = this.noiseContext.getNoiseLinks().get(linkId).getEmissionPlusOneHGV()
-									+ this.noiseContext.getReceiverPoints().get(rp.getId()).getLinkId2distanceCorrection().get(linkId)
-									+ this.noiseContext.getReceiverPoints().get(rp.getId()).getLinkId2angleCorrection().get(linkId)
-									;
-							
-							if (noiseImmissionPlusOneHGV < 0.) {
-								noiseImmissionPlusOneHGV = 0.;
-							}
-						}
-
-					}
-			 		
-			 		if (noiseImmissionPlusOneCar < noiseImmission || noiseImmissionPlusOneHGV < noiseImmission) {
-						throw new RuntimeException("noise immission: " + noiseImmission + " - noise immission plus one car: " + noiseImmissionPlusOneCar + " - noise immission plus one hgv: " + noiseImmissionPlusOneHGV + ". This should not happen. Aborting..."); 
-					}
-			 		
-					linkId2isolatedImmission.put(linkId, noiseImmission);
-					linkId2isolatedImmissionPlusOneCar.put(linkId, noiseImmissionPlusOneCar);
-					linkId2isolatedImmissionPlusOneHGV.put(linkId, noiseImmissionPlusOneHGV);
-			 	}
+		runInParallel(new RowTask() {
+			@Override
+			public void calcRow(int row, int thread) {
+				calculateNoiseImmission(row);
 			}
+		});
+	}
+	
+	private void calculateNoiseImmission(int row) {
+		
+		int rowStart = this.matrix.getRowStart(row);
+		int rowEnd = this.matrix.getRowEnd(row);
+		
+		for (int entry = rowStart; entry < rowEnd; entry++) {
 			
-			double finalNoiseImmission = 0.;
-			if (!linkId2isolatedImmission.isEmpty()) {
-				finalNoiseImmission = NoiseEquations.calculateResultingNoiseImmission(linkId2isolatedImmission.values());
+			double noiseImmission = 0.;
+			double noiseImmissionPlusOneCar = 0.;
+			double noiseImmissionPlusOneHGV = 0.;
+			
+			if (!this.matrix.isEntryTunnel(entry)) {
+				
+				int column = this.matrix.getEntryColumn(entry);
+				double correction = this.matrix.getEntryCorrection(entry);
+				
+				if (!(this.columnEmission[column] == 0.)) {
+					noiseImmission = Math.max(0., this.columnEmission[column] + correction);
+				}
+				if (!(this.columnEmissionPlusOneCar[column] == 0.)) {
+					noiseImmissionPlusOneCar = Math.max(0., this.columnEmissionPlusOneCar[column] + correction);
+				}
+				if (!(this.columnEmissionPlusOneHgv[column] == 0.)) {
+					noiseImmissionPlusOneHGV = Math.max(0., this.columnEmissionPlusOneHgv[column] + correction);
+				}
+				
+				if (noiseImmissionPlusOneCar < noiseImmission || noiseImmissionPlusOneHGV < noiseImmission) {
+					throw new RuntimeException("noise immission: " + noiseImmission + " - noise immission plus one car: " + noiseImmissionPlusOneCar + " - noise immission plus one hgv: " + noiseImmissionPlusOneHGV + ". This should not happen. Aborting..."); 
+				}
 			}
 			
-			rp.setFinalImmission(finalNoiseImmission);
-			rp.setLinkId2IsolatedImmission(linkId2isolatedImmission);
-			rp.setLinkId2IsolatedImmissionPlusOneCar(linkId2isolatedImmissionPlusOneCar);
-			rp.setLinkId2IsolatedImmissionPlusOneHGV(linkId2isolatedImmissionPlusOneHGV);
+			this.isolatedImmission[entry] = noiseImmission;
+			this.isolatedImmissionPlusOneCar[entry] = noiseImmissionPlusOneCar;
+			this.isolatedImmissionPlusOneHgv[entry] = noiseImmissionPlusOneHGV;
 		}
+		
+		this.matrix.getReceiverPoint(row).setFinalImmission(NoiseEquations.calculateResultingNoiseImmission(this.isolatedImmission, rowStart, rowEnd));
 	}
 	
 	/*
 	 * Emission
 	 */
 	private void calculateNoiseEmission() {
-				
-		for (Id<Link> linkId : this.noiseContext.getScenario().getNetwork().getLinks().keySet()) {
-			
-			Tuple<Double, Double> vCarVHdv = getV(linkId);
-			double vCar = vCarVHdv.getFirst();
-			double vHdv = vCarVHdv.getSecond();
-							
-			double noiseEmission = 0.;
-			double noiseEmissionPlusOneCar = 0.;
-			double noiseEmissionPlusOneHgv = 0.;
-			
-			int n_car = 0;
-			if (this.noiseContext.getNoiseLinks().containsKey(linkId)) {
-				n_car = this.noiseContext.getNoiseLinks().get(linkId).getCarAgentsEntering();
-			}
+		
+		for (int column = 0; column < this.matrix.getNumberOfColumns(); column++) {
 			
-			int n_hgv = 0;
-			if (this.noiseContext.getNoiseLinks().containsKey(linkId)) {
-				n_hgv = this.noiseContext.getNoiseLinks().get(linkId).getHgvAgentsEntering();
-			}
-			int n = n_car + n_hgv;
-									
-			double p = 0.;
-			if(!(n == 0)) {
-				p = n_hgv / ((double) n);
-			}
+			Id<Link> linkId = this.matrix.getLinkId(column);
+			NoiseLink noiseLink = this.noiseContext.getNoiseLinks().get(linkId);
 			
-			int nPlusOneCarOrHGV = n + 1;
-	
-			double pPlusOneHgv = (n_hgv + 1.) / ((double) nPlusOneCarOrHGV);
-			double pPlusOneCar = n_hgv / ((double) nPlusOneCarOrHGV);
-							
-			// correction for a sample, multiplicate the scale factor
-			n = (int) (n * (this.noiseContext.getNoiseParams().getScaleFactor()));
+			if (noiseLink == null) {
+				// no vehicle on this link in the current time interval, the emissions only depend on the link itself
+				if (!this.columnIdleEmissionComputed[column]) {
+					double[] emissions = calculateNoiseEmission(linkId);
+					this.columnIdleEmissionPlusOneCar[column] = emissions[1];
+					this.columnIdleEmissionPlusOneHgv[column] = emissions[2];
+					this.columnIdleEmissionComputed[column] = true;
+				}
+				noiseLink = new NoiseLink(linkId);
+				noiseLink.setEmission(0.);
+				noiseLink.setEmissionPlusOneCar(this.columnIdleEmissionPlusOneCar[column]);
+				noiseLink.setEmissionPlusOneHGV(this.columnIdleEmissionPlusOneHgv[column]);
+				this.noiseContext.getNoiseLinks().put(linkId, noiseLink);
 				
-			// correction for intervals unequal to 3600 seconds (= one hour)
-			n = (int) (n * (3600. / this.noiseContext.getNoiseParams().getTimeBinSizeNoiseComputation()));
-			
-			// correction for a sample, multiplicate the scale factor
-			nPlusOneCarOrHGV = (int) (nPlusOneCarOrHGV * (this.noiseContext.getNoiseParams().getScaleFactor()));
-							
-			// correction for intervals unequal to 3600 seconds (= one hour)
-			nPlusOneCarOrHGV = (int) (nPlusOneCarOrHGV * (3600. / this.noiseContext.getNoiseParams().getTimeBinSizeNoiseComputation()));
-			
-			if(!(n == 0)) {					
-				double mittelungspegel = NoiseEquations.calculateMittelungspegelLm(n, p);
-				double Dv = NoiseEquations.calculateGeschwindigkeitskorrekturDv(vCar, vHdv, p);
-				noiseEmission = mittelungspegel + Dv;
-			}
-			
-			double mittelungspegelPlusOneCar = NoiseEquations.calculateMittelungspegelLm(nPlusOneCarOrHGV, pPlusOneCar);
-			double DvPlusOneCar = NoiseEquations.calculateGeschwindigkeitskorrekturDv(vCar, vHdv, pPlusOneCar);
-			noiseEmissionPlusOneCar = mittelungspegelPlusOneCar + DvPlusOneCar;
-			
-			double mittelungspegelPlusOneHgv = NoiseEquations.calculateMittelungspegelLm(nPlusOneCarOrHGV, pPlusOneHgv);
-			double DvPlusOneHgv = NoiseEquations.calculateGeschwindigkeitskorrekturDv(vCar, vHdv, pPlusOneHgv);
-			noiseEmissionPlusOneHgv = mittelungspegelPlusOneHgv + DvPlusOneHgv;
-			
-			if (noiseEmissionPlusOneCar < noiseEmission || noiseEmissionPlusOneHgv < noiseEmission) {
-				log.warn("vCar: " + vCar + " - vHGV: " + vHdv + " - p: " + p + " - n_car: " + n_car + " - n_hgv: " + n_hgv + " - n: " + n + " - pPlusOneCar: " + pPlusOneCar + " - pPlusOneHgv: " + pPlusOneHgv + " - noise emission: " + noiseEmission + " - noise emission plus one car: " + noiseEmissionPlusOneCar + " - noise emission plus one hgv: " + noiseEmissionPlusOneHgv + ". This should not happen. Aborting..."); 
+			} else {
+				double[] emissions = calculateNoiseEmission(linkId);
+				noiseLink.setEmission(emissions[0]);
+				noiseLink.setEmissionPlusOneCar(emissions[1]);
+				noiseLink.setEmissionPlusOneHGV(emissions[2]);
 			}
 			
-			if (this.noiseContext.getNoiseLinks().containsKey(linkId)) {
-				this.noiseContext.getNoiseLinks().get(linkId).setEmission(noiseEmission);
-				this.noiseContext.getNoiseLinks().get(linkId).setEmissionPlusOneCar(noiseEmissionPlusOneCar);
-				this.noiseContext.getNoiseLinks().get(linkId).setEmissionPlusOneHGV(noiseEmissionPlusOneHgv);
+			this.columnNoiseLinks[column] = noiseLink;
+			this.columnEmission[column] = noiseLink.getEmission();
+			this.columnEmissionPlusOneCar[column] = noiseLink.getEmissionPlusOneCar();
+			this.columnEmissionPlusOneHgv[column] = noiseLink.getEmissionPlusOneHGV();
+		}
+	}
+	
+	/**
+	 * @return the noise emission, the noise emission plus one car and the noise emission plus one HGV of the link
+	 */
+	private double[] calculateNoiseEmission(Id<Link> linkId) {
+		
+		Tuple<Double, Double> vCarVHdv = getV(linkId);
+		double vCar = vCarVHdv.getFirst();
+		double vHdv = vCarVHdv.getSecond();
+						
+		double noiseEmission = 0.;
+		double noiseEmissionPlusOneCar = 0.;
+		double noiseEmissionPlusOneHgv = 0.;
+		
+		int n_car = 0;
+		if (this.noiseContext.getNoiseLinks().containsKey(linkId)) {
+			n_car = this.noiseContext.getNoiseLinks().get(linkId).getCarAgentsEntering();
+		}
+		
+		int n_hgv = 0;
+		if (this.noiseContext.getNoiseLinks().containsKey(linkId)) {
+			n_hgv = this.noiseContext.getNoiseLinks().get(linkId).getHgvAgentsEntering();
+		}
+		int n = n_car + n_hgv;
+								
+		double p = 0.;
+		if(!(n == 0)) {
+			p = n_hgv / ((double) n);
+		}
+		
+		int nPlusOneCarOrHGV = n + 1;
 
-			} else {
-				NoiseLink noiseLink = new NoiseLink(linkId);
-				noiseLink.setEmission(noiseEmission);
-				noiseLink.setEmissionPlusOneCar(noiseEmissionPlusOneCar);
-				noiseLink.setEmissionPlusOneHGV(noiseEmissionPlusOneHgv);
-				this.noiseContext.getNoiseLinks().put(linkId, noiseLink );
-			}
+		double pPlusOneHgv = (n_hgv + 1.) / ((double) nPlusOneCarOrHGV);
+		double pPlusOneCar = n_hgv / ((double) nPlusOneCarOrHGV);
+						
+		// correction for a sample, multiplicate the scale factor
+		n = (int) (n * (this.noiseContext.getNoiseParams().getScaleFactor()));
+			
+		// correction for intervals unequal to 3600 seconds (= one hour)
+		n = (int) (n * (3600. / this.noiseContext.getNoiseParams().getTimeBinSizeNoiseComputation()));
+		
+		// correction for a sample, multiplicate the scale factor
+		nPlusOneCarOrHGV = (int) (nPlusOneCarOrHGV * (this.noiseContext.getNoiseParams().getScaleFactor()));
+						
+		// correction for intervals unequal to 3600 seconds (= one hour)
+		nPlusOneCarOrHGV = (int) (nPlusOneCarOrHGV * (3600. / this.noiseContext.getNoiseParams().getTimeBinSizeNoiseComputation()));
+		
+		if(!(n == 0)) {					
+			double mittelungspegel = NoiseEquations.calculateMittelungspegelLm(n, p);
+			double Dv = NoiseEquations.calculateGeschwindigkeitskorrekturDv(vCar, vHdv, p);
+			noiseEmission = mittelungspegel + Dv;
 		}
+		
+		double mittelungspegelPlusOneCar = NoiseEquations.calculateMittelungspegelLm(nPlusOneCarOrHGV, pPlusOneCar);
+		double DvPlusOneCar = NoiseEquations.calculateGeschwindigkeitskorrekturDv(vCar, vHdv, pPlusOneCar);
+		noiseEmissionPlusOneCar = mittelungspegelPlusOneCar + DvPlusOneCar;
+		
+		double mittelungspegelPlusOneHgv = NoiseEquations.calculateMittelungspegelLm(nPlusOneCarOrHGV, pPlusOneHgv);
+		double DvPlusOneHgv = NoiseEquations.calculateGeschwindigkeitskorrekturDv(vCar, vHdv, pPlusOneHgv);
+		noiseEmissionPlusOneHgv = mittelungspegelPlusOneHgv + DvPlusOneHgv;
+		
+		if (noiseEmissionPlusOneCar < noiseEmission || noiseEmissionPlusOneHgv < noiseEmission) {
+			log.warn("vCar: " + vCar + " - vHGV: " + vHdv + " - p: " + p + " - n_car: " + n_car + " - n_hgv: " + n_hgv + " - n: " + n + " - pPlusOneCar: " + pPlusOneCar + " - pPlusOneHgv: " + pPlusOneHgv + " - noise emission: " + noiseEmission + " - noise emission plus one car: " + noiseEmissionPlusOneCar + " - noise emission plus one hgv: " + noiseEmissionPlusOneHgv + ". This should not happen. Aborting..."); 
+		}
+		
+		return new double[] { noiseEmission, noiseEmissionPlusOneCar, noiseEmissionPlusOneHgv };
 	}
 	
 	private Tuple<Double, Double> getV(Id<Link> linkId) {
@@ -46,10 +46,12 @@ import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.population.Activity;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.contrib.noise.data.NoiseAllocationApproach;
+import org.matsim.contrib.noise.data.IsolatedImmissions;
 import org.matsim.contrib.noise.data.NoiseContext;
 import org.matsim.contrib.noise.data.NoiseReceiverPoint;
 import org.matsim.contrib.noise.data.PersonActivityInfo;
 import org.matsim.contrib.noise.data.ReceiverPoint;
+import org.matsim.contrib.noise.data.ReceiverPointLinkMatrix;
 import org.matsim.contrib.noise.events.NoiseEventAffected;
 import org.matsim.contrib.noise.events.NoiseEventCaused;
 import org.matsim.contrib.noise.handler.NoiseEquations;
@@ -136,6 +138,38 @@ public class NoiseTest {
 		double angle4 = 180;
 		double immissionCorrection4 = 10 * Math.log10((angle4) / (180));
 		Assert.assertEquals("wrong immission angle correction for receiver point 8 and link0", immissionCorrection4, noiseContext.getReceiverPoints().get(Id.create("8", ReceiverPoint.class)).getLinkId2angleCorrection().get(Id.create("link0", Link.class)), MatsimTestUtils.EPSILON);
+		
+		// test the sparse receiver point link matrix
+		ReceiverPointLinkMatrix matrix = noiseContext.getReceiverPointLinkMatrix();
+		Assert.assertEquals("wrong number of rows", 16, matrix.getNumberOfRows());
+		Assert.assertEquals("wrong number of columns", scenario.getNetwork().getLinks().size(), matrix.getNumberOfColumns());
+		
+		int entries = 0;
+		for (int row = 0; row < matrix.getNumberOfRows(); row++) {
+			NoiseReceiverPoint rp = matrix.getReceiverPoint(row);
+			Assert.assertEquals("wrong number of entries for receiver point " + rp.getId(), rp.getLinkId2distanceCorrection().size(), matrix.getRowEnd(row) - matrix.getRowStart(row));
+			for (int entry = matrix.getRowStart(row); entry < matrix.getRowEnd(row); entry++) {
+				Id<Link> linkId = matrix.getLinkId(matrix.getEntryColumn(entry));
+				Assert.assertEquals("wrong correction for receiver point " + rp.getId() + " and " + linkId, rp.getLinkId2distanceCorrection().get(linkId) + rp.getLinkId2angleCorrection().get(linkId), matrix.getEntryCorrection(entry), MatsimTestUtils.EPSILON);
+				entries++;
+			}
+		}
+		Assert.assertEquals("wrong number of entries", entries, matrix.getNumberOfEntries());
+		
+		// test the deprecated isolated immission maps, which read and write the rows of the matrix
+		IsolatedImmissions isolatedImmissions = new IsolatedImmissions(matrix);
+		NoiseReceiverPoint rp8 = noiseContext.getReceiverPoints().get(Id.create("8", ReceiverPoint.class));
+		Map<Id<Link>, Double> linkId2IsolatedImmission = new HashMap<Id<Link>, Double>();
+		linkId2IsolatedImmission.put(Id.create("link0", Link.class), 42.);
+		rp8.setLinkId2IsolatedImmission(linkId2IsolatedImmission);
+		Assert.assertEquals("wrong number of isolated immissions", rp8.getLinkId2distanceCorrection().size(), rp8.getLinkId2IsolatedImmission().size());
+		Assert.assertEquals("wrong isolated immission", 42., rp8.getLinkId2IsolatedImmission().get(Id.create("link0", Link.class)), MatsimTestUtils.EPSILON);
+		Assert.assertEquals("wrong isolated immission plus one car", 0., rp8.getLinkId2IsolatedImmissionPlusOneCar().get(Id.create("link0", Link.class)), MatsimTestUtils.EPSILON);
+		double sum = 0.;
+		for (double immission : isolatedImmissions.getImmission()) {
+			sum += immission;
+		}
+		Assert.assertEquals("wrong isolated immissions of the matrix", 42., sum, MatsimTestUtils.EPSILON);
 	}
 	
 	// tests the noise emissions, immissions, considered agent units, damages (receiver points), damages (per link), damages (per vehicle) based on the generated *.csv output
@@ -146,7 +180,15 @@ public class NoiseTest {
 		String configFile = testUtils.getPackageInputDirectory() + "NoiseTest/config2.xml";
 		Config config = ConfigUtils.loadConfig(configFile ) ;
 		config.plansCalcRoute().setInsertingAccessEgressWalk(false);
-		runTest2a( config ) ;
+		runTest2a( config, 1 ) ;
+	}
+	@Test
+	public final void test2aSeveralThreads(){
+		// the receiver points are computed in parallel; the results must not depend on the number of threads
+		String configFile = testUtils.getPackageInputDirectory() + "NoiseTest/config2.xml";
+		Config config = ConfigUtils.loadConfig(configFile ) ;
+		config.plansCalcRoute().setInsertingAccessEgressWalk(false);
+		runTest2a( config, 4 ) ;
 	}
 	@Test
 	public final void test2aWAccessEgress(){
@@ -154,10 +196,10 @@ public class NoiseTest {
 		String configFile = testUtils.getPackageInputDirectory() + "NoiseTest/config2.xml";
 		Config config = ConfigUtils.loadConfig(configFile ) ;
 		config.plansCalcRoute().setInsertingAccessEgressWalk(true);
-		runTest2a( config ) ;
+		runTest2a( config, 1 ) ;
 	}
 		
-	private static void runTest2a( Config runConfig ) {
+	private static void runTest2a( Config runConfig, int numberOfThreads ) {
 		Controler controler = new Controler(runConfig);
 		controler.getConfig().controler().setOverwriteFileSetting(OutputDirectoryHierarchy.OverwriteFileSetting.deleteDirectoryIfExists );
 		controler.run();
@@ -171,6 +213,7 @@ public class NoiseTest {
 		config.plans().setInputFile(runDirectory + "output_plans.xml.gz");
 		config.controler().setOutputDirectory(runDirectory);
 		config.controler().setLastIteration(controler.getConfig().controler().getLastIteration());
+		config.global().setNumberOfThreads(numberOfThreads);
 		
 		NoiseConfigGroup noiseParameters = (NoiseConfigGroup) config.getModule("noise");
 		
@@ -594,9 +637,12 @@ public class NoiseTest {
 			e.printStackTrace();
 		}
 		
+		Map<Id<ReceiverPoint>, Map<Id<Link>, Double>> isolatedImmissionsPerReceiverPointId = new HashMap<Id<ReceiverPoint>, Map<Id<Link>, Double>>();
+		
 		for(NoiseReceiverPoint rp : noiseCalculation.getNoiseContext().getReceiverPoints().values()){
 			
 			Map<Id<Link>, Double> linkId2IsolatedImmission = new HashMap<Id<Link>, Double>();
+			isolatedImmissionsPerReceiverPointId.put(rp.getId(), linkId2IsolatedImmission);
 			
 			for(Id<Link> linkId : rp.getLinkId2distanceCorrection().keySet()){
 				
@@ -733,6 +779,31 @@ public class NoiseTest {
 					damagesPerlinkId.get(Id.create("linkA5", Link.class)), MatsimTestUtils.EPSILON);
 		}
 		Assert.assertEquals("Wrong link's damage contribution!", 0., damagesPerlinkId.get(Id.create("linkB5", Link.class)), MatsimTestUtils.EPSILON);
+		
+		// the damage of each receiver point, allocated to its relevant links by their isolated immissions
+		Map<Id<Link>, Double> expectedDamagesPerLinkId = new HashMap<Id<Link>, Double>();
+		
+		for(Id<ReceiverPoint> rpId : isolatedImmissionsPerReceiverPointId.keySet()){
+			
+			double noiseImmission = immissionPerReceiverPointId.get(rpId);
+			double damage = damagesPerReceiverPointId.get(rpId);
+			
+			for(Map.Entry<Id<Link>, Double> e : isolatedImmissionsPerReceiverPointId.get(rpId).entrySet()){
+				
+				double linkDamage = 0.;
+				if(damage != 0. && e.getValue() != 0.){
+					linkDamage = NoiseEquations.calculateShareOfResultingNoiseImmission(e.getValue(), noiseImmission) * damage;
+				}
+				
+				Double sumOfLinkDamage = expectedDamagesPerLinkId.get(e.getKey());
+				expectedDamagesPerLinkId.put(e.getKey(), (sumOfLinkDamage == null ? 0. : sumOfLinkDamage) + linkDamage);
+			}
+		}
+		
+		for(Id<Link> linkId : damagesPerlinkId.keySet()){
+			double expectedDamage = expectedDamagesPerLinkId.containsKey(linkId) ? expectedDamagesPerLinkId.get(linkId) : 0.;
+			Assert.assertEquals("Wrong link's damage contribution for link " + linkId + "!", expectedDamage, damagesPerlinkId.get(linkId), MatsimTestUtils.EPSILON);
+		}
 				
 		// ############################################
 		// test average damages per link, car and time
@@ -59,14 +59,21 @@ public class AssignmentTaxiOptimizer
 
         RoutingNetwork routingNetwork = new ArrayRoutingNetworkFactory(preProcessDijkstra)
                 .createRoutingNetwork(optimContext.network);
-        router = new FastMultiNodeDijkstra(routingNetwork, optimContext.travelDisutility,
-                optimContext.travelTime, preProcessDijkstra, fastRouterFactory, true);
-
         RoutingNetwork inverseRoutingNetwork = new InverseArrayRoutingNetworkFactory(
                 preProcessDijkstra).createRoutingNetwork(optimContext.network);
-        backwardRouter = new BackwardFastMultiNodeDijkstra(inverseRoutingNetwork,
-                optimContext.travelDisutility, optimContext.travelTime, preProcessDijkstra,
-                fastRouterFactory, true);
+
+        //the routers of all threads share the routing networks, but not the search state
+        List<FastMultiNodeDijkstra> routers = new ArrayList<>();
+        List<BackwardFastMultiNodeDijkstra> backwardRouters = new ArrayList<>();
+        for (int i = 0; i < Math.max(1, params.numberOfThreads); i++) {
+            routers.add(new FastMultiNodeDijkstra(routingNetwork, optimContext.travelDisutility,
+                    optimContext.travelTime, preProcessDijkstra, fastRouterFactory, true));
+            backwardRouters.add(new BackwardFastMultiNodeDijkstra(inverseRoutingNetwork,
+                    optimContext.travelDisutility, optimContext.travelTime, preProcessDijkstra,
+                    fastRouterFactory, true));
+        }
+        router = routers.get(0);
+        backwardRouter = backwardRouters.get(0);
 
         PreProcessEuclidean preProcessEuclidean = new PreProcessEuclidean(
                 optimContext.travelDisutility);
@@ -79,7 +86,7 @@ public class AssignmentTaxiOptimizer
                 optimContext.scheduler.getParams().AStarEuclideanOverdoFactor, fastRouterFactory);
 
         assignmentProblem = new VehicleAssignmentProblem<TaxiRequest>(optimContext.travelTime,
-                router, backwardRouter, euclideanRouter, params.nearestRequestsLimit,
+                routers, backwardRouters, euclideanRouter, params.nearestRequestsLimit,
                 params.nearestVehiclesLimit);
 
         assignmentCostProvider = new TaxiToRequestAssignmentCostProvider(params);
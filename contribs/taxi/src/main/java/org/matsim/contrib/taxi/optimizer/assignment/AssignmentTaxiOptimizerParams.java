@@ -37,6 +37,9 @@ public class AssignmentTaxiOptimizerParams
     public static final String NEAREST_REQUESTS_LIMIT = "nearestRequestsLimit";
     public static final String NEAREST_VEHICLES_LIMIT = "nearestVehiclesLimit";
 
+    //threads for the path searches, each with its own forward and backward router
+    public static final String NUMBER_OF_THREADS = "numberOfThreads";
+
     public final Mode mode;
     public final double nullPathCost;
 
@@ -46,6 +49,8 @@ public class AssignmentTaxiOptimizerParams
     public final int nearestRequestsLimit;
     public final int nearestVehiclesLimit;
 
+    public final int numberOfThreads;
+
 
     public AssignmentTaxiOptimizerParams(Configuration optimizerConfig)
     {
@@ -62,5 +67,7 @@ public class AssignmentTaxiOptimizerParams
 
         nearestRequestsLimit = optimizerConfig.getInt(NEAREST_REQUESTS_LIMIT);
         nearestVehiclesLimit = optimizerConfig.getInt(NEAREST_VEHICLES_LIMIT);
+
+        numberOfThreads = optimizerConfig.getInt(NUMBER_OF_THREADS, 1);
     }
 }
@@ -31,6 +31,8 @@ import org.matsim.contrib.taxi.optimizer.BestDispatchFinder.Dispatch;
 import org.matsim.contrib.taxi.optimizer.assignment.AssignmentDestinationData.DestEntry;
 import org.matsim.core.router.*;
 import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.utils.misc.ParallelUtils;
+import org.matsim.core.utils.misc.ParallelUtils.RowTask;
 
 import com.google.common.collect.Lists;
 
@@ -46,8 +48,9 @@ public class VehicleAssignmentProblem<D>
     private final TravelTime travelTime;
     private final FastAStarEuclidean euclideanRouter;
 
-    private final OneToManyPathSearch forwardPathSearch;
-    private final OneToManyPathSearch backwardPathSearch;
+    //one search per thread, each with the search state of its own router
+    private final OneToManyPathSearch[] forwardPathSearches;
+    private final OneToManyPathSearch[] backwardPathSearches;
 
     private final LinkProvider<DestEntry<D>> destLinkProvider = LinkProviders
             .createDestEntryToLink();
@@ -72,11 +75,36 @@ public class VehicleAssignmentProblem<D>
             BackwardFastMultiNodeDijkstra backwardRouter, FastAStarEuclidean euclideanRouter,
             int nearestDestinationLimit, int nearestVehicleLimit)
     {
+        this(travelTime, Collections.singletonList(router),
+                Collections.singletonList(backwardRouter), euclideanRouter,
+                nearestDestinationLimit, nearestVehicleLimit);
+    }
+
+
+    /**
+     * The one-to-many path searches are run in parallel, one thread per pair of forward and
+     * backward routers. The routers must not be shared with other searches, while the travel time
+     * and disutility they use must allow concurrent reads.
+     */
+    public VehicleAssignmentProblem(TravelTime travelTime, List<FastMultiNodeDijkstra> routers,
+            List<BackwardFastMultiNodeDijkstra> backwardRouters, FastAStarEuclidean euclideanRouter,
+            int nearestDestinationLimit, int nearestVehicleLimit)
+    {
+        if (routers.isEmpty() || routers.size() != backwardRouters.size()) {
+            throw new IllegalArgumentException(
+                    "a forward and a backward router are needed for each thread");
+        }
+
         this.travelTime = travelTime;
         this.euclideanRouter = euclideanRouter;
 
-        forwardPathSearch = OneToManyPathSearch.createForwardSearch(router);
-        backwardPathSearch = OneToManyPathSearch.createBackwardSearch(backwardRouter);
+        forwardPathSearches = new OneToManyPathSearch[routers.size()];
+        backwardPathSearches = new OneToManyPathSearch[routers.size()];
+        for (int i = 0; i < routers.size(); i++) {
+            forwardPathSearches[i] = OneToManyPathSearch.createForwardSearch(routers.get(i));
+            backwardPathSearches[i] = OneToManyPathSearch
+                    .createBackwardSearch(backwardRouters.get(i));
+        }
 
         //TODO this kNN is slow
         destinationFinder = StraightLineKnnFinders.createDestEntryFinder(nearestDestinationLimit);
@@ -126,40 +154,61 @@ public class VehicleAssignmentProblem<D>
     }
 
 
-    private void calcPathsForVehicles(PathData[][] pathDataMatrix)
+    //each search writes its own row (vehicle) or column (destination) of the matrix
+    private void calcPathsForVehicles(final PathData[][] pathDataMatrix)
     {
-        for (int v = 0; v < vData.getSize(); v++) {
-            VehicleData.Entry departure = vData.getEntry(v);
-
-            List<DestEntry<D>> filteredDests = destinationFinder == null ? dData.getEntries()
-                    : destinationFinder.findNearest(departure, dData.getEntries());
-            List<Link> toLinks = Lists.transform(filteredDests, destLinkProvider);
-            PathData[] paths = forwardPathSearch.calcPaths(departure.link, toLinks, departure.time);
-
-            for (int i = 0; i < filteredDests.size(); i++) {
-                int d = filteredDests.get(i).idx;
-                pathDataMatrix[v][d] = paths[i];
+        runInParallel(vData.getSize(), new RowTask() {
+            @Override
+            public void calcRow(int v, int thread)
+            {
+                VehicleData.Entry departure = vData.getEntry(v);
+
+                List<DestEntry<D>> filteredDests = destinationFinder == null ? dData.getEntries()
+                        : destinationFinder.findNearest(departure, dData.getEntries());
+                List<Link> toLinks = Lists.transform(filteredDests, destLinkProvider);
+                PathData[] paths = forwardPathSearches[thread].calcPaths(departure.link, toLinks,
+                        departure.time);
+
+                for (int i = 0; i < filteredDests.size(); i++) {
+                    int d = filteredDests.get(i).idx;
+                    pathDataMatrix[v][d] = paths[i];
+                }
             }
-        }
+        });
     }
 
 
     //TODO does not support adv reqs
-    private void calcPathsForDestinations(PathData[][] pathDataMatrix)
+    private void calcPathsForDestinations(final PathData[][] pathDataMatrix)
     {
-        for (int d = 0; d < dData.getSize(); d++) {
-            DestEntry<D> dest = dData.getEntry(d);
+        runInParallel(dData.getSize(), new RowTask() {
+            @Override
+            public void calcRow(int d, int thread)
+            {
+                DestEntry<D> dest = dData.getEntry(d);
+
+                List<VehicleData.Entry> filteredVehs = vehicleFinder == null ? vData.getEntries()
+                        : vehicleFinder.findNearest(dest, vData.getEntries());
+                List<Link> toLinks = Lists.transform(filteredVehs,
+                        LinkProviders.VEHICLE_ENTRY_TO_LINK);
+                PathData[] paths = backwardPathSearches[thread].calcPaths(dest.link, toLinks,
+                        dest.time);
+
+                for (int i = 0; i < filteredVehs.size(); i++) {
+                    int v = filteredVehs.get(i).idx;
+                    pathDataMatrix[v][d] = paths[i];
+                }
+            }
+        });
+    }
 
-            List<VehicleData.Entry> filteredVehs = vehicleFinder == null ? vData.getEntries()
-                    : vehicleFinder.findNearest(dest, vData.getEntries());
-            List<Link> toLinks = Lists.transform(filteredVehs, LinkProviders.VEHICLE_ENTRY_TO_LINK);
-            PathData[] paths = backwardPathSearch.calcPaths(dest.link, toLinks, dest.time);
 
-            for (int i = 0; i < filteredVehs.size(); i++) {
-                int v = filteredVehs.get(i).idx;
-                pathDataMatrix[v][d] = paths[i];
-            }
-        }
+    /**
+     * The rows are taken one by one, so threads with short searches take more rows.
+     */
+    private void runInParallel(int rowCount, RowTask task)
+    {
+        ParallelUtils.runRows(rowCount, 1, forwardPathSearches.length, task);
     }
 
 
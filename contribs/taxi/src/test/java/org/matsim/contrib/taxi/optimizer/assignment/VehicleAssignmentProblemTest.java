@@ -0,0 +1,174 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.taxi.optimizer.assignment;
+
+import java.util.*;
+
+import org.junit.*;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.*;
+import org.matsim.contrib.dvrp.data.*;
+import org.matsim.contrib.dvrp.path.OneToManyPathSearch.PathData;
+import org.matsim.contrib.dvrp.router.TimeAsTravelDisutility;
+import org.matsim.contrib.locationchoice.router.*;
+import org.matsim.contrib.taxi.optimizer.BestDispatchFinder.Dispatch;
+import org.matsim.contrib.taxi.optimizer.VehicleData;
+import org.matsim.contrib.taxi.optimizer.assignment.AssignmentDestinationData.DestEntry;
+import org.matsim.contrib.taxi.optimizer.assignment.VehicleAssignmentProblem.AssignmentCost;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.router.*;
+import org.matsim.core.router.util.*;
+import org.matsim.core.trafficmonitoring.FreeSpeedTravelTime;
+
+
+/**
+ * The path searches of the assignment are run in parallel; the cost matrix and the assignment
+ * must not depend on the number of threads.
+ */
+public class VehicleAssignmentProblemTest
+{
+    private static final double TIME = 8 * 3600;
+    private static final double NO_PATH_COST = 1e7;
+
+    private final TravelTime travelTime = new FreeSpeedTravelTime();
+    private final TravelDisutility travelDisutility = new TimeAsTravelDisutility(travelTime);
+    private final Network network = NetworkUtils.createNetwork();
+    private final List<Link> links = new ArrayList<>();
+
+
+    @Before
+    public void setUp()
+    {
+        new MatsimNetworkReader(network)
+                .readFile("./src/main/resources/mielec_2014_02/network.xml");
+        links.addAll(network.getLinks().values());
+    }
+
+
+    @Test
+    public void testParallelEqualsSequential_pathsForVehicles()
+    {
+        //more destinations than vehicles: forward searches from the vehicles
+        assertParallelEqualsSequential(10, 40, -1, -1);
+    }
+
+
+    @Test
+    public void testParallelEqualsSequential_pathsForDestinations()
+    {
+        //more vehicles than destinations: backward searches from the destinations
+        assertParallelEqualsSequential(40, 10, -1, -1);
+    }
+
+
+    @Test
+    public void testParallelEqualsSequential_nearestLimits()
+    {
+        //some pairs are not searched, their paths are computed for the dispatches only
+        assertParallelEqualsSequential(40, 30, 5, 5);
+        assertParallelEqualsSequential(30, 40, 5, 5);
+    }
+
+
+    private void assertParallelEqualsSequential(int vehicleCount, int destCount,
+            int nearestDestinationLimit, int nearestVehicleLimit)
+    {
+        Random random = new Random(4711);
+        List<VehicleData.Entry> vehEntries = new ArrayList<>();
+        for (int v = 0; v < vehicleCount; v++) {
+            Link link = links.get(random.nextInt(links.size()));
+            Vehicle vehicle = new VehicleImpl(Id.create(v, Vehicle.class), link, 4, 0, 24 * 3600);
+            vehEntries.add(new VehicleData.Entry(v, vehicle, link, TIME, true));
+        }
+        VehicleData vData = new VehicleData(vehEntries);
+
+        AssignmentDestinationData<Integer> dData = new AssignmentDestinationData<Integer>() {};
+        for (int d = 0; d < destCount; d++) {
+            Link link = links.get(random.nextInt(links.size()));
+            dData.entries.add(new DestEntry<>(d, d, link, TIME));
+        }
+
+        double[][] sequentialCosts = new double[vehicleCount][destCount];
+        List<Dispatch<Integer>> sequential = createProblem(1, nearestDestinationLimit,
+                nearestVehicleLimit).findAssignments(vData, dData, recordCosts(sequentialCosts));
+        double[][] parallelCosts = new double[vehicleCount][destCount];
+        List<Dispatch<Integer>> parallel = createProblem(4, nearestDestinationLimit,
+                nearestVehicleLimit).findAssignments(vData, dData, recordCosts(parallelCosts));
+
+        for (int v = 0; v < vehicleCount; v++) {
+            Assert.assertArrayEquals(sequentialCosts[v], parallelCosts[v], 0.0);
+        }
+        Assert.assertEquals(Math.min(vehicleCount, destCount), sequential.size());
+        Assert.assertEquals(sequential.size(), parallel.size());
+        for (int i = 0; i < sequential.size(); i++) {
+            Assert.assertSame(sequential.get(i).vehicle, parallel.get(i).vehicle);
+            Assert.assertEquals(sequential.get(i).destination, parallel.get(i).destination);
+            Assert.assertEquals(sequential.get(i).path.getArrivalTime(),
+                    parallel.get(i).path.getArrivalTime(), 0.0);
+        }
+    }
+
+
+    private static AssignmentCost<Integer> recordCosts(final double[][] costs)
+    {
+        return new AssignmentCost<Integer>() {
+            @Override
+            public double calc(VehicleData.Entry departure, DestEntry<Integer> dest,
+                    PathData pathData)
+            {
+                double cost = pathData == null ? NO_PATH_COST
+                        : pathData.path.travelCost + pathData.firstAndLastLinkTT;
+                costs[departure.idx][dest.idx] = cost;
+                return cost;
+            }
+        };
+    }
+
+
+    private VehicleAssignmentProblem<Integer> createProblem(int threads,
+            int nearestDestinationLimit, int nearestVehicleLimit)
+    {
+        FastRouterDelegateFactory fastRouterFactory = new ArrayFastRouterDelegateFactory();
+        RoutingNetwork routingNetwork = new ArrayRoutingNetworkFactory(null)
+                .createRoutingNetwork(network);
+        RoutingNetwork inverseRoutingNetwork = new InverseArrayRoutingNetworkFactory(null)
+                .createRoutingNetwork(network);
+
+        List<FastMultiNodeDijkstra> routers = new ArrayList<>();
+        List<BackwardFastMultiNodeDijkstra> backwardRouters = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            routers.add(new FastMultiNodeDijkstra(routingNetwork, travelDisutility, travelTime,
+                    null, fastRouterFactory, true));
+            backwardRouters.add(new BackwardFastMultiNodeDijkstra(inverseRoutingNetwork,
+                    travelDisutility, travelTime, null, fastRouterFactory, true));
+        }
+
+        PreProcessEuclidean preProcessEuclidean = new PreProcessEuclidean(travelDisutility);
+        preProcessEuclidean.run(network);
+        RoutingNetwork euclideanRoutingNetwork = new ArrayRoutingNetworkFactory(preProcessEuclidean)
+                .createRoutingNetwork(network);
+        FastAStarEuclidean euclideanRouter = new FastAStarEuclidean(euclideanRoutingNetwork,
+                preProcessEuclidean, travelDisutility, travelTime, 1., fastRouterFactory);
+
+        return new VehicleAssignmentProblem<>(travelTime, routers, backwardRouters,
+                euclideanRouter, nearestDestinationLimit, nearestVehicleLimit);
+    }
+}
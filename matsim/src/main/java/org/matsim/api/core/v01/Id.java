@@ -20,6 +20,7 @@
 
 package org.matsim.api.core.v01;
 
+import java.util.Arrays;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -35,11 +36,24 @@ import org.matsim.vehicles.Vehicle;
  * Note that Ids should not contain any whitespace characters (spaces, tabs, newlines, ...), 
  * as this may lead to problems when Ids are written to file and read back in.
  * 
+ * Every Id gets a dense, per-type index when it is created: the first Id of a type
+ * gets index 0, the next one 1, and so on. The index can be used to store data about
+ * the identified objects in plain arrays, see e.g. {@link org.matsim.core.utils.collections.IdMap}.
+ * 
  *  @author mrieser / Senozon AG
  */
 public abstract class Id<T> implements Comparable<Id<T>> {
 
-	private final static Map<Class<?>, Map<String, Id<?>>> cache = new ConcurrentHashMap<Class<?>, Map<String, Id<?>>>();
+	private final static Map<Class<?>, TypeCache> cache = new ConcurrentHashMap<Class<?>, TypeCache>();
+	
+	/**
+	 * All Ids of one type, accessible by key and by index.
+	 */
+	private static class TypeCache {
+		private final Map<String, Id<?>> idsByKey = new ConcurrentHashMap<String, Id<?>>();
+		private volatile Id<?>[] idsByIndex = new Id<?>[16];
+		private volatile int size = 0;
+	}
 	
 	
 	public static <T> Id<T> create(final long key, final Class<T> type) {
@@ -57,20 +71,78 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 	 * This method supports a cache where ids are stored and re-used per type.   
 	 */
 	public static <T> Id<T> create(final String key, final Class<T> type) {
-		Map<String, Id<?>> map = cache.get(type);
-		if (map == null) {
-			map = new ConcurrentHashMap<String, Id<?>>();
-			cache.put(type, map);
+		TypeCache typeCache = cache.get(type);
+		if (typeCache != null) {
+			Id<?> id = typeCache.idsByKey.get(key);
+			if (id != null) {
+				return (Id<T>) id;
+			}
 		}
-		Id<?> id = map.get(key);
-		if (id == null) {
-			id = new IdImpl<T>(key);
-			map.put(key, id);
+		return createSynchronized(key, type);
+	}
+	
+	private static <T> Id<T> createSynchronized(final String key, final Class<T> type) {
+		synchronized (cache) {
+			TypeCache typeCache = cache.get(type);
+			if (typeCache == null) {
+				typeCache = new TypeCache();
+				cache.put(type, typeCache);
+			}
+			Id<?> id = typeCache.idsByKey.get(key);
+			if (id == null) {
+				int index = typeCache.size;
+				Id<?>[] idsByIndex = typeCache.idsByIndex;
+				if (index == idsByIndex.length) {
+					idsByIndex = Arrays.copyOf(idsByIndex, idsByIndex.length * 2);
+				}
+				id = new IdImpl<T>(key, index);
+				idsByIndex[index] = id;
+				typeCache.idsByIndex = idsByIndex;
+				typeCache.idsByKey.put(key, id);
+				typeCache.size = index + 1;
+			}
+			return (Id<T>) id;
 		}
-		
-		return (Id<T>) id;
 	}
 	
+	/**
+	 * @return the already existing Id with the given key, or <code>null</code> if no such Id was created so far.
+	 */
+	public static <T> Id<T> get(final String key, final Class<T> type) {
+		TypeCache typeCache = cache.get(type);
+		if (typeCache == null) {
+			return null;
+		}
+		return (Id<T>) typeCache.idsByKey.get(key);
+	}
+	
+	/**
+	 * @return the Id of the given type with the given index
+	 * @throws IndexOutOfBoundsException if no Id with this index was created so far.
+	 */
+	public static <T> Id<T> get(final int index, final Class<T> type) {
+		TypeCache typeCache = cache.get(type);
+		int size = typeCache == null ? 0 : typeCache.size;
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("There is no Id with index " + index + " of type " + type.getName() + ", the number of Ids is " + size);
+		}
+		return (Id<T>) typeCache.idsByIndex[index];
+	}
+	
+	/**
+	 * @return the number of Ids created so far for the given type. All indices of
+	 * Ids of this type are smaller than this number.
+	 */
+	public static int getNumberOfIds(final Class<?> type) {
+		TypeCache typeCache = cache.get(type);
+		return typeCache == null ? 0 : typeCache.size;
+	}
+	
+	/**
+	 * @return the dense, per-type index of this Id, see class comment.
+	 */
+	public abstract int index();
+	
 	/**
 	 * @return <code>0</code> when the two objects being compared are the same objects, other values according to their ids being compared to each other.
 	 * 
@@ -111,9 +183,16 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 	private static class IdImpl<T> extends Id<T> {
 
 		private final String id; 
+		private final int index;
 		
-		/*package*/ IdImpl(final String id) {
+		/*package*/ IdImpl(final String id, final int index) {
 			this.id = id;
+			this.index = index;
+		}
+
+		@Override
+		public int index() {
+			return this.index;
 		}
 
 		@Override
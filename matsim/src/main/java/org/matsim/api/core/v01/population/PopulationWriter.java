@@ -107,4 +107,16 @@ public final class PopulationWriter implements MatsimWriter {
 		writer.putAttributeConverters( attributeConverters );
 		writer.writeV6(filename);
 	}
+
+	/**
+	 * Writes the population in MATSim's binary population format, which is read much faster than xml.
+	 *
+	 * @param filename
+	 */
+	public void writeBinary(final String filename) {
+		final org.matsim.core.population.io.PopulationWriter writer =
+				new org.matsim.core.population.io.PopulationWriter( transformation , this.population, this.network);
+		writer.putAttributeConverters( attributeConverters );
+		writer.writeBinary(filename);
+	}
 }
@@ -38,9 +38,11 @@ import org.matsim.core.utils.misc.StringUtils;
 public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	private static final Logger log = Logger.getLogger( ControlerConfigGroup.class );
 
-	public enum RoutingAlgorithmType {Dijkstra, AStarLandmarks, FastDijkstra, FastAStarLandmarks}
+	public enum RoutingAlgorithmType {Dijkstra, AStarLandmarks, FastDijkstra, FastAStarLandmarks, ContractionHierarchies}
 
-	public enum EventsFileFormat {xml}
+	public enum EventsFileFormat {xml, binary}
+
+	public enum PlansFileFormat {xml, binary}
 
 	public static final String GROUP_NAME = "controler";
 
@@ -54,6 +56,7 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	private static final String SNAPSHOT_FORMAT = "snapshotFormat";
 	private static final String WRITE_EVENTS_INTERVAL = "writeEventsInterval";
 	private static final String WRITE_PLANS_INTERVAL = "writePlansInterval";
+	private static final String PLANS_FILE_FORMAT = "plansFileFormat";
 	private static final String OVERWRITE_FILE = "overwriteFiles";
 	private static final String CREATE_GRAPHS = "createGraphs";
 	private static final String DUMP_DATA_AT_END = "dumpDataAtEnd";
@@ -77,6 +80,7 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 
 	private int writeEventsInterval=10;
 	private int writePlansInterval=10;
+	private PlansFileFormat plansFileFormat = PlansFileFormat.xml;
 	private Set<String> snapshotFormat = Collections.emptySet();
 	private String mobsim = MobsimType.qsim.toString();
 	private int writeSnapshotsInterval = 1;
@@ -92,14 +96,21 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	public final Map<String, String> getComments() {
 		Map<String,String> map = super.getComments();
 		map.put(ROUTINGALGORITHM_TYPE, "The type of routing (least cost path) algorithm used, may have the values: " + RoutingAlgorithmType.Dijkstra + ", " + 
-				RoutingAlgorithmType.FastDijkstra + ", " + RoutingAlgorithmType.AStarLandmarks + " or "  + RoutingAlgorithmType.FastAStarLandmarks);
+				RoutingAlgorithmType.FastDijkstra + ", " + RoutingAlgorithmType.AStarLandmarks + ", "  + RoutingAlgorithmType.FastAStarLandmarks + " or "
+				+ RoutingAlgorithmType.ContractionHierarchies + ". " + RoutingAlgorithmType.ContractionHierarchies + " routes with the link costs of the "
+				+ "travel time bin of the departure and does not consider person-specific costs when choosing the route.");
 		map.put(RUNID, "An identifier for the current run which is used as prefix for output files and mentioned in output xml files etc.");
-		map.put(EVENTS_FILE_FORMAT, "Default="+EventsFileFormat.xml+"; Specifies the file format for writing events. Currently supported: txt, xml."+IOUtils.NATIVE_NEWLINE+ "\t\t" +
+		map.put(EVENTS_FILE_FORMAT, "Default="+EventsFileFormat.xml+"; Specifies the file format for writing events. Currently supported: " + EventsFileFormat.xml + ", " +
+				EventsFileFormat.binary + ". Binary events files are smaller and faster to write and read; they can be read with "
+				+ "MatsimEventsReader."+IOUtils.NATIVE_NEWLINE+ "\t\t" +
 				"Multiple values can be specified separated by commas (',').");
 		map.put(WRITE_EVENTS_INTERVAL, "iterationNumber % writeEventsInterval == 0 defines in which iterations events are written " +
 				"to a file. `0' disables events writing completely.");
 		map.put(WRITE_PLANS_INTERVAL, "iterationNumber % writePlansInterval == 0 defines (hopefully) in which iterations plans are " +
 				"written to a file. `0' disables plans writing completely.  Some plans in early iterations are always written");
+		map.put(PLANS_FILE_FORMAT, "Default="+PlansFileFormat.xml+"; Specifies the file format for writing plans during the iterations. " +
+				"Currently supported: " + PlansFileFormat.xml + ", " + PlansFileFormat.binary + ". Binary plans files are written and " +
+				"read much faster, and can be used as input plans file.");
 		map.put(LINKTOLINK_ROUTING_ENABLED, "Default=false; "); // TODO: add description
 		map.put(FIRST_ITERATION, "Default=0; "); // TODO: add description
 		map.put(LAST_ITERATION, "Default=1000; "); // TODO: add description
@@ -283,6 +294,16 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	public void setWritePlansInterval(final int writePlansInterval) {
 		this.writePlansInterval = writePlansInterval;
 	}
+
+	@StringGetter( PLANS_FILE_FORMAT )
+	public PlansFileFormat getPlansFileFormat() {
+		return this.plansFileFormat;
+	}
+
+	@StringSetter( PLANS_FILE_FORMAT )
+	public void setPlansFileFormat(final PlansFileFormat plansFileFormat) {
+		this.plansFileFormat = plansFileFormat;
+	}
 	
 	@StringGetter( WRITE_SNAPSHOTS_INTERVAL )
 	public int getWriteSnapshotsInterval() {
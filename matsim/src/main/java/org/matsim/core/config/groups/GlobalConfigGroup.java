@@ -37,10 +37,12 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 	private static final String RANDOM_SEED = "randomSeed";
 	private static final String NUMBER_OF_THREADS = "numberOfThreads";
 	private static final String COORDINATE_SYSTEM = "coordinateSystem";
+	private static final String REPLANNING_LOAD_BALANCING = "replanningLoadBalancing";
 
 	private long randomSeed = 4711L;
 	private int numberOfThreads = 2;
 	private String coordinateSystem = "Atlantis";
+	private boolean replanningLoadBalancing = false;
 	
 	@Override
 	public Map<String, String> getComments() {
@@ -48,6 +50,10 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 		map.put(NUMBER_OF_THREADS, "\"global\" number of threads.  "
 				+ "This number is used, e.g., for replanning, but NOT in the mobsim.  "
 				+ "This can typically be set to as many cores as you have available, or possibly even slightly more.") ;
+		map.put(REPLANNING_LOAD_BALANCING, "If true, the threads of multi-threaded replanning modules take batches of plans "
+				+ "from a common queue instead of getting a fixed share of the plans, so threads handling fast plans help the "
+				+ "others. Replanning finishes earlier, but which thread handles a plan then depends on timing, so runs with "
+				+ "randomized replanning modules are no longer reproducible.");
 		return map ;
 	}
 
@@ -81,4 +87,13 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 		this.coordinateSystem = coordinateSystem;
 	}
 
+	@StringGetter( REPLANNING_LOAD_BALANCING )
+	public boolean isReplanningLoadBalancing() {
+		return this.replanningLoadBalancing;
+	}
+	@StringSetter( REPLANNING_LOAD_BALANCING )
+	public void setReplanningLoadBalancing(final boolean replanningLoadBalancing) {
+		this.replanningLoadBalancing = replanningLoadBalancing;
+	}
+
 }
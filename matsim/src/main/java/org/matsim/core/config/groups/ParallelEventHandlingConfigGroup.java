@@ -45,6 +45,20 @@ public final class ParallelEventHandlingConfigGroup extends ReflectiveConfigGrou
 	private final static String ONE_THREAD_PER_HANDLER = "oneThreadPerHandler"; 
 	private Boolean oneThreadPerHandler = false;
 	
+	private final static String DIRECT_EVENT_DISPATCH = "directEventDispatch";
+	private boolean directEventDispatch = false;
+	
+	private final static String USE_RING_BUFFER = "useRingBuffer";
+	private boolean useRingBuffer = false;
+	
+	private final static String RING_BUFFER_SIZE = "ringBufferSize";
+	public final static int DEFAULT_RING_BUFFER_SIZE = 65536;
+	private int ringBufferSize = DEFAULT_RING_BUFFER_SIZE;
+	
+	private final static String WAIT_STRATEGY = "waitStrategy";
+	public static enum WaitStrategy { busySpin, yielding, parking }
+	private WaitStrategy waitStrategy = WaitStrategy.yielding;
+	
 	private boolean locked = false;
 
 	public ParallelEventHandlingConfigGroup() {
@@ -60,6 +74,13 @@ public final class ParallelEventHandlingConfigGroup extends ReflectiveConfigGrou
 				+ "before the next time step is simulated. E.g. neccessary when within-day replanning is used.");
 		comments.put(ONE_THREAD_PER_HANDLER, "If enabled, each event handler is assigned to its own thread. Note that enabling this feature disabled the " + NUMBER_OF_THREADS + " option! "
 				+ "This feature is still experimental!");
+		comments.put(DIRECT_EVENT_DISPATCH, "If enabled, the events managers used by the events handling threads call the event handlers directly, i.e. "
+				+ "without reflection and without synchronizing on the handler. Each handler must then only be used by one events manager.");
+		comments.put(USE_RING_BUFFER, "If enabled, events are handed to the " + NUMBER_OF_THREADS + " events handling threads through a preallocated ring buffer "
+				+ "without taking a lock. Events are always synchronized on sim steps in this mode.");
+		comments.put(RING_BUFFER_SIZE, "Number of events the ring buffer can hold. Is rounded up to the next power of two. Only used if " + USE_RING_BUFFER + " is enabled.");
+		comments.put(WAIT_STRATEGY, "How threads wait for events or free slots in the ring buffer. busySpin gives the lowest latency but keeps all cores busy and should only be used if there are more cores than threads, "
+				+ "parking is friendliest to other processes. Only used if " + USE_RING_BUFFER + " is enabled. Possible values: busySpin, yielding, parking.");
 		return comments;
 	}
 
@@ -127,6 +148,62 @@ public final class ParallelEventHandlingConfigGroup extends ReflectiveConfigGrou
 		}
 	}
 	
+	@StringGetter( DIRECT_EVENT_DISPATCH )
+	public boolean isDirectEventDispatch() {
+		return this.directEventDispatch;
+	}
+
+	@StringSetter( DIRECT_EVENT_DISPATCH )
+	public void setDirectEventDispatch(boolean directEventDispatch) {
+		if ( !this.locked ) {
+			this.directEventDispatch = directEventDispatch;
+		} else {
+			throw new RuntimeException("it is too late in the control flow to modify this parameter");
+		}
+	}
+	
+	@StringGetter( USE_RING_BUFFER )
+	public boolean isUseRingBuffer() {
+		return this.useRingBuffer;
+	}
+
+	@StringSetter( USE_RING_BUFFER )
+	public void setUseRingBuffer(boolean useRingBuffer) {
+		if ( !this.locked ) {
+			this.useRingBuffer = useRingBuffer;
+		} else {
+			throw new RuntimeException("it is too late in the control flow to modify this parameter");
+		}
+	}
+
+	@StringGetter( RING_BUFFER_SIZE )
+	public int getRingBufferSize() {
+		return this.ringBufferSize;
+	}
+
+	@StringSetter( RING_BUFFER_SIZE )
+	public void setRingBufferSize(int ringBufferSize) {
+		if ( !this.locked ) {
+			this.ringBufferSize = ringBufferSize;
+		} else {
+			throw new RuntimeException("it is too late in the control flow to modify this parameter");
+		}
+	}
+
+	@StringGetter( WAIT_STRATEGY )
+	public WaitStrategy getWaitStrategy() {
+		return this.waitStrategy;
+	}
+
+	@StringSetter( WAIT_STRATEGY )
+	public void setWaitStrategy(WaitStrategy waitStrategy) {
+		if ( !this.locked ) {
+			this.waitStrategy = waitStrategy;
+		} else {
+			throw new RuntimeException("it is too late in the control flow to modify this parameter");
+		}
+	}
+	
 	public void makeLocked() {
 		this.locked = true;
 	}
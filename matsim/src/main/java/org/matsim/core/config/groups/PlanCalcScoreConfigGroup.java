@@ -59,6 +59,8 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 
 	private static final String WRITE_EXPERIENCED_PLANS = "writeExperiencedPlans";
 
+	private static final String NUMBER_OF_SCORING_THREADS = "numberOfScoringThreads";
+
 	private static final String MARGINAL_UTL_OF_MONEY = "marginalUtilityOfMoney" ;
 
 	private static final String UTL_OF_LINE_SWITCH = "utilityOfLineSwitch" ;
@@ -313,6 +315,9 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 		map.put(UTL_OF_LINE_SWITCH, "[utils] utility of switching a line (= transfer penalty).  Normally negative") ;
 		map.put(MARGINAL_UTL_OF_MONEY, "[utils/unit_of_money] conversion of money (e.g. toll, distance cost) into utils. Normall positive (i.e. toll/cost/fare are processed as negative amounts of money)." ) ;
 		map.put(WRITE_EXPERIENCED_PLANS, "write a plans file in each iteration directory which contains what each agent actually did, and the score it received.");
+		map.put(NUMBER_OF_SCORING_THREADS, "number of threads the persons' scoring functions are sharded over (by person index). " +
+				"Each thread receives the events, legs and activities of its persons and finishes their scoring functions.  " +
+				"1 (default) scores on the events handling thread.  Scoring functions of different persons must not share mutable state if this is larger than 1.");
 
 		return map;
 	}
@@ -541,6 +546,14 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 		delegate.setWriteExperiencedPlans(writeExperiencedPlans);
 	}
 
+	public int getNumberOfScoringThreads() {
+		return delegate.getNumberOfScoringThreads();
+	}
+
+	public void setNumberOfScoringThreads(int numberOfScoringThreads) {
+		delegate.setNumberOfScoringThreads(numberOfScoringThreads);
+	}
+
 	public double getMarginalUtlOfWaiting_utils_hr() {
 		return getScoringParameters( null ).getMarginalUtlOfWaiting_utils_hr();
 	}
@@ -1192,6 +1205,8 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 
 		private boolean writeExperiencedPlans = false;
 
+		private int numberOfScoringThreads = 1;
+
 		private Double fractionOfIterationsToStartScoreMSA = null ;
 
 		private boolean usingOldScoringBelowZeroUtilityDuration = false;
@@ -1265,6 +1280,20 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 			this.writeExperiencedPlans = writeExperiencedPlans;
 		}
 
+		@StringGetter( NUMBER_OF_SCORING_THREADS )
+		public int getNumberOfScoringThreads() {
+			return numberOfScoringThreads;
+		}
+
+		@StringSetter( NUMBER_OF_SCORING_THREADS )
+		public void setNumberOfScoringThreads(int numberOfScoringThreads) {
+			testForLocked() ;
+			if ( numberOfScoringThreads < 1 ) {
+				throw new IllegalArgumentException( NUMBER_OF_SCORING_THREADS + " must be at least 1, but is " + numberOfScoringThreads );
+			}
+			this.numberOfScoringThreads = numberOfScoringThreads;
+		}
+
 	}
 
 }
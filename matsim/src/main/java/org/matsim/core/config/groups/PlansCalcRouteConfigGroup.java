@@ -75,6 +75,13 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 	private static final String RANDOMNESS = "routingRandomness" ;
 	private double routingRandomness = 3. ;
 
+	private static final String ROUTE_CACHE_SIZE = "routeCacheSize" ;
+	private static final String ROUTE_CACHE_TIME_BIN_SIZE = "routeCacheTimeBinSize" ;
+	private static final String ROUTE_CACHE_TOLERANCE = "routeCacheTolerance" ;
+	private int routeCacheSize = 0 ;
+	private double routeCacheTimeBinSize = 900. ;
+	private double routeCacheTolerance = 0.01 ;
+
 	// ---
 
 	public static class ModeRoutingParams extends ReflectiveConfigGroup implements MatsimParameters {
@@ -375,6 +382,14 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 	        map.put(RANDOMNESS, "strength of the randomness for the utility of money in routing under toll.  "
 	          		+ "Leads to Pareto-optimal route with randomly drawn money-vs-other-attributes tradeoff. "
 	          		+ "Technically the width parameter of a log-normal distribution. 3.0 seems to be a good value. " ) ;
+		map.put(ROUTE_CACHE_SIZE, "largest number of routes per network mode that are re-used for trips between the same links "
+				+ "departing in the same time bin, as long as the travel times do not change by more than the routeCacheTolerance. "
+				+ "Routes are not cached for travel disutilities that depend on the person, e.g. with a routingRandomness other than 0. "
+				+ "0 (the default) disables the route cache.") ;
+		map.put(ROUTE_CACHE_TIME_BIN_SIZE, "length of the time bins of the route cache, in seconds.") ;
+		map.put(ROUTE_CACHE_TOLERANCE, "a cached route is only re-used if its cost differs by at most this fraction from its "
+				+ "cost when it was calculated. All cached routes are dropped after an iteration in which the travel time of a link "
+				+ "changed by more than this fraction.") ;
 		return map;
 	}
 
@@ -474,4 +489,31 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 		this.routingRandomness = routingRandomness;
 	}
 
+	@StringGetter(ROUTE_CACHE_SIZE)
+	public int getRouteCacheSize() {
+		return routeCacheSize;
+	}
+	@StringSetter(ROUTE_CACHE_SIZE)
+	public void setRouteCacheSize(int routeCacheSize) {
+		this.routeCacheSize = routeCacheSize;
+	}
+
+	@StringGetter(ROUTE_CACHE_TIME_BIN_SIZE)
+	public double getRouteCacheTimeBinSize() {
+		return routeCacheTimeBinSize;
+	}
+	@StringSetter(ROUTE_CACHE_TIME_BIN_SIZE)
+	public void setRouteCacheTimeBinSize(double routeCacheTimeBinSize) {
+		this.routeCacheTimeBinSize = routeCacheTimeBinSize;
+	}
+
+	@StringGetter(ROUTE_CACHE_TOLERANCE)
+	public double getRouteCacheTolerance() {
+		return routeCacheTolerance;
+	}
+	@StringSetter(ROUTE_CACHE_TOLERANCE)
+	public void setRouteCacheTolerance(double routeCacheTolerance) {
+		this.routeCacheTolerance = routeCacheTolerance;
+	}
+
 }
@@ -37,17 +37,25 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 	}
 
 	public static enum ActivityDurationInterpretation { minOfDurationAndEndTime, tryEndTimeThenDuration, @Deprecated endTimeOnly }
+
+	/**
+	 * How plans keep their activities, legs and network routes in memory: one object per element, or packed into primitive
+	 * arrays per plan, which needs a fraction of the memory.  See org.matsim.core.population.CompactPlan for the details.
+	 */
+	public static enum PlanElementStorage { objects, compact }
 	private static final String INPUT_FILE = "inputPlansFile";
 	private static final String INPUT_PERSON_ATTRIBUTES_FILE = "inputPersonAttributesFile";
 	private static final String NETWORK_ROUTE_TYPE = "networkRouteType";
 	private static final String SUBPOPULATION_ATTRIBUTE = "subpopulationAttributeName";
 	private static final String INPUT_CRS = "inputCRS";
+	private static final String PLAN_ELEMENT_STORAGE = "planElementStorage";
 
 	private String inputFile = null;
 	private String networkRouteType = NetworkRouteType.LinkNetworkRoute;
 	private String inputPersonAttributeFile = null;
 	private String subpopulationAttributeName = "subpopulation";
 	private String inputCRS = null;
+	private PlanElementStorage planElementStorage = PlanElementStorage.objects;
 	
 	//--
 	
@@ -91,6 +99,11 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 				" At import, the coordinates will be converted to the coordinate system defined in \"global\", and will" +
 				"be converted back at export. If not specified, no conversion happens." );
 
+		comments.put( PLAN_ELEMENT_STORAGE, "Possible values: " + PlanElementStorage.objects + ", " + PlanElementStorage.compact +
+				". With " + PlanElementStorage.compact + ", activities, legs and network routes are packed into primitive arrays " +
+				"when a person is added to the population and before every mobsim, using much less memory.  References to plan " +
+				"elements obtained before that are no longer part of the plan afterwards, and times are stored with float precision." );
+
 		return comments;
 	}
 
@@ -188,5 +201,15 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 		this.inputCRS = inputCRS;
 	}
 
+	@StringGetter( PLAN_ELEMENT_STORAGE )
+	public PlanElementStorage getPlanElementStorage() {
+		return this.planElementStorage;
+	}
+
+	@StringSetter( PLAN_ELEMENT_STORAGE )
+	public void setPlanElementStorage(PlanElementStorage planElementStorage) {
+		this.planElementStorage = planElementStorage;
+	}
+
 
 }
@@ -112,6 +112,13 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 	public enum VehiclesSource { defaultVehicle, modeVehicleTypesFromVehiclesData, fromVehiclesData} ;
 	private VehiclesSource vehiclesSource = VehiclesSource.defaultVehicle ;
 	// ---
+	private static final String NETSIM_PARTITIONING = "netsimPartitioning";
+	public static enum NetsimPartitioning { roundRobin, coordinateBisection } ;
+	private NetsimPartitioning netsimPartitioning = NetsimPartitioning.roundRobin ;
+	// ---
+	private static final String SKIPPING_INACTIVE_TIME_STEPS = "skippingInactiveTimeSteps";
+	private boolean skippingInactiveTimeSteps = false ;
+	// ---
 	private static final String IS_SEEP_MODE_STORAGE_FREE = "isSeepModeStorageFree";
 	
 	private boolean isSeepModeStorageFree = false;
@@ -248,6 +255,16 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 			map.put( VEHICLES_SOURCE, "If vehicles should all be the same default vehicle, or come from the vehicles file, "
 					+ "or something else.  Possible values: " + stb );
 		}
+		map.put(NETSIM_PARTITIONING, "How the nodes (and their outgoing links) are assigned to the threads of the qsim. "
+				+ NetsimPartitioning.roundRobin + " (default) assigns them one after the other; " + NetsimPartitioning.coordinateBisection
+				+ " splits the network recursively along its coordinates into areas of similar work load, using the work measured in the "
+				+ "previous iteration. The latter keeps most links between nodes of the same thread and processes the nodes of a thread "
+				+ "in a deterministic order. With the latter, the nodes draw from their own random streams also if numberOfThreads = 1, "
+				+ "so the events do not depend on the number of threads.");
+		map.put(SKIPPING_INACTIVE_TIME_STEPS, "If set to true, the qsim jumps directly to the next time step in which one of its engines "
+				+ "has something to do, e.g. during the night. This is only done if all engines and all mobsim listeners which "
+				+ "are notified in every time step can tell when they need to be called next; otherwise, all time steps are simulated. "
+				+ "Default is false.");
 		map.put(SEEP_MODE, "If link dynamics is set as "+ LinkDynamics.SeepageQ+", set a seep mode. Default is bike.");
 		map.put(IS_SEEP_MODE_STORAGE_FREE, "If link dynamics is set as "+ LinkDynamics.SeepageQ+", set to true if seep mode do not consumes any space on the link. Default is false.");
 		map.put(IS_RESTRICTING_SEEPAGE, "If link dynamics is set as "+ LinkDynamics.SeepageQ+", set to false if all seep modes should perform seepage. Default is true (better option).");
@@ -475,6 +492,24 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		return this.vehiclesSource ;
 	}
 
+	@StringGetter(NETSIM_PARTITIONING)
+	public NetsimPartitioning getNetsimPartitioning() {
+		return this.netsimPartitioning ;
+	}
+	@StringSetter(NETSIM_PARTITIONING)
+	public void setNetsimPartitioning( NetsimPartitioning netsimPartitioning ) {
+		this.netsimPartitioning = netsimPartitioning ;
+	}
+
+	@StringGetter(SKIPPING_INACTIVE_TIME_STEPS)
+	public boolean isSkippingInactiveTimeSteps() {
+		return this.skippingInactiveTimeSteps ;
+	}
+	@StringSetter(SKIPPING_INACTIVE_TIME_STEPS)
+	public void setSkippingInactiveTimeSteps( boolean val ) {
+		this.skippingInactiveTimeSteps = val ;
+	}
+
 	private static final String USING_THREADPOOL = "usingThreadpool" ;
 	@StringGetter(USING_THREADPOOL)
 	public boolean isUsingThreadpool() {
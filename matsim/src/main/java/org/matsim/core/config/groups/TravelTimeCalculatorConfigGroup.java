@@ -48,6 +48,7 @@ public final class TravelTimeCalculatorConfigGroup extends ReflectiveConfigGroup
 	private static final String ANALYZEDMODES = "analyzedModes";
 	private static final String FILTERMODES = "filterModes";
 	private static final String SEPARATEMODES = "separateModes";
+	private static final String NUMBER_OF_SHARDS = "numberOfShards";
 
 	private TravelTimeCalculatorType travelTimeCalculator = TravelTimeCalculatorType.TravelTimeCalculatorArray;
 	private String travelTimeAggregator = "optimistic";
@@ -61,6 +62,7 @@ public final class TravelTimeCalculatorConfigGroup extends ReflectiveConfigGroup
 	private String analyzedModes = TransportMode.car;
 	private boolean filterModes = false;
 	private boolean separateModes = false;
+	private int numberOfShards = 1;
 
 	public TravelTimeCalculatorConfigGroup() {
 		super(GROUPNAME);
@@ -81,6 +83,9 @@ public final class TravelTimeCalculatorConfigGroup extends ReflectiveConfigGroup
 				"includes also busses from the pt simulation module. Use this parameter in combination with 'filterModes' = true!");
 		map.put(FILTERMODES, "If true, link travel times from legs performed on modes not included in the 'analyzedModes' parameter are ignored.");
 		map.put(SEPARATEMODES, "If true, link travel times are measured and calculated separately for each mode in analyzedModes. Other modes are ignored. If true, filterModes has no effect.");
+		map.put(NUMBER_OF_SHARDS, "Number of event handlers the link travel times are collected with, each for its share of the links. " +
+				"With more than 1 shard, parallel events handling can collect the travel times on several threads. " +
+				"Not available for link-to-link travel times.");
 		// === 
 		String str = null ;
 		for ( TravelTimeCalculatorType type : TravelTimeCalculatorType.values() ) {
@@ -202,5 +207,15 @@ public final class TravelTimeCalculatorConfigGroup extends ReflectiveConfigGroup
 	public void setSeparateModes(boolean separateModes) {
 		this.separateModes = separateModes;
 	}
+
+	@StringGetter(NUMBER_OF_SHARDS)
+	public int getNumberOfShards() {
+		return this.numberOfShards;
+	}
+
+	@StringSetter(NUMBER_OF_SHARDS)
+	public void setNumberOfShards(int numberOfShards) {
+		this.numberOfShards = numberOfShards;
+	}
 	
 }
@@ -53,6 +53,9 @@ public class ReplayEvents {
     @Inject
     EventsManager eventsManager;
 
+    @Inject
+    Config config;
+
     public static Results run(final Config config, final String eventsFilename, final AbstractModule... modules) {
         final com.google.inject.Injector injector = Injector.createInjector(
                 config,
@@ -95,7 +98,7 @@ public class ReplayEvents {
                 ((BeforeMobsimListener) controlerListener).notifyBeforeMobsim(new BeforeMobsimEvent(null, iterationNumber));
             }
         }
-        new MatsimEventsReader(eventsManager).readFile(eventsFilename);
+        new MatsimEventsReader(eventsManager, config).readFile(eventsFilename);
         ((ControlerListenerManagerImpl) controlerListenerManager).fireControlerAfterMobsimEvent(iterationNumber);
         for (ControlerListener controlerListener : controlerListenersDeclaredByModules) {
             if (controlerListener instanceof AfterMobsimListener) {
@@ -39,7 +39,9 @@ import org.matsim.core.controler.listener.BeforeMobsimListener;
 import org.matsim.core.controler.listener.IterationEndsListener;
 import org.matsim.core.controler.listener.ShutdownListener;
 import org.matsim.core.events.algorithms.EventWriter;
+import org.matsim.core.events.algorithms.EventWriterBinary;
 import org.matsim.core.events.algorithms.EventWriterXML;
+import org.matsim.core.utils.io.MatsimBinaryFormat;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
@@ -86,6 +88,10 @@ final class EventsHandlingImpl implements EventsHandling, BeforeMobsimListener,
 					this.eventWriters.add(new EventWriterXML(controlerIO.getIterationFilename(event.getIteration(), 
 							Controler.FILENAME_EVENTS_XML)));
 					break;
+				case binary:
+					this.eventWriters.add(new EventWriterBinary(controlerIO.getIterationFilename(event.getIteration(),
+							"events" + MatsimBinaryFormat.FILE_SUFFIX)));
+					break;
 				default:
 					log.warn("Unknown events file format specified: " + format.toString() + ".");
 				}
@@ -27,6 +27,7 @@ import org.matsim.api.core.v01.population.Population;
 import org.matsim.api.core.v01.population.PopulationWriter;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.ControlerConfigGroup;
+import org.matsim.core.config.groups.ControlerConfigGroup.PlansFileFormat;
 import org.matsim.core.controler.OutputDirectoryHierarchy;
 import org.matsim.core.controler.events.BeforeMobsimEvent;
 import org.matsim.core.controler.listener.BeforeMobsimListener;
@@ -35,6 +36,7 @@ import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import org.matsim.core.utils.geometry.CoordinateTransformation;
 import org.matsim.core.utils.geometry.transformations.TransformationFactory;
+import org.matsim.core.utils.io.MatsimBinaryFormat;
 
 /**
  * {@link org.matsim.core.controler.listener.ControlerListener} that dumps the
@@ -56,6 +58,7 @@ final class PlansDumpingImpl implements PlansDumping, BeforeMobsimListener {
 	@Inject private IterationStopWatch stopwatch;
 	@Inject private OutputDirectoryHierarchy controlerIO;
 	private int writePlansInterval ;
+	private final PlansFileFormat plansFileFormat;
 
 	private int writeMoreUntilIteration;
 
@@ -63,6 +66,7 @@ final class PlansDumpingImpl implements PlansDumping, BeforeMobsimListener {
 	PlansDumpingImpl(ControlerConfigGroup config) {
 		this.writePlansInterval = config.getWritePlansInterval();
 		this.writeMoreUntilIteration = config.getWritePlansUntilIteration() ;
+		this.plansFileFormat = config.getPlansFileFormat();
 	}
 
 	@Override
@@ -76,8 +80,9 @@ final class PlansDumpingImpl implements PlansDumping, BeforeMobsimListener {
 			final String inputCRS = config.plans().getInputCRS();
 			final String internalCRS = config.global().getCoordinateSystem();
 
+			final PopulationWriter writer;
 			if ( inputCRS == null ) {
-				new PopulationWriter(population, network).write(controlerIO.getIterationFilename(event.getIteration(), "plans.xml.gz"));
+				writer = new PopulationWriter(population, network);
 			}
 			else {
 				log.info( "re-projecting population from "+internalCRS+" back to "+inputCRS+" for export" );
@@ -87,7 +92,13 @@ final class PlansDumpingImpl implements PlansDumping, BeforeMobsimListener {
 								internalCRS,
 								inputCRS );
 
-				new PopulationWriter(transformation, population, network).write(controlerIO.getIterationFilename(event.getIteration(), "plans.xml.gz"));
+				writer = new PopulationWriter(transformation, population, network);
+			}
+			if ( plansFileFormat == PlansFileFormat.binary ) {
+				writer.writeBinary(controlerIO.getIterationFilename(event.getIteration(), "plans" + MatsimBinaryFormat.FILE_SUFFIX));
+			}
+			else {
+				writer.write(controlerIO.getIterationFilename(event.getIteration(), "plans.xml.gz"));
 			}
 			log.info("finished plans dump.");
 			stopwatch.endOperation("dump all plans");
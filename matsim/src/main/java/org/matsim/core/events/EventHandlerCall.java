@@ -0,0 +1,99 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventHandlerCall.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.events.handler.EventHandler;
+
+/**
+ * A pre-bound call of one handler for one event class, created once when the
+ * handler is added to an {@link EventsManagerImpl} running in direct-dispatch mode.
+ * <p></p>
+ * Every (handler, event class) pair gets its own {@link MethodHandle}: the
+ * <code>handleEvent</code> method as implemented by the concrete class of the handler,
+ * with the handler bound as receiver. Calling it needs neither the argument array nor
+ * the access checks of {@link Method#invoke(Object, Object...)}.
+ * <p></p>
+ * Design comments:<ul>
+ * <li> All calls go through the single call site in {@link #call(Event)}, so they are not
+ * inlined into the events manager. Call sites per pair would need classes generated per
+ * pair, and the core targets Java 7 without a bytecode generation library. Typed adapter
+ * classes per handler interface were measured to be slower than the bound handles, since
+ * the events manager then calls a megamorphic adapter which calls a polymorphic handler.
+ * </ul>
+ */
+/*package*/ final class EventHandlerCall {
+
+	private final Class<?> eventClass;
+	private final EventHandler handler;
+	private final MethodHandle target;
+
+	private EventHandlerCall(final Class<?> eventClass, final EventHandler handler, final MethodHandle target) {
+		this.eventClass = eventClass;
+		this.handler = handler;
+		this.target = target;
+	}
+
+	/**
+	 * @param method the <code>handleEvent</code> method found for the event class; only used if the
+	 * concrete class of the handler does not expose its own implementation of it
+	 */
+	/*package*/ static EventHandlerCall create(final Class<?> eventClass, final EventHandler handler, final Method method) {
+		Method implementation = findImplementation(eventClass, handler, method);
+		try {
+			if (!implementation.isAccessible()) {
+				implementation.setAccessible(true);
+			}
+			MethodHandle target = MethodHandles.lookup().unreflect(implementation).bindTo(handler)
+					.asType(MethodType.methodType(void.class, Event.class));
+			return new EventHandlerCall(eventClass, handler, target);
+		} catch (IllegalAccessException | SecurityException e) {
+			throw new RuntimeException("problem binding EventHandler " + handler.getClass().getCanonicalName() + " for event-class " + eventClass.getCanonicalName(), e);
+		}
+	}
+
+	private static Method findImplementation(final Class<?> eventClass, final EventHandler handler, final Method method) {
+		for (Class<?> klass = handler.getClass(); klass != Object.class; klass = klass.getSuperclass()) {
+			try {
+				return klass.getDeclaredMethod(method.getName(), eventClass);
+			} catch (NoSuchMethodException e) {
+				// not implemented in this class, look at the superclass
+			}
+		}
+		return method;
+	}
+
+	/*package*/ void call(final Event event) {
+		try {
+			this.target.invokeExact(event);
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new RuntimeException("problem invoking EventHandler " + this.handler.getClass().getCanonicalName() + " for event-class " + this.eventClass.getCanonicalName(), e);
+		}
+	}
+
+}
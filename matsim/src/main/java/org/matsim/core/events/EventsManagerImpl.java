@@ -77,6 +77,12 @@ import org.matsim.core.events.handler.EventHandler;
  * up execution!</li>
  * </ol>
  *
+ * When created with <code>directDispatch</code> enabled, every (event class, handler)
+ * pair is bound once into an {@link EventHandlerCall} when the handler is added.
+ * Events are then passed to the handlers without reflection and without
+ * synchronizing on the handler, which is only safe as long as events are
+ * processed by one thread at a time.
+ *
  * @author dstrippgen
  * @author mrieser
  */
@@ -88,13 +94,20 @@ public class EventsManagerImpl implements EventsManager {
 
 		protected Class<?> eventklass;
 		protected ArrayList<EventHandler> handlerList = new ArrayList<EventHandler>(5);
+		protected ArrayList<EventHandlerCall> callList = new ArrayList<EventHandlerCall>(5);
 		protected Method method;
 		protected HandlerData(final Class<?> eventklass, final Method method) {
 			this.eventklass = eventklass;
 			this.method = method;
 		}
 		protected void removeHandler(final EventHandler handler) {
-			this.handlerList.remove(handler);
+			int index = this.handlerList.indexOf(handler);
+			if (index >= 0) {
+				this.handlerList.remove(index);
+				if (!this.callList.isEmpty()) {
+					this.callList.remove(index);
+				}
+			}
 		}
 	}
 
@@ -102,14 +115,18 @@ public class EventsManagerImpl implements EventsManager {
 		protected final Class<?> eventClass;
 		protected final EventHandler eventHandler;
 		protected final Method method;
+		protected final EventHandlerCall call;
 
-		protected HandlerInfo(final Class<?> eventClass, final EventHandler eventHandler, final Method method) {
+		protected HandlerInfo(final Class<?> eventClass, final EventHandler eventHandler, final Method method, final EventHandlerCall call) {
 			this.eventClass = eventClass;
 			this.eventHandler = eventHandler;
 			this.method = method;
+			this.call = call;
 		}
 	}
 
+	private final boolean directDispatch;
+
 	private final List<HandlerData> handlerData = new ArrayList<HandlerData>();
 
 	private final Map<Class<?>, HandlerInfo[]> cacheHandlers = new ConcurrentHashMap<Class<?>, HandlerInfo[]>(15);
@@ -117,6 +134,19 @@ public class EventsManagerImpl implements EventsManager {
 	private long counter = 0;
 	private long nextCounterMsg = 1;
 
+	public EventsManagerImpl() {
+		this(false);
+	}
+
+	/**
+	 * @param directDispatch if <code>true</code>, handlers are called through method handles
+	 * bound when they are added, without reflection and without synchronizing on the handler.
+	 * Only use this if events are passed to this instance by a single thread at a time.
+	 */
+	public EventsManagerImpl(final boolean directDispatch) {
+		this.directDispatch = directDispatch;
+	}
+
 	private HandlerData findHandler(final Class<?> evklass) {
 		for (HandlerData handler : this.handlerData) {
 			if (handler.eventklass == evklass) {
@@ -211,12 +241,21 @@ public class EventsManagerImpl implements EventsManager {
 						this.handlerData.add(dat);
 					}
 					dat.handlerList.add(handler);
+					if (this.directDispatch) {
+						dat.callList.add(EventHandlerCall.create(eventClass, handler, method));
+					}
 				}
 			}
 		}
 	}
 
 	private void computeEvent(final Event event) {
+		if (this.directDispatch) {
+			for (HandlerInfo info : getHandlersForClass(event.getClass())) {
+				info.call.call(event);
+			}
+			return;
+		}
 		for (HandlerInfo info : getHandlersForClass(event.getClass())) {
 			synchronized(info.eventHandler) {
 				if (callHandlerFast(info.eventClass, event, info.eventHandler)) {
@@ -247,9 +286,7 @@ public class EventsManagerImpl implements EventsManager {
 		while (klass != Object.class) {
 			HandlerData dat = findHandler(klass);
 			if (dat != null) {
-				for(EventHandler handler: dat.handlerList) {
-					info.add(new HandlerInfo(klass, handler, dat.method));
-				}
+				addHandlerInfos(info, klass, dat);
 			}
 			klass = klass.getSuperclass();
 		}
@@ -257,9 +294,7 @@ public class EventsManagerImpl implements EventsManager {
 		for (Class<?> intfc : getAllInterfaces(eventClass)) {
 			HandlerData dat = findHandler(intfc);
 			if (dat != null) {
-				for(EventHandler handler: dat.handlerList) {
-					info.add(new HandlerInfo(intfc, handler, dat.method));
-				}
+				addHandlerInfos(info, intfc, dat);
 			}
 		}
 
@@ -268,6 +303,13 @@ public class EventsManagerImpl implements EventsManager {
 		return cache;
 	}
 
+	private void addHandlerInfos(final List<HandlerInfo> info, final Class<?> klass, final HandlerData dat) {
+		for (int i = 0; i < dat.handlerList.size(); i++) {
+			EventHandlerCall call = this.directDispatch ? dat.callList.get(i) : null;
+			info.add(new HandlerInfo(klass, dat.handlerList.get(i), dat.method, call));
+		}
+	}
+
 	private Set<Class<?>> getAllInterfaces(final Class<?> klass) {
 		Set<Class<?>> intfs = new HashSet<Class<?>>();
 		for (Class<?> intf : klass.getInterfaces()) {
@@ -0,0 +1,373 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventsReaderBinary.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.api.internal.MatsimReader;
+import org.matsim.core.events.EventsReaderXMLv1.CustomEventMapper;
+import org.matsim.core.events.algorithms.EventWriterBinary;
+import org.matsim.core.events.handler.EventHandler;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.MatsimBinaryFormat;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Reads events written by {@link EventWriterBinary}.
+ * <p>
+ * The blocks of events are decompressed and decoded by {@link #setNumberOfThreads(int) several threads}, while the
+ * events are passed to the events manager in the order of the file. The events are created the same way as by
+ * {@link EventsReaderXMLv1}, so both readers produce the same events. With {@link #readFile(String, double, double)},
+ * only the blocks containing events of a given time span are read.
+ */
+public final class EventsReaderBinary implements MatsimReader {
+
+	private static final Logger log = Logger.getLogger(EventsReaderBinary.class);
+
+	private final EventsManager events;
+	private final Map<String, CustomEventMapper> customEventMappers = new HashMap<>();
+	private int numberOfThreads;
+
+	/**
+	 * Creates a reader using the default number of threads of the global config group.
+	 */
+	public EventsReaderBinary(final EventsManager events) {
+		this.events = events;
+		this.numberOfThreads = new GlobalConfigGroup().getNumberOfThreads();
+	}
+
+	public EventsReaderBinary(final EventsManager events, final Config config) {
+		this.events = events;
+		this.numberOfThreads = Math.max(1, config.global().getNumberOfThreads());
+	}
+
+	public void addCustomEventMapper(final String eventType, final CustomEventMapper cem) {
+		this.customEventMappers.put(eventType, cem);
+	}
+
+	/**
+	 * Sets the number of threads decoding blocks of events. Defaults to the number of threads in the global config
+	 * group.
+	 */
+	public void setNumberOfThreads(final int numberOfThreads) {
+		this.numberOfThreads = Math.max(1, numberOfThreads);
+	}
+
+	@Override
+	public void readFile(final String filename) throws UncheckedIOException {
+		log.info("starting to read binary events from file " + filename + " ...");
+		try (InputStream stream = IOUtils.getInputStream(filename)) {
+			parse(stream);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Reads the events from the stream, without closing it.
+	 */
+	public void parse(final InputStream stream) throws UncheckedIOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 1 << 16));
+		try {
+			readHeader(in);
+			readBlocks(new BlockSource(in), Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Reads the events with <code>fromTime &lt;= time &lt; toTime</code>. The index of the file is used to
+	 * read only the blocks that can contain such events. This needs random access, so the file must not be
+	 * compressed as a whole.
+	 */
+	public void readFile(final String filename, final double fromTime, final double toTime) throws UncheckedIOException {
+		log.info("starting to read binary events between " + fromTime + " and " + toTime + " from file " + filename + " ...");
+		try (RandomAccessFile file = new RandomAccessFile(filename, "r")) {
+			readHeader(file);
+			file.seek(file.length() - 8);
+			file.seek(file.readLong());
+			if (file.readInt() != EventWriterBinary.END_OF_BLOCKS) {
+				throw new IOException("The index of the binary events file is corrupt.");
+			}
+			int blockCount = file.readInt();
+			List<Long> offsets = new ArrayList<>();
+			for (int b = 0; b < blockCount; b++) {
+				long offset = file.readLong();
+				double minTime = file.readDouble();
+				double maxTime = file.readDouble();
+				if (maxTime >= fromTime && minTime < toTime) {
+					offsets.add(offset);
+				}
+			}
+			readBlocks(new BlockSource(file, offsets), fromTime, toTime);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static void readHeader(final DataInput in) throws IOException {
+		int version = MatsimBinaryFormat.readHeader(in, MatsimBinaryFormat.EVENTS);
+		if (version > EventWriterBinary.VERSION) {
+			throw new IOException("Binary events format version " + version + " is not supported by this reader, "
+					+ "which only knows versions up to " + EventWriterBinary.VERSION + ".");
+		}
+	}
+
+	private void readBlocks(final BlockSource source, final double fromTime, final double toTime) throws IOException {
+		if (this.numberOfThreads == 1) {
+			Block block;
+			while ((block = source.next()) != null) {
+				processEvents(decodeEvents(block, fromTime, toTime));
+			}
+			return;
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(this.numberOfThreads);
+		try {
+			// bounded, so reading the file does not run away from processing the events
+			Deque<Future<List<Event>>> pending = new ArrayDeque<>();
+			Block block;
+			while ((block = source.next()) != null) {
+				final Block toDecode = block;
+				pending.add(executor.submit(new Callable<List<Event>>() {
+					@Override
+					public List<Event> call() throws IOException {
+						return decodeEvents(toDecode, fromTime, toTime);
+					}
+				}));
+				if (pending.size() > 2 * this.numberOfThreads) {
+					processEvents(pending.poll());
+				}
+			}
+			while (!pending.isEmpty()) {
+				processEvents(pending.poll());
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private void processEvents(final Future<List<Event>> decoded) throws IOException {
+		try {
+			processEvents(decoded.get());
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new RuntimeException(cause);
+		}
+	}
+
+	private void processEvents(final List<Event> decoded) {
+		for (Event event : decoded) {
+			this.events.processEvent(event);
+		}
+	}
+
+	/**
+	 * Creates the events of a block by passing their attributes to an {@link EventsReaderXMLv1}, which collects them
+	 * instead of passing them on to the events manager.
+	 */
+	private List<Event> decodeEvents(final Block block, final double fromTime, final double toTime) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(MatsimBinaryFormat.inflate(block.compressed, block.rawLength)));
+		String[] dictionary = MatsimBinaryFormat.readDictionary(in);
+		int count = block.eventCount;
+		double[] times = new double[count];
+		for (int i = 0; i < count; i++) {
+			times[i] = in.readDouble();
+		}
+		int[] types = new int[count];
+		for (int i = 0; i < count; i++) {
+			types[i] = MatsimBinaryFormat.readVarInt(in);
+		}
+		int[] attributeCounts = new int[count];
+		int attributeCount = 0;
+		for (int i = 0; i < count; i++) {
+			attributeCounts[i] = MatsimBinaryFormat.readVarInt(in);
+			attributeCount += attributeCounts[i];
+		}
+		int[] names = new int[attributeCount];
+		for (int i = 0; i < attributeCount; i++) {
+			names[i] = MatsimBinaryFormat.readVarInt(in);
+		}
+		int[] values = new int[attributeCount];
+		for (int i = 0; i < attributeCount; i++) {
+			values[i] = MatsimBinaryFormat.readVarInt(in);
+		}
+
+		EventCollector collector = new EventCollector(count);
+		EventsReaderXMLv1 eventFactory = new EventsReaderXMLv1(collector);
+		for (Map.Entry<String, CustomEventMapper> e : this.customEventMappers.entrySet()) {
+			eventFactory.addCustomEventMapper(e.getKey(), e.getValue());
+		}
+		Stack<String> context = new Stack<>();
+		AttributesImpl atts = new AttributesImpl();
+		int attribute = 0;
+		for (int i = 0; i < count; i++) {
+			if (times[i] < fromTime || times[i] >= toTime) {
+				attribute += attributeCounts[i];
+				continue;
+			}
+			atts.clear();
+			atts.addAttribute("", Event.ATTRIBUTE_TIME, Event.ATTRIBUTE_TIME, "CDATA", Double.toString(times[i]));
+			atts.addAttribute("", Event.ATTRIBUTE_TYPE, Event.ATTRIBUTE_TYPE, "CDATA", dictionary[types[i]]);
+			for (int a = 0; a < attributeCounts[i]; a++, attribute++) {
+				String name = dictionary[names[attribute]];
+				atts.addAttribute("", name, name, "CDATA", dictionary[values[attribute]]);
+			}
+			eventFactory.startTag(EventsReaderXMLv1.EVENT, atts, context);
+		}
+		return collector.events;
+	}
+
+	/**
+	 * A block as it was read from the file, not yet decompressed.
+	 */
+	private static final class Block {
+		final int eventCount;
+		final int rawLength;
+		final byte[] compressed;
+
+		Block(final int eventCount, final int rawLength, final byte[] compressed) {
+			this.eventCount = eventCount;
+			this.rawLength = rawLength;
+			this.compressed = compressed;
+		}
+
+		/**
+		 * @return <code>null</code> at the end of the blocks
+		 */
+		static Block read(final DataInput in) throws IOException {
+			int eventCount = in.readInt();
+			if (eventCount == EventWriterBinary.END_OF_BLOCKS) {
+				return null;
+			}
+			in.readDouble(); // smallest time, only needed in the index
+			in.readDouble(); // largest time
+			int rawLength = in.readInt();
+			byte[] compressed = new byte[in.readInt()];
+			in.readFully(compressed);
+			return new Block(eventCount, rawLength, compressed);
+		}
+	}
+
+	/**
+	 * Reads either all blocks in the order of the file, or the blocks at the given offsets.
+	 */
+	private static final class BlockSource {
+		private final DataInput in;
+		private final RandomAccessFile file;
+		private final List<Long> offsets;
+		private int next = 0;
+
+		BlockSource(final DataInput in) {
+			this.in = in;
+			this.file = null;
+			this.offsets = null;
+		}
+
+		BlockSource(final RandomAccessFile file, final List<Long> offsets) {
+			this.in = file;
+			this.file = file;
+			this.offsets = offsets;
+		}
+
+		Block next() throws IOException {
+			if (this.offsets != null) {
+				if (this.next == this.offsets.size()) {
+					return null;
+				}
+				this.file.seek(this.offsets.get(this.next++));
+			}
+			return Block.read(this.in);
+		}
+	}
+
+	private static final class EventCollector implements EventsManager {
+		final List<Event> events;
+
+		EventCollector(final int expectedEvents) {
+			this.events = new ArrayList<>(expectedEvents);
+		}
+
+		@Override
+		public void processEvent(final Event event) {
+			this.events.add(event);
+		}
+
+		@Override
+		public void addHandler(final EventHandler handler) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void removeHandler(final EventHandler handler) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void resetHandlers(final int iteration) {
+		}
+
+		@Override
+		public void initProcessing() {
+		}
+
+		@Override
+		public void afterSimStep(final double time) {
+		}
+
+		@Override
+		public void finishProcessing() {
+		}
+	}
+
+}
@@ -27,13 +27,16 @@ import java.util.Stack;
 import org.apache.log4j.Logger;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.api.internal.MatsimReader;
+import org.matsim.core.config.Config;
+import org.matsim.core.utils.io.MatsimBinaryFormat;
 import org.matsim.core.utils.io.MatsimXmlParser;
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
 
 /**
  * A reader for events-files of MATSim. This reader recognizes the format of the events-file and uses
- * the correct reader for the specific events-version, without manual setting.
+ * the correct reader for the specific events-version, without manual setting. Files ending with
+ * {@value MatsimBinaryFormat#FILE_SUFFIX} are read with {@link EventsReaderBinary}.
  *
  * @author mrieser
  */
@@ -41,6 +44,7 @@ public class MatsimEventsReader implements MatsimReader {
 
 	private final static Logger log = Logger.getLogger(MatsimEventsReader.class);
 	private final EventsManager events;
+	private final Config config;
 
 	/**
 	 * Creates a new reader for MATSim events files.
@@ -48,7 +52,19 @@ public class MatsimEventsReader implements MatsimReader {
 	 * @param events The Events-object that handles the events.
 	 */
 	public MatsimEventsReader(final EventsManager events) {
+		this(events, null);
+	}
+
+	/**
+	 * Creates a new reader for MATSim events files, which decodes binary events files with the number of threads in
+	 * the global config group.
+	 *
+	 * @param events The Events-object that handles the events.
+	 * @param config The configuration, or <code>null</code> for the defaults.
+	 */
+	public MatsimEventsReader(final EventsManager events, final Config config) {
 		this.events = events;
+		this.config = config;
 	}
 
 	/**
@@ -61,6 +77,9 @@ public class MatsimEventsReader implements MatsimReader {
 		String lcFilename = filename.toLowerCase(Locale.ROOT);
 		if (lcFilename.endsWith(".xml") || lcFilename.endsWith(".xml.gz")) {
 			new XmlEventsReader(this.events).readFile(filename);
+		} else if (lcFilename.endsWith(MatsimBinaryFormat.FILE_SUFFIX) || lcFilename.endsWith(MatsimBinaryFormat.FILE_SUFFIX + ".gz")) {
+			EventsReaderBinary reader = this.config == null ? new EventsReaderBinary(this.events) : new EventsReaderBinary(this.events, this.config);
+			reader.readFile(filename);
 		} else if (lcFilename.endsWith(".txt") || lcFilename.endsWith(".txt.gz")) {
 			throw new RuntimeException("text events are no longer supported. Please use MATSim 0.6.1 or earlier to read text events.");
 		} else {
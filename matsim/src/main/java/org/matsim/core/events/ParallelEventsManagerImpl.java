@@ -63,6 +63,7 @@ public class ParallelEventsManagerImpl implements EventsManager {
 
 	private boolean parallelMode = true;
 	private int numberOfThreads;
+	private boolean directEventDispatch = false;
 	private EventsManagerImpl[] events = null;
 	private ProcessEventThread[] eventsProcessThread = null;
 	private Thread[] threads = null;
@@ -86,6 +87,7 @@ public class ParallelEventsManagerImpl implements EventsManager {
 		if (config.parallelEventHandling().getEstimatedNumberOfEvents() != null) {
 			preInputBufferMaxLength = (int) (config.parallelEventHandling().getEstimatedNumberOfEvents() / 10);
 		}
+		this.directEventDispatch = config.parallelEventHandling().isDirectEventDispatch();
 		init(config.parallelEventHandling().getNumberOfThreads());
 	}
 
@@ -165,7 +167,7 @@ public class ParallelEventsManagerImpl implements EventsManager {
 		this.threads = new Thread[numberOfThreads];
 		// the additional 1 is for the simulation barrier
 		for (int i = 0; i < numberOfThreads; i++) {
-			events[i] = (EventsManagerImpl) EventsUtils.createEventsManager();
+			events[i] = new EventsManagerImpl(this.directEventDispatch);
 		}
 	}
 
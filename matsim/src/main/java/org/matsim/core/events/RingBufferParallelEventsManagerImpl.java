@@ -0,0 +1,440 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RingBufferParallelEventsManagerImpl.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.lang.Thread.UncaughtExceptionHandler;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.inject.Inject;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup;
+import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup.WaitStrategy;
+import org.matsim.core.events.handler.EventHandler;
+import org.matsim.core.gbl.Gbl;
+
+/**
+ * An EventsManager that hands events to its handler threads through one
+ * preallocated ring buffer. Producers (usually the threads of the mobsim) claim
+ * a slot by incrementing a shared sequence, write the event into it and publish
+ * the slot by marking it with the round of the sequence. Every handler thread
+ * reads the slots up to the first one not yet published and tracks its own
+ * position in the buffer, so neither side takes a lock to hand over an event.
+ * <p></p>
+ * Like {@link SimStepParallelEventsManagerImpl}, {@link #afterSimStep(double)}
+ * only returns once all events of the time step have been processed, including
+ * events created by event handlers while processing them. Events are seen by
+ * every handler in the order in which they were created.
+ * <p></p>
+ * While waiting, threads spin, yield or park according to the configured
+ * {@link WaitStrategy}.
+ */
+class RingBufferParallelEventsManagerImpl implements EventsManager {
+
+	private final static Logger log = Logger.getLogger(RingBufferParallelEventsManagerImpl.class);
+
+	private final static int SPIN_TRIES = 100;
+	private final static int YIELD_TRIES = 100;
+	private final static long PARK_NANOS = 1000L;
+
+	private final int numOfThreads;
+	private final WaitStrategy waitStrategy;
+	private final Event[] ringBuffer;
+	private final int mask;
+	private final int indexShift;
+	/** per slot, the round (sequence divided by the buffer size) of the last event published in it */
+	private final AtomicIntegerArray publishedRounds;
+
+	private final EventsManagerImpl delegate;
+	private final EventsManagerImpl[] eventsManagers;
+	private int handlerCount = 0;
+
+	/** sequence of the last slot claimed by a producer */
+	private final Sequence claimedSequence = new Sequence();
+	/** lowest sequence which all handler threads have processed, cached by the producers */
+	private volatile long cachedMinProcessedSequence = -1;
+
+	/** events created by event handlers while processing other events */
+	private final Queue<Event> handlerCreatedEvents = new ConcurrentLinkedQueue<>();
+
+	private ProcessEventsRunnable[] runnables;
+	private Thread[] threads;
+	private volatile boolean parallelMode = false;
+	private final AtomicReference<Throwable> hadException = new AtomicReference<>();
+
+	@Inject
+	RingBufferParallelEventsManagerImpl(ParallelEventHandlingConfigGroup config) {
+		this(config.getNumberOfThreads() != null ? config.getNumberOfThreads() : 1, config.getRingBufferSize(),
+				config.getWaitStrategy(), config.isDirectEventDispatch());
+	}
+
+	public RingBufferParallelEventsManagerImpl(int numOfThreads) {
+		this(numOfThreads, ParallelEventHandlingConfigGroup.DEFAULT_RING_BUFFER_SIZE, WaitStrategy.yielding, false);
+	}
+
+	/**
+	 * @param numOfThreads number of event handling threads
+	 * @param ringBufferSize number of events the buffer can hold, rounded up to the next power of two
+	 * @param waitStrategy how threads wait for events or free slots
+	 * @param directEventDispatch see {@link EventsManagerImpl#EventsManagerImpl(boolean)}
+	 */
+	public RingBufferParallelEventsManagerImpl(int numOfThreads, int ringBufferSize, WaitStrategy waitStrategy, boolean directEventDispatch) {
+		if (numOfThreads < 1) {
+			throw new IllegalArgumentException("Number of threads must be at least 1, but is " + numOfThreads);
+		}
+		if (ringBufferSize < 2) {
+			throw new IllegalArgumentException("Ring buffer size must be at least 2, but is " + ringBufferSize);
+		}
+		this.numOfThreads = numOfThreads;
+		this.waitStrategy = waitStrategy;
+
+		int size = Integer.highestOneBit(ringBufferSize);
+		if (size < ringBufferSize) {
+			size <<= 1;
+		}
+		this.ringBuffer = new Event[size];
+		this.mask = size - 1;
+		this.indexShift = Integer.numberOfTrailingZeros(size);
+		this.publishedRounds = new AtomicIntegerArray(size);
+		for (int i = 0; i < size; i++) this.publishedRounds.set(i, -1);
+
+		this.delegate = new EventsManagerImpl(directEventDispatch);
+		this.eventsManagers = new EventsManagerImpl[numOfThreads];
+		for (int i = 0; i < numOfThreads; i++) this.eventsManagers[i] = new EventsManagerImpl(directEventDispatch);
+	}
+
+	@Override
+	public void processEvent(final Event event) {
+		if (!this.parallelMode) {
+			this.delegate.processEvent(event);
+		} else if (Thread.currentThread() instanceof ProcessEventsThread) {
+			/*
+			 * Created by an event handler. Handler threads must not write to the buffer, so
+			 * the producer publishes these events before the current time step ends.
+			 */
+			this.handlerCreatedEvents.add(event);
+		} else if (this.hadException.get() == null) {
+			write(event);
+		}
+	}
+
+	@Override
+	public void addHandler(final EventHandler handler) {
+		this.delegate.addHandler(handler);
+
+		this.eventsManagers[this.handlerCount % this.numOfThreads].addHandler(handler);
+		this.handlerCount++;
+	}
+
+	@Override
+	public void removeHandler(final EventHandler handler) {
+		this.delegate.removeHandler(handler);
+
+		for (EventsManager eventsManager : this.eventsManagers) eventsManager.removeHandler(handler);
+	}
+
+	@Override
+	public void resetHandlers(int iteration) {
+		this.delegate.resetHandlers(iteration);
+	}
+
+	@Override
+	public void initProcessing() {
+		this.delegate.initProcessing();
+		for (EventsManager eventsManager : this.eventsManagers) eventsManager.initProcessing();
+
+		this.hadException.set(null);
+		this.handlerCreatedEvents.clear();
+		long start = this.claimedSequence.get();
+		this.cachedMinProcessedSequence = start;
+
+		ExceptionHandler uncaughtExceptionHandler = new ExceptionHandler(this.hadException);
+		this.runnables = new ProcessEventsRunnable[this.numOfThreads];
+		this.threads = new Thread[this.numOfThreads];
+		for (int i = 0; i < this.numOfThreads; i++) {
+			this.runnables[i] = new ProcessEventsRunnable(this.eventsManagers[i], start);
+			this.threads[i] = new ProcessEventsThread(this.runnables[i], "RingBufferEvents-" + i);
+			this.threads[i].setDaemon(true);
+			this.threads[i].setUncaughtExceptionHandler(uncaughtExceptionHandler);
+			this.threads[i].start();
+		}
+
+		this.parallelMode = true;
+	}
+
+	/**
+	 * Must only be called once all producers have finished the time step, as the mobsim does.
+	 */
+	@Override
+	public void afterSimStep(double time) {
+		if (this.hadException.get() != null) {
+			return;
+		}
+		writeHandlerCreatedEventsAndWaitUntilProcessed();
+	}
+
+	@Override
+	public void finishProcessing() {
+		if (this.hadException.get() == null) {
+			writeHandlerCreatedEventsAndWaitUntilProcessed();
+			write(new LastEventOfIteration(Double.POSITIVE_INFINITY));
+		}
+		for (ProcessEventsRunnable runnable : this.runnables) {
+			runnable.stop = true;
+		}
+		try {
+			for (Thread thread : this.threads) {
+				thread.join();
+			}
+		} catch (InterruptedException e) {
+			this.hadException.compareAndSet(null, e);
+		}
+
+		// do not keep the events of this iteration alive
+		Arrays.fill(this.ringBuffer, null);
+
+		this.delegate.finishProcessing();
+		for (EventsManager eventsManager : this.eventsManagers) eventsManager.finishProcessing();
+
+		/*
+		 * After the simulation Events are processed in the Main Thread.
+		 */
+		this.parallelMode = false;
+
+		Throwable throwable = this.hadException.get();
+		if (throwable != null) {
+			throw new RuntimeException("Exception while processing events. Cannot guarantee that all events have been fully processed.", throwable);
+		}
+	}
+
+	/**
+	 * Waits until the handler threads have processed all claimed events. Events created by
+	 * handlers in the meantime are written as well, until none are left.
+	 */
+	private void writeHandlerCreatedEventsAndWaitUntilProcessed() {
+		do {
+			Event event;
+			while ((event = this.handlerCreatedEvents.poll()) != null) {
+				write(event);
+			}
+			if (!waitForProcessedSequence(this.claimedSequence.get())) {
+				return;
+			}
+		} while (!this.handlerCreatedEvents.isEmpty());
+	}
+
+	private void write(final Event event) {
+		long sequence = this.claimedSequence.incrementAndGet();
+		long wrapPoint = sequence - this.ringBuffer.length;
+		if (wrapPoint > this.cachedMinProcessedSequence) {
+			// the slot may still be read by a handler thread, so wait for it
+			if (!waitForProcessedSequence(wrapPoint)) {
+				return;
+			}
+		}
+		int index = (int) sequence & this.mask;
+		this.ringBuffer[index] = event;
+		// the ordered write of the round also makes the event visible to the handler threads
+		this.publishedRounds.lazySet(index, (int) (sequence >>> this.indexShift));
+	}
+
+	private boolean isPublished(final long sequence) {
+		return this.publishedRounds.get((int) sequence & this.mask) == (int) (sequence >>> this.indexShift);
+	}
+
+	/**
+	 * @return the highest sequence up to which all slots from <code>from</code> on are published,
+	 * or <code>from - 1</code> if the slot at <code>from</code> is not yet published
+	 */
+	private long getHighestPublishedSequence(final long from) {
+		long claimed = this.claimedSequence.get();
+		for (long sequence = from; sequence <= claimed; sequence++) {
+			if (!isPublished(sequence)) {
+				return sequence - 1;
+			}
+		}
+		return claimed;
+	}
+
+	/**
+	 * @return <code>false</code> if a handler thread crashed while waiting
+	 */
+	private boolean waitForProcessedSequence(final long sequence) {
+		int counter = 0;
+		long minProcessed;
+		while ((minProcessed = getMinProcessedSequence()) < sequence) {
+			if (this.hadException.get() != null) {
+				return false;
+			}
+			counter = idle(counter);
+		}
+		if (minProcessed > this.cachedMinProcessedSequence) {
+			// may race with other producers, which at worst leaves a lower value and costs another look at the handler threads
+			this.cachedMinProcessedSequence = minProcessed;
+		}
+		return true;
+	}
+
+	private long getMinProcessedSequence() {
+		long min = Long.MAX_VALUE;
+		for (ProcessEventsRunnable runnable : this.runnables) {
+			min = Math.min(min, runnable.processedSequence.get());
+		}
+		return min;
+	}
+
+	private int idle(final int counter) {
+		switch (this.waitStrategy) {
+		case busySpin:
+			return counter;
+		case yielding:
+			if (counter < SPIN_TRIES) {
+				return counter + 1;
+			}
+			Thread.yield();
+			return counter;
+		case parking:
+			if (counter < SPIN_TRIES) {
+				return counter + 1;
+			} else if (counter < SPIN_TRIES + YIELD_TRIES) {
+				Thread.yield();
+				return counter + 1;
+			}
+			LockSupport.parkNanos(PARK_NANOS);
+			return counter;
+		default:
+			throw new IllegalStateException("unknown wait strategy: " + this.waitStrategy);
+		}
+	}
+
+	/**
+	 * A sequence number which is padded to its own cache line, so the producer and the
+	 * handler threads do not invalidate each other's cache lines when updating theirs.
+	 */
+	private static class Sequence {
+		private static final AtomicLongFieldUpdater<Sequence> UPDATER = AtomicLongFieldUpdater.newUpdater(Sequence.class, "value");
+		@SuppressWarnings("unused")
+		private long p1, p2, p3, p4, p5, p6, p7;
+		private volatile long value = -1;
+		@SuppressWarnings("unused")
+		private long p9, p10, p11, p12, p13, p14, p15;
+
+		long get() {
+			return this.value;
+		}
+
+		void set(final long value) {
+			this.value = value;
+		}
+
+		void lazySet(final long value) {
+			UPDATER.lazySet(this, value);
+		}
+
+		long incrementAndGet() {
+			return UPDATER.incrementAndGet(this);
+		}
+	}
+
+	private static class ProcessEventsThread extends Thread {
+		ProcessEventsThread(final Runnable runnable, final String name) {
+			super(runnable, name);
+		}
+	}
+
+	private class ProcessEventsRunnable implements Runnable {
+
+		private final EventsManager eventsManager;
+		/*package*/ final Sequence processedSequence = new Sequence();
+		/*package*/ volatile boolean stop = false;
+		private double lastEventTime = Double.NEGATIVE_INFINITY;
+
+		ProcessEventsRunnable(final EventsManager eventsManager, final long startSequence) {
+			this.eventsManager = eventsManager;
+			this.processedSequence.set(startSequence);
+		}
+
+		@Override
+		public void run() {
+			final Event[] buffer = RingBufferParallelEventsManagerImpl.this.ringBuffer;
+			final int mask = RingBufferParallelEventsManagerImpl.this.mask;
+			long next = this.processedSequence.get() + 1;
+			int counter = 0;
+			while (true) {
+				long available = getHighestPublishedSequence(next);
+				if (available < next) {
+					if (this.stop) {
+						break;
+					}
+					counter = idle(counter);
+					continue;
+				}
+				counter = 0;
+				for (long sequence = next; sequence <= available; sequence++) {
+					Event event = buffer[(int) sequence & mask];
+					if (event instanceof LastEventOfIteration) {
+						this.processedSequence.set(sequence);
+						Gbl.printCurrentThreadCpuTime();
+						return;
+					}
+
+					/*
+					 * Check whether the events are ordered chronologically.
+					 */
+					if (event.getTime() < this.lastEventTime) {
+						throw new RuntimeException("Events in the ring buffer are not ordered chronologically. " +
+								"This should never happen. Is the RingBufferParallelEventsManagerImpl registered " +
+								"as a MobsimAfterSimStepListener?");
+					}
+					this.lastEventTime = event.getTime();
+					this.eventsManager.processEvent(event);
+				}
+				this.processedSequence.lazySet(available);
+				next = available + 1;
+			}
+		}
+	}
+
+	private static class ExceptionHandler implements UncaughtExceptionHandler {
+
+		private final AtomicReference<Throwable> hadException;
+
+		public ExceptionHandler(final AtomicReference<Throwable> hadException) {
+			this.hadException = hadException;
+		}
+
+		@Override
+		public void uncaughtException(Thread t, Throwable e) {
+			this.hadException.compareAndSet(null, e);
+			log.error("Thread " + t.getName() + " died with exception while handling events.", e);
+		}
+
+	}
+
+}
@@ -52,6 +52,7 @@ class SimStepParallelEventsManagerImpl implements EventsManager {
 	private final static Logger log = Logger.getLogger(SimStepParallelEventsManagerImpl.class);
 	
 	private final int numOfThreads;
+	private final boolean directEventDispatch;
 	private CyclicBarrier simStepEndBarrier;
 	private CyclicBarrier iterationEndBarrier;
     private ProcessEventsRunnable[] runnables;
@@ -67,7 +68,7 @@ class SimStepParallelEventsManagerImpl implements EventsManager {
 
 	@Inject
 	SimStepParallelEventsManagerImpl(ParallelEventHandlingConfigGroup config) {
-		this(config.getNumberOfThreads() != null ? config.getNumberOfThreads() : 1);
+		this(config.getNumberOfThreads() != null ? config.getNumberOfThreads() : 1, config.isDirectEventDispatch());
 	}
 
     public SimStepParallelEventsManagerImpl() {
@@ -75,7 +76,17 @@ class SimStepParallelEventsManagerImpl implements EventsManager {
 	}
 	
 	public SimStepParallelEventsManagerImpl(int numOfThreads) {
+		this(numOfThreads, false);
+	}
+	
+	/**
+	 * @param directEventDispatch see {@link EventsManagerImpl#EventsManagerImpl(boolean)}. Each events
+	 * manager created here is only ever fed by one thread, so this is safe as long as handlers are
+	 * not added to other events managers as well.
+	 */
+	public SimStepParallelEventsManagerImpl(int numOfThreads, boolean directEventDispatch) {
 		this.numOfThreads = numOfThreads;
+		this.directEventDispatch = directEventDispatch;
 		init();
 	}
 	
@@ -85,10 +96,10 @@ class SimStepParallelEventsManagerImpl implements EventsManager {
 		this.simStepEndBarrier = new CyclicBarrier(this.numOfThreads + 1);
 		this.iterationEndBarrier = new CyclicBarrier(this.numOfThreads + 1);
 		
-		this.delegate = new EventsManagerImpl();
+		this.delegate = new EventsManagerImpl(this.directEventDispatch);
 
 		this.eventsManagers = new EventsManagerImpl[this.numOfThreads];
-		for (int i = 0; i < numOfThreads; i++) this.eventsManagers[i] = new EventsManagerImpl();
+		for (int i = 0; i < numOfThreads; i++) this.eventsManagers[i] = new EventsManagerImpl(this.directEventDispatch);
 	}
 
 	@Override
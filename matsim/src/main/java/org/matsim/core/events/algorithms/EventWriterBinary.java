@@ -0,0 +1,315 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventWriterBinary.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.algorithms;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.MatsimBinaryFormat;
+import org.matsim.core.utils.io.UncheckedIOException;
+
+/**
+ * Writes events in MATSim's binary events format, to be read with {@link org.matsim.core.events.EventsReaderBinary}
+ * or {@link org.matsim.core.events.MatsimEventsReader}.
+ * <p>
+ * Layout of a file, after the {@link MatsimBinaryFormat} header:
+ * <ul>
+ * <li>blocks of up to {@link #EVENTS_PER_BLOCK} events each. All events of a block lie in the same
+ * {@link #BLOCK_DURATION time slice}, unless the events are not written in the order of their time.</li>
+ * <li>the marker {@link #END_OF_BLOCKS}, followed by the index: the number of blocks and, for each block, its file
+ * offset and the smallest and largest time of its events,</li>
+ * <li>the file offset of the end marker, as the last eight bytes of the file.</li>
+ * </ul>
+ * Every block is written as the number of events it contains, the smallest and largest time of its events, its
+ * uncompressed and compressed length, and the deflated data. The data starts with a
+ * {@linkplain MatsimBinaryFormat#readDictionary dictionary} of the strings used in the block (event types, attribute
+ * names and values), followed by the events column by column: the times, the types, the numbers of attributes, and
+ * the names and values of the attributes.
+ * <p>
+ * Blocks are compressed and written by a separate thread, so the thread processing the events only collects them.
+ */
+public final class EventWriterBinary implements EventWriter, BasicEventHandler {
+
+	public static final int VERSION = 1;
+
+	public static final int EVENTS_PER_BLOCK = 10000;
+
+	/** the duration of the time slices the blocks are aligned to, in seconds */
+	public static final double BLOCK_DURATION = 3600.0;
+
+	public static final int END_OF_BLOCKS = -1;
+
+	private static final int MAX_PENDING_BLOCKS = 4;
+
+	private final CountingOutputStream stream;
+	private final DataOutputStream out;
+	private final ExecutorService compressor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(final Runnable r) {
+			Thread thread = new Thread(r, "EventWriterBinary");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+	private final Deque<Future<?>> pending = new ArrayDeque<>();
+
+	// written by the compressing thread only
+	private final List<Long> blockOffsets = new ArrayList<>();
+	private final List<Double> blockMinTimes = new ArrayList<>();
+	private final List<Double> blockMaxTimes = new ArrayList<>();
+
+	private final Map<String, Integer> codes = new HashMap<>();
+	private final List<String> dictionary = new ArrayList<>();
+	private final double[] times = new double[EVENTS_PER_BLOCK];
+	private final int[] types = new int[EVENTS_PER_BLOCK];
+	private final int[] attributeCounts = new int[EVENTS_PER_BLOCK];
+	private int[] names = new int[EVENTS_PER_BLOCK * 4];
+	private int[] values = new int[EVENTS_PER_BLOCK * 4];
+	private int eventCount = 0;
+	private int attributeCount = 0;
+	private double blockSlice = Double.NaN;
+	private double minTime = Double.POSITIVE_INFINITY;
+	private double maxTime = Double.NEGATIVE_INFINITY;
+
+	private boolean closed = false;
+
+	public EventWriterBinary(final String outfilename) {
+		this(IOUtils.getOutputStream(outfilename));
+	}
+
+	/**
+	 * The stream is closed by {@link #closeFile()}.
+	 */
+	public EventWriterBinary(final OutputStream stream) {
+		this.stream = new CountingOutputStream(stream);
+		this.out = new DataOutputStream(this.stream);
+		try {
+			MatsimBinaryFormat.writeHeader(this.out, MatsimBinaryFormat.EVENTS, VERSION);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void reset(final int iteration) {
+	}
+
+	@Override
+	public void handleEvent(final Event event) {
+		double time = event.getTime();
+		double slice = Math.floor(time / BLOCK_DURATION);
+		if (this.eventCount == EVENTS_PER_BLOCK || (this.eventCount > 0 && slice != this.blockSlice)) {
+			submitBlock();
+		}
+		if (this.eventCount == 0) {
+			this.blockSlice = slice;
+		}
+		this.times[this.eventCount] = time;
+		this.minTime = Math.min(this.minTime, time);
+		this.maxTime = Math.max(this.maxTime, time);
+		this.types[this.eventCount] = code(event.getEventType());
+		int count = 0;
+		for (Map.Entry<String, String> e : event.getAttributes().entrySet()) {
+			String name = e.getKey();
+			if (Event.ATTRIBUTE_TIME.equals(name) || Event.ATTRIBUTE_TYPE.equals(name)) {
+				continue;
+			}
+			if (this.attributeCount == this.names.length) {
+				this.names = Arrays.copyOf(this.names, this.names.length * 2);
+				this.values = Arrays.copyOf(this.values, this.values.length * 2);
+			}
+			this.names[this.attributeCount] = code(name);
+			this.values[this.attributeCount] = code(e.getValue());
+			this.attributeCount++;
+			count++;
+		}
+		this.attributeCounts[this.eventCount] = count;
+		this.eventCount++;
+	}
+
+	private int code(final String s) {
+		if (s == null) {
+			return 0;
+		}
+		Integer code = this.codes.get(s);
+		if (code == null) {
+			this.dictionary.add(s);
+			code = this.dictionary.size();
+			this.codes.put(s, code);
+		}
+		return code;
+	}
+
+	/**
+	 * Encodes the collected events and hands the block over to the compressing thread.
+	 */
+	private void submitBlock() {
+		final ByteArrayOutputStream data = new ByteArrayOutputStream(16 * this.dictionary.size() + 12 * this.eventCount + 4 * this.attributeCount);
+		DataOutputStream dataOut = new DataOutputStream(data);
+		try {
+			MatsimBinaryFormat.writeVarInt(dataOut, this.dictionary.size());
+			for (String s : this.dictionary) {
+				MatsimBinaryFormat.writeString(dataOut, s);
+			}
+			for (int i = 0; i < this.eventCount; i++) {
+				dataOut.writeDouble(this.times[i]);
+			}
+			for (int i = 0; i < this.eventCount; i++) {
+				MatsimBinaryFormat.writeVarInt(dataOut, this.types[i]);
+			}
+			for (int i = 0; i < this.eventCount; i++) {
+				MatsimBinaryFormat.writeVarInt(dataOut, this.attributeCounts[i]);
+			}
+			for (int i = 0; i < this.attributeCount; i++) {
+				MatsimBinaryFormat.writeVarInt(dataOut, this.names[i]);
+			}
+			for (int i = 0; i < this.attributeCount; i++) {
+				MatsimBinaryFormat.writeVarInt(dataOut, this.values[i]);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		final int count = this.eventCount;
+		final double min = this.minTime;
+		final double max = this.maxTime;
+
+		this.eventCount = 0;
+		this.attributeCount = 0;
+		this.minTime = Double.POSITIVE_INFINITY;
+		this.maxTime = Double.NEGATIVE_INFINITY;
+		this.dictionary.clear();
+		this.codes.clear();
+
+		if (this.pending.size() == MAX_PENDING_BLOCKS) {
+			waitFor(this.pending.poll());
+		}
+		this.pending.add(this.compressor.submit(new Callable<Void>() {
+			@Override
+			public Void call() throws IOException {
+				writeBlock(count, min, max, data);
+				return null;
+			}
+		}));
+	}
+
+	private void writeBlock(final int count, final double min, final double max, final ByteArrayOutputStream data) throws IOException {
+		byte[] compressed = MatsimBinaryFormat.deflate(data);
+		this.blockOffsets.add(this.stream.count);
+		this.blockMinTimes.add(min);
+		this.blockMaxTimes.add(max);
+		this.out.writeInt(count);
+		this.out.writeDouble(min);
+		this.out.writeDouble(max);
+		this.out.writeInt(data.size());
+		this.out.writeInt(compressed.length);
+		this.out.write(compressed);
+	}
+
+	private static void waitFor(final Future<?> future) {
+		try {
+			future.get();
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw new UncheckedIOException((IOException) cause);
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new RuntimeException(cause);
+		}
+	}
+
+	/**
+	 * Writes the remaining events, the index and the trailer, and closes the file.
+	 */
+	@Override
+	public void closeFile() {
+		if (this.closed) {
+			return;
+		}
+		this.closed = true;
+		try {
+			if (this.eventCount > 0) {
+				submitBlock();
+			}
+			while (!this.pending.isEmpty()) {
+				waitFor(this.pending.poll());
+			}
+			long indexOffset = this.stream.count;
+			this.out.writeInt(END_OF_BLOCKS);
+			this.out.writeInt(this.blockOffsets.size());
+			for (int i = 0; i < this.blockOffsets.size(); i++) {
+				this.out.writeLong(this.blockOffsets.get(i));
+				this.out.writeDouble(this.blockMinTimes.get(i));
+				this.out.writeDouble(this.blockMaxTimes.get(i));
+			}
+			this.out.writeLong(indexOffset);
+			this.out.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			this.compressor.shutdownNow();
+		}
+	}
+
+	private static final class CountingOutputStream extends FilterOutputStream {
+		long count = 0;
+
+		CountingOutputStream(final OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(final int b) throws IOException {
+			this.out.write(b);
+			this.count++;
+		}
+
+		@Override
+		public void write(final byte[] b, final int off, final int len) throws IOException {
+			this.out.write(b, off, len);
+			this.count += len;
+		}
+	}
+
+}
@@ -22,23 +22,38 @@
 
 package org.matsim.core.mobsim;
 
+import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.config.groups.ControlerConfigGroup;
 import org.matsim.core.config.groups.ExternalMobimConfigGroup;
 import org.matsim.core.controler.AbstractModule;
 import org.matsim.core.mobsim.external.ExternalMobsim;
 import org.matsim.core.mobsim.jdeqsim.JDEQSimulation;
+import org.matsim.core.mobsim.pseudo.PseudoSimConfigGroup;
+import org.matsim.core.mobsim.pseudo.PseudoSimModule;
 import org.matsim.core.mobsim.qsim.QSimModule;
 
 public class DefaultMobsimModule extends AbstractModule {
     @Override
     public void install() {
-        if (getConfig().controler().getMobsim().equals(ControlerConfigGroup.MobsimType.qsim.toString())) {
-            install(new QSimModule());
-        } else if (getConfig().controler().getMobsim().equals(ControlerConfigGroup.MobsimType.JDEQSim.toString())) {
-            bindMobsim().to(JDEQSimulation.class);
-        } else if (getConfig().getModule(ExternalMobimConfigGroup.GROUP_NAME) != null &&
-                ((ExternalMobimConfigGroup) getConfig().getModule(ExternalMobimConfigGroup.GROUP_NAME)).getExternalExe() != null) {
-            bindMobsim().to(ExternalMobsim.class);
+        if (getConfig().getModule(PseudoSimConfigGroup.GROUP_NAME) != null &&
+                ConfigUtils.addOrGetModule(getConfig(), PseudoSimConfigGroup.GROUP_NAME, PseudoSimConfigGroup.class).getIterationsPerCycle() > 0) {
+            install(new PseudoSimModule(new ConfiguredMobsimModule()));
+        } else {
+            install(new ConfiguredMobsimModule());
+        }
+    }
+
+    private static class ConfiguredMobsimModule extends AbstractModule {
+        @Override
+        public void install() {
+            if (getConfig().controler().getMobsim().equals(ControlerConfigGroup.MobsimType.qsim.toString())) {
+                install(new QSimModule());
+            } else if (getConfig().controler().getMobsim().equals(ControlerConfigGroup.MobsimType.JDEQSim.toString())) {
+                bindMobsim().to(JDEQSimulation.class);
+            } else if (getConfig().getModule(ExternalMobimConfigGroup.GROUP_NAME) != null &&
+                    ((ExternalMobimConfigGroup) getConfig().getModule(ExternalMobimConfigGroup.GROUP_NAME)).getExternalExe() != null) {
+                bindMobsim().to(ExternalMobsim.class);
+            }
         }
     }
 }
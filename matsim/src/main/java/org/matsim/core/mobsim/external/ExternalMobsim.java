@@ -210,7 +210,7 @@ public class ExternalMobsim implements Mobsim {
 	//	as classes inheriting from this class may throw exceptions in their implementation of this method. */
 	protected void readEvents(final String iterationEventsFile) throws FileNotFoundException, IOException {
 		log.info("reading events from external mobsim");
-		new MatsimEventsReader(this.events).readFile(iterationEventsFile);
+		new MatsimEventsReader(this.events, this.scenario.getConfig()).readFile(iterationEventsFile);
 	}
 
 	public Integer getIterationNumber() {
@@ -0,0 +1,44 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * HasNextEventTime.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.framework;
+
+/**
+ * Implemented by mobsim engines and by mobsim listeners which are called in every time step
+ * ({@link org.matsim.core.mobsim.framework.listeners.MobsimBeforeSimStepListener},
+ * {@link org.matsim.core.mobsim.framework.listeners.MobsimAfterSimStepListener}) if they can
+ * tell when they have something to do next.
+ * <p></p>
+ * If all of them implement this interface, the QSim may skip the time steps in between,
+ * see {@link org.matsim.core.config.groups.QSimConfigGroup#isSkippingInactiveTimeSteps()}.
+ * Engines or listeners which do not implement it are called in every time step.
+ */
+public interface HasNextEventTime {
+
+	/**
+	 * Called after the time step <code>now</code> was completely simulated.
+	 *
+	 * @return the earliest time after <code>now</code> at which this needs to be called again,
+	 * or {@link Double#POSITIVE_INFINITY} if nothing is scheduled. Returning any time up to
+	 * <code>now</code> means "in the next time step". Times between two time steps are rounded up.
+	 */
+	public double getNextEventTime(double now);
+
+}
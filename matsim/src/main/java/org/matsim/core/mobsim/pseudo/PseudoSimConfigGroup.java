@@ -0,0 +1,76 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PseudoSimConfigGroup.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.pseudo;
+
+import java.util.Map;
+
+import org.matsim.core.config.ReflectiveConfigGroup;
+
+/**
+ * Configures in which iterations the {@link PseudoSimulation} replaces the configured mobsim.
+ */
+public class PseudoSimConfigGroup extends ReflectiveConfigGroup {
+
+	public static final String GROUP_NAME = "pseudoSim";
+
+	private static final String ITERATIONS_PER_CYCLE = "iterationsPerCycle";
+	private static final String LAST_PSEUDO_ITERATION = "lastPseudoIteration";
+
+	private int iterationsPerCycle = 0;
+	private int lastPseudoIteration = -1;
+
+	public PseudoSimConfigGroup() {
+		super(GROUP_NAME);
+	}
+
+	@Override
+	public Map<String, String> getComments() {
+		Map<String, String> comments = super.getComments();
+		comments.put(ITERATIONS_PER_CYCLE, "number of pseudo-simulation iterations after every iteration with the configured mobsim. "
+				+ "`0' disables the pseudo-simulation. The first and the last iteration always use the configured mobsim.");
+		comments.put(LAST_PSEUDO_ITERATION, "no pseudo-simulation after this iteration, so the final iterations are all simulated with "
+				+ "the configured mobsim. A negative value means no limit.");
+		return comments;
+	}
+
+	@StringGetter( ITERATIONS_PER_CYCLE )
+	public int getIterationsPerCycle() {
+		return this.iterationsPerCycle;
+	}
+
+	@StringSetter( ITERATIONS_PER_CYCLE )
+	public void setIterationsPerCycle(final int iterationsPerCycle) {
+		testForLocked();
+		this.iterationsPerCycle = iterationsPerCycle;
+	}
+
+	@StringGetter( LAST_PSEUDO_ITERATION )
+	public int getLastPseudoIteration() {
+		return this.lastPseudoIteration;
+	}
+
+	@StringSetter( LAST_PSEUDO_ITERATION )
+	public void setLastPseudoIteration(final int lastPseudoIteration) {
+		testForLocked();
+		this.lastPseudoIteration = lastPseudoIteration;
+	}
+
+}
@@ -0,0 +1,59 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PseudoSimMobsimProvider.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.pseudo;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.mobsim.framework.Mobsim;
+
+/**
+ * Provides the {@link PseudoSimulation} in pseudo-simulation iterations and otherwise the mobsim that was bound before
+ * the {@link PseudoSimModule} was installed.
+ */
+class PseudoSimMobsimProvider implements Provider<Mobsim> {
+
+	private final Provider<Mobsim> delegate;
+	private final Scenario scenario;
+	private final EventsManager events;
+	private final PseudoSimSchedule schedule;
+
+	@Inject
+	PseudoSimMobsimProvider(@Named(PseudoSimModule.DELEGATE) final Provider<Mobsim> delegate, final Scenario scenario,
+			final EventsManager events, final PseudoSimSchedule schedule) {
+		this.delegate = delegate;
+		this.scenario = scenario;
+		this.events = events;
+		this.schedule = schedule;
+	}
+
+	@Override
+	public Mobsim get() {
+		if (this.schedule.isPseudoIteration()) {
+			return new PseudoSimulation(this.scenario, this.events, this.schedule.getTravelTimes());
+		}
+		return this.delegate.get();
+	}
+
+}
@@ -0,0 +1,128 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PseudoSimModule.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.pseudo;
+
+import javax.inject.Inject;
+
+import org.matsim.core.controler.AbstractModule;
+import org.matsim.core.mobsim.framework.Mobsim;
+
+import com.google.inject.Binder;
+import com.google.inject.Binding;
+import com.google.inject.Key;
+import com.google.inject.Module;
+import com.google.inject.binder.LinkedBindingBuilder;
+import com.google.inject.name.Names;
+import com.google.inject.spi.DefaultBindingTargetVisitor;
+import com.google.inject.spi.Element;
+import com.google.inject.spi.Elements;
+import com.google.inject.spi.InstanceBinding;
+import com.google.inject.spi.LinkedKeyBinding;
+import com.google.inject.spi.ProviderInstanceBinding;
+import com.google.inject.spi.ProviderKeyBinding;
+
+/**
+ * Lets {@link PseudoSimSchedule} decide in every iteration whether the configured mobsim or the
+ * {@link PseudoSimulation} is run. The given module of the configured mobsim is installed with its binding of
+ * {@link Mobsim} moved to a named key, to which {@link PseudoSimMobsimProvider} delegates in the other iterations.
+ * See {@link org.matsim.core.mobsim.DefaultMobsimModule}.
+ */
+public class PseudoSimModule extends AbstractModule {
+
+	static final String DELEGATE = "pseudoSimDelegate";
+
+	private final AbstractModule mobsimModule;
+
+	public PseudoSimModule(final AbstractModule mobsimModule) {
+		this.mobsimModule = mobsimModule;
+	}
+
+	@Override
+	public void install() {
+		install(new DelegateModule(this.mobsimModule));
+		bind(PseudoSimSchedule.class).asEagerSingleton();
+		addControlerListenerBinding().to(PseudoSimSchedule.class);
+		bindMobsim().toProvider(PseudoSimMobsimProvider.class);
+	}
+
+	/**
+	 * Replays the bindings of a module, with the binding of {@link Mobsim} moved to the delegate key.
+	 */
+	private static final class DelegateModule implements Module {
+		private final Module module;
+
+		@Inject
+		com.google.inject.Injector bootstrapInjector;
+
+		DelegateModule(final Module module) {
+			this.module = module;
+		}
+
+		@Override
+		public void configure(final Binder binder) {
+			this.bootstrapInjector.injectMembers(this.module);
+			Key<Mobsim> mobsimKey = Key.get(Mobsim.class);
+			for (Element element : Elements.getElements(this.module)) {
+				if (element instanceof Binding && ((Binding<?>) element).getKey().equals(mobsimKey)) {
+					@SuppressWarnings("unchecked")
+					Binding<Mobsim> binding = (Binding<Mobsim>) element;
+					rebind(binder.withSource(binding.getSource()).bind(Key.get(Mobsim.class, Names.named(DELEGATE))), binding);
+				} else {
+					element.applyTo(binder);
+				}
+			}
+		}
+
+		private static void rebind(final LinkedBindingBuilder<Mobsim> builder, final Binding<Mobsim> binding) {
+			binding.acceptTargetVisitor(new DefaultBindingTargetVisitor<Mobsim, Void>() {
+				@Override
+				public Void visit(final LinkedKeyBinding<? extends Mobsim> linkedKeyBinding) {
+					builder.to(linkedKeyBinding.getLinkedKey());
+					return null;
+				}
+
+				@Override
+				public Void visit(final ProviderKeyBinding<? extends Mobsim> providerKeyBinding) {
+					builder.toProvider(providerKeyBinding.getProviderKey());
+					return null;
+				}
+
+				@Override
+				public Void visit(final ProviderInstanceBinding<? extends Mobsim> providerInstanceBinding) {
+					builder.toProvider(providerInstanceBinding.getUserSuppliedProvider());
+					return null;
+				}
+
+				@Override
+				public Void visit(final InstanceBinding<? extends Mobsim> instanceBinding) {
+					builder.toInstance(instanceBinding.getInstance());
+					return null;
+				}
+
+				@Override
+				protected Void visitOther(final Binding<? extends Mobsim> other) {
+					throw new RuntimeException("The mobsim binding " + other + " cannot be used by the pseudo-simulation.");
+				}
+			});
+		}
+	}
+
+}
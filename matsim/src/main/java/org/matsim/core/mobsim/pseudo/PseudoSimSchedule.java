@@ -0,0 +1,123 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PseudoSimSchedule.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.pseudo;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.log4j.Logger;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.events.IterationEndsEvent;
+import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.listener.IterationEndsListener;
+import org.matsim.core.controler.listener.IterationStartsListener;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.trafficmonitoring.TravelTimeCalculator;
+
+/**
+ * Decides which iterations are run with the {@link PseudoSimulation} instead of the configured mobsim, see
+ * {@link PseudoSimConfigGroup}. After the last iteration of the configured mobsim before a pseudo-simulation
+ * iteration, the link travel times are copied (see {@link TravelTimeCalculator#copyLinkTravelTimes(TravelTime)}), so
+ * all following pseudo-simulation iterations replay the plans against the travel times of that iteration. Travel
+ * times which do not come from a travel time calculator are used as they are.
+ */
+@Singleton
+public final class PseudoSimSchedule implements IterationStartsListener, IterationEndsListener {
+
+	private static final Logger log = Logger.getLogger(PseudoSimSchedule.class);
+
+	private final Config config;
+	private final Map<String, TravelTime> travelTimes;
+	private final int firstIteration;
+	private final int lastIteration;
+	private final int iterationsPerCycle;
+	private final int lastPseudoIteration;
+
+	private boolean pseudoIteration = false;
+	private Map<String, TravelTime> travelTimeSnapshots = null;
+
+	@Inject
+	PseudoSimSchedule(final Config config, final Map<String, TravelTime> travelTimes) {
+		this.config = config;
+		this.travelTimes = travelTimes;
+		PseudoSimConfigGroup pseudoSimConfig = ConfigUtils.addOrGetModule(config, PseudoSimConfigGroup.GROUP_NAME, PseudoSimConfigGroup.class);
+		this.firstIteration = config.controler().getFirstIteration();
+		this.lastIteration = config.controler().getLastIteration();
+		this.iterationsPerCycle = pseudoSimConfig.getIterationsPerCycle();
+		this.lastPseudoIteration = pseudoSimConfig.getLastPseudoIteration();
+	}
+
+	public boolean isPseudoIteration(final int iteration) {
+		if (this.iterationsPerCycle <= 0 || iteration <= this.firstIteration || iteration >= this.lastIteration) {
+			return false;
+		}
+		if (this.lastPseudoIteration >= 0 && iteration > this.lastPseudoIteration) {
+			return false;
+		}
+		return (iteration - this.firstIteration) % (this.iterationsPerCycle + 1) != 0;
+	}
+
+	/**
+	 * @return <code>true</code> if the current iteration is run with the pseudo-simulation
+	 */
+	public boolean isPseudoIteration() {
+		return this.pseudoIteration;
+	}
+
+	/**
+	 * @return the travel times per network mode of the last iteration with the configured mobsim
+	 */
+	public Map<String, TravelTime> getTravelTimes() {
+		return this.travelTimeSnapshots;
+	}
+
+	@Override
+	public void notifyIterationStarts(final IterationStartsEvent event) {
+		this.pseudoIteration = isPseudoIteration(event.getIteration());
+		if (this.pseudoIteration) {
+			log.info("iteration " + event.getIteration() + " is run with the pseudo-simulation.");
+		}
+	}
+
+	@Override
+	public void notifyIterationEnds(final IterationEndsEvent event) {
+		if (!isPseudoIteration(event.getIteration() + 1)) {
+			this.travelTimeSnapshots = null;
+		} else if (!this.pseudoIteration) {
+			log.info("copying link travel times for the pseudo-simulation...");
+			Map<String, TravelTime> snapshots = new HashMap<>();
+			for (String mode : this.config.qsim().getMainModes()) {
+				TravelTime travelTime = this.travelTimes.get(mode);
+				if (travelTime != null) {
+					TravelTime snapshot = TravelTimeCalculator.copyLinkTravelTimes(travelTime);
+					snapshots.put(mode, snapshot != null ? snapshot : travelTime);
+				}
+			}
+			this.travelTimeSnapshots = snapshots;
+			log.info("copying link travel times for the pseudo-simulation... done.");
+		}
+	}
+
+}
@@ -0,0 +1,604 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PseudoSimulation.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.pseudo;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.events.TransitDriverStartsEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.api.experimental.events.AgentWaitingForPtEvent;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
+import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
+import org.matsim.core.api.experimental.events.VehicleDepartsAtFacilityEvent;
+import org.matsim.core.config.groups.PlansConfigGroup;
+import org.matsim.core.mobsim.framework.Mobsim;
+import org.matsim.core.mobsim.qsim.agents.ActivityDurationUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.trafficmonitoring.FreeSpeedTravelTime;
+import org.matsim.core.utils.misc.ParallelUtils;
+import org.matsim.core.utils.misc.Time;
+import org.matsim.pt.routes.ExperimentalTransitRoute;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Executes the selected plans of all persons against given link travel times and the transit schedule, without
+ * any interaction between the agents, and emits the events the QSim would emit for the same trajectories. This is
+ * much cheaper than a full mobsim and is meant for iterations in which mainly the plans change, see
+ * {@link PseudoSimSchedule}.
+ * <p></p>
+ * The trajectories of the persons are computed in parallel, as primitive arrays of event times. The events are
+ * created from them while merging the persons by time, so they are passed to the events manager in chronological
+ * order and only the events of the current leg of every person are held in memory.
+ * <p></p>
+ * Network legs follow their route with the travel times of their mode, transit legs board the next scheduled
+ * departure at the access stop and alight at the scheduled arrival at the egress stop, all other legs are
+ * teleported with the travel time of their route. Persons still en route at the end time of the qsim are stuck.
+ * <p></p>
+ * Transit vehicles are not moved over the network. For every departure with passengers, the start of its driver and
+ * the arrivals and departures at all stops of its route are emitted once, at the scheduled times.
+ */
+public final class PseudoSimulation implements Mobsim {
+
+	private static final Logger log = Logger.getLogger(PseudoSimulation.class);
+
+	private static final double MIDNIGHT = 24.0 * 3600;
+
+	private static final byte NETWORK = 1;
+	private static final byte NETWORK_NO_LINKS = 2;
+	private static final byte TRANSIT = 3;
+	private static final byte TELEPORTED = 4;
+
+	private final Scenario scenario;
+	private final EventsManager events;
+	private final Map<String, TravelTime> travelTimes;
+	private final TravelTime freeSpeedTravelTime = new FreeSpeedTravelTime();
+	private final Set<String> networkModes;
+	private final boolean useTransit;
+	private final PlansConfigGroup.ActivityDurationInterpretation activityDurationInterpretation;
+	private final double startTime;
+	private final double endTime;
+	private final int numberOfThreads;
+
+	public PseudoSimulation(final Scenario scenario, final EventsManager events, final Map<String, TravelTime> travelTimes) {
+		this.scenario = scenario;
+		this.events = events;
+		this.travelTimes = travelTimes;
+		this.networkModes = new HashSet<>(scenario.getConfig().qsim().getMainModes());
+		this.useTransit = scenario.getConfig().transit().isUseTransit();
+		this.activityDurationInterpretation = scenario.getConfig().plans().getActivityDurationInterpretation();
+		double start = scenario.getConfig().qsim().getStartTime();
+		this.startTime = start == Time.UNDEFINED_TIME ? 0.0 : start;
+		double end = scenario.getConfig().qsim().getEndTime();
+		this.endTime = end == Time.UNDEFINED_TIME ? Double.POSITIVE_INFINITY : end;
+		this.numberOfThreads = Math.max(1, scenario.getConfig().global().getNumberOfThreads());
+	}
+
+	@Override
+	public void run() {
+		List<Person> persons = new ArrayList<>(this.scenario.getPopulation().getPersons().values());
+		log.info("computing trajectories of " + persons.size() + " persons with " + this.numberOfThreads + " threads...");
+		Timeline[] timelines = computeTimelines(persons);
+		log.info("emitting events...");
+		emitEvents(timelines);
+		log.info("emitting events... done.");
+	}
+
+	private Timeline[] computeTimelines(final List<Person> persons) {
+		final Timeline[] timelines = new Timeline[persons.size()];
+		int batchSize = Math.max(1, Math.min(256, persons.size() / (8 * this.numberOfThreads)));
+		ParallelUtils.runRows(timelines.length, batchSize, this.numberOfThreads, new ParallelUtils.RowTask() {
+			@Override
+			public void calcRow(final int row, final int thread) {
+				timelines[row] = computeTimeline(persons.get(row));
+			}
+		});
+		return timelines;
+	}
+
+	private Timeline computeTimeline(final Person person) {
+		List<PlanElement> elements = person.getSelectedPlan().getPlanElements();
+		Timeline timeline = new Timeline(person, elements);
+		double now = this.startTime;
+		for (int i = 0; i < elements.size() - 1; i++) {
+			PlanElement pe = elements.get(i);
+			if (pe instanceof Activity) {
+				now = ActivityDurationUtils.calculateDepartureTime((Activity) pe, now, this.activityDurationInterpretation);
+				timeline.add(now);
+				if (Double.isInfinite(now)) {
+					break;
+				}
+			} else {
+				now = computeLeg(timeline, i, (Leg) pe, person, now);
+			}
+		}
+		return timeline;
+	}
+
+	/**
+	 * Adds the times of the events of the leg to the timeline, in the order in which {@link AgentEvents} reads them.
+	 *
+	 * @return the arrival time
+	 */
+	private double computeLeg(final Timeline timeline, final int index, final Leg leg, final Person person, final double departureTime) {
+		Route route = leg.getRoute();
+		if (route instanceof NetworkRoute && this.networkModes.contains(leg.getMode())) {
+			NetworkRoute networkRoute = (NetworkRoute) route;
+			if (networkRoute.getStartLinkId().equals(networkRoute.getEndLinkId()) && networkRoute.getLinkIds().isEmpty()) {
+				timeline.legTypes[index] = NETWORK_NO_LINKS;
+				return departureTime;
+			}
+			timeline.legTypes[index] = NETWORK;
+			TravelTime travelTime = this.travelTimes.get(leg.getMode());
+			if (travelTime == null) {
+				travelTime = this.freeSpeedTravelTime;
+			}
+			Map<Id<Link>, ? extends Link> links = this.scenario.getNetwork().getLinks();
+			double time = departureTime + 1; // leave the departure link
+			timeline.add(time);
+			for (Id<Link> linkId : networkRoute.getLinkIds()) {
+				time += Math.max(1.0, travelTime.getLinkTravelTime(links.get(linkId), time, person, null));
+				timeline.add(time);
+			}
+			time += travelTime.getLinkTravelTime(links.get(networkRoute.getEndLinkId()), time, person, null);
+			timeline.add(time);
+			return time;
+		}
+		if (route instanceof ExperimentalTransitRoute && this.useTransit) {
+			double arrivalTime = computeTransitLeg(timeline, index, (ExperimentalTransitRoute) route, departureTime);
+			if (!Double.isNaN(arrivalTime)) {
+				return arrivalTime;
+			}
+		}
+		timeline.legTypes[index] = TELEPORTED;
+		double travelTime = route == null ? Time.UNDEFINED_TIME : route.getTravelTime();
+		if (travelTime == Time.UNDEFINED_TIME) {
+			travelTime = leg.getTravelTime();
+		}
+		if (travelTime == Time.UNDEFINED_TIME) {
+			throw new RuntimeException("leg of mode " + leg.getMode() + " of person " + person.getId() + " has no travel time, "
+					+ "so it cannot be teleported in the pseudo-simulation.");
+		}
+		double arrivalTime = departureTime + travelTime;
+		timeline.add(arrivalTime);
+		return arrivalTime;
+	}
+
+	/**
+	 * @return the arrival time, or <code>NaN</code> if the route cannot be served by the schedule
+	 */
+	private double computeTransitLeg(final Timeline timeline, final int index, final ExperimentalTransitRoute route, final double departureTime) {
+		TransitLine line = this.scenario.getTransitSchedule().getTransitLines().get(route.getLineId());
+		TransitRoute transitRoute = line == null ? null : line.getRoutes().get(route.getRouteId());
+		if (transitRoute == null) {
+			return Double.NaN;
+		}
+		List<TransitRouteStop> stops = transitRoute.getStops();
+		int access = 0;
+		while (access < stops.size() && !stops.get(access).getStopFacility().getId().equals(route.getAccessStopId())) {
+			access++;
+		}
+		int egress = access + 1;
+		while (egress < stops.size() && !stops.get(egress).getStopFacility().getId().equals(route.getEgressStopId())) {
+			egress++;
+		}
+		if (egress >= stops.size()) {
+			return Double.NaN;
+		}
+		double accessOffset = getDepartureOffset(stops.get(access));
+		Departure bestDeparture = null;
+		double boardingTime = Double.POSITIVE_INFINITY;
+		for (Departure departure : transitRoute.getDepartures().values()) {
+			double time = departure.getDepartureTime() + accessOffset;
+			if (time < departureTime) {
+				time += Math.ceil((departureTime - time) / MIDNIGHT) * MIDNIGHT;
+			}
+			if (time < boardingTime) {
+				boardingTime = time;
+				bestDeparture = departure;
+			}
+		}
+		if (bestDeparture == null) {
+			return Double.NaN;
+		}
+		timeline.legTypes[index] = TRANSIT;
+		timeline.setDeparture(index, bestDeparture, boardingTime - accessOffset);
+		double arrivalTime = boardingTime - accessOffset + getArrivalOffset(stops.get(egress));
+		timeline.add(boardingTime);
+		timeline.add(arrivalTime);
+		return arrivalTime;
+	}
+
+	private static double getDepartureOffset(final TransitRouteStop stop) {
+		return stop.getDepartureOffset() != Time.UNDEFINED_TIME ? stop.getDepartureOffset() : stop.getArrivalOffset();
+	}
+
+	private static double getArrivalOffset(final TransitRouteStop stop) {
+		return stop.getArrivalOffset() != Time.UNDEFINED_TIME ? stop.getArrivalOffset() : stop.getDepartureOffset();
+	}
+
+	/**
+	 * @return the runs of transit vehicles used by the persons, ordered by their start
+	 */
+	private List<VehicleRun> collectVehicleRuns(final Timeline[] timelines) {
+		Set<VehicleRun> runs = new LinkedHashSet<>();
+		for (Timeline timeline : timelines) {
+			if (timeline.departures == null) {
+				continue;
+			}
+			for (int i = 0; i < timeline.departures.length; i++) {
+				if (timeline.departures[i] != null) {
+					ExperimentalTransitRoute route = (ExperimentalTransitRoute) ((Leg) timeline.elements.get(i)).getRoute();
+					runs.add(new VehicleRun(route.getLineId(), route.getRouteId(), timeline.departures[i], timeline.vehicleStarts[i]));
+				}
+			}
+		}
+		List<VehicleRun> sorted = new ArrayList<>(runs);
+		Collections.sort(sorted, new Comparator<VehicleRun>() {
+			@Override
+			public int compare(final VehicleRun o1, final VehicleRun o2) {
+				return Double.compare(o1.start, o2.start);
+			}
+		});
+		return sorted;
+	}
+
+	private void emitEvents(final Timeline[] timelines) {
+		PriorityQueue<EventSource> queue = new PriorityQueue<>(Math.max(1, timelines.length), new Comparator<EventSource>() {
+			@Override
+			public int compare(final EventSource o1, final EventSource o2) {
+				Event e1 = o1.pending.peekFirst();
+				Event e2 = o2.pending.peekFirst();
+				int cmp = Double.compare(e1.getTime(), e2.getTime());
+				if (cmp != 0) {
+					return cmp;
+				}
+				// like in the qsim, passengers enter and leave a vehicle between its arrival and its departure at a stop
+				cmp = Boolean.compare(e1 instanceof VehicleDepartsAtFacilityEvent, e2 instanceof VehicleDepartsAtFacilityEvent);
+				return cmp != 0 ? cmp : Integer.compare(o1.order, o2.order);
+			}
+		});
+		List<VehicleRun> runs = collectVehicleRuns(timelines);
+		for (int i = 0; i < runs.size(); i++) {
+			VehicleEvents vehicle = new VehicleEvents(runs.get(i), i);
+			if (vehicle.fill()) {
+				queue.add(vehicle);
+			}
+		}
+		for (int i = 0; i < timelines.length; i++) {
+			AgentEvents agent = new AgentEvents(timelines[i], runs.size() + i);
+			if (agent.fill()) {
+				queue.add(agent);
+			}
+		}
+		double simStep = Double.NEGATIVE_INFINITY;
+		while (!queue.isEmpty()) {
+			EventSource source = queue.poll();
+			Event event = source.pending.peekFirst();
+			if (event.getTime() > this.endTime) {
+				// everybody left is still under way at the end of the simulation
+				PersonStuckEvent stuckEvent = source.createStuckEvent(this.endTime);
+				if (stuckEvent != null) {
+					this.events.processEvent(stuckEvent);
+				}
+				continue;
+			}
+			double step = Math.floor(event.getTime());
+			if (step > simStep) {
+				if (simStep != Double.NEGATIVE_INFINITY) {
+					this.events.afterSimStep(simStep);
+				}
+				simStep = step;
+			}
+			this.events.processEvent(source.pending.pollFirst());
+			if (source.fill()) {
+				queue.add(source);
+			}
+		}
+		if (simStep != Double.NEGATIVE_INFINITY) {
+			this.events.afterSimStep(simStep);
+		}
+	}
+
+	/**
+	 * The selected plan of a person with the times of all its events.
+	 */
+	private static final class Timeline {
+		final Person person;
+		final List<PlanElement> elements;
+		final byte[] legTypes;
+		Departure[] departures = null;
+		double[] vehicleStarts = null;
+		double[] times = new double[8];
+		int size = 0;
+
+		Timeline(final Person person, final List<PlanElement> elements) {
+			this.person = person;
+			this.elements = elements;
+			this.legTypes = new byte[elements.size()];
+		}
+
+		void add(final double time) {
+			if (this.size == this.times.length) {
+				this.times = Arrays.copyOf(this.times, this.size * 2);
+			}
+			this.times[this.size++] = time;
+		}
+
+		void setDeparture(final int index, final Departure departure, final double vehicleStart) {
+			if (this.departures == null) {
+				this.departures = new Departure[this.elements.size()];
+				this.vehicleStarts = new double[this.elements.size()];
+			}
+			this.departures[index] = departure;
+			this.vehicleStarts[index] = vehicleStart;
+		}
+	}
+
+	/**
+	 * A departure of a transit route, on the day on which it is used.
+	 */
+	private static final class VehicleRun {
+		final Id<TransitLine> lineId;
+		final Id<TransitRoute> routeId;
+		final Departure departure;
+		final double start;
+
+		VehicleRun(final Id<TransitLine> lineId, final Id<TransitRoute> routeId, final Departure departure, final double start) {
+			this.lineId = lineId;
+			this.routeId = routeId;
+			this.departure = departure;
+			this.start = start;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (!(obj instanceof VehicleRun)) {
+				return false;
+			}
+			VehicleRun other = (VehicleRun) obj;
+			return this.departure == other.departure && this.start == other.start;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * System.identityHashCode(this.departure) + Double.valueOf(this.start).hashCode();
+		}
+	}
+
+	/**
+	 * The events of a person or vehicle that are not yet passed to the events manager.
+	 */
+	private static abstract class EventSource {
+		final int order;
+		final ArrayDeque<Event> pending = new ArrayDeque<>();
+
+		EventSource(final int order) {
+			this.order = order;
+		}
+
+		/**
+		 * @return <code>false</code> if there are no more events
+		 */
+		abstract boolean fill();
+
+		/**
+		 * @return the event if the source is stuck at the end of the simulation, or <code>null</code>
+		 */
+		abstract PersonStuckEvent createStuckEvent(double now);
+	}
+
+	/**
+	 * Creates the events of a transit vehicle, one stop at a time.
+	 */
+	private final class VehicleEvents extends EventSource {
+		final VehicleRun run;
+		final List<TransitRouteStop> stops;
+		private int stop = 0;
+
+		VehicleEvents(final VehicleRun run, final int order) {
+			super(order);
+			this.run = run;
+			this.stops = PseudoSimulation.this.scenario.getTransitSchedule().getTransitLines().get(run.lineId).getRoutes().get(run.routeId).getStops();
+		}
+
+		@Override
+		boolean fill() {
+			if (this.stop >= this.stops.size()) {
+				return false;
+			}
+			Id<Vehicle> vehicleId = this.run.departure.getVehicleId();
+			if (this.stop == 0) {
+				this.pending.add(new TransitDriverStartsEvent(this.run.start, getDriverId(vehicleId), vehicleId,
+						this.run.lineId, this.run.routeId, this.run.departure.getId()));
+			}
+			TransitRouteStop routeStop = this.stops.get(this.stop++);
+			Id<TransitStopFacility> facilityId = routeStop.getStopFacility().getId();
+			this.pending.add(new VehicleArrivesAtFacilityEvent(this.run.start + getArrivalOffset(routeStop), vehicleId, facilityId, 0.0));
+			this.pending.add(new VehicleDepartsAtFacilityEvent(this.run.start + getDepartureOffset(routeStop), vehicleId, facilityId, 0.0));
+			return true;
+		}
+
+		/**
+		 * @return the id the qsim gives the driver of the vehicle
+		 */
+		private Id<Person> getDriverId(final Id<Vehicle> vehicleId) {
+			Vehicle vehicle = PseudoSimulation.this.scenario.getTransitVehicles().getVehicles().get(vehicleId);
+			if (vehicle == null) {
+				return Id.createPersonId("pt_" + vehicleId);
+			}
+			return Id.createPersonId("pt_" + vehicleId + "_" + vehicle.getType().getId());
+		}
+
+		@Override
+		PersonStuckEvent createStuckEvent(final double now) {
+			return null;
+		}
+	}
+
+	/**
+	 * Creates the events of a person from its timeline, one activity or leg at a time.
+	 */
+	private final class AgentEvents extends EventSource {
+		final Timeline timeline;
+		private int element = 0;
+		private int time = 0;
+		private Id<Link> departureLinkId = null;
+		private String legMode = null;
+
+		AgentEvents(final Timeline timeline, final int order) {
+			super(order);
+			this.timeline = timeline;
+		}
+
+		@Override
+		boolean fill() {
+			List<PlanElement> elements = this.timeline.elements;
+			while (this.pending.isEmpty()) {
+				if (this.element >= elements.size() - 1 || this.time >= this.timeline.size) {
+					return false;
+				}
+				PlanElement pe = elements.get(this.element);
+				if (pe instanceof Activity) {
+					double now = this.timeline.times[this.time++];
+					if (Double.isInfinite(now)) {
+						return false;
+					}
+					Activity act = (Activity) pe;
+					Leg leg = (Leg) elements.get(this.element + 1);
+					Id<Person> personId = this.timeline.person.getId();
+					this.departureLinkId = act.getLinkId();
+					this.legMode = leg.getMode();
+					this.pending.add(new ActivityEndEvent(now, personId, act.getLinkId(), act.getFacilityId(), act.getType()));
+					this.pending.add(new PersonDepartureEvent(now, personId, act.getLinkId(), leg.getMode()));
+				} else {
+					addLegEvents((Leg) pe, (Activity) elements.get(this.element + 1));
+				}
+				this.element++;
+			}
+			return true;
+		}
+
+		private void addLegEvents(final Leg leg, final Activity nextAct) {
+			Id<Person> personId = this.timeline.person.getId();
+			double[] times = this.timeline.times;
+			double departureTime = times[this.time - 1];
+			double arrivalTime;
+			switch (this.timeline.legTypes[this.element]) {
+			case NETWORK: {
+				NetworkRoute route = (NetworkRoute) leg.getRoute();
+				Id<Vehicle> vehicleId = route.getVehicleId() != null ? route.getVehicleId() : Id.createVehicleId(personId);
+				this.pending.add(new PersonEntersVehicleEvent(departureTime, personId, vehicleId));
+				this.pending.add(new VehicleEntersTrafficEvent(departureTime, personId, route.getStartLinkId(), vehicleId, leg.getMode(), 1.0));
+				Id<Link> currentLinkId = route.getStartLinkId();
+				for (Id<Link> linkId : route.getLinkIds()) {
+					double now = times[this.time++];
+					this.pending.add(new LinkLeaveEvent(now, vehicleId, currentLinkId));
+					this.pending.add(new LinkEnterEvent(now, vehicleId, linkId));
+					currentLinkId = linkId;
+				}
+				double now = times[this.time++];
+				this.pending.add(new LinkLeaveEvent(now, vehicleId, currentLinkId));
+				this.pending.add(new LinkEnterEvent(now, vehicleId, route.getEndLinkId()));
+				arrivalTime = times[this.time++];
+				this.pending.add(new VehicleLeavesTrafficEvent(arrivalTime, personId, route.getEndLinkId(), vehicleId, leg.getMode(), 1.0));
+				this.pending.add(new PersonLeavesVehicleEvent(arrivalTime, personId, vehicleId));
+				break;
+			}
+			case NETWORK_NO_LINKS:
+				arrivalTime = departureTime;
+				break;
+			case TRANSIT: {
+				ExperimentalTransitRoute route = (ExperimentalTransitRoute) leg.getRoute();
+				Id<Vehicle> vehicleId = this.timeline.departures[this.element].getVehicleId();
+				double boardingTime = times[this.time++];
+				arrivalTime = times[this.time++];
+				// the events of the vehicle itself are created once per run, by VehicleEvents
+				this.pending.add(new AgentWaitingForPtEvent(departureTime, personId, route.getAccessStopId(), route.getEgressStopId()));
+				this.pending.add(new PersonEntersVehicleEvent(boardingTime, personId, vehicleId));
+				this.pending.add(new PersonLeavesVehicleEvent(arrivalTime, personId, vehicleId));
+				break;
+			}
+			default: {
+				arrivalTime = times[this.time++];
+				double distance = leg.getRoute() == null ? Double.NaN : leg.getRoute().getDistance();
+				this.pending.add(new TeleportationArrivalEvent(arrivalTime, personId, distance));
+				break;
+			}
+			}
+			this.pending.add(new PersonArrivalEvent(arrivalTime, personId, nextAct.getLinkId(), leg.getMode()));
+			this.pending.add(new ActivityStartEvent(arrivalTime, personId, nextAct.getLinkId(), nextAct.getFacilityId(), nextAct.getType()));
+		}
+
+		@Override
+		PersonStuckEvent createStuckEvent(final double now) {
+			Event next = this.pending.peekFirst();
+			Id<Person> personId = this.timeline.person.getId();
+			if (next instanceof ActivityEndEvent) {
+				return new PersonStuckEvent(now, personId, ((ActivityEndEvent) next).getLinkId(), null);
+			}
+			if (next instanceof LinkLeaveEvent) {
+				return new PersonStuckEvent(now, personId, ((LinkLeaveEvent) next).getLinkId(), this.legMode);
+			}
+			if (next instanceof VehicleLeavesTrafficEvent) {
+				return new PersonStuckEvent(now, personId, ((VehicleLeavesTrafficEvent) next).getLinkId(), this.legMode);
+			}
+			return new PersonStuckEvent(now, personId, this.departureLinkId, this.legMode);
+		}
+	}
+
+}
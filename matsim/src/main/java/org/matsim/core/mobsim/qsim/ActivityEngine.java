@@ -29,6 +29,7 @@ import org.matsim.api.core.v01.events.PersonStuckEvent;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.mobsim.framework.HasNextEventTime;
 import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.qsim.interfaces.ActivityHandler;
 import org.matsim.core.mobsim.qsim.interfaces.AgentCounter;
@@ -37,7 +38,7 @@ import org.matsim.core.utils.misc.Time;
 
 import javax.inject.Inject;
 
-public class ActivityEngine implements MobsimEngine, ActivityHandler {
+public class ActivityEngine implements MobsimEngine, ActivityHandler, HasNextEventTime {
 
 	private EventsManager eventsManager;
 	private AgentCounter agentCounter;
@@ -121,6 +122,12 @@ public class ActivityEngine implements MobsimEngine, ActivityHandler {
 		}
 	}
 
+	@Override
+	public double getNextEventTime(double now) {
+		AgentEntry next = activityEndsList.peek();
+		return next == null ? Double.POSITIVE_INFINITY : next.activityEndTime;
+	}
+
 	@Override
 	public void afterSim() {
 		double now = this.internalInterface.getMobsim().getSimTimer().getTimeOfDay();
@@ -22,6 +22,7 @@ package org.matsim.core.mobsim.qsim;
 
 import org.apache.log4j.Logger;
 import org.matsim.core.api.internal.MatsimManager;
+import org.matsim.core.mobsim.framework.HasNextEventTime;
 import org.matsim.core.mobsim.framework.Mobsim;
 import org.matsim.core.mobsim.framework.events.MobsimAfterSimStepEvent;
 import org.matsim.core.mobsim.framework.events.MobsimBeforeCleanupEvent;
@@ -107,4 +108,27 @@ class MobsimListenerManager implements MatsimManager {
         }
 	}
 
+	/**
+	 * @return the earliest time any of the listeners which are notified in every time step needs to be
+	 * notified again. If one of them does not implement {@link HasNextEventTime}, this is <code>now</code>,
+	 * i.e. the next time step.
+	 */
+	public double getNextEventTime(final double now) {
+		double nextEventTime = Double.POSITIVE_INFINITY;
+		for (MobsimListener listener : this.listenerList.getListeners(MobsimBeforeSimStepListener.class)) {
+			nextEventTime = Math.min(nextEventTime, getNextEventTime(listener, now));
+		}
+		for (MobsimListener listener : this.listenerList.getListeners(MobsimAfterSimStepListener.class)) {
+			nextEventTime = Math.min(nextEventTime, getNextEventTime(listener, now));
+		}
+		return nextEventTime;
+	}
+
+	private static double getNextEventTime(final MobsimListener listener, final double now) {
+		if (listener instanceof HasNextEventTime) {
+			return ((HasNextEventTime) listener).getNextEventTime(now);
+		}
+		return now;
+	}
+
 }
@@ -46,6 +46,7 @@ import org.matsim.core.config.groups.QSimConfigGroup.EndtimeInterpretation;
 import org.matsim.core.events.EventsUtils;
 import org.matsim.core.gbl.Gbl;
 import org.matsim.core.mobsim.framework.AgentSource;
+import org.matsim.core.mobsim.framework.HasNextEventTime;
 import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.framework.MobsimTimer;
 import org.matsim.core.mobsim.framework.listeners.MobsimListener;
@@ -385,6 +386,9 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 
 		if (doContinue) {
 			this.simTimer.incrementTime();
+			if (qsimConfigGroup.isSkippingInactiveTimeSteps()) {
+				skipInactiveTimeSteps(now);
+			}
 		}
 		
 		if (analyzeRunTimes) this.qSimInternalTime += System.nanoTime() - this.startTime;
@@ -392,6 +396,37 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 		return doContinue;
 	}
 
+	/**
+	 * Advances the timer to the next time step in which an engine or a listener has something to do. If one of
+	 * them cannot tell (see {@link HasNextEventTime}), or if there is nothing to do before the end time of the
+	 * simulation, the timer is not changed.
+	 */
+	private void skipInactiveTimeSteps(final double now) {
+		double nextEventTime = this.listenerManager.getNextEventTime(now);
+		for (MobsimEngine mobsimEngine : this.mobsimEngines) {
+			if (nextEventTime <= now) {
+				return;
+			}
+			if (!(mobsimEngine instanceof HasNextEventTime)) {
+				return;
+			}
+			nextEventTime = Math.min(nextEventTime, ((HasNextEventTime) mobsimEngine).getNextEventTime(now));
+		}
+		nextEventTime = Math.min(nextEventTime, this.stopTime);
+		if (nextEventTime == Double.POSITIVE_INFINITY || nextEventTime == Double.MAX_VALUE) {
+			// nobody will ever do anything again, but the agents are still alive.  Keep the old behavior.
+			return;
+		}
+
+		// stay on the grid of time steps:
+		double startTime = this.simTimer.getSimStartTime();
+		double stepSize = this.simTimer.getSimTimestepSize();
+		double nextTimeStep = startTime + Math.ceil((nextEventTime - startTime) / stepSize) * stepSize;
+		if (nextTimeStep > this.simTimer.getTimeOfDay()) {
+			this.simTimer.setTime(nextTimeStep);
+		}
+	}
+
 	public void insertAgentIntoMobsim(final MobsimAgent agent) {
 		if (this.agents.containsKey(agent.getId())) {
 			throw new RuntimeException("Agent with same Id (" + agent.getId().toString() + ") already in mobsim; aborting ... ") ;
@@ -495,7 +530,10 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 	private void printSimLog(final double time) {
 		if (time >= this.infoTime) {
 			//		if(true){
-			this.infoTime += INFO_PERIOD;
+			while (this.infoTime <= time) {
+				// more than once if inactive time steps were skipped
+				this.infoTime += INFO_PERIOD;
+			}
 			Date endtime = new Date();
 			long diffreal = (endtime.getTime() - this.realWorldStarttime
 					.getTime()) / 1000;
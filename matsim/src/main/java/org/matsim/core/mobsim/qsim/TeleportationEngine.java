@@ -9,6 +9,7 @@ import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
+import org.matsim.core.mobsim.framework.HasNextEventTime;
 import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.qsim.interfaces.DepartureHandler;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimEngine;
@@ -28,7 +29,7 @@ import java.util.*;
  * NetsimEngine (often all != "car") or have two activities on the same link
  */
 public final class TeleportationEngine implements DepartureHandler, MobsimEngine,
-VisData {
+VisData, HasNextEventTime {
 	private static final Logger log = Logger.getLogger( TeleportationEngine.class ) ;
 	
 	private final Queue<Tuple<Double, MobsimAgent>> teleportationList = new PriorityQueue<>(
@@ -104,6 +105,12 @@ VisData {
 		handleTeleportationArrivals();
 	}
 
+	@Override
+	public double getNextEventTime(double now) {
+		Tuple<Double, MobsimAgent> entry = teleportationList.peek();
+		return entry == null ? Double.POSITIVE_INFINITY : entry.getFirst();
+	}
+
 	private void handleTeleportationArrivals() {
 		double now = internalInterface.getMobsim().getSimTimer().getTimeOfDay();
 		while (teleportationList.peek() != null) {
@@ -2,6 +2,7 @@ package org.matsim.core.mobsim.qsim.changeeventsengine;
 
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.mobsim.framework.HasNextEventTime;
 import org.matsim.core.mobsim.jdeqsim.Message;
 import org.matsim.core.mobsim.jdeqsim.MessageQueue;
 import org.matsim.core.mobsim.qsim.InternalInterface;
@@ -14,7 +15,7 @@ import org.matsim.core.network.NetworkUtils;
 import javax.inject.Inject;
 import java.util.Collection;
 
-class NewNetworkChangeEventsEngine implements MobsimEngine {
+class NewNetworkChangeEventsEngine implements MobsimEngine, HasNextEventTime {
 
 	private final MessageQueue messageQueue;
 	private final Network network;
@@ -68,4 +69,10 @@ class NewNetworkChangeEventsEngine implements MobsimEngine {
 	public void doSimStep(double time) {
 
 	}
+
+	@Override
+	public double getNextEventTime(double now) {
+		// the change events are handled as messages, see MessageQueueEngine
+		return Double.POSITIVE_INFINITY;
+	}
 }
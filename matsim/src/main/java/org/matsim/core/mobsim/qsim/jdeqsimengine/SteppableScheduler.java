@@ -41,6 +41,17 @@ public class SteppableScheduler extends Scheduler implements Steppable {
         finished = true; // queue has run dry.
     }
 
+    /**
+     * @return the time of the next message which is known to be due, <code>now</code> if the queue needs to be looked at
+     * in the next time step, or {@link Double#POSITIVE_INFINITY} if there are no messages.
+     */
+    public double getNextMessageArrivalTime(double now) {
+        if (lookahead != null) {
+            return lookahead.getMessageArrivalTime();
+        }
+        return queue.isEmpty() ? Double.POSITIVE_INFINITY : now;
+    }
+
     public boolean isFinished() {
         return finished;
     }
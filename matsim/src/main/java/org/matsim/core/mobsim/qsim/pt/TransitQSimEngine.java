@@ -33,6 +33,7 @@ import org.matsim.api.core.v01.events.PersonStuckEvent;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.population.Leg;
 import org.matsim.core.mobsim.framework.AgentSource;
+import org.matsim.core.mobsim.framework.HasNextEventTime;
 import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.qsim.InternalInterface;
 import org.matsim.core.mobsim.qsim.QSim;
@@ -51,7 +52,7 @@ import javax.inject.Inject;
  * @author mrieser
  * @author mzilske
  */
-public class TransitQSimEngine implements  DepartureHandler, MobsimEngine, AgentSource {
+public class TransitQSimEngine implements  DepartureHandler, MobsimEngine, AgentSource, HasNextEventTime {
 
 
 	private Collection<MobsimAgent> ptDrivers;
@@ -211,6 +212,12 @@ public class TransitQSimEngine implements  DepartureHandler, MobsimEngine, Agent
 		// Nothing to do here.
 	}
 
+	@Override
+	public double getNextEventTime(double now) {
+		// The drivers are scheduled by the other engines.
+		return Double.POSITIVE_INFINITY;
+	}
+
 	@Override
 	public void insertAgentsIntoMobsim() {
 		ptDrivers = createVehiclesAndDriversWithUmlaeufe();
@@ -31,4 +31,13 @@ abstract class NetElementActivationRegistry {
 	abstract void registerLinkAsActive(final QLinkI link);
 
 	abstract int getNumberOfSimulatedLinks();
+
+	/**
+	 * @return <code>now</code> if a node or a link is active, i.e. needs to be simulated in the next time step,
+	 * {@link Double#POSITIVE_INFINITY} otherwise. Active links are not asked when their vehicles leave, so
+	 * nothing more precise can be said.
+	 */
+	double getNextEventTime(final double now) {
+		return (getNumberOfSimulatedNodes() > 0 || getNumberOfSimulatedLinks() > 0) ? now : Double.POSITIVE_INFINITY;
+	}
 } 
\ No newline at end of file
@@ -0,0 +1,118 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * NetsimNetworkPartitioner.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Splits a set of weighted points into partitions of similar total weight by
+ * recursive coordinate bisection: the points are sorted along the axis with the
+ * larger extent and cut where the cumulated weight reaches the share of the
+ * first half of the partitions; both halves are then split further.
+ * <p></p>
+ * Neighboring nodes end up in the same partition, so most links connect nodes
+ * handled by the same {@link QNetsimEngineRunner}. Ties are broken by the
+ * position in the input, so the result does not depend on anything but the input.
+ */
+final class NetsimNetworkPartitioner {
+
+	private final double[] x;
+	private final double[] y;
+	private final double[] weights;
+	private final int[] partitions;
+
+	private NetsimNetworkPartitioner(final double[] x, final double[] y, final double[] weights) {
+		this.x = x;
+		this.y = y;
+		this.weights = weights;
+		this.partitions = new int[x.length];
+	}
+
+	/**
+	 * @return for every point, the partition (<code>0 &lt;= p &lt; numberOfPartitions</code>) it is assigned to
+	 */
+	static int[] partition(final double[] x, final double[] y, final double[] weights, final int numberOfPartitions) {
+		if (x.length != y.length || x.length != weights.length) {
+			throw new IllegalArgumentException("coordinates and weights must have the same length.");
+		}
+		if (numberOfPartitions < 1) {
+			throw new IllegalArgumentException("number of partitions must be at least 1, but is " + numberOfPartitions);
+		}
+		NetsimNetworkPartitioner partitioner = new NetsimNetworkPartitioner(x, y, weights);
+		Integer[] points = new Integer[x.length];
+		for (int i = 0; i < points.length; i++) {
+			points[i] = i;
+		}
+		partitioner.bisect(points, 0, points.length, 0, numberOfPartitions);
+		return partitioner.partitions;
+	}
+
+	/**
+	 * Assigns the points <code>points[from..to)</code> to the partitions <code>[firstPartition, firstPartition + numberOfPartitions)</code>.
+	 */
+	private void bisect(final Integer[] points, final int from, final int to, final int firstPartition, final int numberOfPartitions) {
+		if (numberOfPartitions == 1 || to - from <= 1) {
+			for (int i = from; i < to; i++) {
+				this.partitions[points[i]] = firstPartition;
+			}
+			return;
+		}
+
+		double minX = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		double totalWeight = 0.0;
+		for (int i = from; i < to; i++) {
+			int p = points[i];
+			minX = Math.min(minX, this.x[p]);
+			maxX = Math.max(maxX, this.x[p]);
+			minY = Math.min(minY, this.y[p]);
+			maxY = Math.max(maxY, this.y[p]);
+			totalWeight += this.weights[p];
+		}
+		final double[] coord = (maxX - minX >= maxY - minY) ? this.x : this.y;
+		Arrays.sort(points, from, to, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer p1, Integer p2) {
+				int cmp = Double.compare(coord[p1], coord[p2]);
+				return cmp != 0 ? cmp : Integer.compare(p1, p2);
+			}
+		});
+
+		int lowerPartitions = numberOfPartitions / 2;
+		double lowerWeight = totalWeight * lowerPartitions / numberOfPartitions;
+		int split = from;
+		double weight = 0.0;
+		while (split < to && weight + this.weights[points[split]] / 2 <= lowerWeight) {
+			weight += this.weights[points[split]];
+			split++;
+		}
+		// every partition should get at least one point, if possible
+		split = Math.max(split, from + Math.min(lowerPartitions, to - from - 1));
+		split = Math.min(split, to - Math.min(numberOfPartitions - lowerPartitions, to - from - 1));
+
+		bisect(points, from, split, firstPartition, lowerPartitions);
+		bisect(points, split, to, firstPartition + lowerPartitions, numberOfPartitions - lowerPartitions);
+	}
+
+}
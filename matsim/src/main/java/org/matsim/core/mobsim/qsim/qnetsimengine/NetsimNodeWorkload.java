@@ -0,0 +1,82 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * NetsimNodeWorkload.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * The work per node measured by the {@link QNetsimEngineRunner}s, i.e. the number of
+ * time steps a node and each of its outgoing links were active. The measurement of one
+ * mobsim run is used to balance the partitions of the next one.
+ * <p></p>
+ * A new QNetsimEngine is created for every iteration, so the measurement is kept
+ * as a scenario element.
+ */
+final class NetsimNodeWorkload {
+
+	static final String ELEMENT_NAME = "netsimNodeWorkload";
+
+	private long[] measured = null;
+	private long[] current = null;
+
+	static NetsimNodeWorkload getOrCreate(final Scenario scenario) {
+		NetsimNodeWorkload workload = (NetsimNodeWorkload) scenario.getScenarioElement(ELEMENT_NAME);
+		if (workload == null) {
+			workload = new NetsimNodeWorkload();
+			scenario.addScenarioElement(ELEMENT_NAME, workload);
+		}
+		return workload;
+	}
+
+	/**
+	 * @return the weight of the node for partitioning; 1 if nothing was measured for it.
+	 */
+	double getWeight(final Id<Node> nodeId) {
+		int index = nodeId.index();
+		if (this.measured == null || index >= this.measured.length) {
+			return 1.0;
+		}
+		return 1.0 + this.measured[index];
+	}
+
+	boolean hasMeasurement() {
+		return this.measured != null;
+	}
+
+	/**
+	 * @return the counters for the running mobsim, indexed by {@link Id#index()} of the nodes.
+	 * Every runner only increments the counters of its own nodes.
+	 */
+	long[] startMeasurement() {
+		this.current = new long[Id.getNumberOfIds(Node.class)];
+		return this.current;
+	}
+
+	void finishMeasurement() {
+		if (this.current != null) {
+			this.measured = this.current;
+			this.current = null;
+		}
+	}
+
+}
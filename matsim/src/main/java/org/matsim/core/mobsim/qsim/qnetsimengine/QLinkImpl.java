@@ -22,6 +22,7 @@ package org.matsim.core.mobsim.qsim.qnetsimengine;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import org.apache.log4j.Logger;
@@ -85,6 +86,7 @@ public final class QLinkImpl extends AbstractQLink implements SignalizeableItem
 	private final VisData visdata;
 
 	private final QLaneI qlane;
+	private final List<QLaneI> offeringQLanes;
 
 	private NetsimEngineContext context;
 	
@@ -95,6 +97,7 @@ public final class QLinkImpl extends AbstractQLink implements SignalizeableItem
 		// so that the caller can use references to the created roads to wire them together,
 		// if it must.
 		this.qlane = roadFactory.createLane(this); 
+		this.offeringQLanes = Collections.singletonList(this.qlane) ;
 		this.visdata = this.new VisDataImpl() ; // instantiating this here and not earlier so we can cache some things
 		super.setTransitQLink( new TransitQLink(this.qlane) ) ;
 	}
@@ -287,9 +290,8 @@ public final class QLinkImpl extends AbstractQLink implements SignalizeableItem
 	}
 
 	@Override List<QLaneI> getOfferingQLanes() {
-		List<QLaneI> list = new ArrayList<>() ;
-		list.add( this.qlane ) ;
-		return list ;
+		// called by the to-node in every time step, so do not create a new list each time
+		return this.offeringQLanes ;
 	}
 	@Override QLaneI getAcceptingQLane() {
 		return qlane ;
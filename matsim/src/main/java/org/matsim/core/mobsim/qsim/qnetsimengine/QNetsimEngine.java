@@ -22,7 +22,6 @@ package org.matsim.core.mobsim.qsim.qnetsimengine;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -42,15 +41,18 @@ import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.QSimConfigGroup;
 import org.matsim.core.config.groups.QSimConfigGroup.LinkDynamics;
+import org.matsim.core.config.groups.QSimConfigGroup.NetsimPartitioning;
 import org.matsim.core.config.groups.QSimConfigGroup.SnapshotStyle;
 import org.matsim.core.config.groups.QSimConfigGroup.StarttimeInterpretation;
 import org.matsim.core.config.groups.QSimConfigGroup.VehicleBehavior;
 import org.matsim.core.gbl.Gbl;
+import org.matsim.core.mobsim.framework.HasNextEventTime;
 import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.framework.MobsimDriverAgent;
 import org.matsim.core.mobsim.framework.MobsimTimer;
@@ -60,6 +62,7 @@ import org.matsim.core.mobsim.qsim.interfaces.AgentCounter;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimEngine;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
 import org.matsim.core.mobsim.qsim.interfaces.NetsimNetwork;
+import org.matsim.core.utils.collections.IdMap;
 import org.matsim.core.utils.misc.Time;
 import org.matsim.vehicles.Vehicle;
 import org.matsim.vis.snapshotwriters.SnapshotLinkWidthCalculator;
@@ -71,7 +74,7 @@ import org.matsim.vis.snapshotwriters.SnapshotLinkWidthCalculator;
  * @author dgrether
  * @author dstrippgen
  */
-public class QNetsimEngine implements MobsimEngine {
+public class QNetsimEngine implements MobsimEngine, HasNextEventTime {
 	public interface NetsimInternalInterface {
 
 		QNetwork getNetsimNetwork();
@@ -105,7 +108,7 @@ public class QNetsimEngine implements MobsimEngine {
 
 	private QNetwork network;
 
-	private final Map<Id<Vehicle>, QVehicle> vehicles = new HashMap<>();
+	private final Map<Id<Vehicle>, QVehicle> vehicles = new IdMap<>(Vehicle.class);
 
 	private final QSim qsim;
 
@@ -129,6 +132,10 @@ public class QNetsimEngine implements MobsimEngine {
 	private ExecutorService pool;
 
 	private final boolean usingThreadpool;
+
+	private final NetsimPartitioning partitioning;
+
+	private NetsimNodeWorkload workload = null;
 	
 	// for detailed run time analysis - used in combination with QSim.analyzeRunTimes
 	public static int numObservedTimeSteps = 24*3600;
@@ -150,6 +157,7 @@ public class QNetsimEngine implements MobsimEngine {
 		final Config config = sim.getScenario().getConfig();
 		final QSimConfigGroup qsimConfigGroup = config.qsim();
 		this.usingThreadpool = qsimConfigGroup.isUsingThreadpool();
+		this.partitioning = qsimConfigGroup.getNetsimPartitioning();
 
 
 		// configuring the car departure hander (including the vehicle behavior)
@@ -260,6 +268,10 @@ public class QNetsimEngine implements MobsimEngine {
 			this.startBarrier.arriveAndAwaitAdvance();
 		}
 
+		if (this.workload != null) {
+			this.workload.finishMeasurement();
+		}
+
 		/* Reset vehicles on ALL links. We cannot iterate only over the active links
 		 * (this.simLinksArray), because there may be links that have vehicles only
 		 * in the buffer (such links are *not* active, as the buffer gets emptied
@@ -349,7 +361,10 @@ public class QNetsimEngine implements MobsimEngine {
 
 	/*package*/ void printSimLog(double time) {
 		if (time >= this.infoTime) {
-			this.infoTime += INFO_PERIOD;
+			while (this.infoTime <= time) {
+				// more than once if the qsim skipped inactive time steps
+				this.infoTime += INFO_PERIOD;
+			}
 			int nofActiveLinks = this.getNumberOfSimulatedLinks();
 			int nofActiveNodes = this.getNumberOfSimulatedNodes();
 			log.info("SIMULATION (QNetsimEngine) AT " + Time.writeTime(time)
@@ -358,6 +373,15 @@ public class QNetsimEngine implements MobsimEngine {
 		}
 	}
 
+	@Override
+	public double getNextEventTime(final double now) {
+		double nextEventTime = Double.POSITIVE_INFINITY;
+		for (QNetsimEngineRunner engine : this.engines) {
+			nextEventTime = Math.min(nextEventTime, engine.getNextEventTime(now));
+		}
+		return nextEventTime;
+	}
+
 	public int getNumberOfSimulatedLinks() {
 
 		int numLinks = 0;
@@ -456,6 +480,15 @@ public class QNetsimEngine implements MobsimEngine {
 			this.engines.add(engine);
 		}
 
+		if (this.partitioning == NetsimPartitioning.coordinateBisection) {
+			this.workload = NetsimNodeWorkload.getOrCreate(this.qsim.getScenario());
+			long[] nodeWork = this.workload.startMeasurement();
+			for (int i = 0; i < numOfRunners; i++) {
+				this.engines.get(i).setPartitioned(i, numOfRunners);
+				this.engines.get(i).setNodeWork(nodeWork);
+			}
+		}
+
 		/*
 		 *  Assign every Link and Node to an Activator. By doing so, the
 		 *  activateNode(...) and activateLink(...) methods in this class
@@ -475,9 +508,14 @@ public class QNetsimEngine implements MobsimEngine {
 		int nodes[] = new int[numOfRunners];
 		int links[] = new int[numOfRunners];
 
+		int[] partitions = null;
+		if (this.partitioning == NetsimPartitioning.coordinateBisection) {
+			partitions = partitionNodes();
+		}
+
 		int roundRobin = 0;
 		for (QNode node : network.getNetsimNodes().values()) {
-			int i = roundRobin % this.numOfRunners;
+			int i = partitions == null ? roundRobin % this.numOfRunners : partitions[roundRobin];
 			node.setNetElementActivationRegistry(this.engines.get(i));
 			nodes[i]++;
 
@@ -509,10 +547,51 @@ public class QNetsimEngine implements MobsimEngine {
 		for (int i = 0; i < this.engines.size(); i++) {
 			log.info("Assigned " + nodes[i] + " nodes and " + links[i] + " links to QSimEngineRunner #" + i);
 		}
+		if (partitions != null) {
+			int[] runnerOfNode = new int[Id.getNumberOfIds(Node.class)];
+			int n = 0;
+			for (QNode node : network.getNetsimNodes().values()) {
+				runnerOfNode[node.getNode().getId().index()] = partitions[n++];
+			}
+			int boundaryLinks = 0;
+			for (QLinkI qLink : network.getNetsimLinks().values()) {
+				Link link = qLink.getLink();
+				if (runnerOfNode[link.getFromNode().getId().index()] != runnerOfNode[link.getToNode().getId().index()]) {
+					boundaryLinks++;
+				}
+			}
+			log.info(boundaryLinks + " of " + network.getNetsimLinks().size() + " links connect nodes of different QSimEngineRunners.");
+		}
 
 		this.linksToActivateInitially.clear();
 	}
 
+	/*
+	 * Splits the network along its coordinates into one area per runner, such that the areas cause
+	 * about the same work. The work of a node is measured in the previous iteration, see NetsimNodeWorkload;
+	 * in the first iteration, every node counts the same.
+	 * A link is moved by the runner of its from node, and its buffer is only emptied by the runner of its
+	 * to node in the next phase, so the buffers of the links between two areas already act as the handover
+	 * buffers between their runners.
+	 */
+	private int[] partitionNodes() {
+		Map<Id<Node>, QNode> qNodes = network.getNetsimNodes();
+		double[] x = new double[qNodes.size()];
+		double[] y = new double[qNodes.size()];
+		double[] weights = new double[qNodes.size()];
+		int i = 0;
+		for (QNode qNode : qNodes.values()) {
+			Node node = qNode.getNode();
+			x[i] = node.getCoord().getX();
+			y[i] = node.getCoord().getY();
+			weights[i] = this.workload.getWeight(node.getId());
+			i++;
+		}
+		log.info("Partitioning the network for " + this.numOfRunners + " QSimEngineRunners by coordinate bisection, "
+				+ (this.workload.hasMeasurement() ? "using the work load measured in the previous iteration." : "assuming equal work load for all nodes."));
+		return NetsimNetworkPartitioner.partition(x, y, weights, this.numOfRunners);
+	}
+
 	public void printEngineRunTimes() {
 		if (!QSim.analyzeRunTimes) return;
 		
@@ -76,6 +76,25 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 
 	private boolean movingNodes;
 
+	/*
+	 * Only used if the nodes are assigned to the runners by partition, see QSimConfigGroup.NetsimPartitioning.
+	 * Nodes activated by other runners are then not added to the nodesQueue directly, but collected in
+	 * one buffer per activating runner (the last buffer is for activations from outside the runners, e.g.
+	 * departures). Every buffer is written by a single thread only, and the barriers between the phases
+	 * make the writes visible. Before moving the nodes, the buffers are appended to the nodesQueue in the
+	 * order of the runners, so the nodes are processed in an order which does not depend on the timing
+	 * of the threads.
+	 */
+	private List<QNode>[] activatedNodesBySource = null;
+	private int runnerIndex = -1;
+	private static final ThreadLocal<QNetsimEngineRunner> currentRunner = new ThreadLocal<>();
+
+	/*
+	 * Counts the time steps in which a node and its outgoing links are active, indexed by the
+	 * index of the node's Id. A runner only writes to the counters of its own nodes.
+	 */
+	private long[] nodeWork = null;
+
 	/*package*/ long[] runTimes;
 	private long startTime = 0;
 	{	
@@ -96,6 +115,19 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 		this.endBarrier = null;
 	}
 
+	@SuppressWarnings("unchecked")
+	/*package*/ void setPartitioned(final int runnerIndex, final int numberOfRunners) {
+		this.runnerIndex = runnerIndex;
+		this.activatedNodesBySource = new List[numberOfRunners + 1];
+		for (int i = 0; i < this.activatedNodesBySource.length; i++) {
+			this.activatedNodesBySource[i] = new ArrayList<>();
+		}
+	}
+
+	/*package*/ void setNodeWork(final long[] nodeWork) {
+		this.nodeWork = nodeWork;
+	}
+
 	/*package*/ void setTime(final double t) {
 		time = t;
 	}
@@ -115,11 +147,16 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 			Gbl.printCurrentThreadCpuTime();
 			return false;
 		}
-
-		if (this.movingNodes) {
-			moveNodes();
-		} else {
-			moveLinks();
+		// the pool threads also run other tasks, which must not see this runner as theirs
+		currentRunner.set(this);
+		try {
+			if (this.movingNodes) {
+				moveNodes();
+			} else {
+				moveLinks();
+			}
+		} finally {
+			currentRunner.remove();
 		}
 		return true ;
 	}
@@ -127,50 +164,62 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 	@Override
 	public void run() {
 
-		// The method is ended when the simulationRunning flag is set to false.
-		while(true) {
+		currentRunner.set(this);
+		try {
+			// The method is ended when the simulationRunning flag is set to false.
+			while(true) {
 
-			/*
-			 * The threads wait at the startBarrier until they are triggered in the next 
-			 * time step by the run() method in the QNetsimEngine.
-			 */
-			startBarrier.arriveAndAwaitAdvance();
+				/*
+				 * The threads wait at the startBarrier until they are triggered in the next 
+				 * time step by the run() method in the QNetsimEngine.
+				 */
+				startBarrier.arriveAndAwaitAdvance();
 
-			if (QSim.analyzeRunTimes) this.startTime = System.nanoTime();
+				if (QSim.analyzeRunTimes) this.startTime = System.nanoTime();
 			
-			// Check if Simulation is still running. Otherwise print CPU usage and end thread.
-			if (!this.simulationRunning) {
-				Gbl.printCurrentThreadCpuTime();
-				return;
-			}
+				// Check if Simulation is still running. Otherwise print CPU usage and end thread.
+				if (!this.simulationRunning) {
+					Gbl.printCurrentThreadCpuTime();
+					return;
+				}
 
-			moveNodes();
+				moveNodes();
 
-			// After moving the QNodes all we use a Phaser to synchronize the threads.
-			this.separationBarrier.arriveAndAwaitAdvance();
+				// After moving the QNodes all we use a Phaser to synchronize the threads.
+				this.separationBarrier.arriveAndAwaitAdvance();
 
-			moveLinks();
+				moveLinks();
 
-			if (QSim.analyzeRunTimes) {
-				long end = System.nanoTime();
-				int bin = (int) this.time;
-				if (bin < this.runTimes.length) this.runTimes[bin] = end - this.startTime;
-			}
+				if (QSim.analyzeRunTimes) {
+					long end = System.nanoTime();
+					int bin = (int) this.time;
+					if (bin < this.runTimes.length) this.runTimes[bin] = end - this.startTime;
+				}
 			
-			/*
-			 * The end of moving is synchronized with the endBarrier. If all threads 
-			 * reach this barrier the main thread can go on.
-			 */
-			this.endBarrier.arriveAndAwaitAdvance();
+				/*
+				 * The end of moving is synchronized with the endBarrier. If all threads 
+				 * reach this barrier the main thread can go on.
+				 */
+				this.endBarrier.arriveAndAwaitAdvance();
+			}
+		} finally {
+			currentRunner.remove();
 		}
 	}
 	private void moveNodes() {
+		if (this.activatedNodesBySource != null) {
+			for (List<QNode> activatedNodes : this.activatedNodesBySource) {
+				this.nodesQueue.addAll(activatedNodes);
+				activatedNodes.clear();
+			}
+		}
 		boolean remainsActive;
 		this.lockNodes = true;
 		QNode node;
 		Iterator<QNode> simNodes = this.nodesQueue.iterator();
 		while (simNodes.hasNext()) {
 			node = simNodes.next();
+			if (this.nodeWork != null) this.nodeWork[node.getNode().getId().index()]++;
 			remainsActive = node.doSimStep(time);
 			if (!remainsActive) simNodes.remove();
 		}
@@ -183,6 +232,7 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 		ListIterator<QLinkI> simLinks = this.linksList.listIterator();
 		while (simLinks.hasNext()) {
 			link = simLinks.next();
+			if (this.nodeWork != null) this.nodeWork[link.getLink().getFromNode().getId().index()]++;
 
 			remainsActive = link.doSimStep();
 
@@ -214,8 +264,14 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 	 */
 	@Override
 	protected void registerNodeAsActive(QNode node) {
-		if (!this.lockNodes) this.nodesQueue.add(node);
-		else throw new RuntimeException("Tried to activate a QNode at a time where this was not allowed. Aborting!");
+		if (this.lockNodes) throw new RuntimeException("Tried to activate a QNode at a time where this was not allowed. Aborting!");
+		if (this.activatedNodesBySource != null) {
+			QNetsimEngineRunner source = currentRunner.get();
+			int sourceIndex = source == null ? this.activatedNodesBySource.length - 1 : source.runnerIndex;
+			this.activatedNodesBySource[sourceIndex].add(node);
+		} else {
+			this.nodesQueue.add(node);
+		}
 	}
 
 	/*
@@ -226,7 +282,27 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 	 */
 	@Override
 	public int getNumberOfSimulatedNodes() {
-		return this.nodesQueue.size();
+		int numberOfNodes = this.nodesQueue.size();
+		if (this.activatedNodesBySource != null) {
+			for (List<QNode> activatedNodes : this.activatedNodesBySource) {
+				numberOfNodes += activatedNodes.size();
+			}
+		}
+		return numberOfNodes;
+	}
+
+	@Override
+	double getNextEventTime(final double now) {
+		// avoid the O(n) size() of the nodesQueue
+		if (!this.nodesQueue.isEmpty() || !this.linksList.isEmpty()) {
+			return now;
+		}
+		if (this.activatedNodesBySource != null) {
+			for (List<QNode> activatedNodes : this.activatedNodesBySource) {
+				if (!activatedNodes.isEmpty()) return now;
+			}
+		}
+		return Double.POSITIVE_INFINITY;
 	}
 
 	public void setMovingNodes(boolean movingNodes) {
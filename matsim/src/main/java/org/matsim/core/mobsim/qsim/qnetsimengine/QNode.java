@@ -23,6 +23,7 @@ package org.matsim.core.mobsim.qsim.qnetsimengine;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -33,6 +34,7 @@ import org.matsim.api.core.v01.events.LinkEnterEvent;
 import org.matsim.api.core.v01.events.LinkLeaveEvent;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.groups.QSimConfigGroup.NetsimPartitioning;
 import org.matsim.core.gbl.Gbl;
 import org.matsim.core.gbl.MatsimRandom;
 import org.matsim.core.mobsim.framework.MobsimAgent;
@@ -88,10 +90,13 @@ public class QNode implements NetsimNode {
 		int nofInLinks = this.node.getInLinks().size();
 		this.inLinksArrayCache = new QLinkI[nofInLinks];
 		this.tempLinks = new QLinkI[nofInLinks];
-		if (this.context.qsimConfig.getNumberOfThreads() > 1) { 
+		if (this.context.qsimConfig.getNumberOfThreads() > 1
+				|| this.context.qsimConfig.getNetsimPartitioning() != NetsimPartitioning.roundRobin) { 
 			// This could just as well be the "normal" case. The second alternative
 			// is just there so some scenarios / test cases stay
 			// "event-file-compatible". Consider removing the second alternative.
+			// With a partitioned network, the nodes use their own streams also with one thread,
+			// so a single-threaded run produces the same events as a multi-threaded one.
 			this.random = MatsimRandom.getLocalInstance();
 		} else {
 			this.random = MatsimRandom.getRandom();
@@ -214,7 +219,9 @@ public class QNode implements NetsimNode {
 	}
 
 	private void moveLink(final QLinkI link, final double now){
-		for (QLaneI lane : link.getOfferingQLanes()) {
+		List<QLaneI> lanes = link.getOfferingQLanes();
+		for (int i = 0; i < lanes.size(); i++) { // no iterator, this is called very often
+			QLaneI lane = lanes.get(i);
 			while (! lane.isNotOfferingVehicle()) {
 				QVehicle veh = lane.getFirstVehicle();
 				Id<Link> nextLink = veh.getDriver().chooseNextLinkId();
@@ -19,10 +19,9 @@
 
 package org.matsim.core.mobsim.qsim.qnetsimengine;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.Queue;
 
 import org.apache.log4j.Logger;
@@ -153,7 +152,11 @@ final class QueueWithBuffer extends QLaneI implements SignalizeableItem {
 	private double usedBufferStorageCapacity = 0.0 ;
 	private double remainingHolesStorageCapacity = 0.0 ;
 
-	private final Queue<QueueWithBuffer.Hole> holes = new LinkedList<>();
+	private final Queue<QueueWithBuffer.Hole> holes = new ArrayDeque<>();
+	/**
+	 * Holes which have arrived at the upstream end, kept for re-use so moving vehicles does not create garbage.
+	 */
+	private final Queue<QueueWithBuffer.Hole> unusedHoles = new ArrayDeque<>();
 
 	private double freespeedTravelTime = Double.NaN;
 	/** the last time-step the front-most vehicle in the buffer was moved. Used for detecting dead-locks. */
@@ -169,7 +172,7 @@ final class QueueWithBuffer extends QLaneI implements SignalizeableItem {
 	/**
 	 * Holds all vehicles that are ready to cross the outgoing intersection
 	 */
-	private final Queue<QVehicle> buffer = new LinkedList<>() ;
+	private final Queue<QVehicle> buffer = new ArrayDeque<>() ;
 	/**
 	 * null if the link is not signalized
 	 */
@@ -433,6 +436,7 @@ final class QueueWithBuffer extends QLaneI implements SignalizeableItem {
 		while ( this.holes.size()>0 && this.holes.peek().getEarliestLinkExitTime() < now ) {
 			Hole hole = this.holes.poll() ; // ???
 			this.remainingHolesStorageCapacity += hole.getSizeInEquivalents() ;
+			this.unusedHoles.add( hole ) ;
 		}
 	}
 	
@@ -509,7 +513,10 @@ final class QueueWithBuffer extends QLaneI implements SignalizeableItem {
 		}
 
 		if ( context.qsimConfig.getTrafficDynamics()==TrafficDynamics.withHoles ) {
-			QueueWithBuffer.Hole hole = new QueueWithBuffer.Hole() ;
+			QueueWithBuffer.Hole hole = this.unusedHoles.poll() ;
+			if ( hole == null ) {
+				hole = new QueueWithBuffer.Hole() ;
+			}
 			double ttimeOfHoles = length*3600./HOLE_SPEED_KM_H/1000. ;
 			
 //			double offset = this.storageCapacity/this.flowCapacityPerTimeStep ;
@@ -894,6 +901,7 @@ final class QueueWithBuffer extends QLaneI implements SignalizeableItem {
 		}
 	}
 
+	private VehicleQ<QVehicle> seepageQueue = null ;
 	private int maxSeepModeAllowed = 4;
 	private int noOfSeepModeBringFwd = 0;
 	
@@ -909,18 +917,21 @@ final class QueueWithBuffer extends QLaneI implements SignalizeableItem {
 				return returnVeh;
 			}
 
-			VehicleQ<QVehicle> newVehQueue = new PassingVehicleQ();
+			// re-use the same sorting queue in every call instead of creating a new one:
+			if ( this.seepageQueue == null ) {
+				this.seepageQueue = new PassingVehicleQ() ;
+			}
+			VehicleQ<QVehicle> newVehQueue = this.seepageQueue;
 			newVehQueue.addAll(vehQueue);
 
-			Iterator<QVehicle> it = newVehQueue.iterator();
-
-			while(it.hasNext()){
+			while(!newVehQueue.isEmpty()){
 				QVehicle veh = newVehQueue.poll(); 
 				if( veh.getEarliestLinkExitTime()<=now && context.qsimConfig.getSeepModes().contains(veh.getDriver().getMode()) ) {
 					returnVeh = veh;
 					break;
 				}
 			}
+			newVehQueue.clear();
 		}
 		return returnVeh;
 	}
@@ -19,14 +19,17 @@
 package org.matsim.core.mobsim.qsim.qnetsimengine.vehicleq;
 
 import java.util.AbstractQueue;
+import java.util.ArrayDeque;
 import java.util.Iterator;
-import java.util.LinkedList;
 
 import org.matsim.core.mobsim.qsim.qnetsimengine.QVehicle;
 
+/**
+ * Backed by an array based deque, so vehicles entering and leaving the queue do not create garbage.
+ */
 public final class FIFOVehicleQ extends AbstractQueue<QVehicle> implements VehicleQ<QVehicle>  {
 	
-	private final LinkedList<QVehicle> vehicleQueue = new LinkedList<>();
+	private final ArrayDeque<QVehicle> vehicleQueue = new ArrayDeque<>();
 
 	@Override
 	public boolean offer(QVehicle e) {
@@ -43,6 +46,21 @@ public final class FIFOVehicleQ extends AbstractQueue<QVehicle> implements Vehic
 		return vehicleQueue.poll();
 	}
 
+	@Override
+	public boolean remove(Object o) {
+		// avoid the iterator of AbstractQueue.remove(...); the vehicle to remove is usually the first one
+		if (vehicleQueue.peekFirst() == o) {
+			vehicleQueue.pollFirst();
+			return true;
+		}
+		return vehicleQueue.removeFirstOccurrence(o);
+	}
+
+	@Override
+	public void clear() {
+		vehicleQueue.clear();
+	}
+
 	@Override
 	public Iterator<QVehicle> iterator() {
 		return vehicleQueue.iterator();
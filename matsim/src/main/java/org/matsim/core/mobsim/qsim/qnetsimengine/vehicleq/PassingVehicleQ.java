@@ -32,6 +32,21 @@ public final class PassingVehicleQ extends AbstractQueue<QVehicle> implements Ve
 		return delegate.poll();
 	}
 
+	@Override
+	public boolean remove(Object o) {
+		// avoid the iterator of AbstractQueue.remove(...); the vehicle to remove is usually the first one
+		if (delegate.peek() == o) {
+			delegate.poll();
+			return true;
+		}
+		return delegate.remove(o);
+	}
+
+	@Override
+	public void clear() {
+		delegate.clear();
+	}
+
 	@Override
 	public void addFirst(QVehicle qveh) {
 		qveh.setEarliestLinkExitTime(Double.NEGATIVE_INFINITY);
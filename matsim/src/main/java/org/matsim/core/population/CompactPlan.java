@@ -0,0 +1,1187 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactPlan.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Customizable;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.population.routes.CompressedNetworkRouteImpl;
+import org.matsim.core.population.routes.LinkNetworkRouteImpl;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.scenario.CustomizableUtils;
+import org.matsim.core.utils.misc.Time;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+import org.matsim.utils.objectattributes.attributable.AttributesUtils;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * A {@link Plan} which packs its activities, legs and network routes into a single <code>int[]</code> instead of keeping
+ * one object per plan element, see {@link org.matsim.core.config.groups.PlansConfigGroup.PlanElementStorage}.
+ * Activity types and modes are dictionary encoded, link, facility and vehicle Ids are stored by their index, and times
+ * as floats (which is exact for full seconds and precise to some milliseconds within a couple of days).
+ * <p></p>
+ * The elements in {@link #getPlanElements()} are small views onto the packed data. A view stays the same object as long
+ * as the plan is not compacted again; a view of an element which is removed from the plan takes its data with it.
+ * Elements which are added from outside are kept as they are, so references to them remain valid; {@link #compact()}
+ * packs them later if they are {@link ActivityImpl}s or {@link LegImpl}s. Views of other plans are copied when added.
+ */
+/* deliberately package */ final class CompactPlan implements Plan {
+
+	/*
+	 * For each element, offsets holds the offset of its record in data (or -(slot+1) for an element which is kept as object
+	 * in objects[slot]) and ids a per-plan id.  Records of activities and legs have the same fixed size; a leg with a network
+	 * route is followed by the route's link indices.  New records are appended to data; records of removed elements, and
+	 * records which are replaced by longer or shorter ones, are left behind as garbage until the plan is repacked, which
+	 * happens when compacting the plan and when the garbage takes up more than half of data.
+	 */
+	private static final int KIND_BITS = 2;
+	private static final int KIND_MASK = (1 << KIND_BITS) - 1;
+	private static final int KIND_ACTIVITY = 1;
+	private static final int KIND_LEG = 2;
+
+	private static final int HEADER = 0; // kind, and the dictionary code of the activity type or mode above it
+	private static final int ATTRIBUTES = 1; // slot in objects, or NONE
+
+	private static final int ACT_LINK = 2;
+	private static final int ACT_FACILITY = 3;
+	private static final int ACT_START_TIME = 4;
+	private static final int ACT_END_TIME = 5;
+	private static final int ACT_MAX_DURATION = 6;
+	private static final int ACT_COORD_DIMENSIONS = 7;
+	private static final int ACT_X = 8;
+	private static final int ACT_Y = 10;
+	private static final int ACT_Z = 12;
+
+	private static final int LEG_DEPARTURE_TIME = 2;
+	private static final int LEG_TRAVEL_TIME = 3;
+	private static final int LEG_ROUTE = 4; // slot in objects, NONE or NETWORK_ROUTE
+	private static final int ROUTE_START_LINK = 5;
+	private static final int ROUTE_END_LINK = 6;
+	private static final int ROUTE_VEHICLE = 7;
+	private static final int ROUTE_TRAVEL_TIME = 8;
+	private static final int ROUTE_DISTANCE = 9;
+	private static final int ROUTE_TRAVEL_COST = 11;
+	private static final int ROUTE_LINK_COUNT = 13;
+
+	private static final int RECORD_SIZE = 14;
+
+	/** the type of {@link LinkNetworkRouteImpl}, which is what a packed route turns into when it is cloned */
+	private static final String NETWORK_ROUTE_TYPE = "links";
+
+	private static final int NONE = -1;
+	private static final int NETWORK_ROUTE = -2;
+
+	private static final int[] EMPTY = new int[0];
+
+	private static final StringDictionary dictionary = new StringDictionary();
+
+	private int[] data = EMPTY;
+	private int dataLength = 0;
+	private int garbage = 0;
+	private int[] offsets = EMPTY;
+	private int[] ids = EMPTY;
+	private int size = 0;
+	private Object[] objects = null;
+	private int objectCount = 0;
+	private ElementView[] views = null;
+	private int nextId = 0;
+	private int version = 0;
+	/** holds a single element which was removed from its plan */
+	private final boolean detached;
+	private PlanElements planElements = null;
+
+	private Person person = null;
+	private String type = null;
+	private double score = 0.0;
+	private boolean hasScore = false;
+	private Customizable customizableDelegate;
+
+	/* package */ CompactPlan() {
+		this(false);
+	}
+
+	private CompactPlan(boolean detached) {
+		this.detached = detached;
+	}
+
+	/**
+	 * Packs the plans of the given person. {@link PlanImpl}s are replaced by compact copies, elements kept as objects in
+	 * compact plans are packed, other plans are left alone.
+	 */
+	static void compactPlans(final Person person) {
+		@SuppressWarnings("unchecked")
+		List<Plan> plans = (List<Plan>) person.getPlans();
+		for (int i = 0; i < plans.size(); i++) {
+			Plan plan = plans.get(i);
+			if (plan instanceof CompactPlan) {
+				((CompactPlan) plan).compact();
+			} else if (plan instanceof PlanImpl) {
+				CompactPlan compactPlan = copyOf(plan);
+				plans.set(i, compactPlan);
+				if (person.getSelectedPlan() == plan) {
+					person.setSelectedPlan(compactPlan);
+				}
+			}
+		}
+	}
+
+	private static CompactPlan copyOf(final Plan plan) {
+		CompactPlan copy = new CompactPlan();
+		copy.person = plan.getPerson();
+		copy.type = plan.getType();
+		copy.setScore(plan.getScore());
+		if (!plan.getCustomAttributes().isEmpty()) {
+			copy.getCustomAttributes().putAll(plan.getCustomAttributes());
+		}
+		List<Object> objs = new ArrayList<>();
+		for (PlanElement pe : plan.getPlanElements()) {
+			objs.clear();
+			copy.insertAt(copy.size, copy.append(toEntry(pe, objs, true), objs), copy.nextId++, null);
+		}
+		return copy;
+	}
+
+	/**
+	 * Packs the {@link ActivityImpl}s and {@link LegImpl}s which were added to this plan, drops the garbage, and forgets the
+	 * views handed out so far.
+	 */
+	void compact() {
+		this.views = null;
+		List<Object> objs = new ArrayList<>();
+		for (int i = 0; i < this.size; i++) {
+			int offset = this.offsets[i];
+			if (offset < 0) {
+				objs.clear();
+				Object entry = toEntry((PlanElement) this.objects[-offset - 1], objs, true);
+				if (entry instanceof int[]) {
+					this.objects[-offset - 1] = null;
+					this.offsets[i] = append(entry, objs);
+				}
+			}
+		}
+		if (this.garbage > 0 || this.objectCount > 0 || this.dataLength < this.data.length || this.size < this.offsets.length) {
+			repack();
+		}
+	}
+
+	/**
+	 * @return a deep copy, like {@link PopulationUtils#copyFromTo(Plan, Plan)} would create it
+	 */
+	CompactPlan copy() {
+		if (this.garbage > 0) {
+			repack();
+		}
+		CompactPlan copy = new CompactPlan();
+		copy.person = this.person;
+		copy.type = this.type;
+		copy.score = this.score;
+		copy.hasScore = this.hasScore;
+		copy.data = Arrays.copyOf(this.data, this.dataLength);
+		copy.dataLength = this.dataLength;
+		copy.offsets = Arrays.copyOf(this.offsets, this.size);
+		copy.ids = Arrays.copyOf(this.ids, this.size);
+		copy.size = this.size;
+		copy.nextId = this.nextId;
+		if (this.objectCount > 0) {
+			copy.objects = new Object[this.objectCount];
+			copy.objectCount = this.objectCount;
+			for (int i = 0; i < this.objectCount; i++) {
+				Object o = this.objects[i];
+				if (o instanceof Attributes) {
+					Attributes attributes = new Attributes();
+					AttributesUtils.copyTo((Attributes) o, attributes);
+					o = attributes;
+				} else if (o instanceof Activity) {
+					o = PopulationUtils.createActivity((Activity) o);
+				} else if (o instanceof Leg) {
+					o = PopulationUtils.createLeg((Leg) o);
+				} else if (o instanceof Route) {
+					o = ((Route) o).clone();
+				} else if (o != null) {
+					throw new IllegalArgumentException("unrecognized plan element type discovered");
+				}
+				copy.objects[i] = o;
+			}
+		}
+		return copy;
+	}
+
+	// --- Plan
+
+	@Override
+	public List<PlanElement> getPlanElements() {
+		if (this.planElements == null) {
+			this.planElements = new PlanElements();
+		}
+		return this.planElements;
+	}
+
+	@Override
+	public void addLeg(final Leg leg) {
+		getPlanElements().add(leg);
+	}
+
+	@Override
+	public void addActivity(final Activity act) {
+		getPlanElements().add(act);
+	}
+
+	@Override
+	public String getType() {
+		return this.type;
+	}
+
+	@Override
+	public void setType(final String type) {
+		this.type = type;
+	}
+
+	@Override
+	public Person getPerson() {
+		return this.person;
+	}
+
+	@Override
+	public void setPerson(final Person person) {
+		this.person = person;
+	}
+
+	@Override
+	public Double getScore() {
+		return this.hasScore ? this.score : null;
+	}
+
+	@Override
+	public void setScore(final Double score) {
+		this.hasScore = score != null;
+		this.score = score == null ? 0.0 : score;
+	}
+
+	@Override
+	public Map<String, Object> getCustomAttributes() {
+		if (this.customizableDelegate == null) {
+			this.customizableDelegate = CustomizableUtils.createCustomizable();
+		}
+		return this.customizableDelegate.getCustomAttributes();
+	}
+
+	@Override
+	public String toString() {
+		return "[score=" + (this.hasScore ? Double.toString(this.score) : "undefined") + "]" +
+				"[nof_acts_legs=" + size() + "]" +
+				"[type=" + this.type + "]" +
+				"[personId=" + (this.person == null ? "undefined" : this.person.getId().toString()) + "]";
+	}
+
+	// --- packing
+
+	private int size() {
+		return this.size;
+	}
+
+	/*package*/ int getGarbage() {
+		return this.garbage;
+	}
+
+	private int idAt(int pos) {
+		return this.ids[pos];
+	}
+
+	private int positionOf(int id) {
+		for (int i = 0; i < this.size; i++) {
+			if (this.ids[i] == id) {
+				return i;
+			}
+		}
+		throw new IllegalStateException("The plan element is no longer part of its plan.");
+	}
+
+	private int addObject(Object o) {
+		if (this.objects == null) {
+			this.objects = new Object[4];
+		} else if (this.objectCount == this.objects.length) {
+			this.objects = Arrays.copyOf(this.objects, 2 * this.objectCount);
+		}
+		this.objects[this.objectCount] = o;
+		return this.objectCount++;
+	}
+
+	private PlanElement element(int pos) {
+		int offset = this.offsets[pos];
+		if (offset < 0) {
+			return (PlanElement) this.objects[-offset - 1];
+		}
+		if (this.views == null) {
+			this.views = new ElementView[this.offsets.length];
+		}
+		ElementView view = this.views[pos];
+		if (view == null) {
+			if ((this.data[offset + HEADER] & KIND_MASK) == KIND_ACTIVITY) {
+				view = new ActivityView(this, idAt(pos));
+			} else {
+				view = new LegView(this, idAt(pos));
+			}
+			this.views[pos] = view;
+		}
+		return (PlanElement) view;
+	}
+
+	private int recordLength(int offset) {
+		int length = RECORD_SIZE;
+		if ((this.data[offset + HEADER] & KIND_MASK) == KIND_LEG && this.data[offset + LEG_ROUTE] == NETWORK_ROUTE) {
+			length += this.data[offset + ROUTE_LINK_COUNT];
+		}
+		return length;
+	}
+
+	/** @return a copy of the element's record, or the element if it is kept as object */
+	private Object entryAt(int pos) {
+		int offset = this.offsets[pos];
+		if (offset < 0) {
+			return this.objects[-offset - 1];
+		}
+		return Arrays.copyOfRange(this.data, offset, offset + recordLength(offset));
+	}
+
+	/**
+	 * Replaces <code>removeCount</code> elements starting at <code>index</code> by <code>insert</code> (if not null).
+	 * @return the removed elements, detached from this plan
+	 */
+	private PlanElement[] splice(int index, int removeCount, PlanElement insert) {
+		PlanElement[] removed = new PlanElement[removeCount];
+		for (int k = 0; k < removeCount; k++) {
+			removed[k] = detach(index + k);
+		}
+		removeElements(index, removeCount);
+		if (insert != null) {
+			// a view which was removed from some plan moves here
+			ElementView adopted = null;
+			if (insert instanceof ElementView && ((ElementView) insert).plan.detached) {
+				adopted = (ElementView) insert;
+			}
+			List<Object> objs = new ArrayList<>();
+			int id = this.nextId++;
+			insertAt(index, append(toEntry(insert, objs, adopted != null), objs), id, adopted);
+			if (adopted != null) {
+				adopted.bind(this, id);
+			}
+		}
+		if (this.garbage > this.dataLength / 2) {
+			repack();
+		}
+		return removed;
+	}
+
+	private void replaceRecord(ElementView view, int[] record) {
+		int pos = positionOf(view.id);
+		int length = recordLength(this.offsets[pos]);
+		// the object slots of the record are slots of this plan already
+		this.offsets[pos] = append(record, null);
+		this.version++;
+		addGarbage(length);
+	}
+
+	private void addGarbage(int length) {
+		this.garbage += length;
+		if (this.garbage > this.dataLength / 2) {
+			repack();
+		}
+	}
+
+	/** Moves the element at pos into a plan of its own, so that its view keeps working. */
+	private PlanElement detach(int pos) {
+		if (this.offsets[pos] < 0) {
+			return element(pos);
+		}
+		ElementView view = (ElementView) element(pos);
+		CompactPlan holder = new CompactPlan(true);
+		holder.insertAt(0, holder.append(entryAt(pos), Arrays.asList(this.objects == null ? new Object[0] : this.objects)), view.id, view);
+		view.bind(holder, view.id);
+		return (PlanElement) view;
+	}
+
+	/**
+	 * Appends the entry, either a record whose object slots refer to objs (or to this plan if objs is null), or an element
+	 * to keep as object.
+	 * @return the offset of the entry in data, or -(slot+1) for an element kept as object
+	 */
+	private int append(Object entry, List<Object> objs) {
+		if (!(entry instanceof int[])) {
+			return -addObject(entry) - 1;
+		}
+		int[] record = (int[]) entry;
+		if (this.dataLength + record.length > this.data.length) {
+			this.data = Arrays.copyOf(this.data, Math.max(this.dataLength + record.length, this.data.length + (this.data.length >> 1)));
+		}
+		int offset = this.dataLength;
+		System.arraycopy(record, 0, this.data, offset, record.length);
+		this.dataLength += record.length;
+		if (objs != null) {
+			this.data[offset + ATTRIBUTES] = adoptObject(record[ATTRIBUTES], objs);
+			if ((record[HEADER] & KIND_MASK) == KIND_LEG) {
+				this.data[offset + LEG_ROUTE] = adoptObject(record[LEG_ROUTE], objs);
+			}
+		}
+		return offset;
+	}
+
+	private int adoptObject(int slot, List<Object> from) {
+		return slot < 0 ? slot : addObject(from.get(slot));
+	}
+
+	private void insertAt(int index, int offset, int id, ElementView view) {
+		if (this.size == this.offsets.length) {
+			int capacity = Math.max(4, this.size + (this.size >> 1));
+			this.offsets = Arrays.copyOf(this.offsets, capacity);
+			this.ids = Arrays.copyOf(this.ids, capacity);
+			if (this.views != null) {
+				this.views = Arrays.copyOf(this.views, capacity);
+			}
+		}
+		int tail = this.size - index;
+		System.arraycopy(this.offsets, index, this.offsets, index + 1, tail);
+		System.arraycopy(this.ids, index, this.ids, index + 1, tail);
+		this.offsets[index] = offset;
+		this.ids[index] = id;
+		if (view != null && this.views == null) {
+			this.views = new ElementView[this.offsets.length];
+		}
+		if (this.views != null) {
+			System.arraycopy(this.views, index, this.views, index + 1, tail);
+			this.views[index] = view;
+		}
+		this.size++;
+	}
+
+	private void removeElements(int index, int count) {
+		if (count == 0) {
+			return;
+		}
+		for (int i = index; i < index + count; i++) {
+			int offset = this.offsets[i];
+			if (offset >= 0) {
+				this.garbage += recordLength(offset);
+			} else {
+				this.objects[-offset - 1] = null;
+			}
+		}
+		int tail = this.size - index - count;
+		System.arraycopy(this.offsets, index + count, this.offsets, index, tail);
+		System.arraycopy(this.ids, index + count, this.ids, index, tail);
+		if (this.views != null) {
+			System.arraycopy(this.views, index + count, this.views, index, tail);
+			Arrays.fill(this.views, this.size - count, this.size, null);
+		}
+		this.size -= count;
+	}
+
+	/**
+	 * Rebuilds data and objects from the records and objects of the current elements, in the order of the elements.
+	 */
+	private void repack() {
+		int length = 0;
+		for (int i = 0; i < this.size; i++) {
+			if (this.offsets[i] >= 0) {
+				length += recordLength(this.offsets[i]);
+			}
+		}
+		int[] newData = new int[length];
+		List<Object> newObjects = new ArrayList<>();
+		int[] newOffsets = new int[this.size];
+		int offset = 0;
+		for (int i = 0; i < this.size; i++) {
+			int oldOffset = this.offsets[i];
+			if (oldOffset >= 0) {
+				int recordLength = recordLength(oldOffset);
+				System.arraycopy(this.data, oldOffset, newData, offset, recordLength);
+				newData[offset + ATTRIBUTES] = keepObject(newData[offset + ATTRIBUTES], newObjects);
+				if ((newData[offset + HEADER] & KIND_MASK) == KIND_LEG) {
+					newData[offset + LEG_ROUTE] = keepObject(newData[offset + LEG_ROUTE], newObjects);
+				}
+				newOffsets[i] = offset;
+				offset += recordLength;
+			} else {
+				newObjects.add(this.objects[-oldOffset - 1]);
+				newOffsets[i] = -newObjects.size();
+			}
+		}
+		this.data = newData;
+		this.dataLength = length;
+		this.garbage = 0;
+		this.offsets = newOffsets;
+		this.ids = Arrays.copyOf(this.ids, this.size);
+		if (this.views != null) {
+			this.views = Arrays.copyOf(this.views, this.size);
+		}
+		this.objects = newObjects.isEmpty() ? null : newObjects.toArray();
+		this.objectCount = newObjects.size();
+		this.version++;
+	}
+
+	private int keepObject(int slot, List<Object> to) {
+		if (slot < 0) {
+			return slot;
+		}
+		to.add(this.objects[slot]);
+		return to.size() - 1;
+	}
+
+	/**
+	 * @param own whether the element gives up its attributes and route, which is the case for elements which are packed
+	 * in place and views which move from a detached plan. Views of other plans are always copied.
+	 * @return a record for views (and activities and legs to own), the element itself otherwise
+	 */
+	private static Object toEntry(PlanElement pe, List<Object> objs, boolean own) {
+		boolean isView = pe instanceof ElementView;
+		if (isView && !((ElementView) pe).plan.detached) {
+			own = false;
+		}
+		if (pe instanceof ActivityView || (own && pe instanceof ActivityImpl)) {
+			Activity act = (Activity) pe;
+			int[] record = new int[RECORD_SIZE];
+			record[HEADER] = header(KIND_ACTIVITY, act.getType());
+			record[ATTRIBUTES] = attributesSlot(pe, objs, own);
+			record[ACT_LINK] = index(act.getLinkId());
+			record[ACT_FACILITY] = index(act.getFacilityId());
+			record[ACT_START_TIME] = time(act.getStartTime());
+			record[ACT_END_TIME] = time(act.getEndTime());
+			record[ACT_MAX_DURATION] = time(act.getMaximumDuration());
+			putCoord(record, 0, act.getCoord());
+			return record;
+		}
+		if (pe instanceof LegView || (own && pe instanceof LegImpl)) {
+			Leg leg = (Leg) pe;
+			Route route = leg.getRoute();
+			boolean packRoute = route instanceof NetworkRouteView
+					|| (own && (route instanceof LinkNetworkRouteImpl || route instanceof CompressedNetworkRouteImpl));
+			int[] record = newLegRecord(packRoute ? (NetworkRoute) route : null);
+			record[HEADER] = header(KIND_LEG, leg.getMode());
+			record[ATTRIBUTES] = attributesSlot(pe, objs, own);
+			record[LEG_DEPARTURE_TIME] = time(leg.getDepartureTime());
+			record[LEG_TRAVEL_TIME] = time(leg.getTravelTime());
+			if (!packRoute) {
+				if (route == null) {
+					record[LEG_ROUTE] = NONE;
+				} else {
+					objs.add(own ? route : route.clone());
+					record[LEG_ROUTE] = objs.size() - 1;
+				}
+			}
+			return record;
+		}
+		return pe;
+	}
+
+	private static int attributesSlot(PlanElement pe, List<Object> objs, boolean own) {
+		Attributes attributes = pe instanceof ElementView ? ((ElementView) pe).getAttributesIfAny() : pe.getAttributes();
+		if (attributes == null || attributes.isEmpty()) {
+			return NONE;
+		}
+		if (!own) {
+			Attributes copy = new Attributes();
+			AttributesUtils.copyTo(attributes, copy);
+			attributes = copy;
+		}
+		objs.add(attributes);
+		return objs.size() - 1;
+	}
+
+	/** @return a leg record with the route fields filled in (or set to NONE if route is null) */
+	private static int[] newLegRecord(NetworkRoute route) {
+		if (route == null) {
+			int[] record = new int[RECORD_SIZE];
+			record[LEG_ROUTE] = NONE;
+			return record;
+		}
+		List<Id<Link>> linkIds = route.getLinkIds();
+		int[] record = new int[RECORD_SIZE + linkIds.size()];
+		record[LEG_ROUTE] = NETWORK_ROUTE;
+		record[ROUTE_START_LINK] = index(route.getStartLinkId());
+		record[ROUTE_END_LINK] = index(route.getEndLinkId());
+		record[ROUTE_VEHICLE] = index(route.getVehicleId());
+		record[ROUTE_TRAVEL_TIME] = time(route.getTravelTime());
+		putDouble(record, ROUTE_DISTANCE, route.getDistance());
+		putDouble(record, ROUTE_TRAVEL_COST, route.getTravelCost());
+		record[ROUTE_LINK_COUNT] = linkIds.size();
+		for (int i = 0; i < linkIds.size(); i++) {
+			record[RECORD_SIZE + i] = linkIds.get(i).index();
+		}
+		return record;
+	}
+
+	private static int header(int kind, String typeOrMode) {
+		return kind | (dictionary.encode(typeOrMode) << KIND_BITS);
+	}
+
+	private static int index(Id<?> id) {
+		return id == null ? NONE : id.index();
+	}
+
+	private static <T> Id<T> id(int index, Class<T> type) {
+		return index == NONE ? null : Id.get(index, type);
+	}
+
+	private static int time(double time) {
+		return Float.floatToRawIntBits((float) time);
+	}
+
+	private static void putDouble(int[] a, int pos, double value) {
+		long bits = Double.doubleToRawLongBits(value);
+		a[pos] = (int) (bits >>> 32);
+		a[pos + 1] = (int) bits;
+	}
+
+	private static double getDouble(int[] a, int pos) {
+		return Double.longBitsToDouble(((long) a[pos] << 32) | (a[pos + 1] & 0xffffffffL));
+	}
+
+	private static void putCoord(int[] a, int offset, Coord coord) {
+		if (coord == null) {
+			a[offset + ACT_COORD_DIMENSIONS] = 0;
+			return;
+		}
+		a[offset + ACT_COORD_DIMENSIONS] = coord.hasZ() ? 3 : 2;
+		putDouble(a, offset + ACT_X, coord.getX());
+		putDouble(a, offset + ACT_Y, coord.getY());
+		if (coord.hasZ()) {
+			putDouble(a, offset + ACT_Z, coord.getZ());
+		}
+	}
+
+	// --- views
+
+	private final class PlanElements extends AbstractList<PlanElement> {
+
+		@Override
+		public PlanElement get(int index) {
+			checkIndex(index, size());
+			return element(index);
+		}
+
+		@Override
+		public int size() {
+			return CompactPlan.this.size();
+		}
+
+		@Override
+		public PlanElement set(int index, PlanElement element) {
+			checkIndex(index, size());
+			return splice(index, 1, checkNotNull(element))[0];
+		}
+
+		@Override
+		public void add(int index, PlanElement element) {
+			checkIndex(index, size() + 1);
+			splice(index, 0, checkNotNull(element));
+			this.modCount++;
+		}
+
+		@Override
+		public PlanElement remove(int index) {
+			checkIndex(index, size());
+			this.modCount++;
+			return splice(index, 1, null)[0];
+		}
+
+		@Override
+		protected void removeRange(int fromIndex, int toIndex) {
+			this.modCount++;
+			splice(fromIndex, toIndex - fromIndex, null);
+		}
+
+		private void checkIndex(int index, int size) {
+			if (index < 0 || index >= size) {
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+			}
+		}
+
+		private PlanElement checkNotNull(PlanElement element) {
+			if (element == null) {
+				throw new NullPointerException("plan elements must not be null");
+			}
+			return element;
+		}
+	}
+
+	private static abstract class ElementView {
+		CompactPlan plan;
+		int id;
+		private int version = -1;
+		private int offset;
+
+		ElementView(CompactPlan plan, int id) {
+			this.plan = plan;
+			this.id = id;
+		}
+
+		final void bind(CompactPlan plan, int id) {
+			this.plan = plan;
+			this.id = id;
+			this.version = -1;
+		}
+
+		final int offset() {
+			if (this.version != this.plan.version) {
+				this.offset = this.plan.offsets[this.plan.positionOf(this.id)];
+				this.version = this.plan.version;
+			}
+			return this.offset;
+		}
+
+		final int getInt(int field) {
+			return this.plan.data[offset() + field];
+		}
+
+		final void setInt(int field, int value) {
+			this.plan.data[offset() + field] = value;
+		}
+
+		final double getTime(int field) {
+			return Float.intBitsToFloat(getInt(field));
+		}
+
+		final void setTime(int field, double time) {
+			setInt(field, time(time));
+		}
+
+		final String getTypeOrMode() {
+			return dictionary.decode(getInt(HEADER) >> KIND_BITS);
+		}
+
+		final void setTypeOrMode(String typeOrMode) {
+			setInt(HEADER, header(getInt(HEADER) & KIND_MASK, typeOrMode));
+		}
+
+		final Attributes getAttributesIfAny() {
+			int slot = getInt(ATTRIBUTES);
+			return slot == NONE ? null : (Attributes) this.plan.objects[slot];
+		}
+
+		public final Attributes getAttributes() {
+			Attributes attributes = getAttributesIfAny();
+			if (attributes == null) {
+				attributes = new Attributes();
+				setInt(ATTRIBUTES, this.plan.addObject(attributes));
+			}
+			return attributes;
+		}
+	}
+
+	private static final class ActivityView extends ElementView implements Activity {
+
+		ActivityView(CompactPlan plan, int id) {
+			super(plan, id);
+		}
+
+		@Override
+		public double getEndTime() {
+			return getTime(ACT_END_TIME);
+		}
+
+		@Override
+		public void setEndTime(double seconds) {
+			setTime(ACT_END_TIME, seconds);
+		}
+
+		@Override
+		public String getType() {
+			return getTypeOrMode();
+		}
+
+		@Override
+		public void setType(String type) {
+			setTypeOrMode(type);
+		}
+
+		@Override
+		public Coord getCoord() {
+			int offset = offset();
+			int[] data = this.plan.data;
+			switch (data[offset + ACT_COORD_DIMENSIONS]) {
+			case 2:
+				return new Coord(getDouble(data, offset + ACT_X), getDouble(data, offset + ACT_Y));
+			case 3:
+				return new Coord(getDouble(data, offset + ACT_X), getDouble(data, offset + ACT_Y), getDouble(data, offset + ACT_Z));
+			default:
+				return null;
+			}
+		}
+
+		@Override
+		public void setCoord(Coord coord) {
+			putCoord(this.plan.data, offset(), coord);
+		}
+
+		@Override
+		public double getStartTime() {
+			return getTime(ACT_START_TIME);
+		}
+
+		@Override
+		public void setStartTime(double seconds) {
+			setTime(ACT_START_TIME, seconds);
+		}
+
+		@Override
+		public double getMaximumDuration() {
+			return getTime(ACT_MAX_DURATION);
+		}
+
+		@Override
+		public void setMaximumDuration(double seconds) {
+			setTime(ACT_MAX_DURATION, seconds);
+		}
+
+		@Override
+		public Id<Link> getLinkId() {
+			return id(getInt(ACT_LINK), Link.class);
+		}
+
+		@Override
+		public Id<ActivityFacility> getFacilityId() {
+			return id(getInt(ACT_FACILITY), ActivityFacility.class);
+		}
+
+		@Override
+		public void setLinkId(Id<Link> id) {
+			setInt(ACT_LINK, index(id));
+		}
+
+		@Override
+		public void setFacilityId(Id<ActivityFacility> id) {
+			setInt(ACT_FACILITY, index(id));
+		}
+
+		@Override
+		public String toString() {
+			return "[type=" + this.getType() + "]" +
+					"[coord=" + this.getCoord() + "]" +
+					"[linkId=" + this.getLinkId() + "]" +
+					"[startTime=" + Time.writeTime(this.getStartTime()) + "]" +
+					"[endTime=" + Time.writeTime(this.getEndTime()) + "]" +
+					"[duration=" + Time.writeTime(this.getMaximumDuration()) + "]" +
+					"[facilityId=" + this.getFacilityId() + "]" ;
+		}
+	}
+
+	private static final class LegView extends ElementView implements Leg {
+
+		private NetworkRouteView routeView = null;
+
+		LegView(CompactPlan plan, int id) {
+			super(plan, id);
+		}
+
+		@Override
+		public String getMode() {
+			return getTypeOrMode();
+		}
+
+		@Override
+		public void setMode(String mode) {
+			setTypeOrMode(mode);
+		}
+
+		@Override
+		public Route getRoute() {
+			int slot = getInt(LEG_ROUTE);
+			if (slot == NONE) {
+				return null;
+			}
+			if (slot == NETWORK_ROUTE) {
+				if (this.routeView == null) {
+					this.routeView = new NetworkRouteView(this);
+				}
+				return this.routeView;
+			}
+			return (Route) this.plan.objects[slot];
+		}
+
+		@Override
+		public void setRoute(Route route) {
+			if (route != null && route == this.routeView) {
+				return;
+			}
+			if (route instanceof NetworkRouteView) {
+				int[] record = newLegRecord((NetworkRoute) route);
+				System.arraycopy(this.plan.data, offset(), record, 0, LEG_ROUTE);
+				this.plan.replaceRecord(this, record);
+				return;
+			}
+			this.routeView = null;
+			// the link indices of a packed route are left behind in data
+			int linkCount = getInt(LEG_ROUTE) == NETWORK_ROUTE ? getInt(ROUTE_LINK_COUNT) : 0;
+			setInt(LEG_ROUTE, route == null ? NONE : this.plan.addObject(route));
+			if (linkCount > 0) {
+				this.plan.addGarbage(linkCount);
+			}
+		}
+
+		@Override
+		public double getDepartureTime() {
+			return getTime(LEG_DEPARTURE_TIME);
+		}
+
+		@Override
+		public void setDepartureTime(double seconds) {
+			setTime(LEG_DEPARTURE_TIME, seconds);
+		}
+
+		@Override
+		public double getTravelTime() {
+			return getTime(LEG_TRAVEL_TIME);
+		}
+
+		@Override
+		public void setTravelTime(double seconds) {
+			setTime(LEG_TRAVEL_TIME, seconds);
+		}
+
+		@Override
+		public String toString() {
+			return "[mode=" + this.getMode() + "]" +
+					"[depTime=" + Time.writeTime(this.getDepartureTime()) + "]" +
+					"[travTime=" + Time.writeTime(this.getTravelTime()) + "]" +
+					"[arrTime=" + Time.writeTime(this.getDepartureTime() + this.getTravelTime()) + "]" +
+					"[route=" + this.getRoute() + "]";
+		}
+	}
+
+	/**
+	 * The network route of a packed leg; it follows the leg when that one is detached from its plan.
+	 */
+	private static final class NetworkRouteView implements NetworkRoute {
+
+		private final LegView leg;
+		private List<Id<Link>> linkIds = null;
+
+		NetworkRouteView(LegView leg) {
+			this.leg = leg;
+		}
+
+		private int offset() {
+			int offset = this.leg.offset();
+			if (this.leg.plan.data[offset + LEG_ROUTE] != NETWORK_ROUTE) {
+				throw new IllegalStateException("The route is no longer the route of its leg.");
+			}
+			return offset;
+		}
+
+		private int[] data() {
+			return this.leg.plan.data;
+		}
+
+		@Override
+		public double getDistance() {
+			return getDouble(data(), offset() + ROUTE_DISTANCE);
+		}
+
+		@Override
+		public void setDistance(double distance) {
+			putDouble(data(), offset() + ROUTE_DISTANCE, distance);
+		}
+
+		@Override
+		public double getTravelTime() {
+			return Float.intBitsToFloat(data()[offset() + ROUTE_TRAVEL_TIME]);
+		}
+
+		@Override
+		public void setTravelTime(double travelTime) {
+			data()[offset() + ROUTE_TRAVEL_TIME] = time(travelTime);
+		}
+
+		@Override
+		public Id<Link> getStartLinkId() {
+			return id(data()[offset() + ROUTE_START_LINK], Link.class);
+		}
+
+		@Override
+		public Id<Link> getEndLinkId() {
+			return id(data()[offset() + ROUTE_END_LINK], Link.class);
+		}
+
+		@Override
+		public void setStartLinkId(Id<Link> linkId) {
+			data()[offset() + ROUTE_START_LINK] = index(linkId);
+		}
+
+		@Override
+		public void setEndLinkId(Id<Link> linkId) {
+			data()[offset() + ROUTE_END_LINK] = index(linkId);
+		}
+
+		@Override
+		public String getRouteDescription() {
+			return toLinkNetworkRoute().getRouteDescription();
+		}
+
+		@Override
+		public void setRouteDescription(String routeDescription) {
+			LinkNetworkRouteImpl route = toLinkNetworkRoute();
+			route.setRouteDescription(routeDescription);
+			setLinkIds(route.getStartLinkId(), route.getLinkIds(), route.getEndLinkId());
+		}
+
+		@Override
+		public String getRouteType() {
+			return NETWORK_ROUTE_TYPE;
+		}
+
+		@Override
+		public LinkNetworkRouteImpl clone() {
+			return toLinkNetworkRoute();
+		}
+
+		@Override
+		public void setLinkIds(Id<Link> startLinkId, List<Id<Link>> linkIds, Id<Link> endLinkId) {
+			// linkIds may be a view of this route, so read them before anything is changed
+			int count = linkIds == null ? 0 : linkIds.size();
+			int[] links = new int[count];
+			for (int i = 0; i < count; i++) {
+				links[i] = linkIds.get(i).index();
+			}
+			int offset = offset();
+			if (count != data()[offset + ROUTE_LINK_COUNT]) {
+				int[] record = new int[RECORD_SIZE + count];
+				System.arraycopy(data(), offset, record, 0, RECORD_SIZE);
+				record[ROUTE_LINK_COUNT] = count;
+				this.leg.plan.replaceRecord(this.leg, record);
+				offset = offset();
+			}
+			int[] data = data();
+			data[offset + ROUTE_START_LINK] = index(startLinkId);
+			data[offset + ROUTE_END_LINK] = index(endLinkId);
+			System.arraycopy(links, 0, data, offset + RECORD_SIZE, count);
+		}
+
+		@Override
+		public void setTravelCost(double travelCost) {
+			putDouble(data(), offset() + ROUTE_TRAVEL_COST, travelCost);
+		}
+
+		@Override
+		public double getTravelCost() {
+			return getDouble(data(), offset() + ROUTE_TRAVEL_COST);
+		}
+
+		@Override
+		public List<Id<Link>> getLinkIds() {
+			if (this.linkIds == null) {
+				this.linkIds = new AbstractList<Id<Link>>() {
+					@Override
+					public Id<Link> get(int index) {
+						int offset = offset();
+						if (index < 0 || index >= data()[offset + ROUTE_LINK_COUNT]) {
+							throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+						}
+						return Id.get(data()[offset + RECORD_SIZE + index], Link.class);
+					}
+
+					@Override
+					public int size() {
+						return data()[offset() + ROUTE_LINK_COUNT];
+					}
+				};
+			}
+			return this.linkIds;
+		}
+
+		@Override
+		public NetworkRoute getSubRoute(Id<Link> fromLinkId, Id<Link> toLinkId) {
+			return toLinkNetworkRoute().getSubRoute(fromLinkId, toLinkId);
+		}
+
+		@Override
+		public void setVehicleId(Id<Vehicle> vehicleId) {
+			data()[offset() + ROUTE_VEHICLE] = index(vehicleId);
+		}
+
+		@Override
+		public Id<Vehicle> getVehicleId() {
+			return id(data()[offset() + ROUTE_VEHICLE], Vehicle.class);
+		}
+
+		private LinkNetworkRouteImpl toLinkNetworkRoute() {
+			LinkNetworkRouteImpl route = new LinkNetworkRouteImpl(getStartLinkId(), new ArrayList<>(getLinkIds()), getEndLinkId());
+			route.setDistance(getDistance());
+			route.setTravelTime(getTravelTime());
+			route.setTravelCost(getTravelCost());
+			route.setVehicleId(getVehicleId());
+			return route;
+		}
+
+		@Override
+		public String toString() {
+			return toLinkNetworkRoute().toString();
+		}
+	}
+
+	/**
+	 * Codes for activity types and modes, shared by all compact plans. Codes are only added, never removed, which is fine
+	 * for the small vocabularies of types and modes.
+	 */
+	private static final class StringDictionary {
+		private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+		private volatile String[] strings = new String[0];
+
+		int encode(String string) {
+			if (string == null) {
+				return NONE;
+			}
+			Integer code = this.codes.get(string);
+			return code != null ? code : add(string);
+		}
+
+		private synchronized int add(String string) {
+			Integer code = this.codes.get(string);
+			if (code == null) {
+				code = this.strings.length;
+				String[] strings = Arrays.copyOf(this.strings, code + 1);
+				strings[code] = string.intern();
+				// publish the string before its code
+				this.strings = strings;
+				this.codes.put(strings[code], code);
+			}
+			return code;
+		}
+
+		String decode(int code) {
+			return code == NONE ? null : this.strings[code];
+		}
+	}
+
+}
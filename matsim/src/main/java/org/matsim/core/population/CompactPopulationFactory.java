@@ -0,0 +1,43 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactPopulationFactory.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.core.population.routes.RouteFactories;
+
+/**
+ * Creates {@link CompactPlan}s. Activities and legs are still created as objects, so that they can be filled after they
+ * were added to a plan; they are packed when the person is added to the population, and again before every mobsim.
+ *
+ * @see org.matsim.core.config.groups.PlansConfigGroup.PlanElementStorage
+ */
+/* deliberately package */ final class CompactPopulationFactory extends PopulationFactoryImpl {
+
+	CompactPopulationFactory(RouteFactories routeFactory) {
+		super(routeFactory);
+	}
+
+	@Override
+	public Plan createPlan() {
+		return new CompactPlan();
+	}
+
+}
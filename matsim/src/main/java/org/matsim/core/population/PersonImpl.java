@@ -80,8 +80,13 @@ import org.matsim.utils.objectattributes.attributable.Attributes;
 		if (oldPlan == null) {
 			return null;
 		}
-		Plan newPlan = PopulationUtils.createPlan(oldPlan.getPerson());
-		PopulationUtils.copyFromTo(oldPlan, newPlan);
+		Plan newPlan;
+		if (oldPlan instanceof CompactPlan) {
+			newPlan = ((CompactPlan) oldPlan).copy();
+		} else {
+			newPlan = PopulationUtils.createPlan(oldPlan.getPerson());
+			PopulationUtils.copyFromTo(oldPlan, newPlan);
+		}
 		this.getPlans().add(newPlan);
 		this.setSelectedPlan(newPlan);
 		return newPlan;
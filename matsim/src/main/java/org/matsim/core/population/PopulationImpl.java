@@ -58,6 +58,9 @@ import org.matsim.utils.objectattributes.attributable.Attributes;
 		if ( p instanceof Lockable ) {
 			((Lockable) p).setLocked();
 		}
+		if ( this.populationFactory instanceof CompactPopulationFactory ) {
+			CompactPlan.compactPlans(p);
+		}
 
 		// show counter
 		this.counter++;
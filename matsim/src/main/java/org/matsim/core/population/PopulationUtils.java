@@ -121,6 +121,9 @@ public final class PopulationUtils {
 			throw new IllegalArgumentException("The type \"" + networkRouteType + "\" is not a supported type for network routes.");
 		}
 		routeFactory.setRouteFactory(NetworkRoute.class, factory);
+		if (plansConfigGroup.getPlanElementStorage() == PlansConfigGroup.PlanElementStorage.compact) {
+			return new PopulationImpl(new CompactPopulationFactory(routeFactory));
+		}
 		return new PopulationImpl(new PopulationFactoryImpl(routeFactory));
 	}
 	
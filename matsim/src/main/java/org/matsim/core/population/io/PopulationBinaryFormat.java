@@ -0,0 +1,143 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PopulationBinaryFormat.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.matsim.core.utils.io.MatsimBinaryFormat;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.attributeconverters.BooleanConverter;
+import org.matsim.utils.objectattributes.attributeconverters.DoubleConverter;
+import org.matsim.utils.objectattributes.attributeconverters.FloatConverter;
+import org.matsim.utils.objectattributes.attributeconverters.IntegerConverter;
+import org.matsim.utils.objectattributes.attributeconverters.LongConverter;
+import org.matsim.utils.objectattributes.attributeconverters.StringConverter;
+
+/**
+ * Constants and helpers shared by {@link PopulationWriterBinary} and {@link PopulationReaderBinary}.
+ * <p>
+ * Layout of a file, after the {@link MatsimBinaryFormat} header:
+ * <ul>
+ * <li>a block with the name and the attributes of the population,</li>
+ * <li>blocks of up to {@link #PERSONS_PER_BLOCK} persons each,</li>
+ * <li>the marker {@link #END_OF_BLOCKS}, followed by a block containing the index: the file offset and the ids of the
+ * persons of every person block,</li>
+ * <li>the file offset of the end marker, as the last eight bytes of the file.</li>
+ * </ul>
+ * Every block is written as the number of persons it contains, its uncompressed and compressed length, and the
+ * deflated data. The data starts with a {@linkplain MatsimBinaryFormat#readDictionary dictionary} of the strings used in
+ * the block (ids, types, modes, attribute names).
+ * Blocks can thus be decoded independently of each other.
+ */
+/*package*/ final class PopulationBinaryFormat {
+
+	static final int VERSION = 1;
+
+	static final int PERSONS_PER_BLOCK = 1000;
+
+	static final int END_OF_BLOCKS = -1;
+
+	static final byte ACTIVITY = 0;
+	static final byte LEG = 1;
+
+	static final byte NO_ROUTE = 0;
+	static final byte NETWORK_ROUTE = 1;
+	static final byte DESCRIBED_ROUTE = 2;
+
+	static final byte NO_COORD = 0;
+	static final byte COORD_XY = 1;
+	static final byte COORD_XYZ = 2;
+
+	private PopulationBinaryFormat() {
+	}
+
+	/**
+	 * @return <code>true</code> if the file name has the suffix of MATSim binary files; the contents are checked by
+	 * the reader.
+	 */
+	static boolean hasBinarySuffix(final String filename) {
+		return filename.toLowerCase(Locale.ROOT).endsWith(MatsimBinaryFormat.FILE_SUFFIX);
+	}
+
+	static Map<String, AttributeConverter<?>> createDefaultConverters() {
+		Map<String, AttributeConverter<?>> converters = new HashMap<>();
+		converters.put(String.class.getCanonicalName(), new StringConverter());
+		converters.put(Integer.class.getCanonicalName(), new IntegerConverter());
+		converters.put(Float.class.getCanonicalName(), new FloatConverter());
+		converters.put(Double.class.getCanonicalName(), new DoubleConverter());
+		converters.put(Boolean.class.getCanonicalName(), new BooleanConverter());
+		converters.put(Long.class.getCanonicalName(), new LongConverter());
+		return converters;
+	}
+
+	/**
+	 * A block as it was read from the file, not yet decompressed.
+	 */
+	static final class Block {
+		final int personCount;
+		final int rawLength;
+		final byte[] compressed;
+
+		Block(final int personCount, final int rawLength, final byte[] compressed) {
+			this.personCount = personCount;
+			this.rawLength = rawLength;
+			this.compressed = compressed;
+		}
+
+		/**
+		 * Compresses the data and writes it as a block.
+		 */
+		static void write(final DataOutput out, final int personCount, final ByteArrayOutputStream data) throws IOException {
+			byte[] compressed = MatsimBinaryFormat.deflate(data);
+			out.writeInt(personCount);
+			out.writeInt(data.size());
+			out.writeInt(compressed.length);
+			out.write(compressed);
+		}
+
+		/**
+		 * @return <code>null</code> at the end of the blocks
+		 */
+		static Block read(final DataInput in) throws IOException {
+			int personCount = in.readInt();
+			if (personCount == END_OF_BLOCKS) {
+				return null;
+			}
+			int rawLength = in.readInt();
+			byte[] compressed = new byte[in.readInt()];
+			in.readFully(compressed);
+			return new Block(personCount, rawLength, compressed);
+		}
+
+		DataInputStream decompress() throws IOException {
+			return new DataInputStream(new ByteArrayInputStream(MatsimBinaryFormat.inflate(this.compressed, this.rawLength)));
+		}
+	}
+
+}
@@ -0,0 +1,447 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PopulationReaderBinary.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.io.BufferedInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.api.internal.MatsimReader;
+import org.matsim.core.population.PersonUtils;
+import org.matsim.core.population.io.PopulationBinaryFormat.Block;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteFactories;
+import org.matsim.core.utils.geometry.CoordinateTransformation;
+import org.matsim.core.utils.geometry.transformations.IdentityTransformation;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.MatsimBinaryFormat;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Reads populations written by {@link PopulationWriter#writeBinary(String)}.
+ * <p>
+ * The blocks of persons are decompressed and decoded by {@link #setNumberOfThreads(int) several threads}, while the
+ * persons are added to the population in the order of the file. This also works with the population of a
+ * {@link StreamingPopulationReader}. Single persons can be read with {@link #readPerson(String, Id)}, which only
+ * decodes the block containing the person.
+ */
+public final class PopulationReaderBinary implements MatsimReader {
+
+	private static final Logger log = Logger.getLogger(PopulationReaderBinary.class);
+
+	private final CoordinateTransformation coordinateTransformation;
+	private final Scenario scenario;
+	private final Map<String, AttributeConverter<?>> converters = PopulationBinaryFormat.createDefaultConverters();
+	private final Set<String> missingConverters = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+	private int numberOfThreads;
+
+	private String indexedFile = null;
+	private long[] blockOffsets = null;
+	private Map<String, Integer> blockOfPerson = null;
+
+	public PopulationReaderBinary(final Scenario scenario) {
+		this(new IdentityTransformation(), scenario);
+	}
+
+	public PopulationReaderBinary(final CoordinateTransformation coordinateTransformation, final Scenario scenario) {
+		this.coordinateTransformation = coordinateTransformation;
+		this.scenario = scenario;
+		this.numberOfThreads = Math.max(1, scenario.getConfig().global().getNumberOfThreads());
+	}
+
+	public void putAttributeConverter(final Class<?> clazz, final AttributeConverter<?> converter) {
+		this.converters.put(clazz.getCanonicalName(), converter);
+	}
+
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		for (Map.Entry<Class<?>, AttributeConverter<?>> e : converters.entrySet()) {
+			putAttributeConverter(e.getKey(), e.getValue());
+		}
+	}
+
+	/**
+	 * Sets the number of threads decoding blocks of persons. Defaults to the number of threads in the
+	 * {@linkplain org.matsim.core.config.groups.GlobalConfigGroup global config group}.
+	 */
+	public void setNumberOfThreads(final int numberOfThreads) {
+		this.numberOfThreads = Math.max(1, numberOfThreads);
+	}
+
+	@Override
+	public void readFile(final String filename) throws UncheckedIOException {
+		log.info("starting to read binary population from file " + filename + " ...");
+		try (InputStream stream = IOUtils.getInputStream(filename)) {
+			parse(stream);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public void parse(final URL url) throws UncheckedIOException {
+		log.info("starting to read binary population from url " + url + " ...");
+		try (InputStream stream = IOUtils.getInputStream(url)) {
+			parse(stream);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Reads the population from the stream, without closing it.
+	 */
+	public void parse(final InputStream stream) throws UncheckedIOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 1 << 16));
+		try {
+			readHeader(in);
+			decodePopulation(Block.read(in));
+			if (this.numberOfThreads == 1) {
+				Block block;
+				while ((block = Block.read(in)) != null) {
+					addPersons(decodePersons(block));
+				}
+			} else {
+				readParallel(in);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Reads a single person, without adding it to the population. The index of the file is kept, so reading
+	 * further persons from the same file only needs to decode the blocks containing them. This needs random
+	 * access, so the file must not be compressed as a whole.
+	 *
+	 * @return the person, or <code>null</code> if the file contains no person with the given id
+	 */
+	public Person readPerson(final String filename, final Id<Person> personId) throws UncheckedIOException {
+		try (RandomAccessFile file = new RandomAccessFile(filename, "r")) {
+			if (!filename.equals(this.indexedFile)) {
+				readIndex(file);
+				this.indexedFile = filename;
+			}
+			Integer block = this.blockOfPerson.get(personId.toString());
+			if (block == null) {
+				return null;
+			}
+			file.seek(this.blockOffsets[block]);
+			for (Person person : decodePersons(Block.read(file))) {
+				if (person.getId().equals(personId)) {
+					return person;
+				}
+			}
+			return null;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void readHeader(final DataInput in) throws IOException {
+		int version = MatsimBinaryFormat.readHeader(in, MatsimBinaryFormat.POPULATION);
+		if (version > PopulationBinaryFormat.VERSION) {
+			throw new IOException("Binary population format version " + version + " is not supported by this reader, "
+					+ "which only knows versions up to " + PopulationBinaryFormat.VERSION + ".");
+		}
+	}
+
+	private void readIndex(final RandomAccessFile file) throws IOException {
+		readHeader(file);
+		file.seek(file.length() - 8);
+		file.seek(file.readLong());
+		if (file.readInt() != PopulationBinaryFormat.END_OF_BLOCKS) {
+			throw new IOException("The index of the binary population file is corrupt.");
+		}
+		DataInputStream in = Block.read(file).decompress();
+		int blockCount = MatsimBinaryFormat.readVarInt(in);
+		this.blockOffsets = new long[blockCount];
+		this.blockOfPerson = new HashMap<>();
+		for (int b = 0; b < blockCount; b++) {
+			this.blockOffsets[b] = in.readLong();
+			int personCount = MatsimBinaryFormat.readVarInt(in);
+			for (int i = 0; i < personCount; i++) {
+				this.blockOfPerson.put(MatsimBinaryFormat.readString(in), b);
+			}
+		}
+	}
+
+	private void readParallel(final DataInputStream in) throws IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(this.numberOfThreads);
+		try {
+			// bounded, so reading the file does not run away from adding the persons
+			Deque<Future<List<Person>>> pending = new ArrayDeque<>();
+			Block block;
+			while ((block = Block.read(in)) != null) {
+				final Block toDecode = block;
+				pending.add(executor.submit(new Callable<List<Person>>() {
+					@Override
+					public List<Person> call() throws IOException {
+						return decodePersons(toDecode);
+					}
+				}));
+				if (pending.size() > 2 * this.numberOfThreads) {
+					addPersons(pending.poll());
+				}
+			}
+			while (!pending.isEmpty()) {
+				addPersons(pending.poll());
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private void addPersons(final Future<List<Person>> decoded) throws IOException {
+		try {
+			addPersons(decoded.get());
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new RuntimeException(cause);
+		}
+	}
+
+	private void addPersons(final List<Person> persons) {
+		Population population = this.scenario.getPopulation();
+		for (Person person : persons) {
+			population.addPerson(person);
+		}
+	}
+
+	private void decodePopulation(final Block block) throws IOException {
+		DataInputStream in = block.decompress();
+		String[] dictionary = MatsimBinaryFormat.readDictionary(in);
+		Population population = this.scenario.getPopulation();
+		String name = readString(in, dictionary);
+		if (name != null) {
+			population.setName(name);
+		}
+		decodeAttributes(in, dictionary, population.getAttributes());
+	}
+
+	private List<Person> decodePersons(final Block block) throws IOException {
+		DataInputStream in = block.decompress();
+		String[] dictionary = MatsimBinaryFormat.readDictionary(in);
+		PopulationFactory factory = this.scenario.getPopulation().getFactory();
+		List<Person> persons = new ArrayList<>(block.personCount);
+		for (int i = 0; i < block.personCount; i++) {
+			persons.add(decodePerson(in, dictionary, factory));
+		}
+		return persons;
+	}
+
+	private Person decodePerson(final DataInputStream in, final String[] dictionary, final PopulationFactory factory) throws IOException {
+		Person person = factory.createPerson(Id.create(readString(in, dictionary), Person.class));
+		String sex = readString(in, dictionary);
+		if (sex != null) {
+			PersonUtils.setSex(person, sex);
+		}
+		if (in.readBoolean()) {
+			PersonUtils.setAge(person, in.readInt());
+		}
+		String license = readString(in, dictionary);
+		if (license != null) {
+			PersonUtils.setLicence(person, license);
+		}
+		String carAvail = readString(in, dictionary);
+		if (carAvail != null) {
+			PersonUtils.setCarAvail(person, carAvail);
+		}
+		byte employed = in.readByte();
+		if (employed != 0) {
+			PersonUtils.setEmployed(person, employed == 2);
+		}
+		decodeAttributes(in, dictionary, person.getAttributes());
+
+		int planCount = MatsimBinaryFormat.readVarInt(in);
+		for (int p = 0; p < planCount; p++) {
+			boolean selected = in.readBoolean();
+			Plan plan = factory.createPlan();
+			if (in.readBoolean()) {
+				plan.setScore(in.readDouble());
+			}
+			String type = readString(in, dictionary);
+			if (type != null) {
+				plan.setType(type);
+			}
+			int elementCount = MatsimBinaryFormat.readVarInt(in);
+			for (int e = 0; e < elementCount; e++) {
+				byte kind = in.readByte();
+				if (kind == PopulationBinaryFormat.ACTIVITY) {
+					plan.addActivity(decodeActivity(in, dictionary, factory));
+				} else if (kind == PopulationBinaryFormat.LEG) {
+					plan.addLeg(decodeLeg(in, dictionary, factory));
+				} else {
+					throw new IOException("unknown plan element kind " + kind);
+				}
+			}
+			person.addPlan(plan);
+			if (selected) {
+				person.setSelectedPlan(plan);
+			}
+		}
+		return person;
+	}
+
+	private Activity decodeActivity(final DataInputStream in, final String[] dictionary, final PopulationFactory factory) throws IOException {
+		String type = readString(in, dictionary);
+		Id<Link> linkId = readId(in, dictionary, Link.class);
+		Id<ActivityFacility> facilityId = readId(in, dictionary, ActivityFacility.class);
+		Coord coord = null;
+		byte coordKind = in.readByte();
+		if (coordKind == PopulationBinaryFormat.COORD_XY) {
+			coord = this.coordinateTransformation.transform(new Coord(in.readDouble(), in.readDouble()));
+		} else if (coordKind == PopulationBinaryFormat.COORD_XYZ) {
+			coord = this.coordinateTransformation.transform(new Coord(in.readDouble(), in.readDouble(), in.readDouble()));
+		}
+
+		Activity act;
+		if (linkId != null) {
+			act = factory.createActivityFromLinkId(type, linkId);
+			if (coord != null) {
+				act.setCoord(coord);
+			}
+		} else {
+			act = factory.createActivityFromCoord(type, coord);
+		}
+		if (facilityId != null) {
+			act.setFacilityId(facilityId);
+		}
+		act.setStartTime(in.readDouble());
+		act.setMaximumDuration(in.readDouble());
+		act.setEndTime(in.readDouble());
+		decodeAttributes(in, dictionary, act.getAttributes());
+		return act;
+	}
+
+	private Leg decodeLeg(final DataInputStream in, final String[] dictionary, final PopulationFactory factory) throws IOException {
+		Leg leg = factory.createLeg(readString(in, dictionary));
+		leg.setDepartureTime(in.readDouble());
+		leg.setTravelTime(in.readDouble());
+		decodeAttributes(in, dictionary, leg.getAttributes());
+
+		byte routeKind = in.readByte();
+		if (routeKind == PopulationBinaryFormat.NO_ROUTE) {
+			return leg;
+		}
+		String routeType = readString(in, dictionary);
+		Id<Link> startLinkId = readId(in, dictionary, Link.class);
+		Id<Link> endLinkId = readId(in, dictionary, Link.class);
+		double travelTime = in.readDouble();
+		double distance = in.readDouble();
+
+		RouteFactories routeFactories = factory.getRouteFactories();
+		Route route = routeFactories.createRoute(routeFactories.getRouteClassForType(routeType), startLinkId, endLinkId);
+		if (routeKind == PopulationBinaryFormat.NETWORK_ROUTE) {
+			int linkCount = MatsimBinaryFormat.readVarInt(in);
+			List<Id<Link>> linkIds = new ArrayList<>(linkCount);
+			for (int i = 0; i < linkCount; i++) {
+				linkIds.add(readId(in, dictionary, Link.class));
+			}
+			Id<Vehicle> vehicleId = readId(in, dictionary, Vehicle.class);
+			if (route instanceof NetworkRoute) {
+				((NetworkRoute) route).setLinkIds(startLinkId, linkIds, endLinkId);
+				((NetworkRoute) route).setVehicleId(vehicleId);
+			} else {
+				// the route type is not registered as network route in this scenario, fall back to the description
+				StringBuilder description = new StringBuilder().append(startLinkId);
+				for (Id<Link> linkId : linkIds) {
+					description.append(' ').append(linkId);
+				}
+				description.append(' ').append(endLinkId);
+				route.setRouteDescription(description.toString());
+			}
+		} else if (in.readBoolean()) {
+			route.setRouteDescription(MatsimBinaryFormat.readString(in));
+		}
+		route.setDistance(distance);
+		route.setTravelTime(travelTime);
+		leg.setRoute(route);
+		return leg;
+	}
+
+	private void decodeAttributes(final DataInputStream in, final String[] dictionary, final Attributes attributes) throws IOException {
+		int count = MatsimBinaryFormat.readVarInt(in);
+		for (int i = 0; i < count; i++) {
+			String name = readString(in, dictionary);
+			String className = readString(in, dictionary);
+			String value = MatsimBinaryFormat.readString(in);
+			AttributeConverter<?> converter = this.converters.get(className);
+			if (converter == null) {
+				if (this.missingConverters.add(className)) {
+					log.warn("No AttributeConverter found for class " + className + ". Not all attribute values can be read.");
+				}
+				continue;
+			}
+			attributes.putAttribute(name, converter.convert(value));
+		}
+	}
+
+	private static String readString(final DataInput in, final String[] dictionary) throws IOException {
+		return dictionary[MatsimBinaryFormat.readVarInt(in)];
+	}
+
+	private static <T> Id<T> readId(final DataInput in, final String[] dictionary, final Class<T> type) throws IOException {
+		String id = readString(in, dictionary);
+		return id == null ? null : Id.create(id, type);
+	}
+
+}
@@ -39,6 +39,7 @@ import org.matsim.core.population.algorithms.PersonAlgorithm;
 import org.matsim.core.utils.geometry.CoordinateTransformation;
 import org.matsim.core.utils.geometry.transformations.IdentityTransformation;
 import org.matsim.core.utils.io.AbstractMatsimWriter;
+import org.matsim.core.utils.io.IOUtils;
 import org.matsim.core.utils.io.UncheckedIOException;
 import org.matsim.core.utils.misc.Counter;
 import org.matsim.utils.objectattributes.AttributeConverter;
@@ -212,6 +213,32 @@ public final class PopulationWriter extends AbstractMatsimWriter implements Mats
 		write(filename);
 	}
 
+	/**
+	 * Writes all plans to the file in a binary format, which is much faster to read and write than xml, and allows to
+	 * read single persons without reading the whole file. See {@link PopulationReaderBinary}.
+	 */
+	public final void writeBinary(final String filename) {
+		PopulationWriterBinary binaryWriter = new PopulationWriterBinary(this.coordinateTransformation);
+		binaryWriter.putAttributeConverters(this.converters);
+		try (OutputStream stream = IOUtils.getOutputStream(filename)) {
+			binaryWriter.startPopulation(this.population, stream);
+			for (Person p : PopulationUtils.getSortedPersons(this.population).values()) {
+				if ((this.write_person_fraction < 1.0) && (MatsimRandom.getRandom().nextDouble() >= this.write_person_fraction)) {
+					continue;
+				}
+				binaryWriter.writePerson(p);
+				counter.incCounter();
+			}
+			binaryWriter.endPopulation();
+			log.info("Population written to: " + filename);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			counter.printCounter();
+			counter.reset();
+		}
+	}
+
 	public final void setWriterHandler(final PopulationWriterHandler handler) {
 		this.handler = handler;
 	}
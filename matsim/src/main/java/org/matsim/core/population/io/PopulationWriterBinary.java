@@ -0,0 +1,327 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PopulationWriterBinary.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.population.PersonUtils;
+import org.matsim.core.population.io.PopulationBinaryFormat.Block;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.utils.geometry.CoordinateTransformation;
+import org.matsim.core.utils.io.MatsimBinaryFormat;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+import org.matsim.utils.objectattributes.attributeconverters.BooleanConverter;
+import org.matsim.utils.objectattributes.attributeconverters.DoubleConverter;
+import org.matsim.utils.objectattributes.attributeconverters.FloatConverter;
+import org.matsim.utils.objectattributes.attributeconverters.IntegerConverter;
+import org.matsim.utils.objectattributes.attributeconverters.LongConverter;
+import org.matsim.utils.objectattributes.attributeconverters.StringConverter;
+
+/**
+ * Writes a population in the binary format described in {@link PopulationBinaryFormat}. Persons are collected
+ * into blocks which are compressed and written once they are full, so only one block is kept in memory
+ * besides the ids needed for the index.
+ */
+/*package*/ final class PopulationWriterBinary {
+
+	private static final Logger log = Logger.getLogger(PopulationWriterBinary.class);
+
+	private final CoordinateTransformation coordinateTransformation;
+	private final Map<Class<?>, AttributeConverter<?>> converters = new HashMap<>();
+	private final Set<Class<?>> missingConverters = new HashSet<>();
+
+	private CountingOutputStream stream = null;
+	private DataOutputStream out = null;
+
+	private final List<Long> blockOffsets = new ArrayList<>();
+	private final List<List<String>> blockPersonIds = new ArrayList<>();
+
+	private final Map<String, Integer> codes = new HashMap<>();
+	private final List<String> dictionary = new ArrayList<>();
+	private final ByteArrayOutputStream blockData = new ByteArrayOutputStream(1 << 16);
+	private final DataOutputStream blockOut = new DataOutputStream(this.blockData);
+	private List<String> personIds = new ArrayList<>();
+
+	PopulationWriterBinary(final CoordinateTransformation coordinateTransformation) {
+		this.coordinateTransformation = coordinateTransformation;
+		this.converters.put(String.class, new StringConverter());
+		this.converters.put(Integer.class, new IntegerConverter());
+		this.converters.put(Float.class, new FloatConverter());
+		this.converters.put(Double.class, new DoubleConverter());
+		this.converters.put(Boolean.class, new BooleanConverter());
+		this.converters.put(Long.class, new LongConverter());
+	}
+
+	void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		this.converters.putAll(converters);
+	}
+
+	void startPopulation(final Population population, final OutputStream outputStream) throws IOException {
+		this.stream = new CountingOutputStream(outputStream);
+		this.out = new DataOutputStream(this.stream);
+		MatsimBinaryFormat.writeHeader(this.out, MatsimBinaryFormat.POPULATION, PopulationBinaryFormat.VERSION);
+		writeString(population.getName());
+		writeAttributes(population.getAttributes());
+		writeBlock(0);
+	}
+
+	void writePerson(final Person person) throws IOException {
+		writeString(person.getId().toString());
+		writeString(PersonUtils.getSex(person));
+		Integer age = PersonUtils.getAge(person);
+		this.blockOut.writeBoolean(age != null);
+		if (age != null) {
+			this.blockOut.writeInt(age);
+		}
+		writeString(PersonUtils.getLicense(person));
+		writeString(PersonUtils.getCarAvail(person));
+		Boolean employed = PersonUtils.isEmployed(person);
+		this.blockOut.writeByte(employed == null ? 0 : (employed ? 2 : 1));
+		writeAttributes(person.getAttributes());
+
+		MatsimBinaryFormat.writeVarInt(this.blockOut, person.getPlans().size());
+		for (Plan plan : person.getPlans()) {
+			writePlan(plan, person.getSelectedPlan() == plan);
+		}
+
+		this.personIds.add(person.getId().toString());
+		if (this.personIds.size() == PopulationBinaryFormat.PERSONS_PER_BLOCK) {
+			writePersonBlock();
+		}
+	}
+
+	/**
+	 * Writes the remaining persons, the index and the trailer. Does not close the underlying stream.
+	 */
+	void endPopulation() throws IOException {
+		if (!this.personIds.isEmpty()) {
+			writePersonBlock();
+		}
+		long indexOffset = this.stream.count;
+		this.out.writeInt(PopulationBinaryFormat.END_OF_BLOCKS);
+		MatsimBinaryFormat.writeVarInt(this.blockOut, this.blockOffsets.size());
+		for (int i = 0; i < this.blockOffsets.size(); i++) {
+			this.blockOut.writeLong(this.blockOffsets.get(i));
+			List<String> ids = this.blockPersonIds.get(i);
+			MatsimBinaryFormat.writeVarInt(this.blockOut, ids.size());
+			for (String id : ids) {
+				MatsimBinaryFormat.writeString(this.blockOut, id);
+			}
+		}
+		Block.write(this.out, this.blockOffsets.size(), this.blockData);
+		this.blockData.reset();
+		this.out.writeLong(indexOffset);
+		this.out.flush();
+	}
+
+	private void writePlan(final Plan plan, final boolean selected) throws IOException {
+		Double score = plan.getScore();
+		this.blockOut.writeBoolean(selected);
+		this.blockOut.writeBoolean(score != null);
+		if (score != null) {
+			this.blockOut.writeDouble(score);
+		}
+		writeString(plan.getType());
+		MatsimBinaryFormat.writeVarInt(this.blockOut, plan.getPlanElements().size());
+		for (PlanElement pe : plan.getPlanElements()) {
+			if (pe instanceof Activity) {
+				writeActivity((Activity) pe);
+			} else if (pe instanceof Leg) {
+				writeLeg((Leg) pe);
+			} else {
+				throw new IllegalArgumentException("unrecognized plan element type discovered");
+			}
+		}
+	}
+
+	private void writeActivity(final Activity act) throws IOException {
+		this.blockOut.writeByte(PopulationBinaryFormat.ACTIVITY);
+		writeString(act.getType());
+		writeId(act.getLinkId());
+		writeId(act.getFacilityId());
+		if (act.getCoord() == null) {
+			this.blockOut.writeByte(PopulationBinaryFormat.NO_COORD);
+		} else {
+			Coord coord = this.coordinateTransformation.transform(act.getCoord());
+			this.blockOut.writeByte(act.getCoord().hasZ() ? PopulationBinaryFormat.COORD_XYZ : PopulationBinaryFormat.COORD_XY);
+			this.blockOut.writeDouble(coord.getX());
+			this.blockOut.writeDouble(coord.getY());
+			if (act.getCoord().hasZ()) {
+				this.blockOut.writeDouble(coord.getZ());
+			}
+		}
+		this.blockOut.writeDouble(act.getStartTime());
+		this.blockOut.writeDouble(act.getMaximumDuration());
+		this.blockOut.writeDouble(act.getEndTime());
+		writeAttributes(act.getAttributes());
+	}
+
+	private void writeLeg(final Leg leg) throws IOException {
+		this.blockOut.writeByte(PopulationBinaryFormat.LEG);
+		writeString(leg.getMode());
+		this.blockOut.writeDouble(leg.getDepartureTime());
+		this.blockOut.writeDouble(leg.getTravelTime());
+		writeAttributes(leg.getAttributes());
+
+		Route route = leg.getRoute();
+		if (route == null) {
+			this.blockOut.writeByte(PopulationBinaryFormat.NO_ROUTE);
+			return;
+		}
+		this.blockOut.writeByte(route instanceof NetworkRoute ? PopulationBinaryFormat.NETWORK_ROUTE : PopulationBinaryFormat.DESCRIBED_ROUTE);
+		writeString(route.getRouteType());
+		writeId(route.getStartLinkId());
+		writeId(route.getEndLinkId());
+		this.blockOut.writeDouble(route.getTravelTime());
+		this.blockOut.writeDouble(route.getDistance());
+		if (route instanceof NetworkRoute) {
+			NetworkRoute networkRoute = (NetworkRoute) route;
+			List<Id<Link>> linkIds = networkRoute.getLinkIds();
+			MatsimBinaryFormat.writeVarInt(this.blockOut, linkIds.size());
+			for (Id<Link> linkId : linkIds) {
+				writeId(linkId);
+			}
+			writeId(networkRoute.getVehicleId());
+		} else {
+			String description = route.getRouteDescription();
+			this.blockOut.writeBoolean(description != null);
+			if (description != null) {
+				MatsimBinaryFormat.writeString(this.blockOut, description);
+			}
+		}
+	}
+
+	private void writeAttributes(final Attributes attributes) throws IOException {
+		if (attributes.isEmpty()) {
+			MatsimBinaryFormat.writeVarInt(this.blockOut, 0);
+			return;
+		}
+		List<String> names = new ArrayList<>();
+		List<Class<?>> classes = new ArrayList<>();
+		List<String> values = new ArrayList<>();
+		for (Map.Entry<String, Object> e : attributes.getAsMap().entrySet()) {
+			Class<?> clazz = e.getValue().getClass();
+			AttributeConverter<?> converter = this.converters.get(clazz);
+			if (converter == null) {
+				if (this.missingConverters.add(clazz)) {
+					log.warn("No AttributeConverter found for class " + clazz.getCanonicalName() + ". Not all attribute values will be written.");
+				}
+				continue;
+			}
+			names.add(e.getKey());
+			classes.add(clazz);
+			values.add(converter.convertToString(e.getValue()));
+		}
+		MatsimBinaryFormat.writeVarInt(this.blockOut, names.size());
+		for (int i = 0; i < names.size(); i++) {
+			writeString(names.get(i));
+			writeString(classes.get(i).getCanonicalName());
+			MatsimBinaryFormat.writeString(this.blockOut, values.get(i));
+		}
+	}
+
+	private void writeId(final Id<?> id) throws IOException {
+		writeString(id == null ? null : id.toString());
+	}
+
+	/**
+	 * Writes the code of the string in the dictionary of the current block.
+	 */
+	private void writeString(final String s) throws IOException {
+		if (s == null) {
+			MatsimBinaryFormat.writeVarInt(this.blockOut, 0);
+			return;
+		}
+		Integer code = this.codes.get(s);
+		if (code == null) {
+			this.dictionary.add(s);
+			code = this.dictionary.size();
+			this.codes.put(s, code);
+		}
+		MatsimBinaryFormat.writeVarInt(this.blockOut, code);
+	}
+
+	private void writePersonBlock() throws IOException {
+		this.blockOffsets.add(this.stream.count);
+		this.blockPersonIds.add(this.personIds);
+		int personCount = this.personIds.size();
+		this.personIds = new ArrayList<>();
+		writeBlock(personCount);
+	}
+
+	private void writeBlock(final int personCount) throws IOException {
+		ByteArrayOutputStream data = new ByteArrayOutputStream(this.blockData.size() + 16 * this.dictionary.size() + 16);
+		DataOutputStream dataOut = new DataOutputStream(data);
+		MatsimBinaryFormat.writeVarInt(dataOut, this.dictionary.size());
+		for (String s : this.dictionary) {
+			MatsimBinaryFormat.writeString(dataOut, s);
+		}
+		this.blockData.writeTo(dataOut);
+		Block.write(this.out, personCount, data);
+
+		this.blockData.reset();
+		this.dictionary.clear();
+		this.codes.clear();
+	}
+
+	private static final class CountingOutputStream extends FilterOutputStream {
+		long count = 0;
+
+		CountingOutputStream(final OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(final int b) throws IOException {
+			this.out.write(b);
+			this.count++;
+		}
+
+		@Override
+		public void write(final byte[] b, final int off, final int len) throws IOException {
+			this.out.write(b, off, len);
+			this.count += len;
+		}
+	}
+
+}
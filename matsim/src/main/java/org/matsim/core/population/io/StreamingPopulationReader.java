@@ -44,6 +44,8 @@ public final class StreamingPopulationReader implements MatsimReader {
 	private static final Logger log = Logger.getLogger(StreamingPopulationReader.class);
 	
 	private PopulationReader reader ;
+	private final CoordinateTransformation coordinateTransformation ;
+	private final Scenario scenario ;
 	private final StreamingPopulation pop ;
 	private int cnt;
 
@@ -58,6 +60,8 @@ public final class StreamingPopulationReader implements MatsimReader {
 			pop = new StreamingPopulation( scenario.getConfig() ) ;
 			((MutableScenario) scenario).setPopulation(pop);
 			reader = new PopulationReader( coordinateTransformation, scenario, true) ;
+			this.coordinateTransformation = coordinateTransformation ;
+			this.scenario = scenario ;
 		} else {
 			throw new RuntimeException("scenario given into this class needs to be an instance of MutableScenario.") ;
 		}
@@ -66,6 +70,11 @@ public final class StreamingPopulationReader implements MatsimReader {
 		return pop ;
 	}
 	@Override public void readFile(String filename) {
+		if ( PopulationBinaryFormat.hasBinarySuffix( filename ) ) {
+			// the persons are added to the streaming population in file order, so the algorithms see them as with xml
+			new PopulationReaderBinary( coordinateTransformation, scenario ).readFile( filename );
+			return ;
+		}
 		reader.readFile(filename);
 	}
 	public void parse(InputStream is) {
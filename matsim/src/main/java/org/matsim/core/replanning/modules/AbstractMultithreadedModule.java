@@ -27,11 +27,11 @@ import org.matsim.core.config.groups.GlobalConfigGroup;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
 import org.matsim.core.replanning.ReplanningContext;
 import org.matsim.core.utils.misc.Counter;
+import org.matsim.core.utils.misc.ParallelUtils;
 
-import java.lang.Thread.UncaughtExceptionHandler;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * An abstract strategy module for running multiple plan algorithms in parallel.
@@ -40,35 +40,43 @@ import java.util.concurrent.atomic.AtomicReference;
  * Just overwrite getPlanAlgoInstance() to return an instance of your plan
  * algorithm.
  * <p></p>
- * <code>initThreads()</code> creates the threads, but does not yet start them.
+ * <code>prepareReplanning()</code> creates one plan algorithm per thread.
  * <p></p>
- * <code>handlePlan(Plan)</code> distributes the plans equally to all threads.
+ * <code>handlePlan(Plan)</code> collects the plans.
  * <p></p>
- * <code>finishReplanning()</code> finally starts the threads and waits for all threads to be finished.
+ * <code>finishReplanning()</code> runs the plan algorithms with {@link ParallelUtils}, on threads
+ * shared by all multi-threaded modules, and waits until all plans are handled.
  * <p></p>
- * While this approach does not lead to optimal performance gains ("slow threads" vs.
- * "fast threads"), it helps building reproducible runs.  Additionally, as the threads are only
- * started after all to-be-handled plans are added, we can use unsynchronized data structures.
+ * By default, the plans are distributed equally to the plan algorithms. While this approach does not
+ * lead to optimal performance gains ("slow threads" vs. "fast threads"), it helps building reproducible
+ * runs. With {@link GlobalConfigGroup#setReplanningLoadBalancing(boolean) load balancing}, the plan
+ * algorithms instead take small batches of plans from a common queue until all plans are handled.
+ * <p></p>
+ * After each replanning, the time spent by the threads is logged, which shows how well the work was balanced.
  * <p></p>
  * Design comments/questions:<ul>
  * <li> As a consequence of the design, the instances that getPlanAlgoInstance() returns, need to be thread-safe.  kai, dec'12
  * For an example with discussions, see {@link tutorial.programming.multiThreadedPlanStrategy.RunWithMultithreadedModule}
+ * <li> The plan algorithms are created anew for every replanning, since they typically depend on the
+ * replanning context (e.g. the travel times of the last iteration).
  * </ul>
  *
  * @author mrieser
  */
 abstract public class AbstractMultithreadedModule implements PlanStrategyModule {
+
+	/** the largest number of plans a thread takes from the queue at once when load balancing */
+	private static final int MAX_BATCH_SIZE = 32;
+
 	private final int numOfThreads;
+	private final boolean loadBalancing;
 
-	private PlanAlgoThread[] algothreads = null;
-	private Thread[] threads = null;
+	private PlanAlgorithm[] algos = null;
 	private PlanAlgorithm directAlgo = null;
 	private String name = null;
+	private Counter counter = null;
 
-	private int count = 0;
-
-	private final AtomicReference<Throwable> hadException = new AtomicReference<>(null);
-	private final ExceptionHandler exceptionHandler = new ExceptionHandler(this.hadException);
+	private List<Plan> plans = new ArrayList<>();
 
 	private ReplanningContext replanningContext;
 
@@ -84,10 +92,12 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 
 	public AbstractMultithreadedModule(GlobalConfigGroup globalConfigGroup) {
 		this.numOfThreads = globalConfigGroup.getNumberOfThreads();
+		this.loadBalancing = globalConfigGroup.isReplanningLoadBalancing();
 	}
 
 	public AbstractMultithreadedModule(final int numOfThreads) {
 		this.numOfThreads = numOfThreads;
+		this.loadBalancing = false;
 	}
 	
 	protected void beforePrepareReplanningHook(@SuppressWarnings("unused") ReplanningContext replanningContextTmp) {
@@ -106,7 +116,7 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 			// it seems, no threads are desired :(
 			this.directAlgo = getPlanAlgoInstance();
 		} else {
-			initThreads();
+			initAlgos();
 		}
 		this.afterPrepareReplanningHook(replanningContextTmp);
 	}
@@ -118,8 +128,7 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	@Override
 	public final void handlePlan(final Plan plan) {
 		if (this.directAlgo == null) {
-			this.algothreads[this.count % this.numOfThreads].addPlanToThread(plan);
-			this.count++;
+			this.plans.add(plan);
 		} else {
 			this.directAlgo.run(plan);
 		}
@@ -137,103 +146,97 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		this.beforeFinishReplanningHook();
 		
 		if (this.directAlgo == null) {
-			// only try to start threads if we did not directly work on all the plans
-			log.info("[" + this.name + "] starting " + this.threads.length + " threads, handling " + this.count + " plans");
-
-			// start threads
-			for (Thread thread : this.threads) {
-				thread.start();
-			}
-
-			// wait until each thread is finished
-			try {
-				for (Thread thread : this.threads) {
-					thread.join();
-				}
-			} catch (InterruptedException e) {
-				throw new RuntimeException(e);
-			}
-			log.info("[" + this.name + "] all " + this.threads.length + " threads finished.");
-			Throwable throwable = this.hadException.get();
-			if (throwable != null) {
-				throw new RuntimeException("Some threads crashed, thus not all plans may have been handled.", throwable);
-			}
+			// only run the threads if we did not directly work on all the plans
+			log.info("[" + this.name + "] running " + this.algos.length + " threads, handling " + this.plans.size() + " plans"
+					+ (this.loadBalancing ? " with load balancing" : ""));
+			runAlgos();
 		}
 		// reset
-		this.algothreads = null;
-		this.threads = null;
+		this.algos = null;
+		this.directAlgo = null;
+		this.counter = null;
+		this.plans = new ArrayList<>();
 		this.replanningContext = null;
-		this.count = 0;
 		
 		this.afterFinishReplanningHook();
 	}
 
-	private void initThreads() {
-		if (this.threads != null) {
+	private void initAlgos() {
+		if (this.algos != null) {
 			throw new RuntimeException("threads are already initialized");
 		}
 
-		this.hadException.set(null);
-		this.threads = new Thread[this.numOfThreads];
-		this.algothreads = new PlanAlgoThread[this.numOfThreads];
-
-		Counter counter = null;
-		// setup threads
+		this.algos = new PlanAlgorithm[this.numOfThreads];
 		for (int i = 0; i < this.numOfThreads; i++) {
-			PlanAlgorithm algo = getPlanAlgoInstance();
+			this.algos[i] = getPlanAlgoInstance();
 			if (i == 0) {
-				this.name = algo.getClass().getSimpleName();
-				counter = new Counter("[" + this.name + "] handled plan # ");
+				this.name = this.algos[i].getClass().getSimpleName();
+				this.counter = new Counter("[" + this.name + "] handled plan # ");
 			}
-			PlanAlgoThread algothread = new PlanAlgoThread(algo, counter);
-			Thread thread = new Thread(algothread, this.name + "." + i);
-			thread.setUncaughtExceptionHandler(this.exceptionHandler);
-			this.threads[i] = thread;
-			this.algothreads[i] = algothread;
 		}
 	}
 
-	/* package (for a test) */ final int getNumOfThreads() {
-		return numOfThreads;
-	}
-
-	private final static class ExceptionHandler implements UncaughtExceptionHandler {
-
-		private final AtomicReference<Throwable> hadException;
-
-		public ExceptionHandler(final AtomicReference<Throwable> hadException) {
-			this.hadException = hadException;
+	private void runAlgos() {
+		final AtomicInteger nextPlan = new AtomicInteger(0);
+		final int batchSize = Math.max(1, Math.min(MAX_BATCH_SIZE, this.plans.size() / (8 * this.algos.length)));
+		final long[] nanos = new long[this.algos.length];
+		long start = System.nanoTime();
+		try {
+			ParallelUtils.runThreads(this.algos.length, new ParallelUtils.ThreadTask() {
+				@Override
+				public void run(final int thread) {
+					long threadStart = System.nanoTime();
+					try {
+						if (AbstractMultithreadedModule.this.loadBalancing) {
+							runBatches(AbstractMultithreadedModule.this.algos[thread], nextPlan, batchSize);
+						} else {
+							runShare(AbstractMultithreadedModule.this.algos[thread], thread);
+						}
+					} catch (RuntimeException | Error e) {
+						log.error("Thread " + AbstractMultithreadedModule.this.name + "." + thread + " died with exception. Will stop after all threads finished.", e);
+						throw e;
+					}
+					nanos[thread] = System.nanoTime() - threadStart;
+				}
+			});
+		} catch (RuntimeException | Error e) {
+			throw new RuntimeException("Some threads crashed, thus not all plans may have been handled.", e);
 		}
 
-		@Override
-		public void uncaughtException(Thread t, Throwable e) {
-			log.error("Thread " + t.getName() + " died with exception. Will stop after all threads finished.", e);
-			this.hadException.set(e);
+		long minNanos = Long.MAX_VALUE;
+		long maxNanos = 0;
+		for (long threadNanos : nanos) {
+			minNanos = Math.min(minNanos, threadNanos);
+			maxNanos = Math.max(maxNanos, threadNanos);
 		}
-
+		log.info("[" + this.name + "] all " + this.algos.length + " threads finished after " + (System.nanoTime() - start) / 1000000
+				+ " ms. Busy time of the threads: min " + minNanos / 1000000 + " ms, max " + maxNanos / 1000000 + " ms.");
 	}
 
-	private final static class PlanAlgoThread implements Runnable {
-
-		private final PlanAlgorithm planAlgo;
-		private final List<Plan> plans = new LinkedList<>();
-		private final Counter counter;
-
-		public PlanAlgoThread(final PlanAlgorithm algo, final Counter counter) {
-			this.planAlgo = algo;
-			this.counter = counter;
-		}
-
-		public void addPlanToThread(final Plan plan) {
-			this.plans.add(plan);
+	/**
+	 * Handles the plans <code>threadIndex</code>, <code>threadIndex + numOfThreads</code>, ..., as the threads always did
+	 * before load balancing, so results do not depend on timing.
+	 */
+	private void runShare(final PlanAlgorithm algo, final int threadIndex) {
+		for (int p = threadIndex; p < this.plans.size(); p += this.algos.length) {
+			algo.run(this.plans.get(p));
+			this.counter.incCounter();
 		}
+	}
 
-		@Override
-		public void run() {
-			for (Plan plan : this.plans) {
-				this.planAlgo.run(plan);
+	private void runBatches(final PlanAlgorithm algo, final AtomicInteger nextPlan, final int batchSize) {
+		int from;
+		while ((from = nextPlan.getAndAdd(batchSize)) < this.plans.size()) {
+			int to = Math.min(from + batchSize, this.plans.size());
+			for (int p = from; p < to; p++) {
+				algo.run(this.plans.get(p));
 				this.counter.incCounter();
 			}
 		}
 	}
+
+	/* package (for a test) */ final int getNumOfThreads() {
+		return numOfThreads;
+	}
+
 }
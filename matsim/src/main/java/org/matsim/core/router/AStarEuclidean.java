@@ -29,6 +29,7 @@ import org.matsim.api.core.v01.network.Node;
 import org.matsim.core.router.util.AStarNodeData;
 import org.matsim.core.router.util.DijkstraNodeData;
 import org.matsim.core.router.util.PreProcessEuclidean;
+import org.matsim.core.router.util.RoutingNetwork;
 import org.matsim.core.router.util.TravelDisutility;
 import org.matsim.core.router.util.TravelTime;
 import org.matsim.core.utils.collections.RouterPriorityQueue;
@@ -130,7 +131,9 @@ public class AStarEuclidean extends Dijkstra {
 
 		setMinTravelCostPerLength(preProcessData.getMinTravelCostPerLength());
 
-		this.nodeData = new HashMap<>((int)(network.getNodes().size() * 1.1), 0.95f);
+		// see Dijkstra
+		this.nodeData = network instanceof RoutingNetwork ? new HashMap<Id<Node>, AStarNodeData>() :
+				new HashMap<Id<Node>, AStarNodeData>((int)(network.getNodes().size() * 1.1), 0.95f);
 		this.overdoFactor = overdoFactor;
 	}
 
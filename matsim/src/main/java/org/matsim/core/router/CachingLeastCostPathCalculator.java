@@ -0,0 +1,109 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CachingLeastCostPathCalculator.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.Collections;
+
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.PersonIndependentTravelDisutility;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Looks up paths in a {@link PathCache} before calculating them with another {@link LeastCostPathCalculator}.
+ * <p></p>
+ * The paths are shared by all persons, so only disutilities that are the same for all persons can be used (see
+ * {@link #isCacheable(TravelDisutility)}). Stored paths are only returned for the {@linkplain PathCache#nextVersion()
+ * version} of the travel times they were calculated with. Even then, a stored path is not used blindly: its travel
+ * time and cost are calculated anew for the current vehicle and departure time, which only takes one pass over its
+ * links. If the cost differs from the stored cost by more than the given tolerance, the path is calculated anew and
+ * replaces the stored one.
+ */
+public final class CachingLeastCostPathCalculator implements LeastCostPathCalculator {
+
+	private final LeastCostPathCalculator delegate;
+	private final PathCache cache;
+	private final TravelTime travelTime;
+	private final TravelDisutility travelDisutility;
+	private final double tolerance;
+
+	/**
+	 * @param tolerance the largest relative difference between the stored and the current cost of a path to still use the path
+	 */
+	public CachingLeastCostPathCalculator(final LeastCostPathCalculator delegate, final PathCache cache,
+			final TravelTime travelTime, final TravelDisutility travelDisutility, final double tolerance) {
+		if (!isCacheable(travelDisutility)) {
+			throw new IllegalArgumentException("The paths of " + travelDisutility + " depend on the person, so they cannot be cached.");
+		}
+		this.delegate = delegate;
+		this.cache = cache;
+		this.travelTime = travelTime;
+		this.travelDisutility = travelDisutility;
+		this.tolerance = tolerance;
+	}
+
+	/**
+	 * @return <code>true</code> if the disutility is a {@link PersonIndependentTravelDisutility} that is the same for
+	 * all persons, so that the paths calculated with it may be shared
+	 */
+	public static boolean isCacheable(final TravelDisutility travelDisutility) {
+		return travelDisutility instanceof PersonIndependentTravelDisutility
+				&& ((PersonIndependentTravelDisutility) travelDisutility).isPersonIndependent();
+	}
+
+	@Override
+	public Path calcLeastCostPath(final Node fromNode, final Node toNode, final double starttime, final Person person, final Vehicle vehicle) {
+		int version = this.cache.getVersion();
+		Path stored = this.cache.get(fromNode, toNode, starttime);
+		if (stored != null) {
+			Path current = evaluate(stored, starttime, person, vehicle);
+			if (Math.abs(current.travelCost - stored.travelCost) <= this.tolerance * Math.abs(stored.travelCost)) {
+				this.cache.countHit();
+				return current;
+			}
+			this.cache.countInvalidation();
+		} else {
+			this.cache.countMiss();
+		}
+		Path path = this.delegate.calcLeastCostPath(fromNode, toNode, starttime, person, vehicle);
+		if (path != null) {
+			// the lists are shared by all users of the stored path
+			path = new Path(Collections.unmodifiableList(path.nodes), Collections.unmodifiableList(path.links), path.travelTime, path.travelCost);
+			this.cache.put(fromNode, toNode, starttime, path, version);
+		}
+		return path;
+	}
+
+	private Path evaluate(final Path path, final double starttime, final Person person, final Vehicle vehicle) {
+		double time = starttime;
+		double cost = 0;
+		for (Link link : path.links) {
+			cost += this.travelDisutility.getLinkTravelDisutility(link, time, person, vehicle);
+			time += this.travelTime.getLinkTravelTime(link, time, person, vehicle);
+		}
+		return new Path(path.nodes, path.links, time - starttime, cost);
+	}
+
+}
@@ -0,0 +1,247 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchies.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.PreProcessContractionHierarchies;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Least-cost path calculator on a customizable contraction hierarchy, see
+ * {@link PreProcessContractionHierarchies} for the metric-independent pre-processing.
+ * <p></p>
+ * Before the first query within a time bin, the costs of all links at the beginning of that time bin
+ * are propagated through the hierarchy ("customization"). This takes roughly as long as a few
+ * Dijkstra queries over the whole network. Queries then only search the ancestors of the start and
+ * the end node in the elimination tree of the hierarchy, which are typically a few hundred nodes.
+ * <p></p>
+ * Compared to {@link Dijkstra}, there are two simplifications:
+ * <ul>
+ * <li>The route is the least-cost path for the link costs of the time bin of the departure, not the
+ * time-dependent least-cost path. The travel time and cost of the returned path are computed
+ * time-dependently along the route, though.</li>
+ * <li>The customization is done without person and vehicle, so person- or vehicle-specific costs are
+ * only reflected in the cost of the returned path, but not in the choice of the route.</li>
+ * </ul>
+ * The customizations are kept in a {@link ContractionHierarchiesCustomization}, which can be shared by several
+ * instances and should be replaced whenever the travel times change, e.g. once per iteration.
+ * <p></p>
+ * <h2>Important note</h2>
+ * This class is NOT thread-safe!
+ *
+ * @see org.matsim.core.router.util.ContractionHierarchiesFactory
+ */
+public class ContractionHierarchies implements LeastCostPathCalculator {
+
+	private static final Logger log = Logger.getLogger(ContractionHierarchies.class);
+
+	private final PreProcessContractionHierarchies graph;
+	private final TravelDisutility costFunction;
+	private final TravelTime timeFunction;
+	private final ContractionHierarchiesCustomization customization;
+
+	private final double[] forwardCost;
+	private final double[] backwardCost;
+	private final int[] forwardEdge;
+	private final int[] backwardEdge;
+	private int[] stack = new int[64];
+
+	public ContractionHierarchies(final PreProcessContractionHierarchies preProcessData, final TravelDisutility costFunction,
+			final TravelTime timeFunction, final int timeBinSize, final int maxTime) {
+		this(new ContractionHierarchiesCustomization(preProcessData, costFunction, timeBinSize, maxTime), costFunction, timeFunction);
+	}
+
+	/**
+	 * @param customization the customized costs, may be shared by several instances
+	 * @param costFunction used to compute the cost of the returned path
+	 */
+	public ContractionHierarchies(final ContractionHierarchiesCustomization customization, final TravelDisutility costFunction,
+			final TravelTime timeFunction) {
+		this.graph = customization.getPreProcessData();
+		this.costFunction = costFunction;
+		this.timeFunction = timeFunction;
+		this.customization = customization;
+		int n = this.graph.getNumberOfNodes();
+		this.forwardCost = new double[n];
+		this.backwardCost = new double[n];
+		Arrays.fill(this.forwardCost, Double.POSITIVE_INFINITY);
+		Arrays.fill(this.backwardCost, Double.POSITIVE_INFINITY);
+		this.forwardEdge = new int[n];
+		this.backwardEdge = new int[n];
+	}
+
+	@Override
+	public Path calcLeastCostPath(final Node fromNode, final Node toNode, final double starttime, final Person person, final Vehicle vehicle) {
+		int source = getRank(fromNode);
+		int target = getRank(toNode);
+		ContractionHierarchiesCustomization.Weights metric = this.customization.getWeights(starttime);
+
+		// forward search through the ancestors of the source, backward search through the ancestors of the target
+		search(source, metric.up, this.forwardCost, this.forwardEdge);
+		search(target, metric.down, this.backwardCost, this.backwardEdge);
+
+		int meetingNode = -1;
+		double minCost = Double.POSITIVE_INFINITY;
+		for (int v = source; v >= 0; v = this.graph.getParent(v)) {
+			double cost = this.forwardCost[v] + this.backwardCost[v];
+			if (cost < minCost) {
+				minCost = cost;
+				meetingNode = v;
+			}
+		}
+
+		List<Link> links = null;
+		if (meetingNode >= 0) {
+			links = unpack(source, target, meetingNode, metric);
+		}
+		reset(source, this.forwardCost);
+		reset(target, this.backwardCost);
+
+		if (links == null) {
+			log.warn("No route was found from node " + fromNode.getId() + " to node " + toNode.getId());
+			return null;
+		}
+		return constructPath(fromNode, links, starttime, person, vehicle);
+	}
+
+	private int getRank(final Node node) {
+		int rank = this.graph.getRank(node);
+		if (rank < 0 || this.graph.getNetwork().getNodes().get(node.getId()) != node) {
+			throw new IllegalArgumentException("The nodes passed as parameters are not part of the network stored by "+
+					getClass().getSimpleName() + ": the validity of the results cannot be guaranteed. Aborting!");
+		}
+		return rank;
+	}
+
+	/**
+	 * All upward neighbors of a node are ancestors of the node in the elimination tree, so walking up the
+	 * tree settles the nodes in an order in which all their predecessors are already final.
+	 */
+	private void search(final int start, final double[] weights, final double[] cost, final int[] predecessorEdge) {
+		cost[start] = 0.0;
+		for (int v = start; v >= 0; v = this.graph.getParent(v)) {
+			double costV = cost[v];
+			if (costV == Double.POSITIVE_INFINITY) {
+				continue;
+			}
+			int lastEdge = this.graph.getFirstEdge(v + 1);
+			for (int e = this.graph.getFirstEdge(v); e < lastEdge; e++) {
+				double c = costV + weights[e];
+				int u = this.graph.getHead(e);
+				if (c < cost[u]) {
+					cost[u] = c;
+					predecessorEdge[u] = e;
+				}
+			}
+		}
+	}
+
+	private void reset(final int start, final double[] cost) {
+		for (int v = start; v >= 0; v = this.graph.getParent(v)) {
+			cost[v] = Double.POSITIVE_INFINITY;
+		}
+	}
+
+	/**
+	 * @return the links of the path, or <code>null</code> if there is no path.
+	 */
+	private List<Link> unpack(final int source, final int target, final int meetingNode, final ContractionHierarchiesCustomization.Weights metric) {
+		List<Link> links = new ArrayList<>();
+		/* The arcs are put on a stack, the top being the first arc of the path. An arc is an edge
+		 * with a direction: 2*e for tail -> head, 2*e+1 for head -> tail. */
+		int size = 0;
+		for (int v = meetingNode; v != target; v = this.graph.getTail(this.backwardEdge[v])) {
+			size = push(size, 2 * this.backwardEdge[v] + 1);
+		}
+		reverse(0, size);
+		for (int v = meetingNode; v != source; v = this.graph.getTail(this.forwardEdge[v])) {
+			size = push(size, 2 * this.forwardEdge[v]);
+		}
+
+		while (size > 0) {
+			int arc = this.stack[--size];
+			int e = arc >> 1;
+			boolean upward = (arc & 1) == 0;
+			int via = upward ? metric.upVia[e] : metric.downVia[e];
+			if (via == ContractionHierarchiesCustomization.NO_VIA) {
+				return null;
+			}
+			if (via < 0) {
+				links.add(this.graph.getLink(-via - 1));
+				continue;
+			}
+			int lower = this.graph.getTail(e);
+			int higher = this.graph.getHead(e);
+			int toLower = this.graph.findEdge(via, lower);
+			int toHigher = this.graph.findEdge(via, higher);
+			if (upward) {
+				// lower -> via -> higher; push the second part first
+				size = push(size, 2 * toHigher);
+				size = push(size, 2 * toLower + 1);
+			} else {
+				// higher -> via -> lower
+				size = push(size, 2 * toLower);
+				size = push(size, 2 * toHigher + 1);
+			}
+		}
+		return links;
+	}
+
+	private int push(final int size, final int arc) {
+		if (size == this.stack.length) {
+			this.stack = Arrays.copyOf(this.stack, 2 * size);
+		}
+		this.stack[size] = arc;
+		return size + 1;
+	}
+
+	private void reverse(final int from, final int to) {
+		for (int i = from, j = to - 1; i < j; i++, j--) {
+			int tmp = this.stack[i];
+			this.stack[i] = this.stack[j];
+			this.stack[j] = tmp;
+		}
+	}
+
+	private Path constructPath(final Node fromNode, final List<Link> links, final double startTime, final Person person, final Vehicle vehicle) {
+		List<Node> nodes = new ArrayList<>(links.size() + 1);
+		nodes.add(fromNode);
+		double time = startTime;
+		double cost = 0.0;
+		for (Link link : links) {
+			nodes.add(link.getToNode());
+			cost += this.costFunction.getLinkTravelDisutility(link, time, person, vehicle);
+			time += this.timeFunction.getLinkTravelTime(link, time, person, vehicle);
+		}
+		return new Path(nodes, links, time - startTime, cost);
+	}
+
+}
@@ -0,0 +1,166 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchiesCustomization.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.matsim.core.router.util.PreProcessContractionHierarchies;
+import org.matsim.core.router.util.TravelDisutility;
+
+/**
+ * The link costs of a {@link PreProcessContractionHierarchies contraction hierarchy}, propagated through the
+ * hierarchy once per time bin ("customization"). A time bin is customized on the first query in it, with
+ * the costs at the beginning of the bin and without person and vehicle.
+ * <p></p>
+ * The customized weights are never changed afterwards, so one instance can be shared by the
+ * {@link ContractionHierarchies} routers of all threads. The cost function must then be thread-safe.
+ *
+ * @see org.matsim.core.router.util.ContractionHierarchiesFactory
+ */
+public final class ContractionHierarchiesCustomization {
+
+	static final int NO_VIA = Integer.MIN_VALUE;
+
+	private final PreProcessContractionHierarchies graph;
+	private final TravelDisutility costFunction;
+	private final int timeBinSize;
+	private final AtomicReferenceArray<Weights> weights;
+	private final Object[] locks;
+
+	public ContractionHierarchiesCustomization(final PreProcessContractionHierarchies preProcessData, final TravelDisutility costFunction,
+			final int timeBinSize, final int maxTime) {
+		this.graph = preProcessData;
+		this.costFunction = costFunction;
+		this.timeBinSize = timeBinSize;
+		int numberOfBins = maxTime / timeBinSize + 1;
+		this.weights = new AtomicReferenceArray<>(numberOfBins);
+		this.locks = new Object[numberOfBins];
+		for (int i = 0; i < numberOfBins; i++) {
+			this.locks[i] = new Object();
+		}
+	}
+
+	public PreProcessContractionHierarchies getPreProcessData() {
+		return this.graph;
+	}
+
+	/*package*/ Weights getWeights(final double time) {
+		int bin = Math.max(0, Math.min(this.weights.length() - 1, (int) (time / this.timeBinSize)));
+		Weights metric = this.weights.get(bin);
+		if (metric == null) {
+			// other threads wait for the customization of the same bin instead of repeating it
+			synchronized (this.locks[bin]) {
+				metric = this.weights.get(bin);
+				if (metric == null) {
+					metric = customize((double) bin * this.timeBinSize);
+					this.weights.set(bin, metric);
+				}
+			}
+		}
+		return metric;
+	}
+
+	/**
+	 * Sets the weights of the edges to the costs of the links, and then improves them by the paths over
+	 * lower nodes: for every node <code>v</code> in ascending rank and every pair of its upward neighbors
+	 * <code>u &lt; w</code>, the path <code>u - v - w</code> is a candidate for the edge <code>u - w</code>.
+	 * When node <code>v</code> is processed, all edges to it are final, since their lower triangles only
+	 * contain nodes of lower rank.
+	 */
+	private Weights customize(final double time) {
+		int m = this.graph.getNumberOfEdges();
+		Weights metric = new Weights(m);
+		for (int l = 0; l < this.graph.getNumberOfLinks(); l++) {
+			int e = this.graph.getLinkEdge(l);
+			if (e < 0) {
+				continue;
+			}
+			double cost = this.costFunction.getLinkTravelDisutility(this.graph.getLink(l), time, null, null);
+			if (this.graph.isLinkUpward(l)) {
+				if (cost < metric.up[e]) {
+					metric.up[e] = cost;
+					metric.upVia[e] = -l - 1;
+				}
+			} else if (cost < metric.down[e]) {
+				metric.down[e] = cost;
+				metric.downVia[e] = -l - 1;
+			}
+		}
+
+		int n = this.graph.getNumberOfNodes();
+		for (int v = 0; v < n; v++) {
+			int lastEdge = this.graph.getFirstEdge(v + 1);
+			for (int vu = this.graph.getFirstEdge(v); vu < lastEdge; vu++) {
+				int u = this.graph.getHead(vu);
+				double uToV = metric.down[vu];
+				double vToU = metric.up[vu];
+				if (uToV == Double.POSITIVE_INFINITY && vToU == Double.POSITIVE_INFINITY) {
+					continue;
+				}
+				// the upward neighbors of v above u are upward neighbors of u as well, both lists are sorted
+				int uw = this.graph.getFirstEdge(u);
+				for (int vw = vu + 1; vw < lastEdge; vw++) {
+					int w = this.graph.getHead(vw);
+					while (this.graph.getHead(uw) < w) {
+						uw++;
+					}
+					double up = uToV + metric.up[vw];
+					if (up < metric.up[uw]) {
+						metric.up[uw] = up;
+						metric.upVia[uw] = v;
+					}
+					double down = metric.down[vw] + vToU;
+					if (down < metric.down[uw]) {
+						metric.down[uw] = down;
+						metric.downVia[uw] = v;
+					}
+				}
+			}
+		}
+		return metric;
+	}
+
+	/**
+	 * The weights of the edges for one time bin. For an edge <code>e</code> between the nodes
+	 * <code>tail &lt; head</code>, <code>up[e]</code> is the cost from tail to head and <code>down[e]</code>
+	 * the cost from head to tail. The via arrays store how a weight is realized: by the link
+	 * <code>-via-1</code> if negative, otherwise by the path over the node <code>via</code>.
+	 */
+	/*package*/ static final class Weights {
+		final double[] up;
+		final double[] down;
+		final int[] upVia;
+		final int[] downVia;
+
+		Weights(final int numberOfEdges) {
+			this.up = new double[numberOfEdges];
+			this.down = new double[numberOfEdges];
+			this.upVia = new int[numberOfEdges];
+			this.downVia = new int[numberOfEdges];
+			Arrays.fill(this.up, Double.POSITIVE_INFINITY);
+			Arrays.fill(this.down, Double.POSITIVE_INFINITY);
+			Arrays.fill(this.upVia, NO_VIA);
+			Arrays.fill(this.downVia, NO_VIA);
+		}
+	}
+
+}
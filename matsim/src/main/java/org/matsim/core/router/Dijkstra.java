@@ -164,7 +164,13 @@ public class Dijkstra implements LeastCostPathCalculator {
 		this.timeFunction = timeFunction;
 		this.preProcessData = preProcessData;
 
-		this.nodeData = new HashMap<>((int)(network.getNodes().size() * 1.1), 0.95f);
+		/*
+		 * Routers on a RoutingNetwork keep their node data in arrays. Do not size the map for the
+		 * whole network then, otherwise every router (i.e. every replanning thread) keeps an
+		 * empty table of that size.
+		 */
+		this.nodeData = network instanceof RoutingNetwork ? new HashMap<Id<Node>, DijkstraNodeData>() :
+				new HashMap<Id<Node>, DijkstraNodeData>((int)(network.getNodes().size() * 1.1), 0.95f);
 
 		if (preProcessData != null) {
 			if (!preProcessData.containsData()) {
@@ -65,6 +65,10 @@ public class FastDijkstra extends Dijkstra {
 
 		this.nodeData.clear();
 	}
+
+	/*package*/ RoutingNetwork getRoutingNetwork() {
+		return this.routingNetwork;
+	}
 		
 	/*
 	 * Replace the references to the from and to nodes with their corresponding
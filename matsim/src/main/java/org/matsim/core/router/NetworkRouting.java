@@ -9,6 +9,7 @@ import org.matsim.core.network.algorithms.TransportModeNetworkFilter;
 import org.matsim.core.router.costcalculators.TravelDisutilityFactory;
 import org.matsim.core.router.util.LeastCostPathCalculator;
 import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.matsim.core.router.util.TravelDisutility;
 import org.matsim.core.router.util.TravelTime;
 
 import javax.inject.Inject;
@@ -42,6 +43,9 @@ public class NetworkRouting implements Provider<RoutingModule> {
 	@Inject
     LeastCostPathCalculatorFactory leastCostPathCalculatorFactory;
 
+	@Inject
+	PathCaches pathCaches;
+
 	public NetworkRouting(String mode) {
 		this.mode = mode;
 	}
@@ -73,11 +77,17 @@ public class NetworkRouting implements Provider<RoutingModule> {
 		if (travelTime == null) {
 			throw new RuntimeException("No TravelTime bound for mode "+mode+".");
 		}
+		TravelDisutility travelDisutility = travelDisutilityFactory.createTravelDisutility(travelTime);
 		LeastCostPathCalculator routeAlgo =
 				leastCostPathCalculatorFactory.createPathCalculator(
 						filteredNetwork,
-						travelDisutilityFactory.createTravelDisutility(travelTime),
+						travelDisutility,
 						travelTime);
+		PathCache pathCache = pathCaches.getPathCache(mode, travelDisutility);
+		if (pathCache != null) {
+			routeAlgo = new CachingLeastCostPathCalculator(routeAlgo, pathCache, travelTime, travelDisutility,
+					plansCalcRouteConfigGroup.getRouteCacheTolerance());
+		}
 
 		if ( plansCalcRouteConfigGroup.isInsertingAccessEgressWalk() ) {
 			return DefaultRoutingModules.createAccessEgressNetworkRouter(mode, populationFactory, filteredNetwork, routeAlgo,
@@ -0,0 +1,244 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PathCache.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+
+/**
+ * Stores least cost paths by their start and end node and the time bin of their departure. The cache holds at most
+ * a given number of paths; when it is full, the least recently used path is removed. The cache is thread-safe, so
+ * it can be shared by the routers of all threads.
+ * <p></p>
+ * The paths are only valid for the travel times and disutilities they were calculated with. Whoever changes them
+ * calls {@link #nextVersion()}, which removes all paths. A path calculated with the travel times of an older version is
+ * not stored anymore, also if the router that calculated it was still running while the version changed.
+ * <p></p>
+ * Large caches are split into stripes by the hash of the key, each with its own lock and its own share of the size,
+ * so the routers of several threads rarely wait for each other. A path is then evicted when it is the least recently
+ * used one of its stripe. Each stripe holds at least {@value #PATHS_PER_STRIPE} paths, so small caches have a single
+ * stripe and evict exactly the least recently used path.
+ * <p></p>
+ * The cache also counts how often a path was found, not found, or found but no longer valid (see
+ * {@link CachingLeastCostPathCalculator}).
+ */
+public final class PathCache {
+
+	/*package*/ static final int PATHS_PER_STRIPE = 1024;
+	private static final int MAX_STRIPES = 16;
+
+	private final double timeBinSize;
+
+	private final Map<Key, Path>[] stripes;
+	private volatile int version = 0;
+
+	private final AtomicLong hits = new AtomicLong(0);
+	private final AtomicLong misses = new AtomicLong(0);
+	private final AtomicLong invalidations = new AtomicLong(0);
+	private final AtomicLong evictions = new AtomicLong(0);
+
+	/**
+	 * @param maxSize the largest number of paths stored
+	 * @param timeBinSize the length of the time bins, in seconds. Paths departing in the same bin are considered the same.
+	 */
+	@SuppressWarnings("unchecked")
+	public PathCache(final int maxSize, final double timeBinSize) {
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("The size of a path cache must be positive, but is " + maxSize + ".");
+		}
+		this.timeBinSize = timeBinSize;
+		int stripeCount = Integer.highestOneBit(Math.max(1, Math.min(MAX_STRIPES, maxSize / PATHS_PER_STRIPE)));
+		this.stripes = new Map[stripeCount];
+		for (int i = 0; i < stripeCount; i++) {
+			// the first stripes take the rest of the division
+			final int stripeSize = maxSize / stripeCount + (i < maxSize % stripeCount ? 1 : 0);
+			this.stripes[i] = new LinkedHashMap<Key, Path>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(final Map.Entry<Key, Path> eldest) {
+					if (size() > stripeSize) {
+						PathCache.this.evictions.incrementAndGet();
+						return true;
+					}
+					return false;
+				}
+			};
+		}
+	}
+
+	/**
+	 * @return the stored path, or <code>null</code> if there is none
+	 */
+	public Path get(final Node fromNode, final Node toNode, final double departureTime) {
+		Key key = new Key(fromNode.getId(), toNode.getId(), getTimeBin(departureTime));
+		Map<Key, Path> stripe = getStripe(key);
+		synchronized (stripe) {
+			return stripe.get(key);
+		}
+	}
+
+	/**
+	 * Stores a path for the current version.
+	 */
+	public void put(final Node fromNode, final Node toNode, final double departureTime, final Path path) {
+		put(fromNode, toNode, departureTime, path, this.version);
+	}
+
+	/**
+	 * Stores a path calculated with the travel times and disutilities of the given version, as returned by
+	 * {@link #getVersion()} before the path was calculated. The path is dropped if the version has changed since.
+	 */
+	public void put(final Node fromNode, final Node toNode, final double departureTime, final Path path, final int version) {
+		Key key = new Key(fromNode.getId(), toNode.getId(), getTimeBin(departureTime));
+		Map<Key, Path> stripe = getStripe(key);
+		synchronized (stripe) {
+			// nextVersion() clears the stripe after changing the version, so a path stored here is removed there
+			if (version == this.version) {
+				stripe.put(key, path);
+			}
+		}
+	}
+
+	public int getVersion() {
+		return this.version;
+	}
+
+	/**
+	 * Declares the stored paths outdated, since the travel times or disutilities have changed, and removes them.
+	 */
+	public void nextVersion() {
+		synchronized (this.stripes) {
+			this.version++;
+		}
+		clear();
+	}
+
+	public void clear() {
+		for (Map<Key, Path> stripe : this.stripes) {
+			synchronized (stripe) {
+				stripe.clear();
+			}
+		}
+	}
+
+	public int size() {
+		int size = 0;
+		for (Map<Key, Path> stripe : this.stripes) {
+			synchronized (stripe) {
+				size += stripe.size();
+			}
+		}
+		return size;
+	}
+
+	private Map<Key, Path> getStripe(final Key key) {
+		int hash = key.hashCode();
+		return this.stripes[(hash ^ (hash >>> 16)) & (this.stripes.length - 1)];
+	}
+
+	private int getTimeBin(final double time) {
+		return (int) (time / this.timeBinSize);
+	}
+
+	/*package*/ void countHit() {
+		this.hits.incrementAndGet();
+	}
+
+	/*package*/ void countMiss() {
+		this.misses.incrementAndGet();
+	}
+
+	/*package*/ void countInvalidation() {
+		this.invalidations.incrementAndGet();
+	}
+
+	public long getHits() {
+		return this.hits.get();
+	}
+
+	/**
+	 * @return the number of requests for which no path was stored
+	 */
+	public long getMisses() {
+		return this.misses.get();
+	}
+
+	/**
+	 * @return the number of requests for which a path was stored, but had to be calculated anew since the costs of its links had changed
+	 */
+	public long getInvalidations() {
+		return this.invalidations.get();
+	}
+
+	/**
+	 * @return the number of paths removed because the cache was full
+	 */
+	public long getEvictions() {
+		return this.evictions.get();
+	}
+
+	public void resetStatistics() {
+		this.hits.set(0);
+		this.misses.set(0);
+		this.invalidations.set(0);
+		this.evictions.set(0);
+	}
+
+	@Override
+	public String toString() {
+		long requests = getHits() + getMisses() + getInvalidations();
+		return "[PathCache: size=" + size() + " hits=" + getHits() + " misses=" + getMisses() + " invalidations=" + getInvalidations()
+				+ " evictions=" + getEvictions() + " hitRate=" + (requests == 0 ? 0 : (100 * getHits() / requests)) + "%]";
+	}
+
+	private static final class Key {
+		private final Id<Node> fromNodeId;
+		private final Id<Node> toNodeId;
+		private final int timeBin;
+
+		Key(final Id<Node> fromNodeId, final Id<Node> toNodeId, final int timeBin) {
+			this.fromNodeId = fromNodeId;
+			this.toNodeId = toNodeId;
+			this.timeBin = timeBin;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return this.timeBin == other.timeBin && this.fromNodeId.equals(other.fromNodeId) && this.toNodeId.equals(other.toNodeId);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * (31 * this.fromNodeId.hashCode() + this.toNodeId.hashCode()) + this.timeBin;
+		}
+	}
+
+}
@@ -0,0 +1,143 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PathCaches.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.config.groups.PlansCalcRouteConfigGroup;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.controler.events.IterationEndsEvent;
+import org.matsim.core.controler.listener.IterationEndsListener;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+/**
+ * Holds one {@link PathCache} per network mode, and logs the statistics of the caches after every iteration.
+ * <p></p>
+ * The routers use the travel times published at the end of an iteration. Then the travel times of all links are
+ * compared with those the stored paths were calculated with, at the start of each time bin of the caches. The
+ * {@linkplain PathCache#nextVersion() version} of a cache is only advanced, which removes its paths, if the travel time
+ * of a link has changed by more than the tolerance of the caches, so the paths are re-used in the next iterations as
+ * long as the travel times stay the same.
+ */
+public final class PathCaches implements IterationEndsListener {
+
+	private static final Logger log = Logger.getLogger(PathCaches.class);
+
+	private final PlansCalcRouteConfigGroup config;
+	private final TravelTimeCalculatorConfigGroup travelTimeConfig;
+	private final Network network;
+	private final Provider<Map<String, TravelTime>> travelTimes;
+	private final Map<String, PathCache> caches = new ConcurrentHashMap<>();
+	private final Map<String, float[]> publishedTravelTimes = new ConcurrentHashMap<>();
+	private final Set<String> uncachedModes = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+	@Inject
+	PathCaches(final PlansCalcRouteConfigGroup config, final TravelTimeCalculatorConfigGroup travelTimeConfig,
+			final Network network, final Provider<Map<String, TravelTime>> travelTimes) {
+		this.config = config;
+		this.travelTimeConfig = travelTimeConfig;
+		this.network = network;
+		this.travelTimes = travelTimes;
+	}
+
+	/**
+	 * @return the cache for the mode, or <code>null</code> if paths should not be cached, or the disutility is not the
+	 * same for all persons (see {@link CachingLeastCostPathCalculator#isCacheable(TravelDisutility)})
+	 */
+	public PathCache getPathCache(final String mode, final TravelDisutility travelDisutility) {
+		if (this.config.getRouteCacheSize() <= 0) {
+			return null;
+		}
+		if (!CachingLeastCostPathCalculator.isCacheable(travelDisutility)) {
+			if (this.uncachedModes.add(mode)) {
+				log.warn("The travel disutility of mode " + mode + " depends on the person or is randomized, so its paths are not cached.");
+			}
+			return null;
+		}
+		PathCache cache = this.caches.get(mode);
+		if (cache == null) {
+			synchronized (this.caches) {
+				cache = this.caches.get(mode);
+				if (cache == null) {
+					cache = new PathCache(this.config.getRouteCacheSize(), this.config.getRouteCacheTimeBinSize());
+					this.caches.put(mode, cache);
+				}
+			}
+		}
+		return cache;
+	}
+
+	@Override
+	public void notifyIterationEnds(final IterationEndsEvent event) {
+		for (Map.Entry<String, PathCache> e : this.caches.entrySet()) {
+			log.info("path cache for mode " + e.getKey() + ": " + e.getValue());
+			e.getValue().resetStatistics();
+
+			float[] travelTimes = getTravelTimes(e.getKey());
+			float[] previous = this.publishedTravelTimes.get(e.getKey());
+			if (previous == null || !isSimilar(previous, travelTimes)) {
+				// compared with the travel times the paths were calculated with, so small changes cannot add up
+				this.publishedTravelTimes.put(e.getKey(), travelTimes);
+				e.getValue().nextVersion();
+			} else {
+				log.info("the travel times of mode " + e.getKey() + " did not change, its paths are kept.");
+			}
+		}
+	}
+
+	private float[] getTravelTimes(final String mode) {
+		TravelTime travelTime = this.travelTimes.get().get(mode);
+		double binSize = this.config.getRouteCacheTimeBinSize();
+		int bins = (int) Math.ceil(this.travelTimeConfig.getMaxTime() / binSize);
+		float[] travelTimes = new float[this.network.getLinks().size() * bins];
+		int i = 0;
+		for (Link link : this.network.getLinks().values()) {
+			for (int bin = 0; bin < bins; bin++) {
+				travelTimes[i++] = (float) travelTime.getLinkTravelTime(link, bin * binSize, null, null);
+			}
+		}
+		return travelTimes;
+	}
+
+	private boolean isSimilar(final float[] previous, final float[] travelTimes) {
+		if (previous.length != travelTimes.length) {
+			return false;
+		}
+		double tolerance = this.config.getRouteCacheTolerance();
+		for (int i = 0; i < travelTimes.length; i++) {
+			if (Math.abs(travelTimes[i] - previous[i]) > tolerance * Math.abs(previous[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
@@ -43,6 +43,8 @@ public class TripRouterModule extends AbstractModule {
         install(new LeastCostPathCalculatorModule());
         install(new TransitRouterModule());
         bind(SingleModeNetworksCache.class).asEagerSingleton();
+        bind(PathCaches.class).asEagerSingleton();
+        addControlerListenerBinding().to(PathCaches.class);
         PlansCalcRouteConfigGroup routeConfigGroup = getConfig().plansCalcRoute();
         for (String mode : routeConfigGroup.getTeleportedModeFreespeedFactors().keySet()) {
             if (getConfig().transit().isUseTransit() && getConfig().transit().getTransitModes().contains(mode)) {
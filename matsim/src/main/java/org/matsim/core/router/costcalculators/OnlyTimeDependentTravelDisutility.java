@@ -23,7 +23,7 @@ package org.matsim.core.router.costcalculators;
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.population.Person;
-import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.PersonIndependentTravelDisutility;
 import org.matsim.core.router.util.TravelTime;
 import org.matsim.core.trafficmonitoring.FreeSpeedTravelTime;
 import org.matsim.core.utils.misc.Time;
@@ -34,7 +34,7 @@ import org.matsim.vehicles.Vehicle;
  *  
  * @author cdobler
  */
-public class OnlyTimeDependentTravelDisutility implements TravelDisutility {
+public class OnlyTimeDependentTravelDisutility implements PersonIndependentTravelDisutility {
 
 	private static final Logger log = Logger.getLogger(OnlyTimeDependentTravelDisutility.class);
 	
@@ -52,6 +52,11 @@ public class OnlyTimeDependentTravelDisutility implements TravelDisutility {
 		return this.travelTime.getLinkTravelTime(link, time, person, vehicle);
 	}
 
+	@Override
+	public boolean isPersonIndependent() {
+		return true;
+	}
+
 	@Override
 	public double getLinkMinimumTravelDisutility(final Link link) {
 		return this.travelTime.getLinkTravelTime(link, Time.UNDEFINED_TIME, null, null);
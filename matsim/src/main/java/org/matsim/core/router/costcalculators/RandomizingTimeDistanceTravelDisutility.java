@@ -27,7 +27,7 @@ import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
 import org.matsim.core.config.groups.PlanCalcScoreConfigGroup.ModeParams;
 import org.matsim.core.gbl.MatsimRandom;
-import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.PersonIndependentTravelDisutility;
 import org.matsim.core.router.util.TravelTime;
 import org.matsim.vehicles.Vehicle;
 
@@ -40,7 +40,7 @@ import java.util.Set;
  *
  * @author mrieser
  */
-final class RandomizingTimeDistanceTravelDisutility implements TravelDisutility {
+final class RandomizingTimeDistanceTravelDisutility implements PersonIndependentTravelDisutility {
 
 	private final TravelTime timeCalculator;
 	private final double marginalCostOfTime;
@@ -106,9 +106,41 @@ final class RandomizingTimeDistanceTravelDisutility implements TravelDisutility
 		return this.marginalCostOfTime * travelTime + logNormalRnd * this.marginalCostOfDistance * link.getLength();
 	}
 
+	/**
+	 * @return <code>true</code> if the disutility is not randomized, i.e. sigma is zero
+	 */
+	@Override
+	public boolean isPersonIndependent() {
+		return this.sigma == 0.;
+	}
+
 	@Override
 	public double getLinkMinimumTravelDisutility(final Link link) {
 		return (link.getLength() / link.getFreespeed()) * this.marginalCostOfTime + this.marginalCostOfDistance * link.getLength();
 	}
 
+	/**
+	 * Disutilities that are not randomized are equal if they use the same travel times and cost parameters, so that
+	 * routers which pre-process the costs, like the contraction hierarchies, can share the result.
+	 */
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (this.sigma != 0. || !(obj instanceof RandomizingTimeDistanceTravelDisutility)) {
+			return false;
+		}
+		RandomizingTimeDistanceTravelDisutility other = (RandomizingTimeDistanceTravelDisutility) obj;
+		return other.sigma == 0. && this.timeCalculator == other.timeCalculator
+				&& this.marginalCostOfTime == other.marginalCostOfTime
+				&& this.marginalCostOfDistance == other.marginalCostOfDistance
+				&& this.normalization == other.normalization;
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * System.identityHashCode(this.timeCalculator) + Double.valueOf(this.marginalCostOfDistance).hashCode();
+	}
+
 }
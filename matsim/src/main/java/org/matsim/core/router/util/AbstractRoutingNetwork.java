@@ -20,7 +20,6 @@
 
 package org.matsim.core.router.util;
 
-import java.util.HashMap;
 import java.util.Map;
 
 import org.matsim.api.core.v01.Id;
@@ -28,11 +27,12 @@ import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.network.NetworkFactory;
 import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.utils.collections.IdMap;
 import org.matsim.utils.objectattributes.attributable.Attributes;
 
 public abstract class AbstractRoutingNetwork implements RoutingNetwork {
 	
-	/*package*/ final Map<Id<Node>, RoutingNetworkNode> nodes = new HashMap<Id<Node>, RoutingNetworkNode>();
+	/*package*/ final Map<Id<Node>, RoutingNetworkNode> nodes = new IdMap<Node, RoutingNetworkNode>(Node.class);
 	/*package*/ final Network network;
 	/*package*/ PreProcessDijkstra preProcessData;
 	
@@ -0,0 +1,139 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchiesFactory.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.listener.IterationStartsListener;
+import org.matsim.core.router.ContractionHierarchies;
+import org.matsim.core.router.ContractionHierarchiesCustomization;
+import org.matsim.core.router.FastRouterType;
+
+/**
+ * Creates {@link ContractionHierarchies} routers. The network is pre-processed once and the result is
+ * shared by all routers. The costs are customized once per network, travel time and travel disutility,
+ * using the time bins of the travel time calculator, and the customization is shared by all routers as
+ * well. Travel disutilities are compared with <code>equals</code>, so routers with disutilities that do
+ * not override it only share a customization if they use the same instance. As a controler listener,
+ * the customizations are dropped at the start of every iteration, so they are rebuilt with the travel
+ * times of the last iteration.
+ */
+@Singleton
+public class ContractionHierarchiesFactory implements LeastCostPathCalculatorFactory, IterationStartsListener {
+
+	private final Map<Network, PreProcessContractionHierarchies> preProcessData = new HashMap<>();
+	private final Map<Network, Map<CustomizationKey, ContractionHierarchiesCustomization>> customizations = new HashMap<>();
+	private final int timeBinSize;
+	private final int maxTime;
+
+	@Inject
+	ContractionHierarchiesFactory(TravelTimeCalculatorConfigGroup travelTimeCalculatorConfigGroup) {
+		this(travelTimeCalculatorConfigGroup.getTraveltimeBinSize(), travelTimeCalculatorConfigGroup.getMaxTime());
+	}
+
+	public ContractionHierarchiesFactory(final int timeBinSize, final int maxTime) {
+		this(timeBinSize, maxTime, FastRouterType.ARRAY);
+	}
+
+	public ContractionHierarchiesFactory(final int timeBinSize, final int maxTime, final FastRouterType fastRouterType) {
+		switch (fastRouterType) {
+		case ARRAY:
+			break;
+		case POINTER:
+			throw new RuntimeException("PointerRoutingNetworks are no longer supported. "
+					+ "Use ArrayRoutingNetworks instead. Aborting!");
+		default:
+			throw new RuntimeException("Undefined FastRouterType: " + fastRouterType);
+		}
+		this.timeBinSize = timeBinSize;
+		this.maxTime = maxTime;
+	}
+
+	@Override
+	public LeastCostPathCalculator createPathCalculator(final Network network, final TravelDisutility travelCosts, final TravelTime travelTimes) {
+		ContractionHierarchiesCustomization customization;
+		synchronized (this.preProcessData) {
+			PreProcessContractionHierarchies preProcessData = this.preProcessData.get(network);
+			if (preProcessData == null) {
+				preProcessData = new PreProcessContractionHierarchies();
+				preProcessData.run(network);
+				this.preProcessData.put(network, preProcessData);
+			}
+			Map<CustomizationKey, ContractionHierarchiesCustomization> customizationsOfNetwork = this.customizations.get(network);
+			if (customizationsOfNetwork == null) {
+				customizationsOfNetwork = new HashMap<>();
+				this.customizations.put(network, customizationsOfNetwork);
+			}
+			CustomizationKey key = new CustomizationKey(travelTimes, travelCosts);
+			customization = customizationsOfNetwork.get(key);
+			if (customization == null) {
+				customization = new ContractionHierarchiesCustomization(preProcessData, travelCosts, this.timeBinSize, this.maxTime);
+				customizationsOfNetwork.put(key, customization);
+			}
+		}
+		return new ContractionHierarchies(customization, travelCosts, travelTimes);
+	}
+
+	/**
+	 * Drops the customizations, so the routers created afterwards use the current travel times.
+	 */
+	@Override
+	public void notifyIterationStarts(final IterationStartsEvent event) {
+		synchronized (this.preProcessData) {
+			this.customizations.clear();
+		}
+	}
+
+	/**
+	 * The travel time is compared by identity, the travel disutility with <code>equals</code>.
+	 */
+	private static final class CustomizationKey {
+		private final TravelTime travelTime;
+		private final TravelDisutility travelDisutility;
+
+		CustomizationKey(final TravelTime travelTime, final TravelDisutility travelDisutility) {
+			this.travelTime = travelTime;
+			this.travelDisutility = travelDisutility;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (!(obj instanceof CustomizationKey)) {
+				return false;
+			}
+			CustomizationKey other = (CustomizationKey) obj;
+			return this.travelTime == other.travelTime && this.travelDisutility.equals(other.travelDisutility);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * System.identityHashCode(this.travelTime) + this.travelDisutility.hashCode();
+		}
+	}
+
+}
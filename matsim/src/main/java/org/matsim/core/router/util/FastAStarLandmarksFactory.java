@@ -77,10 +77,13 @@ public class FastAStarLandmarksFactory implements LeastCostPathCalculatorFactory
 	public LeastCostPathCalculator createPathCalculator(Network network,
 			TravelDisutility travelCosts, TravelTime travelTimes) {
 		
-		RoutingNetwork routingNetwork = this.routingNetworks.get(network);
-		if (routingNetwork == null) {
-			routingNetwork = this.routingNetworkFactory.createRoutingNetwork(network);
-			this.routingNetworks.put(network, routingNetwork);
+		RoutingNetwork routingNetwork;
+		synchronized (this.routingNetworks) {
+			routingNetwork = this.routingNetworks.get(network);
+			if (routingNetwork == null) {
+				routingNetwork = this.routingNetworkFactory.createRoutingNetwork(network);
+				this.routingNetworks.put(network, routingNetwork);
+			}
 		}
 		FastRouterDelegateFactory fastRouterFactory = new ArrayFastRouterDelegateFactory();
 
@@ -67,10 +67,14 @@ public class FastDijkstraFactory implements LeastCostPathCalculatorFactory {
 	@Override
 	public LeastCostPathCalculator createPathCalculator(final Network network, final TravelDisutility travelCosts, final TravelTime travelTimes) {
 			
-		RoutingNetwork routingNetwork = this.routingNetworks.get(network);
-		if (routingNetwork == null) {
-			routingNetwork = this.routingNetworkFactory.createRoutingNetwork(network);
-			this.routingNetworks.put(network, routingNetwork);
+		RoutingNetwork routingNetwork;
+		// called concurrently by the replanning threads, which all share one routing network
+		synchronized (this.routingNetworks) {
+			routingNetwork = this.routingNetworks.get(network);
+			if (routingNetwork == null) {
+				routingNetwork = this.routingNetworkFactory.createRoutingNetwork(network);
+				this.routingNetworks.put(network, routingNetwork);
+			}
 		}
 		FastRouterDelegateFactory fastRouterFactory = new ArrayFastRouterDelegateFactory();
 		
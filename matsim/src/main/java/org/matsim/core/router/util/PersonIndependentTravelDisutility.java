@@ -0,0 +1,36 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PersonIndependentTravelDisutility.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.util;
+
+/**
+ * A {@link TravelDisutility} that can tell whether it returns the same disutility for all persons and vehicles, given
+ * the same travel times. Only then a path calculated for one person may be re-used for another one, as the
+ * {@link org.matsim.core.router.CachingLeastCostPathCalculator} does.
+ */
+public interface PersonIndependentTravelDisutility extends TravelDisutility {
+
+	/**
+	 * @return <code>true</code> if the disutility of a link depends only on the link, the time and the travel time,
+	 * but neither on the person nor on random draws
+	 */
+	public boolean isPersonIndependent();
+
+}
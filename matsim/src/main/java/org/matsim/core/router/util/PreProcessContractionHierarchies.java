@@ -0,0 +1,420 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PreProcessContractionHierarchies.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.util;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * Pre-processes a network for {@link org.matsim.core.router.ContractionHierarchies}. This is the
+ * metric-independent part of a customizable contraction hierarchy, i.e. it does not depend on
+ * travel times or costs and needs to be done only once per network:
+ * <ol>
+ * <li>The nodes are ordered by nested dissection: the network is split recursively along its
+ * coordinates, and the nodes separating the two halves are ranked above all nodes of both halves.</li>
+ * <li>The nodes are contracted in this order. Contracting a node connects all its neighbors of higher
+ * rank to each other ("shortcuts"). No witness searches are done, so the resulting graph is valid for
+ * any metric.</li>
+ * </ol>
+ * The result is stored in plain arrays, with the nodes numbered by their rank. It is immutable after
+ * {@link #run(Network)} and may be shared by any number of routers.
+ *
+ * @see org.matsim.core.router.ContractionHierarchies
+ */
+public class PreProcessContractionHierarchies {
+
+	private static final Logger log = Logger.getLogger(PreProcessContractionHierarchies.class);
+
+	/** cells of at most this size are not split further, but ordered by degree */
+	private static final int MAX_CELL_SIZE = 4;
+
+	private Network network = null;
+
+	private Node[] nodes;
+	/** rank by {@link Id#index()} of the node, <code>-1</code> if the node is not part of the network */
+	private int[] rankByIdIndex;
+
+	/** the parent of each node in the elimination tree, i.e. its upward neighbor with the lowest rank; <code>-1</code> for roots */
+	private int[] parent;
+
+	/** the upward edges of node <code>r</code> are <code>firstEdge[r] .. firstEdge[r+1]-1</code>, sorted by their head */
+	private int[] firstEdge;
+	/** the node of lower rank of each edge */
+	private int[] tail;
+	/** the node of higher rank of each edge */
+	private int[] head;
+
+	private Link[] links;
+	/** the edge each link is mapped to, <code>-1</code> for loops */
+	private int[] linkEdge;
+	/** if the link goes from the lower to the higher node of its edge */
+	private boolean[] linkUpward;
+
+	public void run(final Network network) {
+		this.network = network;
+		log.info("preprocessing network for contraction hierarchies...");
+		int n = network.getNodes().size();
+		Node[] nodesByIndex = network.getNodes().values().toArray(new Node[n]);
+		int[] localIndexByIdIndex = new int[Id.getNumberOfIds(Node.class)];
+		Arrays.fill(localIndexByIdIndex, -1);
+		for (int i = 0; i < n; i++) {
+			localIndexByIdIndex[nodesByIndex[i].getId().index()] = i;
+		}
+
+		// undirected adjacency without loops
+		int[] degree = new int[n];
+		for (Link link : network.getLinks().values()) {
+			int from = localIndexByIdIndex[link.getFromNode().getId().index()];
+			int to = localIndexByIdIndex[link.getToNode().getId().index()];
+			if (from != to) {
+				degree[from]++;
+				degree[to]++;
+			}
+		}
+		int[] adjacencyStart = new int[n + 1];
+		for (int i = 0; i < n; i++) {
+			adjacencyStart[i + 1] = adjacencyStart[i] + degree[i];
+		}
+		int[] adjacency = new int[adjacencyStart[n]];
+		int[] fill = Arrays.copyOf(adjacencyStart, n);
+		for (Link link : network.getLinks().values()) {
+			int from = localIndexByIdIndex[link.getFromNode().getId().index()];
+			int to = localIndexByIdIndex[link.getToNode().getId().index()];
+			if (from != to) {
+				adjacency[fill[from]++] = to;
+				adjacency[fill[to]++] = from;
+			}
+		}
+
+		int[] rankByIndex = new NestedDissection(nodesByIndex, adjacencyStart, adjacency).order();
+
+		this.nodes = new Node[n];
+		this.rankByIdIndex = new int[localIndexByIdIndex.length];
+		Arrays.fill(this.rankByIdIndex, -1);
+		for (int i = 0; i < n; i++) {
+			this.nodes[rankByIndex[i]] = nodesByIndex[i];
+			this.rankByIdIndex[nodesByIndex[i].getId().index()] = rankByIndex[i];
+		}
+
+		contract(rankByIndex, adjacencyStart, adjacency);
+		mapLinks();
+		log.info("preprocessing done: " + n + " nodes, " + network.getLinks().size() + " links, "
+				+ this.head.length + " edges in the contraction hierarchy.");
+	}
+
+	/**
+	 * Symbolic elimination: the upward neighbors of a node are its original upward neighbors and the
+	 * upward neighbors of its children in the elimination tree.
+	 */
+	private void contract(final int[] rankByIndex, final int[] adjacencyStart, final int[] adjacency) {
+		int n = rankByIndex.length;
+		int[] indexByRank = new int[n];
+		for (int i = 0; i < n; i++) {
+			indexByRank[rankByIndex[i]] = i;
+		}
+		this.parent = new int[n];
+		int[] firstChild = new int[n];
+		int[] nextSibling = new int[n];
+		Arrays.fill(firstChild, -1);
+		int[][] upwardNeighbors = new int[n][];
+		int[] marker = new int[n];
+		Arrays.fill(marker, -1);
+		int[] buffer = new int[16];
+		long numberOfEdges = 0;
+
+		for (int r = 0; r < n; r++) {
+			int size = 0;
+			int index = indexByRank[r];
+			for (int i = adjacencyStart[index]; i < adjacencyStart[index + 1]; i++) {
+				int neighbor = rankByIndex[adjacency[i]];
+				if (neighbor > r && marker[neighbor] != r) {
+					marker[neighbor] = r;
+					if (size == buffer.length) buffer = Arrays.copyOf(buffer, 2 * size);
+					buffer[size++] = neighbor;
+				}
+			}
+			for (int child = firstChild[r]; child >= 0; child = nextSibling[child]) {
+				for (int neighbor : upwardNeighbors[child]) {
+					if (neighbor > r && marker[neighbor] != r) {
+						marker[neighbor] = r;
+						if (size == buffer.length) buffer = Arrays.copyOf(buffer, 2 * size);
+						buffer[size++] = neighbor;
+					}
+				}
+			}
+			int[] neighbors = Arrays.copyOf(buffer, size);
+			Arrays.sort(neighbors);
+			upwardNeighbors[r] = neighbors;
+			numberOfEdges += size;
+			if (size > 0) {
+				this.parent[r] = neighbors[0];
+				nextSibling[r] = firstChild[neighbors[0]];
+				firstChild[neighbors[0]] = r;
+			} else {
+				this.parent[r] = -1;
+			}
+		}
+		if (numberOfEdges > Integer.MAX_VALUE) {
+			throw new RuntimeException("too many edges in the contraction hierarchy: " + numberOfEdges);
+		}
+
+		this.firstEdge = new int[n + 1];
+		this.tail = new int[(int) numberOfEdges];
+		this.head = new int[(int) numberOfEdges];
+		int e = 0;
+		for (int r = 0; r < n; r++) {
+			this.firstEdge[r] = e;
+			for (int neighbor : upwardNeighbors[r]) {
+				this.tail[e] = r;
+				this.head[e] = neighbor;
+				e++;
+			}
+			upwardNeighbors[r] = null;
+		}
+		this.firstEdge[n] = e;
+	}
+
+	private void mapLinks() {
+		this.links = this.network.getLinks().values().toArray(new Link[this.network.getLinks().size()]);
+		this.linkEdge = new int[this.links.length];
+		this.linkUpward = new boolean[this.links.length];
+		for (int l = 0; l < this.links.length; l++) {
+			int from = getRank(this.links[l].getFromNode());
+			int to = getRank(this.links[l].getToNode());
+			if (from == to) {
+				this.linkEdge[l] = -1;
+			} else if (from < to) {
+				this.linkEdge[l] = findEdge(from, to);
+				this.linkUpward[l] = true;
+			} else {
+				this.linkEdge[l] = findEdge(to, from);
+				this.linkUpward[l] = false;
+			}
+		}
+	}
+
+	/**
+	 * @return the edge between the nodes of rank <code>lower</code> and <code>higher</code>, <code>-1</code> if there is none
+	 */
+	public int findEdge(final int lower, final int higher) {
+		int index = Arrays.binarySearch(this.head, this.firstEdge[lower], this.firstEdge[lower + 1], higher);
+		return index >= 0 ? index : -1;
+	}
+
+	/**
+	 * @return the rank of the node, or <code>-1</code> if it is not part of the pre-processed network
+	 */
+	public int getRank(final Node node) {
+		int index = node.getId().index();
+		if (index >= this.rankByIdIndex.length) {
+			return -1;
+		}
+		int rank = this.rankByIdIndex[index];
+		return (rank >= 0 && this.nodes[rank] == node) ? rank : -1;
+	}
+
+	public Network getNetwork() {
+		return this.network;
+	}
+
+	public int getNumberOfNodes() {
+		return this.nodes.length;
+	}
+
+	public int getNumberOfEdges() {
+		return this.head.length;
+	}
+
+	public Node getNode(final int rank) {
+		return this.nodes[rank];
+	}
+
+	public int getParent(final int rank) {
+		return this.parent[rank];
+	}
+
+	public int getFirstEdge(final int rank) {
+		return this.firstEdge[rank];
+	}
+
+	public int getTail(final int edge) {
+		return this.tail[edge];
+	}
+
+	public int getHead(final int edge) {
+		return this.head[edge];
+	}
+
+	public int getNumberOfLinks() {
+		return this.links.length;
+	}
+
+	public Link getLink(final int linkIndex) {
+		return this.links[linkIndex];
+	}
+
+	public int getLinkEdge(final int linkIndex) {
+		return this.linkEdge[linkIndex];
+	}
+
+	public boolean isLinkUpward(final int linkIndex) {
+		return this.linkUpward[linkIndex];
+	}
+
+	/**
+	 * Recursive coordinate bisection with node separators.
+	 */
+	private static class NestedDissection {
+		private final Node[] nodes;
+		private final int[] adjacencyStart;
+		private final int[] adjacency;
+		private final int[] rank;
+		private final int[] side;
+		private int nextRank = 0;
+		private int nextStamp = 0;
+
+		NestedDissection(final Node[] nodes, final int[] adjacencyStart, final int[] adjacency) {
+			this.nodes = nodes;
+			this.adjacencyStart = adjacencyStart;
+			this.adjacency = adjacency;
+			this.rank = new int[nodes.length];
+			this.side = new int[nodes.length];
+			Arrays.fill(this.side, -1);
+		}
+
+		int[] order() {
+			Integer[] cell = new Integer[this.nodes.length];
+			for (int i = 0; i < cell.length; i++) {
+				cell[i] = i;
+			}
+			dissect(cell);
+			return this.rank;
+		}
+
+		private void dissect(final Integer[] cell) {
+			if (cell.length <= MAX_CELL_SIZE) {
+				Arrays.sort(cell, new Comparator<Integer>() {
+					@Override
+					public int compare(Integer n1, Integer n2) {
+						int cmp = Integer.compare(degree(n1), degree(n2));
+						return cmp != 0 ? cmp : Integer.compare(n1, n2);
+					}
+				});
+				for (Integer node : cell) {
+					this.rank[node] = this.nextRank++;
+				}
+				return;
+			}
+
+			double minX = Double.POSITIVE_INFINITY;
+			double maxX = Double.NEGATIVE_INFINITY;
+			double minY = Double.POSITIVE_INFINITY;
+			double maxY = Double.NEGATIVE_INFINITY;
+			for (Integer node : cell) {
+				double x = this.nodes[node].getCoord().getX();
+				double y = this.nodes[node].getCoord().getY();
+				minX = Math.min(minX, x);
+				maxX = Math.max(maxX, x);
+				minY = Math.min(minY, y);
+				maxY = Math.max(maxY, y);
+			}
+			final boolean alongX = maxX - minX >= maxY - minY;
+			Arrays.sort(cell, new Comparator<Integer>() {
+				@Override
+				public int compare(Integer n1, Integer n2) {
+					int cmp = alongX
+							? Double.compare(nodes[n1].getCoord().getX(), nodes[n2].getCoord().getX())
+							: Double.compare(nodes[n1].getCoord().getY(), nodes[n2].getCoord().getY());
+					return cmp != 0 ? cmp : Integer.compare(n1, n2);
+				}
+			});
+
+			int split = cell.length / 2;
+			int lowerSide = this.nextStamp++;
+			int upperSide = this.nextStamp++;
+			for (int i = 0; i < cell.length; i++) {
+				this.side[cell[i]] = i < split ? lowerSide : upperSide;
+			}
+			// the separator consists of the nodes of one half which are connected to the other half; take the smaller one
+			boolean[] lowerBoundary = boundary(cell, 0, split, upperSide);
+			boolean[] upperBoundary = boundary(cell, split, cell.length, lowerSide);
+			boolean separatorIsLower = count(lowerBoundary) <= count(upperBoundary);
+			boolean[] isSeparator = separatorIsLower ? lowerBoundary : upperBoundary;
+			int separatorOffset = separatorIsLower ? 0 : split;
+
+			Integer[] separator = new Integer[count(isSeparator)];
+			Integer[] lower = new Integer[split - (separatorIsLower ? separator.length : 0)];
+			Integer[] upper = new Integer[cell.length - split - (separatorIsLower ? 0 : separator.length)];
+			int s = 0;
+			int l = 0;
+			int u = 0;
+			for (int i = 0; i < cell.length; i++) {
+				int offset = i - separatorOffset;
+				if (offset >= 0 && offset < isSeparator.length && isSeparator[offset]) {
+					separator[s++] = cell[i];
+				} else if (i < split) {
+					lower[l++] = cell[i];
+				} else {
+					upper[u++] = cell[i];
+				}
+			}
+
+			dissect(lower);
+			dissect(upper);
+			for (Integer node : separator) {
+				this.rank[node] = this.nextRank++;
+			}
+		}
+
+		private boolean[] boundary(final Integer[] cell, final int from, final int to, final int otherSide) {
+			boolean[] boundary = new boolean[to - from];
+			for (int i = from; i < to; i++) {
+				int node = cell[i];
+				for (int j = this.adjacencyStart[node]; j < this.adjacencyStart[node + 1]; j++) {
+					if (this.side[this.adjacency[j]] == otherSide) {
+						boundary[i - from] = true;
+						break;
+					}
+				}
+			}
+			return boundary;
+		}
+
+		private int degree(final int node) {
+			return this.adjacencyStart[node + 1] - this.adjacencyStart[node];
+		}
+
+		private static int count(final boolean[] flags) {
+			int count = 0;
+			for (boolean flag : flags) {
+				if (flag) count++;
+			}
+			return count;
+		}
+	}
+
+}
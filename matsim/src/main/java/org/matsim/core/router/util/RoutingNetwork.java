@@ -30,6 +30,10 @@ import org.matsim.api.core.v01.network.Node;
  * A network that is used by FastDijkstra, FastAStarEuclidean and FastAStarLandmarks.
  * Instead of storing the node data in a map, the data is attached directly to the nodes
  * which is faster but also consumes more memory.
+ * <p></p>
+ * A routing network is not changed once it has been created. It is shared by all routers
+ * which are created by the same factory, i.e. by the routers of all replanning threads,
+ * while the data of a single search is kept by the routers.
  * 
  * @see org.matsim.core.router.FastDijkstra
  * @see org.matsim.core.router.FastAStarEuclidean
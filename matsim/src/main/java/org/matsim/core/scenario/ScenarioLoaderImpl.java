@@ -37,9 +37,12 @@ import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.network.io.MatsimNetworkReader;
 import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.population.io.PopulationReader;
+import org.matsim.core.population.io.PopulationReaderBinary;
 import org.matsim.core.utils.geometry.CoordinateTransformation;
+import org.matsim.core.utils.geometry.transformations.IdentityTransformation;
 import org.matsim.core.utils.geometry.transformations.TransformationFactory;
 import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.MatsimBinaryFormat;
 import org.matsim.core.utils.io.MatsimFileTypeGuesser;
 import org.matsim.core.utils.io.UncheckedIOException;
 import org.matsim.facilities.MatsimFacilitiesReader;
@@ -198,7 +201,21 @@ class ScenarioLoaderImpl {
 			URL populationFileName = this.config.plans().getInputFileURL(this.config.getContext());
 			log.info("loading population from " + populationFileName);
 
-			if ( config.plans().getInputCRS() == null ) {
+			final boolean binary = populationFileName.getFile().endsWith( MatsimBinaryFormat.FILE_SUFFIX );
+
+			if ( binary ) {
+				CoordinateTransformation transformation = new IdentityTransformation();
+				if ( config.plans().getInputCRS() != null ) {
+					log.info( "re-projecting population from "+config.plans().getInputCRS()+" to "+config.global().getCoordinateSystem()+" for import" );
+					transformation = TransformationFactory.getCoordinateTransformation(
+							config.plans().getInputCRS(),
+							config.global().getCoordinateSystem() );
+				}
+				final PopulationReaderBinary reader = new PopulationReaderBinary(transformation , this.scenario);
+				reader.putAttributeConverters( attributeConverters );
+				reader.parse( populationFileName );
+			}
+			else if ( config.plans().getInputCRS() == null ) {
 				final PopulationReader reader = new PopulationReader(this.scenario);
 				reader.putAttributeConverters( attributeConverters );
 				reader.parse( populationFileName );
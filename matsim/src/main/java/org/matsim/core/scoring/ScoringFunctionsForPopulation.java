@@ -33,25 +33,34 @@ import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.population.*;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.api.internal.HasPersonId;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
 import org.matsim.core.config.groups.PlansConfigGroup;
 import org.matsim.core.controler.ControlerListenerManager;
 import org.matsim.core.controler.events.IterationStartsEvent;
 import org.matsim.core.controler.listener.IterationStartsListener;
 import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.utils.collections.IdMap;
 import org.matsim.core.utils.io.IOUtils;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * This class helps EventsToScore by keeping ScoringFunctions for the entire Population - one per Person -, and dispatching Activities
  * and Legs to the ScoringFunctions. It also gives out the ScoringFunctions, so they can be given other events by EventsToScore.
  * It is not independently useful. Please do not make public.
+ * <p></p>
+ * With more than one scoring thread, the persons are sharded over the threads by their index. The handler methods only
+ * hand the events, legs and activities over to the thread which owns the person, and each thread finishes the scoring
+ * functions of its persons, so a scoring function is only ever called from one thread.
  * 
  * @author michaz
  *
@@ -67,6 +76,7 @@ class ScoringFunctionsForPopulation implements BasicEventHandler, EventsToLegs.L
 	/*
 	 * Replaced TreeMaps with (Linked)HashMaps since they should perform much better. For 'partialScores'
 	 * a LinkedHashMap is used to ensure that agents are written in a deterministic order to the output files.
+	 * 'agentScorers' is looked up for every person event, so it is an IdMap indexed by the persons' Ids.
 	 *
 	 * Replaced List with TDoubleCollection (TDoubleArrayList) in the partialScores map. This collection allows
 	 * storing primitive objects, i.e. its double entries don't have to be wrapped into Double objects which
@@ -74,13 +84,29 @@ class ScoringFunctionsForPopulation implements BasicEventHandler, EventsToLegs.L
 	 *
 	 * cdobler, nov'15
 	 */
-	private final Map<Id<Person>, ScoringFunction> agentScorers = new HashMap<>();
+	private final Map<Id<Person>, ScoringFunction> agentScorers = new IdMap<>(Person.class);
 	private final Map<Id<Person>, TDoubleCollection> partialScores = new LinkedHashMap<>();
 	private final AtomicReference<Throwable> exception = new AtomicReference<>();
 
+	private static final Object FINISH_SHARD = new Object();
+	private final int numberOfScoringThreads;
+	private ScoringShard[] shards = null;
+
 	@Inject
+	ScoringFunctionsForPopulation(ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
+								  PlansConfigGroup plansConfigGroup, PlanCalcScoreConfigGroup planCalcScoreConfigGroup, Network network, Population population, ScoringFunctionFactory scoringFunctionFactory) {
+		this(controlerListenerManager, eventsManager, eventsToActivities, eventsToLegs, plansConfigGroup, network, population, scoringFunctionFactory,
+				planCalcScoreConfigGroup.getNumberOfScoringThreads());
+	}
+
 	ScoringFunctionsForPopulation(ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
 								  PlansConfigGroup plansConfigGroup, Network network, Population population, ScoringFunctionFactory scoringFunctionFactory) {
+		this(controlerListenerManager, eventsManager, eventsToActivities, eventsToLegs, plansConfigGroup, network, population, scoringFunctionFactory, 1);
+	}
+
+	ScoringFunctionsForPopulation(ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
+								  PlansConfigGroup plansConfigGroup, Network network, Population population, ScoringFunctionFactory scoringFunctionFactory,
+								  int numberOfScoringThreads) {
 		controlerListenerManager.addControlerListener(new IterationStartsListener() {
 			@Override
 			public void notifyIterationStarts(IterationStartsEvent event) {
@@ -91,21 +117,53 @@ class ScoringFunctionsForPopulation implements BasicEventHandler, EventsToLegs.L
 		this.network = network;
 		this.population = population;
 		this.scoringFunctionFactory = scoringFunctionFactory;
+		this.numberOfScoringThreads = numberOfScoringThreads;
 		eventsManager.addHandler(this);
 		eventsToActivities.addActivityHandler(this);
 		eventsToLegs.addLegHandler(this);
 	}
 
 	private void init() {
+		// threads left over from an iteration which was never finished must not touch the new scoring functions
+		stopShards();
 		for (Person person : population.getPersons().values()) {
 			ScoringFunction data = scoringFunctionFactory.createNewScoringFunction(person);
 			this.agentScorers.put(person.getId(), data);
 			this.partialScores.put(person.getId(), new TDoubleArrayList());
 		}
+		if (this.numberOfScoringThreads > 1) {
+			this.shards = new ScoringShard[this.numberOfScoringThreads];
+			for (int i = 0; i < this.shards.length; i++) {
+				this.shards[i] = new ScoringShard(i);
+			}
+			for (Id<Person> personId : this.partialScores.keySet()) {
+				this.shards[shardIndex(personId)].personIds.add(personId);
+			}
+			for (ScoringShard shard : this.shards) {
+				shard.start();
+			}
+		}
+	}
+
+	private int shardIndex(Id<Person> personId) {
+		return personId.index() % this.shards.length;
 	}
 
 	@Override
 	synchronized public void handleEvent(Event o) {
+		if (this.shards != null) {
+			if (o instanceof HasPersonId) {
+				Id<Person> personId = ((HasPersonId) o).getPersonId();
+				if (getScoringFunctionForAgent(personId) != null) {
+					this.shards[shardIndex(personId)].add(o);
+				}
+			}
+			return;
+		}
+		score(o);
+	}
+
+	private void score(Event o) {
 		// this is for the stuff that is directly based on events.
 		// note that this passes on _all_ person events, even those which are aggregated into legs and activities.
 		// for the time being, not all PersonEvents may "implement HasPersonId".
@@ -127,6 +185,16 @@ class ScoringFunctionsForPopulation implements BasicEventHandler, EventsToLegs.L
 
 	@Override
 	synchronized public void handleLeg(PersonExperiencedLeg o) {
+		if (this.shards != null) {
+			if (getScoringFunctionForAgent(o.getAgentId()) != null) {
+				this.shards[shardIndex(o.getAgentId())].add(o);
+			}
+			return;
+		}
+		score(o);
+	}
+
+	private void score(PersonExperiencedLeg o) {
 		Id<Person> agentId = o.getAgentId();
 		Leg leg = o.getLeg();
 		ScoringFunction scoringFunction = ScoringFunctionsForPopulation.this.getScoringFunctionForAgent(agentId);
@@ -139,6 +207,16 @@ class ScoringFunctionsForPopulation implements BasicEventHandler, EventsToLegs.L
 
 	@Override
 	synchronized public void handleActivity(PersonExperiencedActivity o) {
+		if (this.shards != null) {
+			if (getScoringFunctionForAgent(o.getAgentId()) != null) {
+				this.shards[shardIndex(o.getAgentId())].add(o);
+			}
+			return;
+		}
+		score(o);
+	}
+
+	private void score(PersonExperiencedActivity o) {
 		Id<Person> agentId = o.getAgentId();
 		Activity activity = o.getActivity();
 		ScoringFunction scoringFunction = ScoringFunctionsForPopulation.this.getScoringFunctionForAgent(agentId);
@@ -164,6 +242,10 @@ class ScoringFunctionsForPopulation implements BasicEventHandler, EventsToLegs.L
 	}
 
 	public void finishScoringFunctions() {
+		if (this.shards != null) {
+			// the shards finish their scoring functions themselves, in parallel
+			stopShards();
+		}
 		// Rethrow an exception in a scoring function (user code) if there was one.
 		Throwable throwable = exception.get();
 		if (throwable != null) {
@@ -173,6 +255,9 @@ class ScoringFunctionsForPopulation implements BasicEventHandler, EventsToLegs.L
 				throw new RuntimeException(throwable);
 			}
 		}
+		if (this.numberOfScoringThreads > 1) {
+			return;
+		}
 		for (ScoringFunction sf : this.agentScorers.values()) {
 			sf.finish();
 		}
@@ -181,6 +266,24 @@ class ScoringFunctionsForPopulation implements BasicEventHandler, EventsToLegs.L
 		}
 	}
 
+	private synchronized void stopShards() {
+		if (this.shards == null) {
+			return;
+		}
+		for (ScoringShard shard : this.shards) {
+			shard.add(FINISH_SHARD);
+			shard.flush();
+		}
+		for (ScoringShard shard : this.shards) {
+			try {
+				shard.join();
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+		}
+		this.shards = null;
+	}
+
 	public void writePartialScores(String iterationFilename) {
 		try ( BufferedWriter out = IOUtils.getBufferedWriter(iterationFilename) ) {
 			for (Entry<Id<Person>, TDoubleCollection> entry : this.partialScores.entrySet()) {
@@ -201,4 +304,90 @@ class ScoringFunctionsForPopulation implements BasicEventHandler, EventsToLegs.L
 	public void reset(int iteration) {
 
 	}
+
+	/**
+	 * Owns the scoring functions and partial scores of the persons whose index falls into this shard. Items are handed
+	 * over in batches, so that the handler threads do not have to synchronize with the shard for every single event.
+	 */
+	private final class ScoringShard extends Thread {
+
+		static final int BATCH_SIZE = 1024;
+		static final int MAX_PENDING_BATCHES = 16;
+
+		private final List<Id<Person>> personIds = new ArrayList<>();
+		private final BlockingQueue<List<Object>> batches = new ArrayBlockingQueue<>(MAX_PENDING_BATCHES);
+		private List<Object> currentBatch = new ArrayList<>(BATCH_SIZE);
+
+		ScoringShard(int index) {
+			super("ScoringShard-" + index);
+			setDaemon(true);
+		}
+
+		/** Only called from the synchronized methods of the enclosing class. */
+		void add(Object item) {
+			this.currentBatch.add(item);
+			if (this.currentBatch.size() == BATCH_SIZE) {
+				flush();
+			}
+		}
+
+		void flush() {
+			if (this.currentBatch.isEmpty()) {
+				return;
+			}
+			try {
+				this.batches.put(this.currentBatch);
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+			this.currentBatch = new ArrayList<>(BATCH_SIZE);
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (true) {
+					for (Object item : this.batches.take()) {
+						if (item == FINISH_SHARD) {
+							finishPersons();
+							return;
+						}
+						if (exception.get() != null) {
+							// keep on draining the queue so that the handler threads do not block
+							continue;
+						}
+						try {
+							if (item instanceof PersonExperiencedLeg) {
+								score((PersonExperiencedLeg) item);
+							} else if (item instanceof PersonExperiencedActivity) {
+								score((PersonExperiencedActivity) item);
+							} else {
+								score((Event) item);
+							}
+						} catch (Throwable e) {
+							exception.compareAndSet(null, e);
+						}
+					}
+				}
+			} catch (InterruptedException e) {
+				exception.compareAndSet(null, e);
+			}
+		}
+
+		private void finishPersons() {
+			if (exception.get() != null) {
+				return;
+			}
+			try {
+				for (Id<Person> personId : this.personIds) {
+					ScoringFunction sf = getScoringFunctionForAgent(personId);
+					sf.finish();
+					partialScores.get(personId).add(sf.getScore());
+				}
+			} catch (Throwable e) {
+				exception.compareAndSet(null, e);
+			}
+		}
+
+	}
 }
\ No newline at end of file
@@ -50,6 +50,15 @@ public class ArrayBasedDataContainerProvider implements DataContainerProvider {
 		this.delegate = new MapBasedDataContainerProvider(linkData, ttDataFactory);
 	}
 	
+	/**
+	 * @see MapBasedDataContainerProvider#MapBasedDataContainerProvider(Map, Map, TravelTimeDataFactory)
+	 */
+	public ArrayBasedDataContainerProvider(Map<Id<Link>, DataContainer> linkData, Map<Id<Link>, DataContainer> otherLinkData,
+			TravelTimeDataFactory ttDataFactory, Network network) {
+		this.arrayLinkData = new DataContainer[network.getLinks().size()];
+		this.delegate = new MapBasedDataContainerProvider(linkData, otherLinkData, ttDataFactory);
+	}
+	
 	/*
 	 * This method is called from the EventHandler part of the TravelTimeCalculator.
 	 * There, only link ids are available. We cannot optimize this. 
@@ -0,0 +1,129 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * LinkTravelTimeSnapshot.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.core.trafficmonitoring;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.trafficmonitoring.TravelTimeCalculator.DataContainer;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * An immutable copy of the link travel times collected by a {@link TravelTimeCalculator}. The consolidated travel
+ * times of all time bins are stored in a single array, in blocks by link, and are read through the aggregator of the
+ * calculator, so the copy returns the same travel times as the calculator did when it was created.
+ * <p></p>
+ * Links on which the travel time equals the free speed travel time in all time bins are not stored.
+ */
+final class LinkTravelTimeSnapshot implements TravelTime {
+
+	private final AbstractTravelTimeAggregator aggregator;
+	private final TravelTimeData[] data;
+
+	LinkTravelTimeSnapshot(final Network network, final Map<Id<Link>, DataContainer> linkData, final TravelTimeCalculator calculator,
+			final AbstractTravelTimeAggregator aggregator) {
+		this.aggregator = aggregator;
+		int numSlots = calculator.numSlots;
+		int numLinkIndices = 0;
+		for (Id<Link> linkId : linkData.keySet()) {
+			numLinkIndices = Math.max(numLinkIndices, linkId.index() + 1);
+		}
+		int[] offsets = new int[numLinkIndices];
+		Arrays.fill(offsets, -1);
+		double[] travelTimes = new double[numSlots * 16];
+		int size = 0;
+		for (Map.Entry<Id<Link>, DataContainer> entry : linkData.entrySet()) {
+			Link link = network.getLinks().get(entry.getKey());
+			if (link == null) {
+				continue;
+			}
+			DataContainer container = entry.getValue();
+			calculator.consolidateData(container);
+			if (size + numSlots > travelTimes.length) {
+				travelTimes = Arrays.copyOf(travelTimes, Math.max(size + numSlots, travelTimes.length * 2));
+			}
+			boolean freeSpeed = true;
+			for (int slot = 0; slot < numSlots; slot++) {
+				double time = slot * calculator.timeSlice;
+				double travelTime = container.ttData.getTravelTime(slot, time);
+				travelTimes[size + slot] = travelTime;
+				freeSpeed = freeSpeed && travelTime == link.getLength() / link.getFreespeed(time);
+			}
+			if (!freeSpeed) {
+				offsets[entry.getKey().index()] = size;
+				size += numSlots;
+			}
+		}
+
+		final double[] values = Arrays.copyOf(travelTimes, size);
+		this.data = new TravelTimeData[numLinkIndices];
+		for (int i = 0; i < numLinkIndices; i++) {
+			if (offsets[i] >= 0) {
+				this.data[i] = new ReadOnlyTravelTimeData(values, offsets[i]);
+			}
+		}
+	}
+
+	@Override
+	public double getLinkTravelTime(final Link link, final double time, final Person person, final Vehicle vehicle) {
+		int index = link.getId().index();
+		TravelTimeData linkData = index < this.data.length ? this.data[index] : null;
+		if (linkData == null) {
+			return link.getLength() / link.getFreespeed(time);
+		}
+		return this.aggregator.getTravelTime(linkData, time);
+	}
+
+	private static final class ReadOnlyTravelTimeData implements TravelTimeData {
+		private final double[] travelTimes;
+		private final int offset;
+
+		ReadOnlyTravelTimeData(final double[] travelTimes, final int offset) {
+			this.travelTimes = travelTimes;
+			this.offset = offset;
+		}
+
+		@Override
+		public void resetTravelTimes() {
+			throw new UnsupportedOperationException("the travel times of a snapshot cannot be changed.");
+		}
+
+		@Override
+		public void addTravelTime(final int timeSlot, final double traveltime) {
+			throw new UnsupportedOperationException("the travel times of a snapshot cannot be changed.");
+		}
+
+		@Override
+		public void setTravelTime(final int timeSlot, final double traveltime) {
+			throw new UnsupportedOperationException("the travel times of a snapshot cannot be changed.");
+		}
+
+		@Override
+		public double getTravelTime(final int timeSlot, final double now) {
+			return this.travelTimes[this.offset + timeSlot];
+		}
+	}
+
+}
@@ -20,6 +20,7 @@
 
 package org.matsim.core.trafficmonitoring;
 
+import java.util.Collections;
 import java.util.Map;
 
 import org.matsim.api.core.v01.Id;
@@ -29,19 +30,43 @@ import org.matsim.core.trafficmonitoring.TravelTimeCalculator.DataContainer;
 public class MapBasedDataContainerProvider implements DataContainerProvider {
 
 	private final Map<Id<Link>, DataContainer> linkData;
+	private final Map<Id<Link>, DataContainer> otherLinkData;
 	private final TravelTimeDataFactory ttDataFactory;
 	
+	/**
+	 * @param linkData receives the data of all links, must be thread-safe if the data is requested by several threads
+	 */
 	public MapBasedDataContainerProvider(Map<Id<Link>, DataContainer> linkData, TravelTimeDataFactory ttDataFactory) {
+		this(Collections.<Id<Link>, DataContainer>emptyMap(), linkData, ttDataFactory);
+	}
+	
+	/**
+	 * @param linkData the data of the links known in advance, only read
+	 * @param otherLinkData receives the data of all other links, must be thread-safe if the data is requested by several threads
+	 */
+	public MapBasedDataContainerProvider(Map<Id<Link>, DataContainer> linkData, Map<Id<Link>, DataContainer> otherLinkData,
+			TravelTimeDataFactory ttDataFactory) {
 		this.linkData = linkData;
+		this.otherLinkData = otherLinkData;
 		this.ttDataFactory = ttDataFactory;
 	}
 	
 	@Override 
 	public DataContainer getTravelTimeData(final Id<Link> linkId, final boolean createIfMissing) {
 		DataContainer data = this.linkData.get(linkId);
-		if ((null == data) && createIfMissing) {
-			data = new DataContainer(this.ttDataFactory.createTravelTimeData(linkId));
-			this.linkData.put(linkId, data);
+		if (null == data) {
+			data = this.otherLinkData.get(linkId);
+			if ((null == data) && createIfMissing) {
+				/* several threads may ask for the same missing link at the same time,
+				 * make sure only one of them creates the data. */
+				synchronized (this.otherLinkData) {
+					data = this.otherLinkData.get(linkId);
+					if (null == data) {
+						data = new DataContainer(this.ttDataFactory.createTravelTimeData(linkId));
+						this.otherLinkData.put(linkId, data);
+					}
+				}
+			}
 		}
 		return data;
 	}
@@ -19,7 +19,8 @@
  * *********************************************************************** */
 package org.matsim.core.trafficmonitoring;
 
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -47,6 +48,8 @@ import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
 import org.matsim.core.router.util.LinkToLinkTravelTime;
 import org.matsim.core.router.util.TravelTime;
 import org.matsim.core.utils.collections.CollectionUtils;
+import org.matsim.core.utils.collections.IdMap;
+import org.matsim.core.utils.collections.IdSet;
 import org.matsim.core.utils.collections.Tuple;
 import org.matsim.vehicles.Vehicle;
 
@@ -61,6 +64,11 @@ import org.matsim.vehicles.Vehicle;
  * use {@link TravelTimeDataHashMap} (see {@link #setTravelTimeDataFactory(TravelTimeDataFactory)}
  * as that one does not use any memory to time bins where no traffic occurred. By default,
  * {@link TravelTimeDataArray} is used.
+ * <br>
+ * The link travel times can be collected by several event handlers, each handling the events of its share of the
+ * links (see {@link TravelTimeCalculatorConfigGroup#getNumberOfShards()}), so parallel events handling can
+ * spread the work over several threads. Once all events of an iteration are handled (see {@link #publishSnapshot()}),
+ * the link travel times are read from an immutable copy instead of the live data.
  * 
  * @author dgrether
  * @author mrieser
@@ -79,14 +87,31 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 	private static final Logger log = Logger.getLogger(TravelTimeCalculator.class);
 
 	private Map<Id<Link>, DataContainer> linkData;
+	// data of links which were not part of the network when the calculator was created
+	private Map<Id<Link>, DataContainer> otherLinkData;
+
+	/*
+	 * Link-to-link data is stored per turn, i.e. per out-link of the link's to-node. The turns of the
+	 * link with Id index i are turnToLinks[firstTurn[i]] to turnToLinks[firstTurn[i + 1] - 1].
+	 * Pairs of links which are no turns in the network go to linkToLinkData.
+	 */
+	private int[] firstTurn;
+	private int[] turnToLinks;
+	private DataContainer[] turnData;
 
 	private Map<Tuple<Id<Link>, Id<Link>>, DataContainer> linkToLinkData;
 
 	private final DataContainerProvider dataContainerProvider;
-	
-	private final Map<Id<Vehicle>, LinkEnterEvent> linkEnterEvents;
 
-	private final Set<Id<Vehicle>> vehiclesToIgnore;
+	/*
+	 * With a single shard, the calculator handles the events itself and passes them on to the shard.
+	 */
+	private final Shard[] shards;
+
+	private final Network network;
+	private volatile boolean snapshotPublished = false;
+	private volatile LinkTravelTimeSnapshot snapshot = null;
+
 	private final Set<String> analyzedModes;
 
 	private final boolean filterAnalyzedModes;
@@ -146,8 +171,8 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 
 	@Inject
 	TravelTimeCalculator(TravelTimeCalculatorConfigGroup ttconfigGroup, EventsManager eventsManager, Network network) {
-		this(network, ttconfigGroup.getTraveltimeBinSize(), ttconfigGroup.getMaxTime(), ttconfigGroup.isCalculateLinkTravelTimes(), ttconfigGroup.isCalculateLinkToLinkTravelTimes(), ttconfigGroup.isFilterModes(), CollectionUtils.stringToSet(ttconfigGroup.getAnalyzedModes()));
-		eventsManager.addHandler(this);
+		this(network, ttconfigGroup.getTraveltimeBinSize(), ttconfigGroup.getMaxTime(), ttconfigGroup.isCalculateLinkTravelTimes(), ttconfigGroup.isCalculateLinkToLinkTravelTimes(), ttconfigGroup.isFilterModes(), CollectionUtils.stringToSet(ttconfigGroup.getAnalyzedModes()), ttconfigGroup.getNumberOfShards());
+		addEventHandlers(eventsManager);
 		configure(this, ttconfigGroup, network);
 	}
 
@@ -161,6 +186,13 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 
 	TravelTimeCalculator(final Network network, final int timeslice, final int maxTime,
 								boolean calculateLinkTravelTimes, boolean calculateLinkToLinkTravelTimes, boolean filterModes, Set<String> strings) {
+		this(network, timeslice, maxTime, calculateLinkTravelTimes, calculateLinkToLinkTravelTimes, filterModes, strings, 1);
+	}
+
+	TravelTimeCalculator(final Network network, final int timeslice, final int maxTime,
+								boolean calculateLinkTravelTimes, boolean calculateLinkToLinkTravelTimes, boolean filterModes, Set<String> strings,
+								int numberOfShards) {
+		this.network = network;
 		this.calculateLinkTravelTimes = calculateLinkTravelTimes;
 		this.calculateLinkToLinkTravelTimes = calculateLinkToLinkTravelTimes;
 		this.filterAnalyzedModes = filterModes;
@@ -170,7 +202,17 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 		this.aggregator = new OptimisticTravelTimeAggregator(this.numSlots, this.timeSlice);
 		this.ttDataFactory = new TravelTimeDataArrayFactory(network, this.numSlots);
 		if (this.calculateLinkTravelTimes){
-			this.linkData = new ConcurrentHashMap<>((int) (network.getLinks().size() * 1.4));
+			/*
+			 * Link data is looked up by the routers for every link they expand, so it is stored
+			 * by the links' Id indices instead of hashing. The IdMap is not thread-safe, so it is
+			 * filled with the data of all links of the network here and never written afterwards.
+			 * Data of any other link is created in a concurrent map, see MapBasedDataContainerProvider.
+			 */
+			this.linkData = new IdMap<>(Link.class, Math.max(network.getLinks().size(), Id.getNumberOfIds(Link.class)));
+			for (Id<Link> linkId : network.getLinks().keySet()) {
+				this.linkData.put(linkId, new DataContainer(this.ttDataFactory.createTravelTimeData(linkId)));
+			}
+			this.otherLinkData = new ConcurrentHashMap<>();
 
 			/*
 			 * So far, link data objects were stored in a HashMap. This lookup strategy is used
@@ -183,95 +225,140 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 			 * cdobler, oct'13
 			 */
 			//		this.dataContainerProvider = new MapBasedDataContainerProvider(linkData, ttDataFactory);
-			this.dataContainerProvider = new ArrayBasedDataContainerProvider(linkData, ttDataFactory, network);
+			this.dataContainerProvider = new ArrayBasedDataContainerProvider(linkData, otherLinkData, ttDataFactory, network);
 		} else this.dataContainerProvider = null;
 		if (this.calculateLinkToLinkTravelTimes){
-			// assume that every link has 2 outgoing links as default
-			this.linkToLinkData = new ConcurrentHashMap<>((int) (network.getLinks().size() * 1.4 * 2));
+			initTurns(network);
+			this.linkToLinkData = new ConcurrentHashMap<>();
 		}
-		this.linkEnterEvents = new ConcurrentHashMap<>();
-
-		// if we just look at one mode, we need to ignore all vehicles with a different mode. However, the info re the mode is only in
-		// the vehicleEntersTraffic event.  So we need to memorize the ignored vehicles from there ...
-		this.vehiclesToIgnore = new HashSet<>();
 
+		if (numberOfShards > 1 && this.calculateLinkToLinkTravelTimes) {
+			// the turn a vehicle takes is only known to the shard of the link it leaves
+			log.warn("link-to-link travel times cannot be collected by several shards, using a single one.");
+			numberOfShards = 1;
+		}
+		this.shards = new Shard[Math.max(1, numberOfShards)];
+		for (int i = 0; i < this.shards.length; i++) {
+			this.shards[i] = new Shard(i, this.shards.length);
+		}
 
 		this.reset(0);
 
 	}
 
+	private void initTurns(final Network network) {
+		int numLinkIndices = 0;
+		for (Id<Link> linkId : network.getLinks().keySet()) {
+			numLinkIndices = Math.max(numLinkIndices, linkId.index() + 1);
+		}
+		this.firstTurn = new int[numLinkIndices + 1];
+		for (Link link : network.getLinks().values()) {
+			this.firstTurn[link.getId().index() + 1] = link.getToNode().getOutLinks().size();
+		}
+		for (int i = 0; i < numLinkIndices; i++) {
+			this.firstTurn[i + 1] += this.firstTurn[i];
+		}
+		this.turnToLinks = new int[this.firstTurn[numLinkIndices]];
+		for (Link link : network.getLinks().values()) {
+			int turn = this.firstTurn[link.getId().index()];
+			for (Link toLink : link.getToNode().getOutLinks().values()) {
+				this.turnToLinks[turn++] = toLink.getId().index();
+			}
+		}
+		this.turnData = new DataContainer[this.turnToLinks.length];
+	}
+
+	/**
+	 * Registers the handlers which collect the travel times. With more than one shard, these are the shards;
+	 * otherwise, it is the calculator itself.
+	 */
+	/*package*/ void addEventHandlers(final EventsManager eventsManager) {
+		if (this.shards.length == 1) {
+			eventsManager.addHandler(this);
+		} else {
+			for (Shard shard : this.shards) {
+				eventsManager.addHandler(shard);
+			}
+		}
+	}
+
 	@Override
 	public void handleEvent(final LinkEnterEvent e) {
-		/* if only some modes are analyzed, we check whether the vehicles
-		 * performs a trip with one of those modes. if not, we skip the event. */
-		if (filterAnalyzedModes && vehiclesToIgnore.contains(e.getVehicleId())) return;
-
-		LinkEnterEvent oldEvent = this.linkEnterEvents.remove(e.getVehicleId());
-		if ((oldEvent != null) && this.calculateLinkToLinkTravelTimes) {
-			Tuple<Id<Link>, Id<Link>> fromToLink = new Tuple<>(oldEvent.getLinkId(), e.getLinkId());
-			DataContainer data = getLinkToLinkTravelTimeData(fromToLink, true);
-			this.aggregator.addTravelTime(data.ttData, oldEvent.getTime(), e.getTime());
-			data.needsConsolidation = true;
+		for (Shard shard : this.shards) {
+			shard.handleEvent(e);
 		}
-		this.linkEnterEvents.put(e.getVehicleId(), e);
 	}
 
 	@Override
 	public void handleEvent(final LinkLeaveEvent e) {
-		if (this.calculateLinkTravelTimes) {
-			LinkEnterEvent oldEvent = this.linkEnterEvents.get(e.getVehicleId());
-			if (oldEvent != null) {
-				DataContainer data = this.dataContainerProvider.getTravelTimeData(e.getLinkId(), true);
-				this.aggregator.addTravelTime(data.ttData, oldEvent.getTime(), e.getTime());
-				data.needsConsolidation = true;
-			}
+		for (Shard shard : this.shards) {
+			shard.handleEvent(e);
+		}
+	}
+
+	/*
+	 * needsConsolidation is volatile, so only write it if it changes.
+	 */
+	private static void markForConsolidation(final DataContainer data) {
+		if (!data.needsConsolidation) {
+			data.needsConsolidation = true;
 		}
 	}
 
 	@Override
 	public void handleEvent(VehicleEntersTrafficEvent event) {
-		/* if filtering transport modes is enabled and the vehicles
-		 * starts a leg on a non analyzed transport mode, add the vehicle 
-		 * to the filtered vehicles set. */
-		if (filterAnalyzedModes && !analyzedModes.contains(event.getNetworkMode())) { 
-			this.vehiclesToIgnore.add(event.getVehicleId());
+		for (Shard shard : this.shards) {
+			shard.handleEvent(event);
 		}
 	}
 
 	@Override
 	public void handleEvent(final VehicleLeavesTrafficEvent event) {
-		/* remove EnterEvents from list when a vehicle arrives.
-		 * otherwise, the activity duration would counted as travel time, when the
-		 * vehicle departs again and leaves the link! */
-		this.linkEnterEvents.remove(event.getVehicleId());
-
-		// try to remove vehicles from set with filtered vehicles
-		if (filterAnalyzedModes) this.vehiclesToIgnore.remove(event.getVehicleId());
+		for (Shard shard : this.shards) {
+			shard.handleEvent(event);
+		}
 	}
 
 	@Override
 	public void handleEvent(VehicleArrivesAtFacilityEvent event) {
-		/* remove EnterEvents from list when a bus stops on a link.
-		 * otherwise, the stop time would counted as travel time, when the
-		 * bus departs again and leaves the link! */
-		this.linkEnterEvents.remove(event.getVehicleId());
+		for (Shard shard : this.shards) {
+			shard.handleEvent(event);
+		}
 	}
 
 	@Override
 	public void handleEvent(VehicleAbortsEvent event) {
-		LinkEnterEvent e = this.linkEnterEvents.remove(event.getVehicleId());
-		if (e != null) {
-			DataContainer data = this.dataContainerProvider.getTravelTimeData(e.getLinkId(), true);
-			data.needsConsolidation = true;
-			this.aggregator.addStuckEventTravelTime(data.ttData, e.getTime(), event.getTime());
-			if (this.calculateLinkToLinkTravelTimes){
-				log.error(ERROR_STUCK_AND_LINKTOLINK);
-				throw new IllegalStateException(ERROR_STUCK_AND_LINKTOLINK);
+		for (Shard shard : this.shards) {
+			shard.handleEvent(event);
+		}
+	}
+
+	private DataContainer getLinkToLinkTravelTimeData(final int fromLinkIndex, final int toLinkIndex, final boolean createIfMissing) {
+		int turn = -1;
+		if (fromLinkIndex < this.firstTurn.length - 1) {
+			for (int t = this.firstTurn[fromLinkIndex]; t < this.firstTurn[fromLinkIndex + 1]; t++) {
+				if (this.turnToLinks[t] == toLinkIndex) {
+					turn = t;
+					break;
+				}
 			}
 		}
+		if (turn < 0) {
+			return getLinkToLinkTravelTimeData(new Tuple<>(Id.get(fromLinkIndex, Link.class), Id.get(toLinkIndex, Link.class)), createIfMissing);
+		}
 
-		// try to remove vehicle from set with filtered vehicles
-		if (filterAnalyzedModes) this.vehiclesToIgnore.remove(event.getVehicleId());
+		DataContainer data = this.turnData[turn];
+		if ((null == data) && createIfMissing) {
+			// routers may ask for missing data while the events are handled
+			synchronized (this.turnData) {
+				data = this.turnData[turn];
+				if (null == data) {
+					data = new DataContainer(this.ttDataFactory.createTravelTimeData(Id.get(fromLinkIndex, Link.class)));
+					this.turnData[turn] = data;
+				}
+			}
+		}
+		return data;
 	}
 
 	private DataContainer getLinkToLinkTravelTimeData(Tuple<Id<Link>, Id<Link>> fromLinkToLink, final boolean createIfMissing) {
@@ -300,7 +387,7 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 			throw new IllegalStateException("No link to link travel time is available " +
 					"if calculation is switched off by config option!");
 		}
-		DataContainer data = this.getLinkToLinkTravelTimeData(new Tuple<>(fromLinkId, toLinkId), true);
+		DataContainer data = this.getLinkToLinkTravelTimeData(fromLinkId.index(), toLinkId.index(), true);
 		if (data.needsConsolidation) {
 			consolidateData(data);
 		}
@@ -309,20 +396,62 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 
 	@Override
 	public void reset(int iteration) {
+		this.snapshotPublished = false;
+		this.snapshot = null;
+		for (Shard shard : this.shards) {
+			shard.resetVehicles();
+		}
 		if (this.calculateLinkTravelTimes) {
 			for (DataContainer data : this.linkData.values()){
 				data.ttData.resetTravelTimes();
 				data.needsConsolidation = false;
 			}
+			for (DataContainer data : this.otherLinkData.values()){
+				data.ttData.resetTravelTimes();
+				data.needsConsolidation = false;
+			}
 		}
 		if (this.calculateLinkToLinkTravelTimes){
+			for (DataContainer data : this.turnData) {
+				if (data != null) {
+					data.ttData.resetTravelTimes();
+					data.needsConsolidation = false;
+				}
+			}
 			for (DataContainer data : this.linkToLinkData.values()){
 				data.ttData.resetTravelTimes();
 				data.needsConsolidation = false;
 			}
 		}
-		this.linkEnterEvents.clear();
-		this.vehiclesToIgnore.clear();
+	}
+
+	/**
+	 * Declares that all events of the iteration are handled. Until the next {@link #reset(int)}, the {@link TravelTime}
+	 * returned by {@link #getLinkTravelTimes()} then reads from an immutable copy of the link travel times, which
+	 * is created when they are read for the first time.
+	 */
+	public void publishSnapshot() {
+		this.snapshotPublished = true;
+	}
+
+	private LinkTravelTimeSnapshot getSnapshot() {
+		LinkTravelTimeSnapshot snapshot = this.snapshot;
+		if (snapshot == null) {
+			synchronized (this) {
+				snapshot = this.snapshot;
+				if (snapshot == null) {
+					Map<Id<Link>, DataContainer> data = this.linkData;
+					if (!this.otherLinkData.isEmpty()) {
+						// links added to the network later
+						data = new HashMap<>(this.linkData);
+						data.putAll(this.otherLinkData);
+					}
+					snapshot = new LinkTravelTimeSnapshot(this.network, data, this, this.aggregator);
+					this.snapshot = snapshot;
+				}
+			}
+		}
+		return snapshot;
 	}
 
 	public void setTravelTimeDataFactory(final TravelTimeDataFactory factory) {
@@ -351,7 +480,7 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 	 * bin size.
 	 * 
 	 */
-	private void consolidateData(final DataContainer data) {
+	/*package*/ void consolidateData(final DataContainer data) {
 		synchronized(data) {
 			if (data.needsConsolidation) {
 				TravelTimeData r = data.ttData;
@@ -397,6 +526,174 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 		return this.timeSlice;
 	}
 
+	/**
+	 * Collects the travel times of the links whose Id index modulo the number of shards is the index of the shard.
+	 * Every shard sees all events and keeps its own state of the vehicles, so the shards only share the
+	 * data of the links, which each of them writes for its own links only.
+	 */
+	private final class Shard implements LinkEnterEventHandler, LinkLeaveEventHandler,
+			VehicleEntersTrafficEventHandler, VehicleLeavesTrafficEventHandler, VehicleArrivesAtFacilityEventHandler,
+			VehicleAbortsEventHandler {
+
+		private final int index;
+		private final int numberOfShards;
+
+		/*
+		 * The link (Id index, -1 if none) and time each vehicle entered last, by the vehicles' Id indices.
+		 * Only links of this shard are recorded.
+		 */
+		private int[] enteredLinks = new int[0];
+		private double[] linkEnterTimes = new double[0];
+
+		// if we just look at one mode, we need to ignore all vehicles with a different mode. However, the info re the mode is only in
+		// the vehicleEntersTraffic event.  So we need to memorize the ignored vehicles from there ...
+		private final Set<Id<Vehicle>> vehiclesToIgnore = new IdSet<>(Vehicle.class);
+
+		Shard(final int index, final int numberOfShards) {
+			this.index = index;
+			this.numberOfShards = numberOfShards;
+		}
+
+		private boolean isResponsible(final int linkIndex) {
+			return this.numberOfShards == 1 || linkIndex % this.numberOfShards == this.index;
+		}
+
+		@Override
+		public void handleEvent(final LinkEnterEvent e) {
+			/* if only some modes are analyzed, we check whether the vehicles
+			 * performs a trip with one of those modes. if not, we skip the event. */
+			if (filterAnalyzedModes && this.vehiclesToIgnore.contains(e.getVehicleId())) return;
+
+			int vehicleIndex = e.getVehicleId().index();
+			int linkIndex = e.getLinkId().index();
+			if (!isResponsible(linkIndex)) {
+				removeEnteredLink(e.getVehicleId());
+				return;
+			}
+			if (calculateLinkToLinkTravelTimes) {
+				int fromLinkIndex = getEnteredLink(vehicleIndex);
+				if (fromLinkIndex >= 0) {
+					DataContainer data = getLinkToLinkTravelTimeData(fromLinkIndex, linkIndex, true);
+					aggregator.addTravelTime(data.ttData, this.linkEnterTimes[vehicleIndex], e.getTime());
+					markForConsolidation(data);
+				}
+			}
+			setEnteredLink(vehicleIndex, linkIndex, e.getTime());
+		}
+
+		@Override
+		public void handleEvent(final LinkLeaveEvent e) {
+			if (calculateLinkTravelTimes && isResponsible(e.getLinkId().index())) {
+				int vehicleIndex = e.getVehicleId().index();
+				if (getEnteredLink(vehicleIndex) >= 0) {
+					DataContainer data = dataContainerProvider.getTravelTimeData(e.getLinkId(), true);
+					aggregator.addTravelTime(data.ttData, this.linkEnterTimes[vehicleIndex], e.getTime());
+					markForConsolidation(data);
+				}
+			}
+		}
+
+		private int getEnteredLink(final int vehicleIndex) {
+			return vehicleIndex < this.enteredLinks.length ? this.enteredLinks[vehicleIndex] : -1;
+		}
+
+		private void setEnteredLink(final int vehicleIndex, final int linkIndex, final double time) {
+			if (vehicleIndex >= this.enteredLinks.length) {
+				int oldLength = this.enteredLinks.length;
+				int newLength = Math.max(vehicleIndex + 1, Math.max(Id.getNumberOfIds(Vehicle.class), oldLength * 2));
+				this.enteredLinks = Arrays.copyOf(this.enteredLinks, newLength);
+				Arrays.fill(this.enteredLinks, oldLength, newLength, -1);
+				this.linkEnterTimes = Arrays.copyOf(this.linkEnterTimes, newLength);
+			}
+			this.enteredLinks[vehicleIndex] = linkIndex;
+			this.linkEnterTimes[vehicleIndex] = time;
+		}
+
+		/**
+		 * @return the Id index of the link the vehicle entered last, or -1 if there is none.
+		 */
+		private int removeEnteredLink(final Id<Vehicle> vehicleId) {
+			int vehicleIndex = vehicleId.index();
+			int linkIndex = getEnteredLink(vehicleIndex);
+			if (linkIndex >= 0) {
+				this.enteredLinks[vehicleIndex] = -1;
+			}
+			return linkIndex;
+		}
+
+		@Override
+		public void handleEvent(VehicleEntersTrafficEvent event) {
+			/* if filtering transport modes is enabled and the vehicles
+			 * starts a leg on a non analyzed transport mode, add the vehicle 
+			 * to the filtered vehicles set. */
+			if (filterAnalyzedModes && !analyzedModes.contains(event.getNetworkMode())) { 
+				this.vehiclesToIgnore.add(event.getVehicleId());
+			}
+		}
+
+		@Override
+		public void handleEvent(final VehicleLeavesTrafficEvent event) {
+			/* remove EnterEvents from list when a vehicle arrives.
+			 * otherwise, the activity duration would counted as travel time, when the
+			 * vehicle departs again and leaves the link! */
+			removeEnteredLink(event.getVehicleId());
+
+			// try to remove vehicles from set with filtered vehicles
+			if (filterAnalyzedModes) this.vehiclesToIgnore.remove(event.getVehicleId());
+		}
+
+		@Override
+		public void handleEvent(VehicleArrivesAtFacilityEvent event) {
+			/* remove EnterEvents from list when a bus stops on a link.
+			 * otherwise, the stop time would counted as travel time, when the
+			 * bus departs again and leaves the link! */
+			removeEnteredLink(event.getVehicleId());
+		}
+
+		@Override
+		public void handleEvent(VehicleAbortsEvent event) {
+			int linkIndex = removeEnteredLink(event.getVehicleId());
+			if (linkIndex >= 0) {
+				DataContainer data = dataContainerProvider.getTravelTimeData(Id.get(linkIndex, Link.class), true);
+				data.needsConsolidation = true;
+				aggregator.addStuckEventTravelTime(data.ttData, this.linkEnterTimes[event.getVehicleId().index()], event.getTime());
+				if (calculateLinkToLinkTravelTimes){
+					log.error(ERROR_STUCK_AND_LINKTOLINK);
+					throw new IllegalStateException(ERROR_STUCK_AND_LINKTOLINK);
+				}
+			}
+
+			// try to remove vehicle from set with filtered vehicles
+			if (filterAnalyzedModes) this.vehiclesToIgnore.remove(event.getVehicleId());
+		}
+
+		/**
+		 * Called by the events manager if the shards are registered as handlers themselves. Resets the data
+		 * of the links of this shard.
+		 */
+		@Override
+		public void reset(final int iteration) {
+			snapshotPublished = false;
+			snapshot = null;
+			resetVehicles();
+			if (calculateLinkTravelTimes) {
+				for (Map<Id<Link>, DataContainer> data : Arrays.asList(linkData, otherLinkData)) {
+					for (Map.Entry<Id<Link>, DataContainer> entry : data.entrySet()) {
+						if (isResponsible(entry.getKey().index())) {
+							entry.getValue().ttData.resetTravelTimes();
+							entry.getValue().needsConsolidation = false;
+						}
+					}
+				}
+			}
+		}
+
+		void resetVehicles() {
+			Arrays.fill(this.enteredLinks, -1);
+			this.vehiclesToIgnore.clear();
+		}
+	}
+
 	/*package*/ static class DataContainer {
 		/*package*/ final TravelTimeData ttData;
 		/*package*/ volatile boolean needsConsolidation = false;
@@ -407,14 +704,36 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 	}
 
 	public TravelTime getLinkTravelTimes() {
-		return new TravelTime() {
+		return new LinkTravelTimes();
+	}
 
-			@Override
-			public double getLinkTravelTime(Link link, double time, Person person, Vehicle vehicle) {
-				return TravelTimeCalculator.this.getLinkTravelTime(link.getId(), time);
+	/**
+	 * @return an immutable copy of the current link travel times of the calculator which returned the given travel
+	 * time from {@link #getLinkTravelTimes()}, read with its configured aggregator and travel time getter, or
+	 * <code>null</code> if the travel time does not come from a calculator. The copy does not change with later events,
+	 * nor when the calculator is reset.
+	 */
+	public static TravelTime copyLinkTravelTimes(final TravelTime travelTime) {
+		if (!(travelTime instanceof LinkTravelTimes)) {
+			return null;
+		}
+		TravelTimeCalculator calculator = ((LinkTravelTimes) travelTime).getCalculator();
+		return calculator.calculateLinkTravelTimes ? calculator.getSnapshot() : null;
+	}
+
+	private final class LinkTravelTimes implements TravelTime {
+
+		@Override
+		public double getLinkTravelTime(Link link, double time, Person person, Vehicle vehicle) {
+			if (TravelTimeCalculator.this.snapshotPublished && TravelTimeCalculator.this.calculateLinkTravelTimes) {
+				return getSnapshot().getLinkTravelTime(link, time, person, vehicle);
 			}
+			return TravelTimeCalculator.this.getLinkTravelTime(link.getId(), time);
+		}
 
-		};
+		TravelTimeCalculator getCalculator() {
+			return TravelTimeCalculator.this;
+		}
 
 	}
 
@@ -31,6 +31,9 @@ import org.matsim.api.core.v01.network.Network;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
 import org.matsim.core.controler.AbstractModule;
+import org.matsim.core.controler.events.IterationEndsEvent;
+import org.matsim.core.controler.listener.ControlerListener;
+import org.matsim.core.controler.listener.IterationEndsListener;
 import org.matsim.core.router.util.LinkToLinkTravelTime;
 import org.matsim.core.router.util.TravelTime;
 import org.matsim.core.utils.collections.CollectionUtils;
@@ -60,6 +63,9 @@ public class TravelTimeCalculatorModule extends AbstractModule {
                         return injector.getInstance(Key.get(TravelTimeCalculator.class, Names.named(mode))).getLinkTravelTimes();
                     }
                 });
+                if (getConfig().travelTimeCalculator().isCalculateLinkTravelTimes()) {
+                    addControlerListenerBinding().toProvider(new SnapshotPublisherProvider(Key.get(TravelTimeCalculator.class, Names.named(mode))));
+                }
             }
         } else {
             bind(TravelTimeCalculator.class).in(Singleton.class);
@@ -67,6 +73,7 @@ public class TravelTimeCalculatorModule extends AbstractModule {
                 for (String mode : CollectionUtils.stringToSet(getConfig().travelTimeCalculator().getAnalyzedModes())) {
                     addTravelTimeBinding(mode).toProvider(ObservedLinkTravelTimes.class);
                 }
+                addControlerListenerBinding().toProvider(new SnapshotPublisherProvider(Key.get(TravelTimeCalculator.class)));
             }
             if (getConfig().travelTimeCalculator().isCalculateLinkToLinkTravelTimes()) {
                 bind(LinkToLinkTravelTime.class).toProvider(ObservedLinkToLinkTravelTimes.class);
@@ -88,10 +95,36 @@ public class TravelTimeCalculatorModule extends AbstractModule {
 
         @Override
         public TravelTimeCalculator get() {
-            TravelTimeCalculator calculator = new TravelTimeCalculator(network, config.getTraveltimeBinSize(), config.getMaxTime(), config.isCalculateLinkTravelTimes(), config.isCalculateLinkToLinkTravelTimes(), true, CollectionUtils.stringToSet(mode));
-            eventsManager.addHandler(calculator);
+            TravelTimeCalculator calculator = new TravelTimeCalculator(network, config.getTraveltimeBinSize(), config.getMaxTime(), config.isCalculateLinkTravelTimes(), config.isCalculateLinkToLinkTravelTimes(), true, CollectionUtils.stringToSet(mode), config.getNumberOfShards());
+            calculator.addEventHandlers(eventsManager);
             return TravelTimeCalculator.configure(calculator, config, network);
         }
     }
 
+    /**
+     * All events of an iteration are handled when it ends, so the routers of the next iteration can read the
+     * travel times from a snapshot.
+     */
+    private static class SnapshotPublisherProvider implements Provider<ControlerListener> {
+
+        @Inject Injector injector;
+
+        private final Key<TravelTimeCalculator> key;
+
+        SnapshotPublisherProvider(Key<TravelTimeCalculator> key) {
+            this.key = key;
+        }
+
+        @Override
+        public ControlerListener get() {
+            final TravelTimeCalculator calculator = injector.getInstance(key);
+            return new IterationEndsListener() {
+                @Override
+                public void notifyIterationEnds(IterationEndsEvent event) {
+                    calculator.publishSnapshot();
+                }
+            };
+        }
+    }
+
 }
@@ -26,6 +26,9 @@ import org.matsim.api.core.v01.network.Link;
  * Implementation of {@link TravelTimeData} that stores the data per time bin
  * in simple arrays. Useful if not too many empty time bins (time bins with 
  * no traffic on a link) exist, so no memory is wasted.
+ * <p></p>
+ * The arrays may be shared by the data of several links, each using its own block
+ * of <code>numSlots</code> entries, see {@link TravelTimeDataArrayFactory}.
  *
  * @author mrieser
  */
@@ -33,19 +36,28 @@ public class TravelTimeDataArray implements TravelTimeData {
 	private final double[] timeSum;
 	private final int[] timeCnt;
 	private final double[] travelTimes;
+	private final int offset;
+	private final int numSlots;
 	private final Link link;
 
 	public TravelTimeDataArray(final Link link, final int numSlots) {
-		this.timeSum = new double[numSlots];
-		this.timeCnt = new int[numSlots];
-		this.travelTimes = new double[numSlots];
+		this(link, new double[numSlots], new int[numSlots], new double[numSlots], 0, numSlots);
+	}
+
+	/*package*/ TravelTimeDataArray(final Link link, final double[] timeSum, final int[] timeCnt, final double[] travelTimes,
+			final int offset, final int numSlots) {
+		this.timeSum = timeSum;
+		this.timeCnt = timeCnt;
+		this.travelTimes = travelTimes;
+		this.offset = offset;
+		this.numSlots = numSlots;
 		this.link = link;
 		resetTravelTimes();
 	}
 
 	@Override
 	public void resetTravelTimes() {
-		for (int i = 0; i < this.timeSum.length; i++) {
+		for (int i = this.offset; i < this.offset + this.numSlots; i++) {
 			this.timeSum[i] = 0.0;
 			this.timeCnt[i] = 0;
 			this.travelTimes[i] = -1.0;
@@ -61,37 +73,35 @@ public class TravelTimeDataArray implements TravelTimeData {
 	
 	@Override
 	public void setTravelTime( final int timeSlot, final double traveltime ) {
-		this.timeSum[timeSlot] = traveltime ;
-		this.timeCnt[timeSlot] = 1 ;
-		this.travelTimes[timeSlot] = traveltime ; // since this is the only travel time, we do not need to trigger the cache consolidation.
+		final int i = this.offset + timeSlot;
+		this.timeSum[i] = traveltime ;
+		this.timeCnt[i] = 1 ;
+		this.travelTimes[i] = traveltime ; // since this is the only travel time, we do not need to trigger the cache consolidation.
 		// if ever some other value is added, the cache is invalidated in addTravelTime. kai/theresa, may'15
 	}
 
 	@Override
 	public void addTravelTime(final int timeSlot, final double traveltime) {
-		double sum = this.timeSum[timeSlot];
-		int cnt = this.timeCnt[timeSlot];
-		sum += traveltime;
-		cnt++;
-		this.timeSum[timeSlot] = sum;
-		this.timeCnt[timeSlot] = cnt;
-		this.travelTimes[timeSlot] = -1.0; // initialize with negative value
+		final int i = this.offset + timeSlot;
+		this.timeSum[i] += traveltime;
+		this.timeCnt[i]++;
+		this.travelTimes[i] = -1.0; // initialize with negative value
 	}
 
 	@Override
 	public double getTravelTime(final int timeSlot, final double now) {
-		double ttime = this.travelTimes[timeSlot];
+		final int i = this.offset + timeSlot;
+		double ttime = this.travelTimes[i];
 		if (ttime >= 0.0) return ttime; // negative values are invalid.
 
-		int cnt = this.timeCnt[timeSlot];
+		int cnt = this.timeCnt[i];
 		if (cnt == 0) {
-			this.travelTimes[timeSlot] = this.link.getLength() / this.link.getFreespeed(now);
-			return this.travelTimes[timeSlot];
+			ttime = this.link.getLength() / this.link.getFreespeed(now);
+		} else {
+			ttime = this.timeSum[i] / cnt;
 		}
-
-		double sum = this.timeSum[timeSlot];
-		this.travelTimes[timeSlot] = sum / cnt;
-		return this.travelTimes[timeSlot];
+		this.travelTimes[i] = ttime;
+		return ttime;
 	}
 	
 
@@ -24,10 +24,22 @@ import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 
+/**
+ * Creates {@link TravelTimeDataArray}s. The first data created for a link uses the link's block
+ * in flat arrays indexed by link index &times; time bin, which are shared by all links of the network.
+ * Further data for the same link (e.g. for link-to-link travel times) and data for links which
+ * were added to the network later get arrays of their own.
+ */
 public class TravelTimeDataArrayFactory implements TravelTimeDataFactory {
 
 	private final Network network;
 	private final int numSlots;
+
+	// allocated with the first data, by the links' Id indices
+	private double[] timeSum = null;
+	private int[] timeCnt = null;
+	private double[] travelTimes = null;
+	private boolean[] blockUsed = null;
 	
 	public TravelTimeDataArrayFactory(final Network network, final int numSlots) {
 		this.network = network;
@@ -35,8 +47,32 @@ public class TravelTimeDataArrayFactory implements TravelTimeDataFactory {
 	}
 	
 	@Override
-	public TravelTimeData createTravelTimeData(Id<Link> linkId) {
-		return new TravelTimeDataArray(this.network.getLinks().get(linkId), this.numSlots);
+	public synchronized TravelTimeData createTravelTimeData(Id<Link> linkId) {
+		Link link = this.network.getLinks().get(linkId);
+		if (this.blockUsed == null) {
+			allocate();
+		}
+		int index = linkId.index();
+		if (index < this.blockUsed.length && !this.blockUsed[index]) {
+			this.blockUsed[index] = true;
+			return new TravelTimeDataArray(link, this.timeSum, this.timeCnt, this.travelTimes, index * this.numSlots, this.numSlots);
+		}
+		return new TravelTimeDataArray(link, this.numSlots);
+	}
+
+	private void allocate() {
+		int numBlocks = 0;
+		for (Id<Link> linkId : this.network.getLinks().keySet()) {
+			numBlocks = Math.max(numBlocks, linkId.index() + 1);
+		}
+		if ((long) numBlocks * this.numSlots > Integer.MAX_VALUE - 8) {
+			// too large for a single array, every link gets arrays of its own
+			numBlocks = 0;
+		}
+		this.timeSum = new double[numBlocks * this.numSlots];
+		this.timeCnt = new int[numBlocks * this.numSlots];
+		this.travelTimes = new double[numBlocks * this.numSlots];
+		this.blockUsed = new boolean[numBlocks];
 	}
 
 }
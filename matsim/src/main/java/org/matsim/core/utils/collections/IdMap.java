@@ -0,0 +1,301 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IdMap.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.collections;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.matsim.api.core.v01.Id;
+
+/**
+ * A map with {@link Id}s as keys, backed by plain arrays indexed by {@link Id#index()}.
+ * Lookups need neither hashing nor boxing, and an entry only costs two references.
+ * The map is best suited for keys whose indices are dense, e.g. all links of a network.
+ * <p></p>
+ * Iteration is in the order of the Ids' indices, i.e. usually in the order in which
+ * the Ids were created.
+ * <p></p>
+ * Like in the hash-based maps, a key is also found by an Id that is {@linkplain Id#equals equal}
+ * to it, e.g. an Id of another type with the same key. Such lookups first have to find the Id of
+ * this map's type, so they are slower than lookups with the Id object stored in the map.
+ * <p></p>
+ * Like {@link java.util.HashMap}, this map is not thread-safe.
+ *
+ * @param <T> the type of the Ids used as keys
+ * @param <V> the type of the values
+ */
+public class IdMap<T, V> extends AbstractMap<Id<T>, V> {
+
+	private final Class<T> idClass;
+	private Id<T>[] keys;
+	private Object[] values;
+	private int size = 0;
+	private int modCount = 0;
+
+	public IdMap(final Class<T> idClass) {
+		this(idClass, Math.max(16, Id.getNumberOfIds(idClass)));
+	}
+
+	@SuppressWarnings("unchecked")
+	public IdMap(final Class<T> idClass, final int initialCapacity) {
+		this.idClass = idClass;
+		this.keys = new Id[Math.max(1, initialCapacity)];
+		this.values = new Object[this.keys.length];
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	@Override
+	public boolean containsKey(final Object key) {
+		return indexOf(key) >= 0;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public V get(final Object key) {
+		int index = indexOf(key);
+		if (index < 0) {
+			return null;
+		}
+		/* read the array only once, so a reader racing with a resizing writer sees either null or a value,
+		 * but never fails. This does not make the map thread-safe: a map shared across threads must not be
+		 * written while it is read. */
+		Object[] values = this.values;
+		return index < values.length ? (V) values[index] : null;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public V put(final Id<T> key, final V value) {
+		int index = key.index();
+		if (index >= this.keys.length || this.keys[index] != key) {
+			Id<T> ownId = toOwnId(key);
+			index = ownId.index();
+			ensureCapacity(index + 1);
+			if (this.keys[index] == null) {
+				this.keys[index] = ownId;
+				this.size++;
+				this.modCount++;
+			}
+		}
+		V old = (V) this.values[index];
+		this.values[index] = value;
+		return old;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public V remove(final Object key) {
+		int index = indexOf(key);
+		if (index < 0) {
+			return null;
+		}
+		V old = (V) this.values[index];
+		this.keys[index] = null;
+		this.values[index] = null;
+		this.size--;
+		this.modCount++;
+		return old;
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(this.keys, null);
+		Arrays.fill(this.values, null);
+		this.size = 0;
+		this.modCount++;
+	}
+
+	@Override
+	public Set<Entry<Id<T>, V>> entrySet() {
+		return new EntrySet();
+	}
+
+	/**
+	 * @return the slot of the given key in the arrays, or <code>-1</code> if the key is not in this map.
+	 */
+	private int indexOf(final Object key) {
+		if (!(key instanceof Id)) {
+			return -1;
+		}
+		Id<?> id = (Id<?>) key;
+		Id<T>[] keys = this.keys;
+		int index = id.index();
+		if (index < keys.length && keys[index] == id) {
+			return index;
+		}
+		// an equal Id which is not the stored one, e.g. of another type
+		Id<T> ownId = Id.get(id.toString(), this.idClass);
+		if (ownId == null) {
+			return -1;
+		}
+		index = ownId.index();
+		return (index < keys.length && keys[index] != null && keys[index].equals(id)) ? index : -1;
+	}
+
+	/**
+	 * @return the Id of this map's type which is equal to the given Id
+	 */
+	private Id<T> toOwnId(final Id<T> id) {
+		int index = id.index();
+		if (index < Id.getNumberOfIds(this.idClass) && Id.get(index, this.idClass) == id) {
+			return id;
+		}
+		return Id.create(id.toString(), this.idClass);
+	}
+
+	private void ensureCapacity(final int capacity) {
+		if (capacity > this.keys.length) {
+			int newCapacity = Math.max(capacity, Math.max(Id.getNumberOfIds(this.idClass), this.keys.length + (this.keys.length >> 1)));
+			this.keys = Arrays.copyOf(this.keys, newCapacity);
+			this.values = Arrays.copyOf(this.values, newCapacity);
+		}
+	}
+
+	private class EntrySet extends AbstractSet<Entry<Id<T>, V>> {
+		@Override
+		public int size() {
+			return IdMap.this.size;
+		}
+
+		@Override
+		public Iterator<Entry<Id<T>, V>> iterator() {
+			return new EntryIterator();
+		}
+
+		@Override
+		public void clear() {
+			IdMap.this.clear();
+		}
+	}
+
+	private class EntryIterator implements Iterator<Entry<Id<T>, V>> {
+		private int expectedModCount = IdMap.this.modCount;
+		private int next = -1;
+		private int current = -1;
+
+		EntryIterator() {
+			advance();
+		}
+
+		private void advance() {
+			Id<T>[] keys = IdMap.this.keys;
+			do {
+				this.next++;
+			} while (this.next < keys.length && keys[this.next] == null);
+		}
+
+		@Override
+		public boolean hasNext() {
+			return this.next < IdMap.this.keys.length;
+		}
+
+		@Override
+		public Entry<Id<T>, V> next() {
+			if (IdMap.this.modCount != this.expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			this.current = this.next;
+			advance();
+			return new IdMapEntry(this.current);
+		}
+
+		@Override
+		public void remove() {
+			if (this.current < 0) {
+				throw new IllegalStateException();
+			}
+			if (IdMap.this.modCount != this.expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			IdMap.this.remove(IdMap.this.keys[this.current]);
+			this.current = -1;
+			this.expectedModCount = IdMap.this.modCount;
+		}
+	}
+
+	private class IdMapEntry implements Entry<Id<T>, V> {
+		private final int index;
+		private final Id<T> key;
+
+		IdMapEntry(final int index) {
+			this.index = index;
+			this.key = IdMap.this.keys[index];
+		}
+
+		@Override
+		public Id<T> getKey() {
+			return this.key;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public V getValue() {
+			return (V) IdMap.this.values[this.index];
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public V setValue(final V value) {
+			V old = (V) IdMap.this.values[this.index];
+			IdMap.this.values[this.index] = value;
+			return old;
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			if (!(o instanceof Entry)) {
+				return false;
+			}
+			Entry<?, ?> e = (Entry<?, ?>) o;
+			Object value = getValue();
+			return this.key.equals(e.getKey()) && (value == null ? e.getValue() == null : value.equals(e.getValue()));
+		}
+
+		@Override
+		public int hashCode() {
+			Object value = getValue();
+			return this.key.hashCode() ^ (value == null ? 0 : value.hashCode());
+		}
+
+		@Override
+		public String toString() {
+			return this.key + "=" + getValue();
+		}
+	}
+
+}
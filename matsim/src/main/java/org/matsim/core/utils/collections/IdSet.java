@@ -0,0 +1,181 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IdSet.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.collections;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.matsim.api.core.v01.Id;
+
+/**
+ * A set of {@link Id}s, backed by a plain array indexed by {@link Id#index()}.
+ * See {@link IdMap} for details.
+ *
+ * @param <T> the type of the Ids in this set
+ */
+public class IdSet<T> extends AbstractSet<Id<T>> {
+
+	private final Class<T> idClass;
+	private Id<T>[] elements;
+	private int size = 0;
+	private int modCount = 0;
+
+	public IdSet(final Class<T> idClass) {
+		this(idClass, Math.max(16, Id.getNumberOfIds(idClass)));
+	}
+
+	@SuppressWarnings("unchecked")
+	public IdSet(final Class<T> idClass, final int initialCapacity) {
+		this.idClass = idClass;
+		this.elements = new Id[Math.max(1, initialCapacity)];
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	@Override
+	public boolean contains(final Object o) {
+		return indexOf(o) >= 0;
+	}
+
+	@Override
+	public boolean add(final Id<T> id) {
+		int index = id.index();
+		if (index < this.elements.length && this.elements[index] == id) {
+			return false;
+		}
+		Id<T> ownId = toOwnId(id);
+		index = ownId.index();
+		if (index >= this.elements.length) {
+			int newCapacity = Math.max(index + 1, Math.max(Id.getNumberOfIds(this.idClass), this.elements.length + (this.elements.length >> 1)));
+			this.elements = Arrays.copyOf(this.elements, newCapacity);
+		}
+		if (this.elements[index] != null) {
+			return false;
+		}
+		this.elements[index] = ownId;
+		this.size++;
+		this.modCount++;
+		return true;
+	}
+
+	@Override
+	public boolean remove(final Object o) {
+		int index = indexOf(o);
+		if (index < 0) {
+			return false;
+		}
+		this.elements[index] = null;
+		this.size--;
+		this.modCount++;
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(this.elements, null);
+		this.size = 0;
+		this.modCount++;
+	}
+
+	@Override
+	public Iterator<Id<T>> iterator() {
+		return new IdIterator();
+	}
+
+	private int indexOf(final Object o) {
+		if (!(o instanceof Id)) {
+			return -1;
+		}
+		Id<?> id = (Id<?>) o;
+		int index = id.index();
+		return (index < this.elements.length && this.elements[index] == id) ? index : -1;
+	}
+
+	private Id<T> toOwnId(final Id<T> id) {
+		int index = id.index();
+		if (index < Id.getNumberOfIds(this.idClass) && Id.get(index, this.idClass) == id) {
+			return id;
+		}
+		return Id.create(id.toString(), this.idClass);
+	}
+
+	private class IdIterator implements Iterator<Id<T>> {
+		private int expectedModCount = IdSet.this.modCount;
+		private int next = -1;
+		private int current = -1;
+
+		IdIterator() {
+			advance();
+		}
+
+		private void advance() {
+			Id<T>[] elements = IdSet.this.elements;
+			do {
+				this.next++;
+			} while (this.next < elements.length && elements[this.next] == null);
+		}
+
+		@Override
+		public boolean hasNext() {
+			return this.next < IdSet.this.elements.length;
+		}
+
+		@Override
+		public Id<T> next() {
+			if (IdSet.this.modCount != this.expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			this.current = this.next;
+			advance();
+			return IdSet.this.elements[this.current];
+		}
+
+		@Override
+		public void remove() {
+			if (this.current < 0) {
+				throw new IllegalStateException();
+			}
+			if (IdSet.this.modCount != this.expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			IdSet.this.elements[this.current] = null;
+			IdSet.this.size--;
+			IdSet.this.modCount++;
+			this.current = -1;
+			this.expectedModCount = IdSet.this.modCount;
+		}
+	}
+
+}
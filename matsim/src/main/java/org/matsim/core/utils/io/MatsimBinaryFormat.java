@@ -0,0 +1,191 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * MatsimBinaryFormat.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+/**
+ * The common header of MATSim's binary file formats. A binary file starts with a fixed magic number, followed
+ * by the name of the type of data it contains (e.g. "population") and the version of the format for that type.
+ * This allows to recognize binary files without knowing anything about the format of their contents.
+ * <p>
+ * The class also offers the encodings shared by the formats: variable-length integers, strings, dictionaries of
+ * strings and compressed blocks of data.
+ */
+public final class MatsimBinaryFormat {
+
+	/** the file name suffix used for MATSim binary files */
+	public static final String FILE_SUFFIX = ".bin";
+
+	/** the type of files written by {@link org.matsim.core.population.io.PopulationWriter#writeBinary(String)} */
+	public static final String POPULATION = "population";
+
+	/** the type of files written by {@link org.matsim.core.events.algorithms.EventWriterBinary} */
+	public static final String EVENTS = "events";
+
+	private static final byte[] MAGIC = new byte[] { 'M', 'A', 'T', 'S', 'i', 'm', 0, 'B' };
+
+	private MatsimBinaryFormat() {
+	}
+
+	public static void writeHeader(final DataOutput out, final String type, final int version) throws IOException {
+		out.write(MAGIC);
+		out.writeUTF(type);
+		out.writeInt(version);
+	}
+
+	/**
+	 * Reads the header and makes sure the data is of the expected type.
+	 *
+	 * @return the version of the format the data is written in
+	 * @throws IOException if the data does not start with a header for the expected type
+	 */
+	public static int readHeader(final DataInput in, final String expectedType) throws IOException {
+		String type = readType(in);
+		if (!expectedType.equals(type)) {
+			throw new IOException("Expected MATSim binary data of type " + expectedType + ", but got " + (type == null ? "no MATSim binary data." : type + "."));
+		}
+		return in.readInt();
+	}
+
+	/**
+	 * @return the type of the data in the given file, or <code>null</code> if it is not a MATSim binary file
+	 */
+	public static String getType(final String filename) throws UncheckedIOException {
+		try (InputStream in = IOUtils.getInputStream(filename)) {
+			return readType(new DataInputStream(in));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public static void writeVarInt(final DataOutput out, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	public static int readVarInt(final DataInput in) throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			int b = in.readByte();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("malformed variable-length integer");
+	}
+
+	/** unlike {@link DataOutput#writeUTF(String)}, this is not limited to 64k bytes */
+	public static void writeString(final DataOutput out, final String s) throws IOException {
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		writeVarInt(out, bytes.length);
+		out.write(bytes);
+	}
+
+	public static String readString(final DataInput in) throws IOException {
+		byte[] bytes = new byte[readVarInt(in)];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Reads a dictionary written as the number of strings, followed by the strings. Data using the dictionary refers
+	 * to strings by their position in it, starting at 1; 0 stands for <code>null</code>.
+	 *
+	 * @return the strings of the dictionary, indexed by their codes
+	 */
+	public static String[] readDictionary(final DataInput in) throws IOException {
+		String[] strings = new String[readVarInt(in) + 1];
+		for (int i = 1; i < strings.length; i++) {
+			strings[i] = readString(in);
+		}
+		return strings;
+	}
+
+	/**
+	 * Compresses a block of data. Blocks are compressed independently of each other, so they can also be decompressed
+	 * in parallel.
+	 */
+	public static byte[] deflate(final ByteArrayOutputStream data) throws IOException {
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream(data.size() / 4 + 64);
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		try (DeflaterOutputStream deflaterStream = new DeflaterOutputStream(compressed, deflater)) {
+			data.writeTo(deflaterStream);
+		} finally {
+			deflater.end();
+		}
+		return compressed.toByteArray();
+	}
+
+	public static byte[] inflate(final byte[] compressed, final int rawLength) throws IOException {
+		byte[] raw = new byte[rawLength];
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(compressed);
+			int length = 0;
+			while (length < raw.length && !inflater.finished()) {
+				int n = inflater.inflate(raw, length, raw.length - length);
+				if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+				length += n;
+			}
+			if (length != raw.length) {
+				throw new IOException("truncated block: expected " + raw.length + " bytes, got " + length);
+			}
+		} catch (DataFormatException e) {
+			throw new IOException(e);
+		} finally {
+			inflater.end();
+		}
+		return raw;
+	}
+
+	private static String readType(final DataInput in) throws IOException {
+		byte[] magic = new byte[MAGIC.length];
+		try {
+			in.readFully(magic);
+		} catch (EOFException e) {
+			return null;
+		}
+		if (!Arrays.equals(MAGIC, magic)) {
+			return null;
+		}
+		return in.readUTF();
+	}
+
+}
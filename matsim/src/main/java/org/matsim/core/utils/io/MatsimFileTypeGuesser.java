@@ -98,6 +98,13 @@ public class MatsimFileTypeGuesser extends DefaultHandler {
 			this.fileType = FileType.OTFVis;
 		} else if (name.endsWith(".veh.gz") || name.endsWith(".veh")) {
 			this.fileType = FileType.TransimsVehicle;
+		} else if (name.endsWith(MatsimBinaryFormat.FILE_SUFFIX)) {
+			String type = MatsimBinaryFormat.getType(fileName);
+			if (MatsimBinaryFormat.POPULATION.equals(type)) {
+				this.fileType = FileType.Population;
+			} else if (MatsimBinaryFormat.EVENTS.equals(type)) {
+				this.fileType = FileType.Events;
+			}
 		}
 	}
 
@@ -29,12 +29,27 @@ import org.xml.sax.helpers.DefaultHandler;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLResolver;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.net.URL;
 import java.net.URLConnection;
+import java.util.Arrays;
+import java.util.EmptyStackException;
 import java.util.Stack;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.zip.GZIPInputStream;
 
 /**
@@ -45,6 +60,11 @@ import java.util.zip.GZIPInputStream;
  * <p></p>
  * Notes:<ul>
  * <li> If implementing classes want to override the final methods, the will have to resort to delegation.   
+ * <li> Parsers for which validation is switched off with {@link #setValidating} read the XML with a StAX pull parser
+ * instead of SAX, which allocates less per element. The DTD is read but not validated against, so default attribute
+ * values declared in it are reported as with a non-validating SAX parser. Validating parsers, the default, always use
+ * SAX. Set the system property <code>matsim.xmlPullParsing</code> to <code>false</code> to use SAX for all parsers.
+ * <li> Gzip-compressed files are decompressed in a separate thread while parsing.
  * </ul>
  *
  * @author mrieser
@@ -53,8 +73,16 @@ public abstract class MatsimXmlParser extends DefaultHandler implements MatsimRe
 
 	private static final Logger log = Logger.getLogger(MatsimXmlParser.class);
 
-	private final Stack<StringBuffer> buffers = new Stack<>();
-	private final Stack<String> theContext = new Stack<>();
+	private static final Pattern QUOTED = Pattern.compile("\"([^\"]*)\"|'([^']*)'");
+
+	/* The character content of all open elements is collected in one buffer; contentStarts holds the position in the
+	 * buffer where the content of each open element starts. This avoids allocating a buffer per element. */
+	private final StringBuilder content = new StringBuilder();
+	private int[] contentStarts = new int[16];
+	private final Stack<String> theContext = new ContextStack();
+	/* The content of elements with child elements is mostly the indentation between them, which is the same over and
+	 * over again; such content is looked up here by its length instead of being copied for every element. */
+	private final String[] whitespaceContent = new String[64];
 
 	private boolean isValidating = true;
 	private boolean isNamespaceAware = true;
@@ -65,6 +93,8 @@ public abstract class MatsimXmlParser extends DefaultHandler implements MatsimRe
 	
 	private boolean preferLocalDtds = false;
 
+	private boolean pullParsing = true;
+
 	private String doctype = null;
 	/**
 	 * As the mechanism implemented in InputSource is not really working for error handling
@@ -80,6 +110,10 @@ public abstract class MatsimXmlParser extends DefaultHandler implements MatsimRe
 		if (localDtd != null) {
 			this.preferLocalDtds = Boolean.parseBoolean(localDtd);
 		}
+		String pull = System.getProperty("matsim.xmlPullParsing");
+		if (pull != null) {
+			this.pullParsing = Boolean.parseBoolean(pull);
+		}
 	}
 
 	/**
@@ -146,7 +180,26 @@ public abstract class MatsimXmlParser extends DefaultHandler implements MatsimRe
 	public final void readFile(final String filename) throws UncheckedIOException {
 		log.info("starting to parse xml from file " + filename + " ...");
 		this.theSource = filename;
-		parse(new InputSource(IOUtils.getBufferedReader(filename)));
+		try (Reader reader = openFile(filename)) {
+			parse(new InputSource(reader));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Opens the file like {@link IOUtils#getBufferedReader(String)}, but decompresses gzip-compressed files in a separate thread.
+	 */
+	private static Reader openFile(final String filename) throws IOException {
+		File file = new File(filename);
+		if (!file.exists() && !filename.endsWith(".gz")) {
+			file = new File(filename + ".gz");
+		}
+		if (file.exists() && file.getName().endsWith(".gz")) {
+			InputStream stream = new ReadAheadInputStream(new GZIPInputStream(new FileInputStream(file), 64 * 1024));
+			return new BufferedReader(new InputStreamReader(new UnicodeInputStream(stream), IOUtils.CHARSET_UTF8));
+		}
+		return IOUtils.getBufferedReader(filename);
 	}
 
 	public final void parse(final URL url) throws UncheckedIOException {
@@ -154,8 +207,8 @@ public abstract class MatsimXmlParser extends DefaultHandler implements MatsimRe
 		this.theSource = url.toString();
 		log.info("starting to parse xml from url " + this.theSource + " ...");
 		if (url.getFile().endsWith(".gz")) {
-			try {
-				parse(new InputSource(new GZIPInputStream(url.openStream())));
+			try (InputStream stream = new ReadAheadInputStream(new GZIPInputStream(url.openStream(), 64 * 1024))) {
+				parse(new InputSource(stream));
 			} catch (IOException e) {
 				throw new RuntimeException(e);
 			}
@@ -170,6 +223,10 @@ public abstract class MatsimXmlParser extends DefaultHandler implements MatsimRe
 	}
 
 	public final void parse(final InputSource input) throws UncheckedIOException {
+		if (this.pullParsing && !this.isValidating) {
+			pullParse(input);
+			return;
+		}
 		try {
 			SAXParserFactory factory = SAXParserFactory.newInstance();
 			factory.setValidating(this.isValidating);
@@ -194,6 +251,146 @@ public abstract class MatsimXmlParser extends DefaultHandler implements MatsimRe
 		}
 	}
 
+	private void pullParse(final InputSource input) throws UncheckedIOException {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, this.isNamespaceAware);
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, true);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, true);
+		factory.setXMLResolver(new XMLResolver() {
+			@Override
+			public Object resolveEntity(final String publicID, final String systemID, final String baseURI, final String namespace) throws XMLStreamException {
+				return openDtd(systemID);
+			}
+		});
+		InputStream opened = null;
+		XMLStreamReader reader = null;
+		try {
+			if (input.getCharacterStream() != null) {
+				reader = factory.createXMLStreamReader(input.getCharacterStream());
+			} else if (input.getByteStream() != null) {
+				reader = factory.createXMLStreamReader(input.getByteStream());
+			} else {
+				opened = new URL(input.getSystemId()).openStream();
+				reader = factory.createXMLStreamReader(input.getSystemId(), opened);
+			}
+			StaxAttributes atts = new StaxAttributes();
+			while (reader.hasNext()) {
+				switch (reader.next()) {
+					case XMLStreamConstants.START_ELEMENT:
+						if (this.doctype == null && this.theContext.isEmpty()) {
+							String schemaLocation = getSchemaLocation(reader);
+							if (schemaLocation != null) {
+								setDoctype(getShortSystemId(schemaLocation));
+							}
+						}
+						atts.load(reader);
+						startElement(reader.getLocalName(), atts);
+						break;
+					case XMLStreamConstants.END_ELEMENT:
+						endElement(reader.getLocalName());
+						break;
+					case XMLStreamConstants.CHARACTERS:
+					case XMLStreamConstants.CDATA:
+					case XMLStreamConstants.SPACE:
+						if (!this.theContext.isEmpty()) {
+							characters(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+						}
+						break;
+					case XMLStreamConstants.DTD:
+						if (this.doctype == null) {
+							String systemId = getSystemId(reader.getText());
+							if (systemId != null) {
+								setDoctype(getShortSystemId(systemId));
+							}
+						}
+						break;
+					default:
+						break;
+				}
+			}
+		} catch (XMLStreamException e) {
+			Location location = e.getLocation();
+			if (location != null) {
+				System.err.println("XML-FATAL: " + this.theSource + ", line " + location.getLineNumber() + ", column " + location.getColumnNumber() + ":");
+			}
+			System.err.println(e.getMessage());
+			throw new UncheckedIOException(e);
+		} catch (SAXException | IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			try {
+				if (reader != null) {
+					reader.close();
+				}
+				if (opened != null) {
+					opened.close();
+				}
+			} catch (XMLStreamException | IOException e) {
+				log.warn("Could not close " + this.theSource, e);
+			}
+		}
+	}
+
+	/**
+	 * Opens the DTD for the pull parser; if it cannot be found, the document is read without it.
+	 */
+	private InputStream openDtd(final String systemId) throws XMLStreamException {
+		InputSource source = findDtd(systemId);
+		if (source == null) {
+			return new ByteArrayInputStream(new byte[0]);
+		}
+		if (source.getByteStream() != null) {
+			return source.getByteStream();
+		}
+		try {
+			// the DTDs found in the file system are given by their path
+			return new FileInputStream(source.getSystemId());
+		} catch (IOException e) {
+			throw new XMLStreamException(e);
+		}
+	}
+
+	/**
+	 * SAX resolves the schema of a document like a DTD, which sets the doctype; the pull parser has to look for it in
+	 * the root element instead.
+	 *
+	 * @return the location of the schema of the root element, or <code>null</code> if it has none
+	 */
+	private static String getSchemaLocation(final XMLStreamReader reader) {
+		for (int i = 0; i < reader.getAttributeCount(); i++) {
+			String name = reader.getAttributeLocalName(i);
+			name = name.substring(name.indexOf(':') + 1);
+			if ("noNamespaceSchemaLocation".equals(name)) {
+				return reader.getAttributeValue(i).trim();
+			}
+			if ("schemaLocation".equals(name)) {
+				// pairs of namespace and location, use the last location
+				String[] parts = reader.getAttributeValue(i).trim().split("\\s+");
+				return parts[parts.length - 1];
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return the system id of a document type declaration, or <code>null</code> if it has none
+	 */
+	private static String getSystemId(final String doctypeDeclaration) {
+		int end = doctypeDeclaration.indexOf('[');
+		Matcher matcher = QUOTED.matcher(end < 0 ? doctypeDeclaration : doctypeDeclaration.substring(0, end));
+		String systemId = null;
+		while (matcher.find()) {
+			// with a public id, the system id is the second quoted string
+			systemId = matcher.group(1) != null ? matcher.group(1) : matcher.group(2);
+		}
+		return systemId;
+	}
+
+	private static String getShortSystemId(final String systemId) {
+		int index = systemId.replace('\\', '/').lastIndexOf('/');
+		return systemId.substring(index + 1);
+	}
+
 	// the following may be useful.  But it is nowhere used, so I am not sure if we fully understand its longterm maintenance implications, 
 	// so I rather comment it out. If it is needed somewhere, just comment it back in (and probably (**) above) 
 	// and leave a comment.  kai, jul'16
@@ -221,9 +418,16 @@ public abstract class MatsimXmlParser extends DefaultHandler implements MatsimRe
 	public final InputSource resolveEntity(final String publicId, final String systemId) {
 		// ConfigReader* did override this.  Not sure if it did that for good reaons.  kai, jul'16
 		
+		InputSource source = findDtd(systemId);
+		if (source != null) {
+			source.setSystemId(systemId);
+		}
+		return source;
+	}
+
+	private InputSource findDtd(final String systemId) {
 		// extract the last part of the systemId
-		int index = systemId.replace('\\', '/').lastIndexOf('/');
-		String shortSystemId = systemId.substring(index + 1);
+		String shortSystemId = getShortSystemId(systemId);
 
 		if (this.doctype == null) {
 			// this is the first systemId we have to resolve, assume it's the doctype
@@ -259,11 +463,9 @@ public abstract class MatsimXmlParser extends DefaultHandler implements MatsimRe
 		if (source == null) {
 			// We could neither get the remote nor the local version of the dtd, show a warning
 			log.warn("Could neither get the DTD from the web nor a local one. " + systemId);
-		} else {
-            source.setSystemId(systemId);
-        }
+		}
 		return source;
-    }
+	}
 
 	private static InputSource findDtdInRemoteLocation(final String fullSystemId) {
 		log.info("Trying to load " + fullSystemId + ". In some cases (e.g. network interface up but no connection), this may take a bit.");
@@ -325,30 +527,70 @@ public abstract class MatsimXmlParser extends DefaultHandler implements MatsimRe
 	public void characters(final char[] ch, final int start, final int length) throws SAXException {
 		// has to be non-final since otherwise the events parser does not work.  Probably ok (this here is just a default implementation). kai, jul'16
 		
-		StringBuffer buffer = this.buffers.peek();
-		if (buffer != null) {
-			buffer.append(ch, start, length);
-		}
+		this.content.append(ch, start, length);
 	}
 
 	@Override
 	public final void startElement(final String uri, final String localName, final String qName, Attributes atts) throws SAXException {
 		// I have not good intuition if making this one non-final might be ok.  kai, jul'16
 
-		String tag = (uri.length() == 0) ? qName : localName;
-		this.buffers.push(new StringBuffer());
-		this.startTag(tag, atts, this.theContext);
-		this.theContext.push(tag);
+		startElement((uri.length() == 0) ? qName : localName, atts);
 	}
 
 	@Override
 	public final void endElement(final String uri, final String localName, final String qName) throws SAXException {
 		// I have not good intuition if making this one non-final might be ok.  kai, jul'16
 		
-		String tag = (uri.length() == 0) ? qName : localName;
+		endElement((uri.length() == 0) ? qName : localName);
+	}
+
+	private void startElement(final String tag, final Attributes atts) {
+		int depth = this.theContext.size();
+		if (depth == this.contentStarts.length) {
+			this.contentStarts = Arrays.copyOf(this.contentStarts, depth * 2);
+		}
+		this.contentStarts[depth] = this.content.length();
+		this.startTag(tag, atts, this.theContext);
+		this.theContext.push(tag);
+	}
+
+	private void endElement(final String tag) {
 		this.theContext.pop();
-		StringBuffer buffer = this.buffers.pop();
-		this.endTag(tag, buffer.toString(), this.theContext);
+		int start = this.contentStarts[this.theContext.size()];
+		String text = getContent(start);
+		this.content.setLength(start);
+		this.endTag(tag, text, this.theContext);
+	}
+
+	private String getContent(final int start) {
+		int length = this.content.length() - start;
+		if (length == 0) {
+			return "";
+		}
+		if (length >= this.whitespaceContent.length) {
+			return this.content.substring(start);
+		}
+		for (int i = start; i < start + length; i++) {
+			if (!Character.isWhitespace(this.content.charAt(i))) {
+				return this.content.substring(start);
+			}
+		}
+		String cached = this.whitespaceContent[length];
+		if (cached != null && contentEquals(start, cached)) {
+			return cached;
+		}
+		cached = this.content.substring(start);
+		this.whitespaceContent[length] = cached;
+		return cached;
+	}
+
+	private boolean contentEquals(final int start, final String string) {
+		for (int i = 0; i < string.length(); i++) {
+			if (this.content.charAt(start + i) != string.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
 	}
 
 	/* implement ErrorHandler */
@@ -392,4 +634,175 @@ public abstract class MatsimXmlParser extends DefaultHandler implements MatsimRe
 		return this.theSource;
 	}
 
+	/**
+	 * The context handed to the subclasses. It is only used by the parsing thread, so the methods called for every element
+	 * work on the elements of the Vector directly instead of going through its synchronized methods.
+	 */
+	private static final class ContextStack extends Stack<String> {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public String push(final String item) {
+			if (this.elementCount == this.elementData.length) {
+				this.elementData = Arrays.copyOf(this.elementData, Math.max(16, 2 * this.elementCount));
+			}
+			this.elementData[this.elementCount++] = item;
+			this.modCount++;
+			return item;
+		}
+
+		@Override
+		public String pop() {
+			String item = peek();
+			this.elementData[--this.elementCount] = null;
+			this.modCount++;
+			return item;
+		}
+
+		@Override
+		public String peek() {
+			if (this.elementCount == 0) {
+				throw new EmptyStackException();
+			}
+			return (String) this.elementData[this.elementCount - 1];
+		}
+
+		@Override
+		public boolean empty() {
+			return this.elementCount == 0;
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return this.elementCount == 0;
+		}
+
+		@Override
+		public int size() {
+			return this.elementCount;
+		}
+	}
+
+	/**
+	 * The attributes of the current element of a pull parser, presented as SAX attributes. Like the attributes of a SAX parser,
+	 * the instance is reused for all elements.
+	 */
+	private static final class StaxAttributes implements Attributes {
+
+		private int length = 0;
+		private String[] uris = new String[8];
+		private String[] prefixes = new String[8];
+		private String[] localNames = new String[8];
+		private String[] types = new String[8];
+		private String[] values = new String[8];
+
+		void load(final XMLStreamReader reader) {
+			this.length = reader.getAttributeCount();
+			if (this.length > this.values.length) {
+				int capacity = Math.max(this.length, this.values.length * 2);
+				this.uris = new String[capacity];
+				this.prefixes = new String[capacity];
+				this.localNames = new String[capacity];
+				this.types = new String[capacity];
+				this.values = new String[capacity];
+			}
+			for (int i = 0; i < this.length; i++) {
+				String uri = reader.getAttributeNamespace(i);
+				this.uris[i] = uri == null ? "" : uri;
+				this.prefixes[i] = reader.getAttributePrefix(i);
+				this.localNames[i] = reader.getAttributeLocalName(i);
+				this.types[i] = reader.getAttributeType(i);
+				this.values[i] = reader.getAttributeValue(i);
+			}
+		}
+
+		private boolean isValid(final int index) {
+			return index >= 0 && index < this.length;
+		}
+
+		@Override
+		public int getLength() {
+			return this.length;
+		}
+
+		@Override
+		public String getURI(final int index) {
+			return isValid(index) ? this.uris[index] : null;
+		}
+
+		@Override
+		public String getLocalName(final int index) {
+			return isValid(index) ? this.localNames[index] : null;
+		}
+
+		@Override
+		public String getQName(final int index) {
+			if (!isValid(index)) {
+				return null;
+			}
+			String prefix = this.prefixes[index];
+			return prefix == null || prefix.isEmpty() ? this.localNames[index] : prefix + ':' + this.localNames[index];
+		}
+
+		@Override
+		public String getType(final int index) {
+			return isValid(index) ? this.types[index] : null;
+		}
+
+		@Override
+		public String getValue(final int index) {
+			return isValid(index) ? this.values[index] : null;
+		}
+
+		@Override
+		public int getIndex(final String uri, final String localName) {
+			for (int i = 0; i < this.length; i++) {
+				if (localName.equals(this.localNames[i]) && uri.equals(this.uris[i])) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		@Override
+		public int getIndex(final String qName) {
+			for (int i = 0; i < this.length; i++) {
+				if (isQName(qName, this.prefixes[i], this.localNames[i])) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		/** compares without concatenating prefix and local name */
+		private static boolean isQName(final String qName, final String prefix, final String localName) {
+			if (prefix == null || prefix.isEmpty()) {
+				return qName.equals(localName);
+			}
+			return qName.length() == prefix.length() + 1 + localName.length()
+					&& qName.startsWith(prefix) && qName.charAt(prefix.length()) == ':' && qName.endsWith(localName);
+		}
+
+		@Override
+		public String getType(final String uri, final String localName) {
+			return getType(getIndex(uri, localName));
+		}
+
+		@Override
+		public String getType(final String qName) {
+			return getType(getIndex(qName));
+		}
+
+		@Override
+		public String getValue(final String uri, final String localName) {
+			return getValue(getIndex(uri, localName));
+		}
+
+		@Override
+		public String getValue(final String qName) {
+			return getValue(getIndex(qName));
+		}
+
+	}
+
 }
@@ -0,0 +1,185 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ReadAheadInputStream.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * An input stream that reads its source in a separate thread, a few chunks ahead of the consumer. Wrapped around
+ * a gzip-compressed stream, decompression and parsing thus run on two cores instead of one.
+ * <p>
+ * The stream must be closed to stop the reading thread if it is not read up to the end. Whatever the reading thread
+ * fails with is thrown to the consumer once it has read the chunks before the failure.
+ */
+public final class ReadAheadInputStream extends InputStream {
+
+	private static final int CHUNK_SIZE = 64 * 1024;
+	private static final int CHUNKS_AHEAD = 16;
+
+	private static final Chunk END = new Chunk(new byte[0], 0);
+
+	private final InputStream source;
+	private final BlockingQueue<Chunk> chunks = new ArrayBlockingQueue<>(CHUNKS_AHEAD);
+	private final Thread reader;
+
+	private volatile boolean closed = false;
+	private volatile Throwable exception = null;
+
+	private Chunk current = null;
+	private int position = 0;
+	private boolean endReached = false;
+
+	public ReadAheadInputStream(final InputStream source) {
+		this.source = source;
+		this.reader = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				readAhead();
+			}
+		}, "ReadAheadInputStream");
+		this.reader.setDaemon(true);
+		this.reader.start();
+	}
+
+	private void readAhead() {
+		try {
+			while (!this.closed) {
+				byte[] buffer = new byte[CHUNK_SIZE];
+				int length = 0;
+				int n = 0;
+				while (length < CHUNK_SIZE && (n = this.source.read(buffer, length, CHUNK_SIZE - length)) >= 0) {
+					length += n;
+				}
+				if (length > 0) {
+					this.chunks.put(new Chunk(buffer, length));
+				}
+				if (n < 0) {
+					break;
+				}
+			}
+		} catch (InterruptedException e) {
+			// closed by the consumer
+		} catch (Throwable e) {
+			this.exception = e;
+		} finally {
+			putEnd();
+		}
+	}
+
+	/**
+	 * Without the end marker, the consumer would wait forever; only a closed stream is not read anymore.
+	 */
+	private void putEnd() {
+		while (!this.closed) {
+			try {
+				this.chunks.put(END);
+				return;
+			} catch (InterruptedException e) {
+				// check if closed by the consumer
+			}
+		}
+	}
+
+	/**
+	 * @return <code>false</code> if the end of the source has been reached
+	 */
+	private boolean nextChunk() throws IOException {
+		if (this.endReached) {
+			return false;
+		}
+		if (this.closed) {
+			throw new IOException("Stream closed");
+		}
+		if (this.current == null || this.position == this.current.length) {
+			try {
+				this.current = this.chunks.take();
+			} catch (InterruptedException e) {
+				throw new InterruptedIOException();
+			}
+			this.position = 0;
+			if (this.current == END) {
+				this.endReached = true;
+				if (this.exception instanceof IOException) {
+					throw (IOException) this.exception;
+				}
+				if (this.exception != null) {
+					throw new IOException("Reading ahead failed", this.exception);
+				}
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (!nextChunk()) {
+			return -1;
+		}
+		return this.current.data[this.position++] & 0xFF;
+	}
+
+	@Override
+	public int read(final byte[] b, final int off, final int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		if (!nextChunk()) {
+			return -1;
+		}
+		int n = Math.min(len, this.current.length - this.position);
+		System.arraycopy(this.current.data, this.position, b, off, n);
+		this.position += n;
+		return n;
+	}
+
+	@Override
+	public int available() {
+		return this.current == null || this.endReached ? 0 : this.current.length - this.position;
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.closed = true;
+		this.reader.interrupt();
+		try {
+			this.reader.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		this.source.close();
+	}
+
+	private static final class Chunk {
+		final byte[] data;
+		final int length;
+
+		Chunk(final byte[] data, final int length) {
+			this.data = data;
+			this.length = length;
+		}
+	}
+
+}
@@ -0,0 +1,150 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelUtils.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.misc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs work on several threads. The threads come from a pool shared by all users, which creates threads as needed and
+ * keeps them alive between runs, so users with different numbers of threads can share them. They are daemon threads,
+ * so they do not keep the JVM alive. The calling thread always does its share of the work.
+ */
+public final class ParallelUtils {
+
+	private static final ExecutorService pool = Executors.newCachedThreadPool(new ThreadFactory() {
+		private final AtomicInteger threadCount = new AtomicInteger(0);
+
+		@Override
+		public Thread newThread(final Runnable r) {
+			Thread thread = new Thread(r, "ParallelThread." + this.threadCount.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	public interface ThreadTask {
+		/**
+		 * @param thread the index of the thread, <code>0</code> for the calling thread
+		 */
+		void run(int thread);
+	}
+
+	public interface RowTask {
+		/**
+		 * @param row the row to compute
+		 * @param thread the index of the computing thread, e.g. to use state of that thread
+		 */
+		void calcRow(int row, int thread);
+	}
+
+	private ParallelUtils() {
+	}
+
+	/**
+	 * Runs the task once on each of <code>numberOfThreads</code> threads and returns when all of them are finished. If
+	 * tasks fail, the failure with the lowest thread index is thrown: unchecked exceptions and errors as they are, others
+	 * wrapped in a RuntimeException.
+	 */
+	public static void runThreads(final int numberOfThreads, final ThreadTask task) {
+		if (numberOfThreads <= 1) {
+			task.run(0);
+			return;
+		}
+		List<Future<?>> futures = new ArrayList<>(numberOfThreads - 1);
+		for (int t = 1; t < numberOfThreads; t++) {
+			final int thread = t;
+			futures.add(pool.submit(new Runnable() {
+				@Override
+				public void run() {
+					task.run(thread);
+				}
+			}));
+		}
+
+		Throwable failure = null;
+		try {
+			task.run(0);
+		} catch (Throwable e) {
+			failure = e;
+		}
+		// the other threads work on the same data, so wait for them also if the calling thread failed
+		boolean interrupted = false;
+		for (Future<?> future : futures) {
+			while (true) {
+				try {
+					future.get();
+					break;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				} catch (ExecutionException e) {
+					if (failure == null) {
+						failure = e.getCause();
+					}
+					break;
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		if (failure instanceof RuntimeException) {
+			throw (RuntimeException) failure;
+		}
+		if (failure instanceof Error) {
+			throw (Error) failure;
+		}
+		if (failure != null) {
+			throw new RuntimeException(failure);
+		}
+	}
+
+	/**
+	 * Runs the task for the rows <code>0</code> to <code>rowCount - 1</code> on at most <code>numberOfThreads</code>
+	 * threads. The threads take blocks of <code>rowsPerBlock</code> rows from a shared counter, so threads with cheap rows
+	 * compute more of them; which thread computes a row thus depends on timing. Failures are thrown like by
+	 * {@link #runThreads(int, ThreadTask)}.
+	 */
+	public static void runRows(final int rowCount, final int rowsPerBlock, final int numberOfThreads, final RowTask task) {
+		final int blockSize = Math.max(1, rowsPerBlock);
+		int blockCount = (rowCount + blockSize - 1) / blockSize;
+		final AtomicInteger nextRow = new AtomicInteger(0);
+		runThreads(Math.min(numberOfThreads, blockCount), new ThreadTask() {
+			@Override
+			public void run(final int thread) {
+				int blockStart;
+				while ((blockStart = nextRow.getAndAdd(blockSize)) < rowCount) {
+					int blockEnd = Math.min(blockStart + blockSize, rowCount);
+					for (int row = blockStart; row < blockEnd; row++) {
+						task.calcRow(row, thread);
+					}
+				}
+			}
+		});
+	}
+
+}
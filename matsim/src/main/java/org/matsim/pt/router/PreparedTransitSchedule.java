@@ -20,10 +20,13 @@
 package org.matsim.pt.router;
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
 import org.matsim.pt.transitSchedule.api.TransitRoute;
 import org.matsim.pt.transitSchedule.api.TransitRouteStop;
 import org.matsim.pt.transitSchedule.api.TransitSchedule;
@@ -35,7 +38,8 @@ import org.matsim.pt.transitSchedule.api.TransitSchedule;
  * 
  * (I renamed this class and put the TransitSchedule in the constructor to make the purpose clear. michaz '13)
  * 
- * Thread-safe.
+ * Thread-safe. When created with a schedule, the departures of all routes are sorted once in the constructor
+ * and only read afterwards, so one instance can be shared by the routers of all threads and iterations.
  * 
  * @author mrieser
  *
@@ -51,11 +55,24 @@ public class PreparedTransitSchedule {
 	 */
 	private final Map<TransitRoute, double[]> sortedDepartureCache = new ConcurrentHashMap<TransitRoute, double[]>();
 
+	/** the departures of the routes known at construction time, only read afterwards */
+	private final Map<TransitRoute, double[]> sortedDepartures;
+
     /*
      * Conceptually, an instance of this class wraps a TransitSchedule to optimize a function of it.
      */
 	public PreparedTransitSchedule(TransitSchedule schedule) {
-		
+		if (schedule == null) {
+			this.sortedDepartures = Collections.emptyMap();
+			return;
+		}
+		Map<TransitRoute, double[]> sortedDepartures = new IdentityHashMap<>();
+		for (TransitLine line : schedule.getTransitLines().values()) {
+			for (TransitRoute route : line.getRoutes().values()) {
+				sortedDepartures.put(route, sortDepartures(route));
+			}
+		}
+		this.sortedDepartures = sortedDepartures;
 	}
 
 	@Deprecated
@@ -63,7 +80,17 @@ public class PreparedTransitSchedule {
 	 * See other constructor.
 	 */
 	public PreparedTransitSchedule() {
+		this.sortedDepartures = Collections.emptyMap();
+	}
 
+	private static double[] sortDepartures(final TransitRoute route) {
+		double[] departures = new double[route.getDepartures().size()];
+		int i = 0;
+		for (Departure dep : route.getDepartures().values()) {
+			departures[i++] = dep.getDepartureTime();
+		}
+		Arrays.sort(departures);
+		return departures;
 	}
 	
 	public double getNextDepartureTime(final TransitRoute route, final TransitRouteStop stop, final double depTime) {
@@ -80,15 +107,14 @@ public class PreparedTransitSchedule {
 		}
 	
 		// this will search for the terminus departure that corresponds to my departure at the stop:
-		double[] cache = sortedDepartureCache.get(route);
+		double[] cache = sortedDepartures.get(route);
 		if (cache == null) {
-			cache = new double[route.getDepartures().size()];
-			int i = 0;
-			for (Departure dep : route.getDepartures().values()) {
-				cache[i++] = dep.getDepartureTime();
+			// only without schedule, or for a route added to the schedule after construction
+			cache = sortedDepartureCache.get(route);
+			if (cache == null) {
+				cache = sortDepartures(route);
+				sortedDepartureCache.put(route, cache);
 			}
-			Arrays.sort(cache);
-			sortedDepartureCache.put(route, cache);
 		}
 		int pos = Arrays.binarySearch(cache, earliestDepartureTimeAtTerminus);
 		if (pos < 0) {
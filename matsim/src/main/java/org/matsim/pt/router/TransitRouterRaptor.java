@@ -0,0 +1,390 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TransitRouterRaptor.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.pt.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.GenericRouteImpl;
+import org.matsim.core.utils.geometry.CoordUtils;
+import org.matsim.facilities.Facility;
+import org.matsim.pt.routes.ExperimentalTransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+/**
+ * A transit router based on the RAPTOR algorithm (Delling, Pajor, Werneck: Round-Based Public Transit Routing, 2012),
+ * working on the flat arrays of {@link TransitRouterRaptorData} instead of a {@link TransitRouterNetwork}.
+ * <p></p>
+ * Round <i>k</i> finds the earliest arrival at every stop with <i>k</i> transit legs, so after all rounds, the
+ * journeys that are best with respect to arrival time and number of transfers are known. Among these, the journey
+ * with the smallest disutility is returned, calculated the same way as by {@link TransitRouterNetworkTravelTimeAndDisutility}.
+ * The legs are created the same way as by {@link TransitRouterImpl}.
+ * <p></p>
+ * Design comments:<ul>
+ * <li> A journey that arrives later than another one with the same number of transfers is never returned, even if its
+ * disutility is smaller (e.g. because of less walking). So the results may differ from {@link TransitRouterImpl} if
+ * the marginal utilities of walking and of travelling by transit differ a lot.
+ * </ul>
+ * <p></p>
+ * Not thread-safe, since the labels of the stops are kept between the requests to avoid allocating them anew.
+ */
+public class TransitRouterRaptor implements TransitRouter {
+
+	/** the largest number of transit legs of a journey */
+	private static final int MAX_ROUNDS = 10;
+
+	private final TransitRouterRaptorData data;
+	private final TransitRouterConfig config;
+	private final TransitTravelDisutility travelDisutility;
+
+	// labels per round and stop, only valid where the arrival or ready time is set
+	private final double[][] arrivalTimes;
+	private final int[][] boardPositions;
+	private final int[][] alightPositions;
+	private final double[][] tripStarts;
+	/** the earliest time at which a vehicle can be boarded at the stop after the round */
+	private final double[][] readyTimes;
+	/** the stop at which the vehicle was left before walking to the stop, -1 for the first walk */
+	private final int[][] readyFromStops;
+
+	private final double[] bestArrivalTimes;
+	private final double[] bestReadyTimes;
+
+	private final BitSet markedStops;
+	private final BitSet arrivedStops;
+	private final BitSet touchedStops;
+	private final int[] routeScanStarts;
+	private final int[] routesToScan;
+
+	public TransitRouterRaptor(final TransitRouterConfig config, final TransitSchedule schedule) {
+		this(config, new TransitRouterRaptorData(schedule, config.getBeelineWalkConnectionDistance()),
+				new TransitRouterNetworkTravelTimeAndDisutility(config, new PreparedTransitSchedule(schedule)));
+	}
+
+	/**
+	 * @param travelDisutility only used for the walks from and to the stops, see {@link TransitTravelDisutility#getTravelDisutility(Person, Coord, Coord)}.
+	 */
+	public TransitRouterRaptor(final TransitRouterConfig config, final TransitRouterRaptorData data, final TransitTravelDisutility travelDisutility) {
+		this.config = config;
+		this.data = data;
+		this.travelDisutility = travelDisutility;
+		int stopCount = data.stops.length;
+		this.arrivalTimes = new double[MAX_ROUNDS + 1][stopCount];
+		this.boardPositions = new int[MAX_ROUNDS + 1][stopCount];
+		this.alightPositions = new int[MAX_ROUNDS + 1][stopCount];
+		this.tripStarts = new double[MAX_ROUNDS + 1][stopCount];
+		this.readyTimes = new double[MAX_ROUNDS + 1][stopCount];
+		this.readyFromStops = new int[MAX_ROUNDS + 1][stopCount];
+		for (int k = 0; k <= MAX_ROUNDS; k++) {
+			Arrays.fill(this.arrivalTimes[k], Double.POSITIVE_INFINITY);
+			Arrays.fill(this.readyTimes[k], Double.POSITIVE_INFINITY);
+		}
+		this.bestArrivalTimes = new double[stopCount];
+		this.bestReadyTimes = new double[stopCount];
+		Arrays.fill(this.bestArrivalTimes, Double.POSITIVE_INFINITY);
+		Arrays.fill(this.bestReadyTimes, Double.POSITIVE_INFINITY);
+		this.markedStops = new BitSet(stopCount);
+		this.arrivedStops = new BitSet(stopCount);
+		this.touchedStops = new BitSet(stopCount);
+		this.routeScanStarts = new int[data.routes.length];
+		Arrays.fill(this.routeScanStarts, -1);
+		this.routesToScan = new int[data.routes.length];
+	}
+
+	@Override
+	public List<Leg> calcRoute(final Facility<?> fromFacility, final Facility<?> toFacility, final double departureTime, final Person person) {
+		Coord fromCoord = fromFacility.getCoord();
+		Coord toCoord = toFacility.getCoord();
+		reset();
+
+		for (int stop : getNearestStops(fromCoord)) {
+			double walkTime = this.travelDisutility.getTravelTime(person, fromCoord, this.data.stops[stop].getCoord());
+			setReadyTime(0, stop, departureTime + walkTime, -1);
+		}
+		int rounds = 0;
+		for (int k = 1; k <= MAX_ROUNDS && !this.markedStops.isEmpty(); k++) {
+			scanRoutes(k);
+			if (this.arrivedStops.isEmpty()) {
+				break;
+			}
+			transfer(k);
+			rounds = k;
+		}
+
+		int bestRound = -1;
+		int bestEgressStop = -1;
+		double bestCost = Double.POSITIVE_INFINITY;
+		Collection<Integer> egressStops = getNearestStops(toCoord);
+		for (int k = 1; k <= rounds; k++) {
+			for (int stop : egressStops) {
+				if (this.arrivalTimes[k][stop] < Double.POSITIVE_INFINITY) {
+					double cost = calcDisutility(getAlightStops(k, stop), fromCoord, toCoord, person);
+					if (cost < bestCost) {
+						bestCost = cost;
+						bestRound = k;
+						bestEgressStop = stop;
+					}
+				}
+			}
+		}
+		if (bestRound < 0) {
+			for (int stop : egressStops) {
+				if (this.readyTimes[0][stop] < Double.POSITIVE_INFINITY) {
+					// start and end are near the same stop, as with TransitRouterImpl, this results in a walk
+					return createDirectWalkLegList(person, fromCoord, toCoord);
+				}
+			}
+			return null;
+		}
+
+		double directWalkCost = this.travelDisutility.getTravelDisutility(person, fromCoord, toCoord);
+		if (directWalkCost < bestCost) {
+			return createDirectWalkLegList(person, fromCoord, toCoord);
+		}
+		return createLegs(getAlightStops(bestRound, bestEgressStop), departureTime, fromCoord, toCoord, person);
+	}
+
+	private Collection<Integer> getNearestStops(final Coord coord) {
+		Collection<Integer> stops = this.data.getNearestStops(coord, this.config.getSearchRadius());
+		if (stops.size() < 2) {
+			// also enlarge search area if only one stop found, maybe a second one is near the border of the search area
+			int nearestStop = this.data.getNearestStop(coord);
+			double distance = CoordUtils.calcEuclideanDistance(coord, this.data.stops[nearestStop].getCoord());
+			stops = this.data.getNearestStops(coord, distance + this.config.getExtensionRadius());
+		}
+		return stops;
+	}
+
+	private void reset() {
+		for (int stop = this.touchedStops.nextSetBit(0); stop >= 0; stop = this.touchedStops.nextSetBit(stop + 1)) {
+			for (int k = 0; k <= MAX_ROUNDS; k++) {
+				this.arrivalTimes[k][stop] = Double.POSITIVE_INFINITY;
+				this.readyTimes[k][stop] = Double.POSITIVE_INFINITY;
+			}
+			this.bestArrivalTimes[stop] = Double.POSITIVE_INFINITY;
+			this.bestReadyTimes[stop] = Double.POSITIVE_INFINITY;
+		}
+		this.touchedStops.clear();
+		this.markedStops.clear();
+		this.arrivedStops.clear();
+	}
+
+	private void setReadyTime(final int round, final int stop, final double time, final int fromStop) {
+		if (time < this.bestReadyTimes[stop]) {
+			this.bestReadyTimes[stop] = time;
+			this.readyTimes[round][stop] = time;
+			this.readyFromStops[round][stop] = fromStop;
+			this.markedStops.set(stop);
+			this.touchedStops.set(stop);
+		}
+	}
+
+	/**
+	 * Scans the routes serving the stops marked in the previous round, from the first marked stop on.
+	 */
+	private void scanRoutes(final int round) {
+		int routeCount = 0;
+		for (int stop = this.markedStops.nextSetBit(0); stop >= 0; stop = this.markedStops.nextSetBit(stop + 1)) {
+			for (int i = this.data.stopPositionStarts[stop]; i < this.data.stopPositionStarts[stop + 1]; i++) {
+				int position = this.data.stopPositions[i];
+				int route = this.data.positionRoutes[position];
+				if (this.routeScanStarts[route] < 0) {
+					this.routesToScan[routeCount++] = route;
+					this.routeScanStarts[route] = position;
+				} else if (position < this.routeScanStarts[route]) {
+					this.routeScanStarts[route] = position;
+				}
+			}
+		}
+		this.markedStops.clear();
+		for (int i = 0; i < routeCount; i++) {
+			int route = this.routesToScan[i];
+			scanRoute(round, route, this.routeScanStarts[route]);
+			this.routeScanStarts[route] = -1;
+		}
+	}
+
+	private void scanRoute(final int round, final int route, final int firstPosition) {
+		double[] previousReadyTimes = this.readyTimes[round - 1];
+		int end = this.data.routeStarts[route + 1];
+		int boardPosition = -1;
+		double tripStart = 0;
+		for (int position = firstPosition; position < end; position++) {
+			int stop = this.data.positionStops[position];
+			if (boardPosition >= 0) {
+				double arrivalTime = tripStart + this.data.arrivalOffsets[position];
+				if (arrivalTime < this.bestArrivalTimes[stop]) {
+					this.bestArrivalTimes[stop] = arrivalTime;
+					this.arrivalTimes[round][stop] = arrivalTime;
+					this.boardPositions[round][stop] = boardPosition;
+					this.alightPositions[round][stop] = position;
+					this.tripStarts[round][stop] = tripStart;
+					this.arrivedStops.set(stop);
+					this.touchedStops.set(stop);
+				}
+			}
+			double readyTime = previousReadyTimes[stop];
+			if (readyTime < Double.POSITIVE_INFINITY && position < end - 1) {
+				// an earlier trip may be caught here
+				double start = this.data.getNextDepartureTime(route, position, readyTime) - this.data.departureOffsets[position];
+				if (boardPosition < 0 || start < tripStart) {
+					tripStart = start;
+					boardPosition = position;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Lets the passengers that arrived in the round walk to nearby stops, or wait at the stop, to board another vehicle.
+	 */
+	private void transfer(final int round) {
+		double additionalTransferTime = this.config.getAdditionalTransferTime();
+		for (int stop = this.arrivedStops.nextSetBit(0); stop >= 0; stop = this.arrivedStops.nextSetBit(stop + 1)) {
+			double arrivalTime = this.arrivalTimes[round][stop];
+			setReadyTime(round, stop, arrivalTime + additionalTransferTime, stop);
+			for (int i = this.data.transferStarts[stop]; i < this.data.transferStarts[stop + 1]; i++) {
+				double walkTime = this.data.transferDistances[i] / this.config.getBeelineWalkSpeed();
+				setReadyTime(round, this.data.transferStops[i], arrivalTime + walkTime + additionalTransferTime, stop);
+			}
+		}
+		this.arrivedStops.clear();
+	}
+
+	/**
+	 * @return the stops at which the vehicles of the journey are left, indexed by round
+	 */
+	private int[] getAlightStops(final int round, final int egressStop) {
+		int[] alightStops = new int[round + 1];
+		alightStops[round] = egressStop;
+		for (int k = round; k > 1; k--) {
+			int boardStop = this.data.positionStops[this.boardPositions[k][alightStops[k]]];
+			alightStops[k - 1] = this.readyFromStops[k - 1][boardStop];
+		}
+		return alightStops;
+	}
+
+	private double calcDisutility(final int[] alightStops, final Coord fromCoord, final Coord toCoord, final Person person) {
+		int rounds = alightStops.length - 1;
+		double cost = 0;
+		for (int k = 1; k <= rounds; k++) {
+			int alightStop = alightStops[k];
+			int boardPosition = this.boardPositions[k][alightStop];
+			int alightPosition = this.alightPositions[k][alightStop];
+			int boardStop = this.data.positionStops[boardPosition];
+			if (k == 1) {
+				cost += this.travelDisutility.getTravelDisutility(person, fromCoord, this.data.stops[boardStop].getCoord());
+			} else {
+				double distance = CoordUtils.calcEuclideanDistance(this.data.stops[alightStops[k - 1]].getCoord(), this.data.stops[boardStop].getCoord());
+				double walkTime = distance / this.config.getBeelineWalkSpeed();
+				cost += - walkTime * this.config.getMarginalUtilityOfTravelTimeWalk_utl_s()
+						- distance * this.config.getMarginalUtilityOfTravelDistanceWalk_utl_m()
+						- this.config.getAdditionalTransferTime() * this.config.getMarginalUtilityOfWaitingPt_utl_s()
+						- this.config.getUtilityOfLineSwitch_utl();
+			}
+			double readyTime = this.readyTimes[k - 1][boardStop];
+			double tripStart = this.tripStarts[k][alightStop];
+			double waitTime = Math.max(0, tripStart + this.data.arrivalOffsets[boardPosition] - readyTime);
+			double inVehicleTime = tripStart + this.data.arrivalOffsets[alightPosition] - readyTime - waitTime;
+			double distance = this.data.distances[alightPosition] - this.data.distances[boardPosition];
+			cost += - inVehicleTime * this.config.getMarginalUtilityOfTravelTimePt_utl_s()
+					- waitTime * this.config.getMarginalUtilityOfWaitingPt_utl_s()
+					- distance * this.config.getMarginalUtilityOfTravelDistancePt_utl_m();
+		}
+		cost += this.travelDisutility.getTravelDisutility(person, this.data.stops[alightStops[rounds]].getCoord(), toCoord);
+		return cost;
+	}
+
+	private List<Leg> createLegs(final int[] alightStops, final double departureTime, final Coord fromCoord, final Coord toCoord, final Person person) {
+		List<Leg> legs = new ArrayList<>();
+		double time = departureTime;
+		TransitStopFacility previousEgressStop = null;
+		for (int k = 1; k < alightStops.length; k++) {
+			int alightStop = alightStops[k];
+			int boardPosition = this.boardPositions[k][alightStop];
+			int alightPosition = this.alightPositions[k][alightStop];
+			TransitStopFacility accessStop = this.data.stops[this.data.positionStops[boardPosition]];
+			TransitStopFacility egressStop = this.data.stops[alightStop];
+
+			if (previousEgressStop == null) {
+				Leg leg = PopulationUtils.createLeg(TransportMode.transit_walk);
+				double walkTime = this.travelDisutility.getTravelTime(person, fromCoord, accessStop.getCoord());
+				Route walkRoute = new GenericRouteImpl(null, accessStop.getLinkId());
+				walkRoute.setTravelTime(walkTime);
+				walkRoute.setDistance(this.config.getBeelineDistanceFactor() * CoordUtils.calcEuclideanDistance(fromCoord, accessStop.getCoord()));
+				leg.setRoute(walkRoute);
+				leg.setTravelTime(walkTime);
+				time += walkTime;
+				legs.add(leg);
+			} else if (previousEgressStop != accessStop) {
+				Leg leg = PopulationUtils.createLeg(TransportMode.transit_walk);
+				double transferTime = this.travelDisutility.getTravelTime(person, previousEgressStop.getCoord(), accessStop.getCoord())
+						+ this.config.getAdditionalTransferTime();
+				Route walkRoute = new GenericRouteImpl(previousEgressStop.getLinkId(), accessStop.getLinkId());
+				walkRoute.setTravelTime(transferTime);
+				walkRoute.setDistance(this.config.getBeelineDistanceFactor() * CoordUtils.calcEuclideanDistance(previousEgressStop.getCoord(), accessStop.getCoord()));
+				leg.setRoute(walkRoute);
+				leg.setTravelTime(transferTime);
+				time += transferTime;
+				legs.add(leg);
+			}
+
+			int route = this.data.positionRoutes[boardPosition];
+			double arrivalTime = this.tripStarts[k][alightStop] + this.data.arrivalOffsets[alightPosition];
+			Leg leg = PopulationUtils.createLeg(TransportMode.pt);
+			ExperimentalTransitRoute ptRoute = new ExperimentalTransitRoute(accessStop, this.data.routeLines[route], this.data.routes[route], egressStop);
+			ptRoute.setTravelTime(arrivalTime - time);
+			ptRoute.setDistance(this.config.getBeelineDistanceFactor() * CoordUtils.calcEuclideanDistance(accessStop.getCoord(), egressStop.getCoord()));
+			leg.setRoute(ptRoute);
+			leg.setTravelTime(arrivalTime - time);
+			time = arrivalTime;
+			legs.add(leg);
+			previousEgressStop = egressStop;
+		}
+		Leg leg = PopulationUtils.createLeg(TransportMode.transit_walk);
+		leg.setTravelTime(this.travelDisutility.getTravelTime(person, previousEgressStop.getCoord(), toCoord));
+		legs.add(leg);
+		return legs;
+	}
+
+	private List<Leg> createDirectWalkLegList(final Person person, final Coord fromCoord, final Coord toCoord) {
+		List<Leg> legs = new ArrayList<>();
+		Leg leg = PopulationUtils.createLeg(TransportMode.transit_walk);
+		double walkTime = this.travelDisutility.getTravelTime(person, fromCoord, toCoord);
+		leg.setTravelTime(walkTime);
+		Route walkRoute = new GenericRouteImpl(null, null);
+		walkRoute.setTravelTime(walkTime);
+		leg.setRoute(walkRoute);
+		legs.add(leg);
+		return legs;
+	}
+
+}
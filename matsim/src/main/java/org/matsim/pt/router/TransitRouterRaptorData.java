@@ -0,0 +1,255 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TransitRouterRaptorData.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.pt.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.core.utils.collections.QuadTree;
+import org.matsim.core.utils.geometry.CoordUtils;
+import org.matsim.core.utils.misc.Time;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+/**
+ * The transit schedule in flat arrays, as needed by {@link TransitRouterRaptor}. Stops and routes are identified
+ * by their index. The stops of all routes are stored one after the other, so a position in these arrays
+ * identifies a route and one of its stops.
+ * <p></p>
+ * Does not change once constructed and can thus be shared by the routers of all threads.
+ */
+public final class TransitRouterRaptorData {
+
+	private static final Logger log = Logger.getLogger(TransitRouterRaptorData.class);
+
+	final TransitStopFacility[] stops;
+	private final QuadTree<Integer> stopsQT;
+
+	final TransitLine[] routeLines;
+	final TransitRoute[] routes;
+
+	/** the first position of every route, and the number of positions as last element */
+	final int[] routeStarts;
+	/** per position: the route index */
+	final int[] positionRoutes;
+	/** per position: the stop index */
+	final int[] positionStops;
+	final double[] arrivalOffsets;
+	final double[] departureOffsets;
+	/** per position: the beeline distance from the first stop of the route along the stops */
+	final double[] distances;
+
+	/** per route: the first index in {@link #departures} */
+	private final int[] departureStarts;
+	/** the departure times at the first stop, sorted per route */
+	private final double[] departures;
+
+	/** per stop: the first index in {@link #stopPositions} */
+	final int[] stopPositionStarts;
+	/** the positions at which the stops are served */
+	final int[] stopPositions;
+
+	/** per stop: the first index in {@link #transferStops} */
+	final int[] transferStarts;
+	final int[] transferStops;
+	final double[] transferDistances;
+
+	public TransitRouterRaptorData(final TransitSchedule schedule, final double maxBeelineWalkConnectionDistance) {
+		log.info("start preparing transit schedule for raptor routing");
+		Map<TransitStopFacility, Integer> stopIndices = new IdentityHashMap<>();
+		List<TransitStopFacility> stopList = new ArrayList<>();
+		List<TransitLine> lineList = new ArrayList<>();
+		List<TransitRoute> routeList = new ArrayList<>();
+		int positionCount = 0;
+		int departureCount = 0;
+		for (TransitLine line : schedule.getTransitLines().values()) {
+			for (TransitRoute route : line.getRoutes().values()) {
+				if (route.getStops().size() < 2 || route.getDepartures().isEmpty()) {
+					continue;
+				}
+				lineList.add(line);
+				routeList.add(route);
+				positionCount += route.getStops().size();
+				departureCount += route.getDepartures().size();
+				for (TransitRouteStop stop : route.getStops()) {
+					if (!stopIndices.containsKey(stop.getStopFacility())) {
+						stopIndices.put(stop.getStopFacility(), stopList.size());
+						stopList.add(stop.getStopFacility());
+					}
+				}
+			}
+		}
+		this.stops = stopList.toArray(new TransitStopFacility[stopList.size()]);
+		this.routeLines = lineList.toArray(new TransitLine[lineList.size()]);
+		this.routes = routeList.toArray(new TransitRoute[routeList.size()]);
+
+		this.routeStarts = new int[this.routes.length + 1];
+		this.positionRoutes = new int[positionCount];
+		this.positionStops = new int[positionCount];
+		this.arrivalOffsets = new double[positionCount];
+		this.departureOffsets = new double[positionCount];
+		this.distances = new double[positionCount];
+		this.departureStarts = new int[this.routes.length + 1];
+		this.departures = new double[departureCount];
+		int[] positionsPerStop = new int[this.stops.length];
+		int position = 0;
+		int departure = 0;
+		for (int r = 0; r < this.routes.length; r++) {
+			this.routeStarts[r] = position;
+			Coord previousCoord = null;
+			for (TransitRouteStop stop : this.routes[r].getStops()) {
+				int stopIndex = stopIndices.get(stop.getStopFacility());
+				this.positionRoutes[position] = r;
+				this.positionStops[position] = stopIndex;
+				positionsPerStop[stopIndex]++;
+				double arrivalOffset = stop.getArrivalOffset();
+				double departureOffset = stop.getDepartureOffset();
+				this.arrivalOffsets[position] = arrivalOffset != Time.UNDEFINED_TIME ? arrivalOffset : departureOffset;
+				this.departureOffsets[position] = departureOffset != Time.UNDEFINED_TIME ? departureOffset : arrivalOffset;
+				Coord coord = stop.getStopFacility().getCoord();
+				this.distances[position] = previousCoord == null ? 0 : this.distances[position - 1] + CoordUtils.calcEuclideanDistance(previousCoord, coord);
+				previousCoord = coord;
+				position++;
+			}
+			this.departureStarts[r] = departure;
+			for (Departure dep : this.routes[r].getDepartures().values()) {
+				this.departures[departure++] = dep.getDepartureTime();
+			}
+			Arrays.sort(this.departures, this.departureStarts[r], departure);
+		}
+		this.routeStarts[this.routes.length] = position;
+		this.departureStarts[this.routes.length] = departure;
+
+		this.stopPositionStarts = new int[this.stops.length + 1];
+		for (int s = 0; s < this.stops.length; s++) {
+			this.stopPositionStarts[s + 1] = this.stopPositionStarts[s] + positionsPerStop[s];
+		}
+		this.stopPositions = new int[positionCount];
+		int[] next = Arrays.copyOf(this.stopPositionStarts, this.stops.length);
+		for (int p = 0; p < positionCount; p++) {
+			this.stopPositions[next[this.positionStops[p]]++] = p;
+		}
+
+		this.stopsQT = createQuadTree(this.stops);
+
+		this.transferStarts = new int[this.stops.length + 1];
+		List<Integer> transferStopList = new ArrayList<>();
+		List<Double> transferDistanceList = new ArrayList<>();
+		for (int s = 0; s < this.stops.length; s++) {
+			this.transferStarts[s] = transferStopList.size();
+			Coord coord = this.stops[s].getCoord();
+			for (Integer other : this.stopsQT.getDisk(coord.getX(), coord.getY(), maxBeelineWalkConnectionDistance)) {
+				if (other != s) {
+					transferStopList.add(other);
+					transferDistanceList.add(CoordUtils.calcEuclideanDistance(coord, this.stops[other].getCoord()));
+				}
+			}
+		}
+		this.transferStarts[this.stops.length] = transferStopList.size();
+		this.transferStops = new int[transferStopList.size()];
+		this.transferDistances = new double[transferStopList.size()];
+		for (int i = 0; i < this.transferStops.length; i++) {
+			this.transferStops[i] = transferStopList.get(i);
+			this.transferDistances[i] = transferDistanceList.get(i);
+		}
+
+		log.info("raptor transit data statistics:");
+		log.info(" # stops:       " + this.stops.length);
+		log.info(" # routes:      " + this.routes.length);
+		log.info(" # route stops: " + positionCount);
+		log.info(" # departures:  " + departureCount);
+		log.info(" # transfers:   " + this.transferStops.length);
+	}
+
+	private static QuadTree<Integer> createQuadTree(final TransitStopFacility[] stops) {
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for (TransitStopFacility stop : stops) {
+			minX = Math.min(minX, stop.getCoord().getX());
+			minY = Math.min(minY, stop.getCoord().getY());
+			maxX = Math.max(maxX, stop.getCoord().getX());
+			maxY = Math.max(maxY, stop.getCoord().getY());
+		}
+		QuadTree<Integer> quadTree = new QuadTree<>(minX, minY, maxX, maxY);
+		for (int s = 0; s < stops.length; s++) {
+			quadTree.put(stops[s].getCoord().getX(), stops[s].getCoord().getY(), s);
+		}
+		return quadTree;
+	}
+
+	public int getNumberOfStops() {
+		return this.stops.length;
+	}
+
+	public int getNumberOfRoutes() {
+		return this.routes.length;
+	}
+
+	Collection<Integer> getNearestStops(final Coord coord, final double distance) {
+		return this.stopsQT.getDisk(coord.getX(), coord.getY(), distance);
+	}
+
+	int getNearestStop(final Coord coord) {
+		return this.stopsQT.getClosest(coord.getX(), coord.getY());
+	}
+
+	/**
+	 * Same as {@link PreparedTransitSchedule#getNextDepartureTime}: the first departure of the route at the position
+	 * not before the given time. If there is none on the same day, the first departure of the next day is taken.
+	 */
+	double getNextDepartureTime(final int route, final int position, final double time) {
+		double departureOffset = this.departureOffsets[position];
+		double earliestDepartureTimeAtTerminus = time - departureOffset;
+		if (earliestDepartureTimeAtTerminus >= TransitRouterNetworkTravelTimeAndDisutility.MIDNIGHT) {
+			earliestDepartureTimeAtTerminus = earliestDepartureTimeAtTerminus % TransitRouterNetworkTravelTimeAndDisutility.MIDNIGHT;
+		}
+		if (earliestDepartureTimeAtTerminus < 0) {
+			earliestDepartureTimeAtTerminus += TransitRouterNetworkTravelTimeAndDisutility.MIDNIGHT;
+		}
+		int from = this.departureStarts[route];
+		int to = this.departureStarts[route + 1];
+		int pos = Arrays.binarySearch(this.departures, from, to, earliestDepartureTimeAtTerminus);
+		if (pos < 0) {
+			pos = -(pos + 1);
+		}
+		if (pos >= to) {
+			pos = from; // there is no later departure time, take the first in the morning
+		}
+		double bestDepartureTime = this.departures[pos] + departureOffset;
+		while (bestDepartureTime < time) {
+			bestDepartureTime += TransitRouterNetworkTravelTimeAndDisutility.MIDNIGHT;
+		}
+		return bestDepartureTime;
+	}
+
+}
@@ -2,6 +2,7 @@ package org.matsim.utils.objectattributes.attributable;
 
 import java.util.Arrays;
 import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -89,4 +90,19 @@ public final class Attributes {
 	int size() {
 		return keys.length;
 	}
+
+	public boolean isEmpty() {
+		return keys.length == 0;
+	}
+
+	/**
+	 * @return a copy of the mappings, ordered by attribute name
+	 */
+	public Map<String, Object> getAsMap() {
+		Map<String, Object> map = new LinkedHashMap<>();
+		for ( int i=0; i < keys.length; i++ ) {
+			map.put( keys[ i ] , values[ i ] );
+		}
+		return map;
+	}
 }
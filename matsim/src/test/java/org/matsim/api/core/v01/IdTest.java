@@ -67,7 +67,44 @@ public class IdTest {
 //		} // FIXME temporarily deactivated
 	}
 	
+	@Test
+	public void testIndex() {
+		Id<TIndexed> id1 = Id.create("1", TIndexed.class);
+		Id<TIndexed> id2 = Id.create("2", TIndexed.class);
+		Id<TIndexed> id1again = Id.create("1", TIndexed.class);
+		
+		Assert.assertEquals(0, id1.index());
+		Assert.assertEquals(1, id2.index());
+		Assert.assertEquals(0, id1again.index());
+		Assert.assertEquals(2, Id.getNumberOfIds(TIndexed.class));
+		Assert.assertSame(id1, Id.get(0, TIndexed.class));
+		Assert.assertSame(id2, Id.get(1, TIndexed.class));
+		Assert.assertSame(id2, Id.get("2", TIndexed.class));
+		Assert.assertNull(Id.get("3", TIndexed.class));
+		
+		try {
+			Id.get(2, TIndexed.class);
+			Assert.fail("expected exception, got none");
+		} catch (IndexOutOfBoundsException e) {
+			// expected exception
+		}
+	}
+	
+	@Test
+	public void testIndex_manyIds() {
+		for (int i = 0; i < 1000; i++) {
+			Id<TMany> id = Id.create(i, TMany.class);
+			Assert.assertEquals(i, id.index());
+		}
+		Assert.assertEquals(1000, Id.getNumberOfIds(TMany.class));
+		for (int i = 0; i < 1000; i++) {
+			Assert.assertEquals(Integer.toString(i), Id.get(i, TMany.class).toString());
+		}
+	}
+	
 	private static class TLink {}
 	private static class TNode {}
+	private static class TIndexed {}
+	private static class TMany {}
 	
 }
@@ -22,9 +22,15 @@ package org.matsim.core.events;
 import org.apache.log4j.Logger;
 import org.junit.Assert;
 import org.junit.Test;
+import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.handler.LinkLeaveEventHandler;
+import org.matsim.api.core.v01.network.Link;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.handler.BasicEventHandler;
 import org.matsim.core.events.handler.EventHandler;
+import org.matsim.vehicles.Vehicle;
 
 /**
  * @author mrieser
@@ -63,6 +69,46 @@ public class EventsManagerImplTest {
 		}
 	}
 
+	@Test
+	public void testProcessEvent_DirectDispatch_CustomEventHandler() {
+		EventsManager manager = new EventsManagerImpl(true);
+		CountingMyEventHandler handler = new CountingMyEventHandler();
+		manager.addHandler(handler);
+		manager.processEvent(new MyEvent(123.45));
+		manager.processEvent(new MyEvent(234.56));
+		Assert.assertEquals("EventHandler was not called.", 2, handler.counter);
+	}
+
+	@Test
+	public void testProcessEvent_DirectDispatch_CoreEventHandler() {
+		EventsManager manager = new EventsManagerImpl(true);
+		CountingLinkLeaveAndBasicEventHandler handler = new CountingLinkLeaveAndBasicEventHandler();
+		manager.addHandler(handler);
+		manager.processEvent(new LinkLeaveEvent(123.45, Id.create("v1", Vehicle.class), Id.create("l1", Link.class)));
+		manager.processEvent(new MyEvent(234.56));
+		Assert.assertEquals(1, handler.linkLeaveCounter);
+		Assert.assertEquals(2, handler.basicCounter);
+
+		manager.removeHandler(handler);
+		manager.processEvent(new LinkLeaveEvent(345.67, Id.create("v1", Vehicle.class), Id.create("l1", Link.class)));
+		Assert.assertEquals("EventHandler was called after removal.", 1, handler.linkLeaveCounter);
+		Assert.assertEquals("EventHandler was called after removal.", 2, handler.basicCounter);
+	}
+
+	@Test
+	public void testProcessEvent_DirectDispatch_ExceptionInEventHandler() {
+		EventsManager manager = new EventsManagerImpl(true);
+		CrashingMyEventHandler handler = new CrashingMyEventHandler();
+		manager.addHandler(handler);
+		try {
+			manager.processEvent(new MyEvent(123.45));
+			Assert.fail("expected exception, but got none.");
+		} catch (final ArithmeticException e) {
+			log.info("Catched expected exception.", e);
+			Assert.assertEquals(1, handler.counter);
+		}
+	}
+
 	/*package*/ static class MyEvent extends Event {
 		public MyEvent(final double time) {
 			super(time);
@@ -89,6 +135,24 @@ public class EventsManagerImplTest {
 		}
 	}
 
+	/*package*/ static class CountingLinkLeaveAndBasicEventHandler implements LinkLeaveEventHandler, BasicEventHandler {
+		/*package*/ int linkLeaveCounter = 0;
+		/*package*/ int basicCounter = 0;
+		@Override
+		public void reset(final int iteration) {
+			this.linkLeaveCounter = 0;
+			this.basicCounter = 0;
+		}
+		@Override
+		public void handleEvent(final LinkLeaveEvent e) {
+			this.linkLeaveCounter++;
+		}
+		@Override
+		public void handleEvent(final Event e) {
+			this.basicCounter++;
+		}
+	}
+
 	/*package*/ static class CrashingMyEventHandler implements MyEventHandler {
 		/*package*/ int counter = 0;
 		@Override
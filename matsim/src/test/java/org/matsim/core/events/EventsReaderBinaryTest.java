@@ -0,0 +1,154 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventsReaderBinaryTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.GenericEvent;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.algorithms.EventWriter;
+import org.matsim.core.events.algorithms.EventWriterBinary;
+import org.matsim.core.events.algorithms.EventWriterXML;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.utils.io.MatsimFileTypeGuesser;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.vehicles.Vehicle;
+
+public class EventsReaderBinaryTest {
+
+	@Rule
+	public final MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testRoundTripAgainstXml() {
+		List<Event> events = createEvents();
+		String xmlFile = this.utils.getOutputDirectory() + "/events.xml.gz";
+		String binaryFile = this.utils.getOutputDirectory() + "/events.bin";
+		write(events, new EventWriterXML(xmlFile));
+		write(events, new EventWriterBinary(binaryFile));
+
+		Assert.assertEquals(MatsimFileTypeGuesser.FileType.Events, new MatsimFileTypeGuesser(binaryFile).getGuessedFileType());
+
+		List<Event> fromXml = new ArrayList<>();
+		new EventsReaderXMLv1(collectInto(fromXml)).readFile(xmlFile);
+		Assert.assertEquals(events.size(), fromXml.size());
+
+		for (int threads : new int[] { 1, 3 }) {
+			List<Event> fromBinary = new ArrayList<>();
+			EventsReaderBinary reader = new EventsReaderBinary(collectInto(fromBinary));
+			reader.setNumberOfThreads(threads);
+			reader.readFile(binaryFile);
+			assertSameEvents(fromXml, fromBinary);
+		}
+
+		List<Event> fromEventsReader = new ArrayList<>();
+		new MatsimEventsReader(collectInto(fromEventsReader)).readFile(binaryFile);
+		assertSameEvents(fromXml, fromEventsReader);
+	}
+
+	@Test
+	public void testReadTimeSpan() {
+		List<Event> events = createEvents();
+		String binaryFile = this.utils.getOutputDirectory() + "/events.bin";
+		write(events, new EventWriterBinary(binaryFile));
+
+		List<Event> expected = new ArrayList<>();
+		for (Event event : events) {
+			if (event.getTime() >= 7 * 3600 && event.getTime() < 9 * 3600) {
+				expected.add(event);
+			}
+		}
+		Assert.assertFalse(expected.isEmpty());
+
+		List<Event> read = new ArrayList<>();
+		new EventsReaderBinary(collectInto(read)).readFile(binaryFile, 7 * 3600, 9 * 3600);
+		assertSameEvents(expected, read);
+	}
+
+	private static List<Event> createEvents() {
+		List<Event> events = new ArrayList<>();
+		for (int i = 0; i < 50000; i++) {
+			double time = 6 * 3600 + i * 0.5;
+			Id<Person> personId = Id.create(i % 1000, Person.class);
+			Id<Link> linkId = Id.create("link" + (i % 333), Link.class);
+			switch (i % 4) {
+				case 0:
+					events.add(new ActivityEndEvent(time, personId, linkId, null, "home"));
+					break;
+				case 1:
+					events.add(new PersonDepartureEvent(time, personId, linkId, i % 8 == 1 ? TransportMode.car : TransportMode.walk));
+					break;
+				case 2:
+					events.add(new LinkEnterEvent(time, Id.create(i % 1000, Vehicle.class), linkId));
+					break;
+				default:
+					GenericEvent generic = new GenericEvent("custom", time);
+					generic.getAttributes().put("text", "a<b & \"c\" " + i);
+					generic.getAttributes().put("amount", Double.toString(i * 1.5));
+					events.add(generic);
+			}
+		}
+		return events;
+	}
+
+	private static void write(final List<Event> events, final EventWriter writer) {
+		for (Event event : events) {
+			((BasicEventHandler) writer).handleEvent(event);
+		}
+		writer.closeFile();
+	}
+
+	private static EventsManager collectInto(final List<Event> events) {
+		EventsManager manager = EventsUtils.createEventsManager();
+		manager.addHandler(new BasicEventHandler() {
+			@Override
+			public void reset(int iteration) {
+			}
+
+			@Override
+			public void handleEvent(Event event) {
+				events.add(event);
+			}
+		});
+		return manager;
+	}
+
+	private static void assertSameEvents(final List<Event> expected, final List<Event> actual) {
+		Assert.assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			Assert.assertEquals(expected.get(i).getClass(), actual.get(i).getClass());
+			Assert.assertEquals(expected.get(i).getAttributes(), actual.get(i).getAttributes());
+		}
+	}
+
+}
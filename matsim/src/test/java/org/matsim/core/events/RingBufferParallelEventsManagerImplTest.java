@@ -0,0 +1,122 @@
+package org.matsim.core.events;
+
+import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup.WaitStrategy;
+import org.matsim.testcases.utils.EventsCollector;
+
+public class RingBufferParallelEventsManagerImplTest {
+
+	@Test
+	public void testEventHandlerCanProduceAdditionalEventLateInSimStep() {
+		final RingBufferParallelEventsManagerImpl events = new RingBufferParallelEventsManagerImpl(8);
+		events.addHandler(new LinkEnterEventHandler() {
+			@Override
+			public void handleEvent(LinkEnterEvent event) {
+				try {
+					Thread.sleep(10);
+				} catch (InterruptedException e) {
+					// fails the test, as finishProcessing rethrows exceptions of the handler threads
+					throw new RuntimeException(e);
+				}
+				events.processEvent(new PersonStuckEvent(event.getTime(), Id.createPersonId(0), Id.createLinkId(0), "car"));
+			}
+
+			@Override
+			public void reset(int iteration) {}
+		});
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		events.initProcessing();
+		events.processEvent(new LinkEnterEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.processEvent(new LinkLeaveEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.afterSimStep(0.0);
+		events.processEvent(new LinkEnterEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.processEvent(new LinkLeaveEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.afterSimStep(1.0);
+		events.finishProcessing();
+
+		assertThat(collector.getEvents(),
+			contains(
+					new LinkEnterEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)),
+					new LinkLeaveEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)),
+					new PersonStuckEvent(0.0, Id.createPersonId(0), Id.createLinkId(0), "car"),
+					new LinkEnterEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)),
+					new LinkLeaveEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)),
+					new PersonStuckEvent(1.0, Id.createPersonId(0), Id.createLinkId(0), "car")));
+	}
+
+	@Test
+	public void testAllEventsProcessedAfterSimStep_SmallBuffer() {
+		for (WaitStrategy waitStrategy : new WaitStrategy[] { WaitStrategy.yielding, WaitStrategy.parking }) {
+			RingBufferParallelEventsManagerImpl events = new RingBufferParallelEventsManagerImpl(3, 4, waitStrategy, false);
+			EventsCollector collector1 = new EventsCollector();
+			EventsCollector collector2 = new EventsCollector();
+			events.addHandler(collector1);
+			events.addHandler(collector2);
+
+			for (int iteration = 0; iteration < 2; iteration++) {
+				events.resetHandlers(iteration);
+				events.initProcessing();
+				for (int time = 0; time < 10; time++) {
+					for (int i = 0; i < 25; i++) {
+						events.processEvent(new LinkEnterEvent(time, Id.createVehicleId(i), Id.createLinkId(i)));
+					}
+					events.afterSimStep(time);
+					assertEquals("not all events processed at end of time step " + time, 25 * (time + 1), collector1.getEvents().size());
+					assertEquals("not all events processed at end of time step " + time, 25 * (time + 1), collector2.getEvents().size());
+				}
+				events.finishProcessing();
+				assertEquals(collector1.getEvents(), collector2.getEvents());
+			}
+		}
+	}
+
+	@Test
+	public void testAllEventsProcessedAfterSimStep_ConcurrentProducers() throws InterruptedException {
+		final RingBufferParallelEventsManagerImpl events = new RingBufferParallelEventsManagerImpl(2, 8, WaitStrategy.yielding, false);
+		EventsCollector collector1 = new EventsCollector();
+		EventsCollector collector2 = new EventsCollector();
+		events.addHandler(collector1);
+		events.addHandler(collector2);
+
+		events.initProcessing();
+		for (int time = 0; time < 5; time++) {
+			final double now = time;
+			List<Thread> producers = new ArrayList<>();
+			for (int p = 0; p < 4; p++) {
+				final int producer = p;
+				producers.add(new Thread(new Runnable() {
+					@Override
+					public void run() {
+						for (int i = 0; i < 100; i++) {
+							events.processEvent(new LinkEnterEvent(now, Id.createVehicleId(producer), Id.createLinkId(i)));
+						}
+					}
+				}));
+			}
+			for (Thread producer : producers) {
+				producer.start();
+			}
+			for (Thread producer : producers) {
+				producer.join();
+			}
+			events.afterSimStep(time);
+			assertEquals("not all events processed at end of time step " + time, 400 * (time + 1), collector1.getEvents().size());
+		}
+		events.finishProcessing();
+		assertEquals(collector1.getEvents(), collector2.getEvents());
+	}
+
+}
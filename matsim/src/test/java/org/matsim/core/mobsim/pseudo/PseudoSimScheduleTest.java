@@ -0,0 +1,59 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PseudoSimScheduleTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.pseudo;
+
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.router.util.TravelTime;
+
+public class PseudoSimScheduleTest {
+
+	@Test
+	public void testIsPseudoIteration() {
+		Config config = ConfigUtils.createConfig();
+		config.controler().setFirstIteration(0);
+		config.controler().setLastIteration(10);
+		PseudoSimConfigGroup pseudoSimConfig = ConfigUtils.addOrGetModule(config, PseudoSimConfigGroup.GROUP_NAME, PseudoSimConfigGroup.class);
+		pseudoSimConfig.setIterationsPerCycle(2);
+		pseudoSimConfig.setLastPseudoIteration(7);
+
+		PseudoSimSchedule schedule = new PseudoSimSchedule(config, Collections.<String, TravelTime>emptyMap());
+		boolean[] expected = {false, true, true, false, true, true, false, true, false, false, false};
+		for (int iteration = 0; iteration < expected.length; iteration++) {
+			Assert.assertEquals("iteration " + iteration, expected[iteration], schedule.isPseudoIteration(iteration));
+		}
+	}
+
+	@Test
+	public void testDisabled() {
+		Config config = ConfigUtils.createConfig();
+		config.controler().setLastIteration(10);
+		PseudoSimSchedule schedule = new PseudoSimSchedule(config, Collections.<String, TravelTime>emptyMap());
+		for (int iteration = 0; iteration <= 10; iteration++) {
+			Assert.assertFalse(schedule.isPseudoIteration(iteration));
+		}
+	}
+
+}
@@ -0,0 +1,267 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PseudoSimulationTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.pseudo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
+import org.matsim.api.core.v01.events.TransitDriverStartsEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.api.experimental.events.AgentWaitingForPtEvent;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
+import org.matsim.core.api.experimental.events.VehicleDepartsAtFacilityEvent;
+import org.matsim.core.api.internal.HasPersonId;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.mobsim.qsim.QSimUtils;
+import org.matsim.core.population.routes.GenericRouteImpl;
+import org.matsim.core.population.routes.LinkNetworkRouteImpl;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.misc.Time;
+import org.matsim.pt.PtConstants;
+import org.matsim.pt.routes.ExperimentalTransitRoute;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitScheduleFactory;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.pt.utils.CreateVehiclesForSchedule;
+import org.matsim.testcases.utils.EventsCollector;
+import org.matsim.vehicles.Vehicle;
+
+public class PseudoSimulationTest {
+
+	private static final double DEPARTURE_TIME = 7.0 * 3600;
+
+	/**
+	 * A car leg, and two persons walking to and from a transit line, which they ride in the same vehicle. The persons
+	 * and the transit vehicle must see the same kinds of events in the same order as in the qsim.
+	 */
+	@Test
+	public void testEventsLikeQSim() {
+		Scenario scenario = createScenario();
+		List<Event> qsimEvents = collectEvents(scenario, false);
+		List<Event> pseudoEvents = collectEvents(scenario, true);
+
+		for (String person : new String[] {"car", "pt1", "pt2"}) {
+			Id<Person> personId = Id.create(person, Person.class);
+			Assert.assertEquals("events of person " + person, getEventsOfPerson(qsimEvents, personId), getEventsOfPerson(pseudoEvents, personId));
+		}
+		Id<Vehicle> transitVehicleId = getDeparture(scenario).getVehicleId();
+		List<String> expected = getTransitEvents(qsimEvents, transitVehicleId);
+		Assert.assertEquals(expected, getTransitEvents(pseudoEvents, transitVehicleId));
+		// one start of the driver, though two passengers use the vehicle
+		Assert.assertEquals(1, Collections.frequency(expected, TransitDriverStartsEvent.EVENT_TYPE));
+	}
+
+	@Test
+	public void testTransitTimesFromSchedule() {
+		Scenario scenario = createScenario();
+		Id<Vehicle> transitVehicleId = getDeparture(scenario).getVehicleId();
+		for (Event event : collectEvents(scenario, true)) {
+			if (event instanceof TransitDriverStartsEvent) {
+				Assert.assertEquals(DEPARTURE_TIME, event.getTime(), 0.0);
+			} else if (event instanceof PersonEntersVehicleEvent && transitVehicleId.equals(((PersonEntersVehicleEvent) event).getVehicleId())) {
+				Assert.assertEquals(DEPARTURE_TIME, event.getTime(), 0.0);
+			} else if (event instanceof PersonLeavesVehicleEvent && transitVehicleId.equals(((PersonLeavesVehicleEvent) event).getVehicleId())) {
+				Assert.assertEquals(DEPARTURE_TIME + 100.0, event.getTime(), 0.0);
+			}
+		}
+	}
+
+	private static List<Event> collectEvents(final Scenario scenario, final boolean pseudoSim) {
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		if (pseudoSim) {
+			new PseudoSimulation(scenario, events, Collections.<String, TravelTime>emptyMap()).run();
+		} else {
+			QSimUtils.createDefaultQSim(scenario, events).run();
+		}
+		return collector.getEvents();
+	}
+
+	/**
+	 * @return the types of the events of the person and of its car
+	 */
+	private static List<String> getEventsOfPerson(final List<Event> events, final Id<Person> personId) {
+		Id<Vehicle> vehicleId = Id.createVehicleId(personId);
+		List<String> types = new ArrayList<>();
+		for (Event event : events) {
+			if ((event instanceof HasPersonId && personId.equals(((HasPersonId) event).getPersonId()))
+					|| (event instanceof LinkEnterEvent && vehicleId.equals(((LinkEnterEvent) event).getVehicleId()))
+					|| (event instanceof LinkLeaveEvent && vehicleId.equals(((LinkLeaveEvent) event).getVehicleId()))) {
+				types.add(event.getEventType());
+			}
+		}
+		return types;
+	}
+
+	/**
+	 * @return the types of the events at the stops of the transit vehicle, in their global order
+	 */
+	private static List<String> getTransitEvents(final List<Event> events, final Id<Vehicle> vehicleId) {
+		List<String> types = new ArrayList<>();
+		for (Event event : events) {
+			if (event instanceof AgentWaitingForPtEvent) {
+				types.add(event.getEventType());
+			} else if (event instanceof TransitDriverStartsEvent && vehicleId.equals(((TransitDriverStartsEvent) event).getVehicleId())) {
+				types.add(event.getEventType());
+			} else if (event instanceof VehicleArrivesAtFacilityEvent && vehicleId.equals(((VehicleArrivesAtFacilityEvent) event).getVehicleId())) {
+				types.add(event.getEventType() + " " + ((VehicleArrivesAtFacilityEvent) event).getFacilityId());
+			} else if (event instanceof VehicleDepartsAtFacilityEvent && vehicleId.equals(((VehicleDepartsAtFacilityEvent) event).getVehicleId())) {
+				types.add(event.getEventType() + " " + ((VehicleDepartsAtFacilityEvent) event).getFacilityId());
+			} else if (event instanceof PersonEntersVehicleEvent && vehicleId.equals(((PersonEntersVehicleEvent) event).getVehicleId())
+					&& !((PersonEntersVehicleEvent) event).getPersonId().toString().startsWith("pt_")) {
+				types.add(event.getEventType());
+			} else if (event instanceof PersonLeavesVehicleEvent && vehicleId.equals(((PersonLeavesVehicleEvent) event).getVehicleId())
+					&& !((PersonLeavesVehicleEvent) event).getPersonId().toString().startsWith("pt_")) {
+				types.add(event.getEventType());
+			}
+		}
+		return types;
+	}
+
+	private static Departure getDeparture(final Scenario scenario) {
+		return scenario.getTransitSchedule().getTransitLines().get(Id.create("1", TransitLine.class))
+				.getRoutes().get(Id.create("1", TransitRoute.class)).getDepartures().get(Id.create("1", Departure.class));
+	}
+
+	private static Scenario createScenario() {
+		Config config = ConfigUtils.createConfig();
+		config.transit().setUseTransit(true);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+
+		Network network = scenario.getNetwork();
+		Node node1 = network.getFactory().createNode(Id.create("1", Node.class), new Coord(0.0, 0.0));
+		Node node2 = network.getFactory().createNode(Id.create("2", Node.class), new Coord(1000.0, 0.0));
+		Node node3 = network.getFactory().createNode(Id.create("3", Node.class), new Coord(2000.0, 0.0));
+		network.addNode(node1);
+		network.addNode(node2);
+		network.addNode(node3);
+		Link link1 = network.getFactory().createLink(Id.create("1", Link.class), node1, node2);
+		Link link2 = network.getFactory().createLink(Id.create("2", Link.class), node2, node3);
+		for (Link link : new Link[] {link1, link2}) {
+			link.setFreespeed(10.0);
+			link.setCapacity(2000.0);
+			link.setLength(1000.0);
+			network.addLink(link);
+		}
+
+		TransitSchedule schedule = scenario.getTransitSchedule();
+		TransitScheduleFactory sb = schedule.getFactory();
+		TransitStopFacility stopFacility1 = sb.createTransitStopFacility(Id.create("1", TransitStopFacility.class), new Coord(1000.0, 0.0), false);
+		TransitStopFacility stopFacility2 = sb.createTransitStopFacility(Id.create("2", TransitStopFacility.class), new Coord(2000.0, 0.0), false);
+		stopFacility1.setLinkId(link1.getId());
+		stopFacility2.setLinkId(link2.getId());
+		schedule.addStopFacility(stopFacility1);
+		schedule.addStopFacility(stopFacility2);
+		List<TransitRouteStop> stops = new ArrayList<>();
+		stops.add(sb.createTransitRouteStop(stopFacility1, Time.UNDEFINED_TIME, 0.0));
+		stops.add(sb.createTransitRouteStop(stopFacility2, 100.0, 100.0));
+		TransitRoute tRoute = sb.createTransitRoute(Id.create("1", TransitRoute.class), new LinkNetworkRouteImpl(link1.getId(), link2.getId()), stops, "bus");
+		tRoute.addDeparture(sb.createDeparture(Id.create("1", Departure.class), DEPARTURE_TIME));
+		TransitLine tLine = sb.createTransitLine(Id.create("1", TransitLine.class));
+		tLine.addRoute(tRoute);
+		schedule.addTransitLine(tLine);
+		new CreateVehiclesForSchedule(schedule, scenario.getTransitVehicles()).run();
+
+		PopulationFactory pb = scenario.getPopulation().getFactory();
+		Plan carPlan = pb.createPlan();
+		Activity home = pb.createActivityFromLinkId("h", link1.getId());
+		home.setEndTime(6.0 * 3600);
+		carPlan.addActivity(home);
+		Leg carLeg = pb.createLeg(TransportMode.car);
+		carLeg.setRoute(new LinkNetworkRouteImpl(link1.getId(), link2.getId()));
+		carPlan.addLeg(carLeg);
+		carPlan.addActivity(pb.createActivityFromLinkId("w", link2.getId()));
+		addPerson(scenario, "car", carPlan);
+
+		addPerson(scenario, "pt1", createTransitPlan(pb, stopFacility1, stopFacility2, tLine, tRoute, DEPARTURE_TIME - 60.0));
+		addPerson(scenario, "pt2", createTransitPlan(pb, stopFacility1, stopFacility2, tLine, tRoute, DEPARTURE_TIME - 120.0));
+		return scenario;
+	}
+
+	private static Plan createTransitPlan(final PopulationFactory pb, final TransitStopFacility access, final TransitStopFacility egress,
+			final TransitLine line, final TransitRoute route, final double endTime) {
+		Plan plan = pb.createPlan();
+		Activity home = pb.createActivityFromLinkId("h", access.getLinkId());
+		home.setEndTime(endTime);
+		plan.addActivity(home);
+		plan.addLeg(createWalkLeg(pb, access.getLinkId()));
+		Activity accessAct = pb.createActivityFromLinkId(PtConstants.TRANSIT_ACTIVITY_TYPE, access.getLinkId());
+		accessAct.setEndTime(0.0);
+		plan.addActivity(accessAct);
+		Leg ptLeg = pb.createLeg(TransportMode.pt);
+		Route ptRoute = new ExperimentalTransitRoute(access, line, route, egress);
+		ptRoute.setTravelTime(100.0);
+		ptLeg.setRoute(ptRoute);
+		plan.addLeg(ptLeg);
+		Activity egressAct = pb.createActivityFromLinkId(PtConstants.TRANSIT_ACTIVITY_TYPE, egress.getLinkId());
+		egressAct.setEndTime(0.0);
+		plan.addActivity(egressAct);
+		plan.addLeg(createWalkLeg(pb, egress.getLinkId()));
+		plan.addActivity(pb.createActivityFromLinkId("w", egress.getLinkId()));
+		return plan;
+	}
+
+	private static Leg createWalkLeg(final PopulationFactory pb, final Id<Link> linkId) {
+		Leg leg = pb.createLeg(TransportMode.walk);
+		Route route = new GenericRouteImpl(linkId, linkId);
+		route.setTravelTime(10.0);
+		route.setDistance(10.0);
+		leg.setRoute(route);
+		return leg;
+	}
+
+	private static void addPerson(final Scenario scenario, final String id, final Plan plan) {
+		Person person = scenario.getPopulation().getFactory().createPerson(Id.create(id, Person.class));
+		person.addPlan(plan);
+		person.setSelectedPlan(plan);
+		scenario.getPopulation().addPerson(person);
+	}
+
+}
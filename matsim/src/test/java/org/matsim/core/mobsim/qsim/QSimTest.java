@@ -70,6 +70,9 @@ import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.config.groups.QSimConfigGroup;
 import org.matsim.core.events.EventsUtils;
 import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.mobsim.framework.HasNextEventTime;
+import org.matsim.core.mobsim.framework.events.MobsimAfterSimStepEvent;
+import org.matsim.core.mobsim.framework.listeners.MobsimAfterSimStepListener;
 import org.matsim.core.mobsim.qsim.agents.AgentFactory;
 import org.matsim.core.mobsim.qsim.agents.DefaultAgentFactory;
 import org.matsim.core.mobsim.qsim.agents.PersonDriverAgentImpl;
@@ -266,6 +269,85 @@ public class QSimTest {
 		Assert.assertEquals("wrong time in event.", 6.0*3600 + 15, allEvents.get(3).getTime(), MatsimTestCase.EPSILON);
 	}
 
+	/**
+	 * Simulates a car and a teleported agent once with and once without skipping inactive time steps.
+	 * The events must be the same, but far fewer time steps must be simulated.
+	 */
+	@Test
+	public void testSkippingInactiveTimeSteps() {
+		List<Event> allSteps = new ArrayList<>();
+		int allStepsCount = runWithStepCounter(false, true, allSteps);
+		List<Event> skipped = new ArrayList<>();
+		int skippedCount = runWithStepCounter(true, true, skipped);
+
+		Assert.assertEquals("wrong number of events.", allSteps.size(), skipped.size());
+		for (int i = 0; i < allSteps.size(); i++) {
+			Assert.assertEquals("different events.", allSteps.get(i).toString(), skipped.get(i).toString());
+		}
+		Assert.assertEquals("wrong number of simulated time steps.", 3 * 3600 + 16, allStepsCount);
+		Assert.assertTrue("inactive time steps were not skipped, simulated " + skippedCount + " time steps.", skippedCount < 100);
+
+		// a listener which does not tell when it needs to be called next must be called in every time step
+		List<Event> withListener = new ArrayList<>();
+		int withListenerCount = runWithStepCounter(true, false, withListener);
+		Assert.assertEquals("wrong number of events.", allSteps.size(), withListener.size());
+		Assert.assertEquals("wrong number of simulated time steps.", allStepsCount, withListenerCount);
+	}
+
+	private int runWithStepCounter(boolean skippingInactiveTimeSteps, boolean listenerHasNextEventTime, List<Event> events) {
+		Fixture f = new Fixture(isUsingFastCapacityUpdate);
+		f.config.qsim().setSkippingInactiveTimeSteps(skippingInactiveTimeSteps);
+
+		Person carAgent = PopulationUtils.getFactory().createPerson(Id.create(0, Person.class));
+		Plan plan = PersonUtils.createAndAddPlan(carAgent, true);
+		Activity a1 = PopulationUtils.createAndAddActivityFromLinkId(plan, "h", f.link1.getId());
+		a1.setEndTime(6*3600);
+		Leg leg = PopulationUtils.createAndAddLeg( plan, TransportMode.car );
+		NetworkRoute route = ((PopulationFactory) f.scenario.getPopulation().getFactory()).getRouteFactories().createRoute(NetworkRoute.class, f.link1.getId(), f.link3.getId());
+		route.setLinkIds(f.link1.getId(), f.linkIds2, f.link3.getId());
+		leg.setRoute(route);
+		PopulationUtils.createAndAddActivityFromLinkId(plan, "w", f.link3.getId());
+		f.plans.addPerson(carAgent);
+
+		Person teleportedAgent = PopulationUtils.getFactory().createPerson(Id.create(1, Person.class));
+		plan = PersonUtils.createAndAddPlan(teleportedAgent, true);
+		a1 = PopulationUtils.createAndAddActivityFromLinkId(plan, "h", f.link1.getId());
+		a1.setEndTime(9*3600);
+		leg = PopulationUtils.createAndAddLeg( plan, "other" );
+		Route genericRoute = f.scenario.getPopulation().getFactory().getRouteFactories().createRoute(Route.class, f.link1.getId(), f.link3.getId());
+		genericRoute.setTravelTime(15.0);
+		leg.setRoute(genericRoute);
+		PopulationUtils.createAndAddActivityFromLinkId(plan, "w", f.link3.getId());
+		f.plans.addPerson(teleportedAgent);
+
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		eventsManager.addHandler(collector);
+
+		QSim sim = createQSim(f, eventsManager);
+		StepCounter counter = listenerHasNextEventTime ? new StepCounterWithNextEventTime() : new StepCounter();
+		sim.addQueueSimulationListeners(counter);
+		sim.run();
+
+		events.addAll(collector.getEvents());
+		return counter.steps;
+	}
+
+	private static class StepCounter implements MobsimAfterSimStepListener {
+		int steps = 0;
+		@Override
+		public void notifyMobsimAfterSimStep(MobsimAfterSimStepEvent e) {
+			this.steps++;
+		}
+	}
+
+	private static class StepCounterWithNextEventTime extends StepCounter implements HasNextEventTime {
+		@Override
+		public double getNextEventTime(double now) {
+			return Double.POSITIVE_INFINITY;
+		}
+	}
+
 	/**
 	 * This test is mostly useful for manual debugging, because only a single agent is simulated
 	 * on a very simple network.
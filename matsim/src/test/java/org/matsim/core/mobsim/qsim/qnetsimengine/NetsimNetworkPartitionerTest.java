@@ -0,0 +1,85 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class NetsimNetworkPartitionerTest {
+
+	@Test
+	public void testGrid_equalWeights() {
+		// 8 x 4 grid, wider than high: the first cut must be vertical
+		double[] x = new double[32];
+		double[] y = new double[32];
+		double[] w = new double[32];
+		for (int i = 0; i < 32; i++) {
+			x[i] = i % 8;
+			y[i] = i / 8;
+			w[i] = 1.0;
+		}
+		int[] partitions = NetsimNetworkPartitioner.partition(x, y, w, 4);
+		int[] sizes = new int[4];
+		for (int i = 0; i < 32; i++) {
+			sizes[partitions[i]]++;
+			Assert.assertEquals("point " + i, (int) (x[i] / 2), partitions[i]);
+		}
+		Assert.assertArrayEquals(new int[] {8, 8, 8, 8}, sizes);
+	}
+
+	@Test
+	public void testWeights() {
+		// one heavy point on the left, many light ones on the right
+		double[] x = {0, 1, 2, 3, 4, 5};
+		double[] y = {0, 0, 0, 0, 0, 0};
+		double[] w = {10, 2, 2, 2, 2, 2};
+		int[] partitions = NetsimNetworkPartitioner.partition(x, y, w, 2);
+		Assert.assertArrayEquals(new int[] {0, 1, 1, 1, 1, 1}, partitions);
+	}
+
+	@Test
+	public void testMorePartitionsThanPoints() {
+		double[] x = {0, 1, 2};
+		double[] y = {0, 0, 0};
+		double[] w = {1, 1, 1};
+		int[] partitions = NetsimNetworkPartitioner.partition(x, y, w, 5);
+		Set<Integer> used = new HashSet<>();
+		for (int p : partitions) {
+			Assert.assertTrue(p >= 0 && p < 5);
+			used.add(p);
+		}
+		Assert.assertEquals(3, used.size());
+	}
+
+	@Test
+	public void testSameCoordinates_deterministic() {
+		double[] x = new double[10];
+		double[] y = new double[10];
+		double[] w = new double[10];
+		Arrays.fill(w, 1.0);
+		int[] partitions = NetsimNetworkPartitioner.partition(x, y, w, 2);
+		Assert.assertArrayEquals(new int[] {0, 0, 0, 0, 0, 1, 1, 1, 1, 1}, partitions);
+	}
+
+}
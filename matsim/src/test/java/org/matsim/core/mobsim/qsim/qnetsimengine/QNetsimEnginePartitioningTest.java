@@ -0,0 +1,157 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.groups.QSimConfigGroup.NetsimPartitioning;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.gbl.MatsimRandom;
+import org.matsim.core.mobsim.qsim.QSimUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class QNetsimEnginePartitioningTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	/**
+	 * With a partitioned network, the nodes use their own random number generators also
+	 * with one thread, so the number of threads and the assignment of nodes to runners
+	 * must not change the simulation. The second coordinate bisection run with three
+	 * threads uses the work load measured in the first one.
+	 */
+	@Test
+	public void testCoordinateBisection_sameEventsAsSingleThreaded() {
+		List<List<Event>> singleThreaded = runQSim(createScenario(NetsimPartitioning.coordinateBisection, 1), 1);
+		List<List<Event>> threeThreads = runQSim(createScenario(NetsimPartitioning.coordinateBisection, 3), 2);
+		List<List<Event>> twoThreads = runQSim(createScenario(NetsimPartitioning.coordinateBisection, 2), 1);
+
+		List<Event> expected = singleThreaded.get(0);
+		Assert.assertTrue(expected.size() > 100);
+		assertSameEvents(expected, threeThreads.get(0));
+		assertSameEvents(expected, threeThreads.get(1));
+		assertSameEvents(expected, twoThreads.get(0));
+	}
+
+	/*
+	 * The runners may report the events of different nodes in the same time step in any order,
+	 * so the events are compared per time step, and in the order of their creation per agent.
+	 */
+	private static void assertSameEvents(final List<Event> expected, final List<Event> actual) {
+		Assert.assertEquals(expected.size(), actual.size());
+		Assert.assertEquals(sortByTime(expected), sortByTime(actual));
+
+		Map<String, List<String>> expectedByAgent = groupByAgent(expected);
+		Map<String, List<String>> actualByAgent = groupByAgent(actual);
+		Assert.assertEquals(expectedByAgent.keySet(), actualByAgent.keySet());
+		for (Map.Entry<String, List<String>> e : expectedByAgent.entrySet()) {
+			List<String> actualEvents = actualByAgent.get(e.getKey());
+			for (int i = 0; i < e.getValue().size(); i++) {
+				Assert.assertEquals("event " + i + " of agent " + e.getKey(), e.getValue().get(i), actualEvents.get(i));
+			}
+			Assert.assertEquals(e.getValue().size(), actualEvents.size());
+		}
+	}
+
+	private static List<String> sortByTime(final List<Event> events) {
+		List<Event> sorted = new ArrayList<>(events);
+		Collections.sort(sorted, new Comparator<Event>() {
+			@Override
+			public int compare(Event e1, Event e2) {
+				int cmp = Double.compare(e1.getTime(), e2.getTime());
+				return cmp != 0 ? cmp : e1.toString().compareTo(e2.toString());
+			}
+		});
+		List<String> result = new ArrayList<>(sorted.size());
+		for (Event event : sorted) {
+			result.add(event.toString());
+		}
+		return result;
+	}
+
+	private static Map<String, List<String>> groupByAgent(final List<Event> events) {
+		Map<String, List<String>> byAgent = new TreeMap<>();
+		for (Event event : events) {
+			Map<String, String> attributes = event.getAttributes();
+			String agent = attributes.get("person");
+			if (agent == null) {
+				agent = attributes.get("vehicle");
+			}
+			if (agent == null) {
+				continue;
+			}
+			List<String> agentEvents = byAgent.get(agent);
+			if (agentEvents == null) {
+				agentEvents = new ArrayList<>();
+				byAgent.put(agent, agentEvents);
+			}
+			agentEvents.add(event.toString());
+		}
+		return byAgent;
+	}
+
+	private Scenario createScenario(final NetsimPartitioning partitioning, final int numberOfThreads) {
+		Config config = this.utils.loadConfig(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("equil"), "config.xml"));
+		config.qsim().setNumberOfThreads(numberOfThreads);
+		config.qsim().setNetsimPartitioning(partitioning);
+		return ScenarioUtils.loadScenario(config);
+	}
+
+	private static List<List<Event>> runQSim(final Scenario scenario, final int numberOfRuns) {
+		List<List<Event>> results = new ArrayList<>();
+		for (int run = 0; run < numberOfRuns; run++) {
+			// the random number generators of the nodes are seeded in the order the nodes are created
+			MatsimRandom.reset(scenario.getConfig().global().getRandomSeed());
+			EventsManager events = EventsUtils.getParallelFeedableInstance(EventsUtils.createEventsManager());
+			final List<Event> collected = new ArrayList<>();
+			events.addHandler(new BasicEventHandler() {
+				@Override
+				public void handleEvent(Event event) {
+					collected.add(event);
+				}
+
+				@Override
+				public void reset(int iteration) {
+				}
+			});
+			QSimUtils.createDefaultQSim(scenario, events).run();
+			results.add(collected);
+		}
+		return results;
+	}
+
+}
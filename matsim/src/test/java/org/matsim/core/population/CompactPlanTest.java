@@ -0,0 +1,237 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactPlanTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.population.routes.GenericRouteImpl;
+import org.matsim.core.population.routes.LinkNetworkRouteImpl;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.router.TripRouter;
+import org.matsim.core.utils.misc.Time;
+
+public class CompactPlanTest {
+
+	private final Id<Link> link1 = Id.create("1", Link.class);
+	private final Id<Link> link2 = Id.create("2", Link.class);
+	private final Id<Link> link3 = Id.create("3", Link.class);
+	private final Id<Link> link4 = Id.create("4", Link.class);
+
+	@Test
+	public void testValuesSurvivePacking() {
+		CompactPlan plan = createPlan();
+		plan.compact();
+
+		List<PlanElement> elements = plan.getPlanElements();
+		Assert.assertEquals(3, elements.size());
+		Activity home = (Activity) elements.get(0);
+		Assert.assertEquals("h", home.getType());
+		Assert.assertEquals(new Coord(0, 0), home.getCoord());
+		Assert.assertEquals(this.link1, home.getLinkId());
+		Assert.assertEquals(7.5 * 3600, home.getEndTime(), 0.0);
+		Assert.assertEquals(Time.UNDEFINED_TIME, home.getStartTime(), 0.0);
+
+		Leg leg = (Leg) elements.get(1);
+		Assert.assertEquals(TransportMode.car, leg.getMode());
+		Assert.assertEquals(7.5 * 3600, leg.getDepartureTime(), 0.0);
+		Assert.assertEquals(900.1, leg.getTravelTime(), 1e-3);
+		NetworkRoute route = (NetworkRoute) leg.getRoute();
+		Assert.assertEquals(this.link1, route.getStartLinkId());
+		Assert.assertEquals(this.link4, route.getEndLinkId());
+		Assert.assertEquals(Arrays.asList(this.link2, this.link3), route.getLinkIds());
+		Assert.assertEquals(1234.5, route.getDistance(), 0.0);
+
+		Activity work = (Activity) elements.get(2);
+		Assert.assertEquals("w", work.getType());
+		Assert.assertEquals(new Coord(1000, 500), work.getCoord());
+		Assert.assertEquals(8 * 3600, work.getStartTime(), 0.0);
+	}
+
+	@Test
+	public void testViewsAreStableAndWriteThrough() {
+		CompactPlan plan = createPlan();
+		plan.compact();
+
+		Activity home = (Activity) plan.getPlanElements().get(0);
+		Assert.assertSame(home, plan.getPlanElements().get(0));
+		home.setEndTime(6 * 3600);
+		home.setType("home");
+		Assert.assertEquals(6 * 3600, ((Activity) plan.getPlanElements().get(0)).getEndTime(), 0.0);
+		Assert.assertEquals("home", ((Activity) plan.getPlanElements().get(0)).getType());
+
+		NetworkRoute route = (NetworkRoute) ((Leg) plan.getPlanElements().get(1)).getRoute();
+		route.setLinkIds(this.link1, Arrays.asList(this.link3), this.link4);
+		Assert.assertEquals(Arrays.asList(this.link3), route.getLinkIds());
+		route.setLinkIds(this.link1, route.getLinkIds(), this.link4);
+		Assert.assertEquals(Arrays.asList(this.link3), ((NetworkRoute) ((Leg) plan.getPlanElements().get(1)).getRoute()).getLinkIds());
+		Assert.assertEquals(Arrays.asList(this.link3), ((NetworkRoute) route.clone()).getLinkIds());
+	}
+
+	@Test
+	public void testReplacedRouteLeavesGarbage() {
+		CompactPlan plan = createPlan();
+		plan.compact();
+		Leg leg = (Leg) plan.getPlanElements().get(1);
+		Assert.assertEquals(0, plan.getGarbage());
+
+		Route route = new GenericRouteImpl(this.link1, this.link4);
+		leg.setRoute(route);
+		Assert.assertSame(route, leg.getRoute());
+		// the link indices of the packed route
+		Assert.assertEquals(2, plan.getGarbage());
+
+		plan.compact();
+		Assert.assertEquals(0, plan.getGarbage());
+		Assert.assertSame(leg, plan.getPlanElements().get(1));
+		Assert.assertEquals(this.link4, leg.getRoute().getEndLinkId());
+		Assert.assertEquals(TransportMode.car, leg.getMode());
+	}
+
+	@Test
+	public void testInsertTrip() {
+		CompactPlan plan = createPlan();
+		plan.compact();
+		Activity home = (Activity) plan.getPlanElements().get(0);
+		Activity work = (Activity) plan.getPlanElements().get(2);
+		Leg oldLeg = (Leg) plan.getPlanElements().get(1);
+
+		List<PlanElement> trip = new ArrayList<>();
+		trip.add(PopulationUtils.createLeg(TransportMode.walk));
+		trip.add(PopulationUtils.createActivityFromLinkId("car interaction", this.link1));
+		trip.add(PopulationUtils.createLeg(TransportMode.car));
+		TripRouter.insertTrip(plan, home, trip, work);
+
+		Assert.assertEquals(5, plan.getPlanElements().size());
+		Assert.assertEquals(TransportMode.walk, ((Leg) plan.getPlanElements().get(1)).getMode());
+		Assert.assertEquals("car interaction", ((Activity) plan.getPlanElements().get(2)).getType());
+		Assert.assertSame(work, plan.getPlanElements().get(4));
+		// the removed leg keeps its values
+		Assert.assertEquals(TransportMode.car, oldLeg.getMode());
+		Assert.assertEquals(Arrays.asList(this.link2, this.link3), ((NetworkRoute) oldLeg.getRoute()).getLinkIds());
+
+		plan.compact();
+		Assert.assertEquals(5, plan.getPlanElements().size());
+		Assert.assertEquals(this.link1, ((Activity) plan.getPlanElements().get(2)).getLinkId());
+	}
+
+	@Test
+	public void testCompactPlansAndCopy() {
+		Person person = PopulationUtils.getFactory().createPerson(Id.create(1, Person.class));
+		Plan original = PopulationUtils.createPlan(person);
+		PopulationUtils.copyFromTo(createPlan(), original);
+		original.setScore(42.0);
+		person.addPlan(original);
+		person.setSelectedPlan(original);
+
+		CompactPlan.compactPlans(person);
+		Plan compact = person.getSelectedPlan();
+		Assert.assertTrue(compact instanceof CompactPlan);
+		Assert.assertEquals(1, person.getPlans().size());
+		Assert.assertEquals(42.0, compact.getScore(), 0.0);
+		Assert.assertEquals(3, compact.getPlanElements().size());
+
+		Plan copy = ((PersonImpl) person).createCopyOfSelectedPlanAndMakeSelected();
+		Assert.assertTrue(copy instanceof CompactPlan);
+		((Activity) copy.getPlanElements().get(0)).setType("other");
+		((NetworkRoute) ((Leg) copy.getPlanElements().get(1)).getRoute()).setLinkIds(this.link1, new ArrayList<Id<Link>>(), this.link4);
+		Assert.assertEquals("h", ((Activity) compact.getPlanElements().get(0)).getType());
+		Assert.assertEquals(2, ((NetworkRoute) ((Leg) compact.getPlanElements().get(1)).getRoute()).getLinkIds().size());
+	}
+
+	/**
+	 * Elements are appended to the packed data in place, and the records left behind by removals are dropped when the
+	 * plan is repacked; the views must survive both.
+	 */
+	@Test
+	public void testManyMutations() {
+		CompactPlan plan = createPlan();
+		plan.compact();
+		List<PlanElement> elements = plan.getPlanElements();
+		for (int i = 0; i < 100; i++) {
+			elements.add(elements.size() - 1, PopulationUtils.createLeg(TransportMode.walk));
+			Activity act = PopulationUtils.createActivityFromLinkId("a" + i, this.link2);
+			act.setEndTime(i);
+			elements.add(elements.size() - 1, act);
+		}
+		plan.compact();
+		Assert.assertEquals(203, elements.size());
+		Activity home = (Activity) elements.get(0);
+		Activity work = (Activity) elements.get(202);
+		Assert.assertEquals("w", work.getType());
+
+		// remove all but every tenth of the inserted activities, with the legs before them
+		for (int i = 99; i >= 0; i--) {
+			if (i % 10 != 0) {
+				elements.subList(2 + 2 * i, 4 + 2 * i).clear();
+			}
+		}
+		Assert.assertEquals(23, elements.size());
+		Assert.assertSame(home, elements.get(0));
+		Assert.assertSame(work, elements.get(22));
+		Assert.assertEquals("h", home.getType());
+		Assert.assertEquals("w", work.getType());
+		Assert.assertEquals(Arrays.asList(this.link2, this.link3), ((NetworkRoute) ((Leg) elements.get(1)).getRoute()).getLinkIds());
+		for (int k = 0; k < 10; k++) {
+			Activity act = (Activity) elements.get(3 + 2 * k);
+			Assert.assertEquals("a" + 10 * k, act.getType());
+			Assert.assertEquals(10 * k, act.getEndTime(), 0.0);
+			Assert.assertEquals(TransportMode.walk, ((Leg) elements.get(2 + 2 * k)).getMode());
+		}
+
+		plan.compact();
+		Assert.assertEquals(23, elements.size());
+		Assert.assertEquals("a90", ((Activity) elements.get(21)).getType());
+		Assert.assertEquals(this.link4, ((Activity) elements.get(22)).getLinkId());
+	}
+
+	private CompactPlan createPlan() {
+		CompactPlan plan = new CompactPlan();
+		Activity home = PopulationUtils.createActivityFromCoordAndLinkId("h", new Coord(0, 0), this.link1);
+		home.setEndTime(7.5 * 3600);
+		plan.addActivity(home);
+		Leg leg = PopulationUtils.createLeg(TransportMode.car);
+		leg.setDepartureTime(7.5 * 3600);
+		leg.setTravelTime(900.1);
+		NetworkRoute route = new LinkNetworkRouteImpl(this.link1, Arrays.asList(this.link2, this.link3), this.link4);
+		route.setDistance(1234.5);
+		leg.setRoute(route);
+		plan.addLeg(leg);
+		Activity work = PopulationUtils.createActivityFromCoordAndLinkId("w", new Coord(1000, 500), this.link4);
+		work.setStartTime(8 * 3600);
+		plan.addActivity(work);
+		return plan;
+	}
+
+}
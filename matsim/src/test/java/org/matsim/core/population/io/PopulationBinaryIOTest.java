@@ -0,0 +1,213 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PopulationBinaryIOTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.PersonUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.algorithms.PersonAlgorithm;
+import org.matsim.core.population.routes.GenericRouteImpl;
+import org.matsim.core.population.routes.LinkNetworkRouteImpl;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.MatsimFileTypeGuesser;
+import org.matsim.core.utils.misc.Time;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.vehicles.Vehicle;
+
+public class PopulationBinaryIOTest {
+
+	@Rule
+	public final MatsimTestUtils utils = new MatsimTestUtils();
+
+	private static final int NUMBER_OF_PERSONS = 2500;
+
+	@Test
+	public void testRoundTrip() {
+		Population population = createPopulation();
+		String file = this.utils.getOutputDirectory() + "/population.bin";
+		new PopulationWriter(population).writeBinary(file);
+
+		for (int threads : new int[] { 1, 4 }) {
+			Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+			PopulationReaderBinary reader = new PopulationReaderBinary(scenario);
+			reader.setNumberOfThreads(threads);
+			reader.readFile(file);
+
+			Assert.assertEquals("the name", scenario.getPopulation().getName());
+			Assert.assertEquals(42, scenario.getPopulation().getAttributes().getAttribute("answer"));
+			Assert.assertEquals(NUMBER_OF_PERSONS, scenario.getPopulation().getPersons().size());
+			for (Person expected : population.getPersons().values()) {
+				assertSamePerson(expected, scenario.getPopulation().getPersons().get(expected.getId()));
+			}
+		}
+	}
+
+	@Test
+	public void testReadPerson() {
+		Population population = createPopulation();
+		String file = this.utils.getOutputDirectory() + "/population.bin";
+		new PopulationWriter(population).writeBinary(file);
+
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		PopulationReaderBinary reader = new PopulationReaderBinary(scenario);
+		for (int i : new int[] { 0, 1999, 999, 2499, 1000 }) {
+			Id<Person> personId = Id.create(i, Person.class);
+			assertSamePerson(population.getPersons().get(personId), reader.readPerson(file, personId));
+		}
+		Assert.assertNull(reader.readPerson(file, Id.create("unknown", Person.class)));
+		Assert.assertTrue(scenario.getPopulation().getPersons().isEmpty());
+	}
+
+	@Test
+	public void testStreamingAndFileType() {
+		Population population = createPopulation();
+		String file = this.utils.getOutputDirectory() + "/population.bin";
+		new PopulationWriter(population).writeBinary(file);
+
+		Assert.assertEquals(MatsimFileTypeGuesser.FileType.Population, new MatsimFileTypeGuesser(file).getGuessedFileType());
+
+		final List<Id<Person>> streamed = new ArrayList<>();
+		StreamingPopulationReader reader = new StreamingPopulationReader(ScenarioUtils.createScenario(ConfigUtils.createConfig()));
+		reader.addAlgorithm(new PersonAlgorithm() {
+			@Override
+			public void run(Person person) {
+				streamed.add(person.getId());
+			}
+		});
+		reader.readFile(file);
+		Assert.assertEquals(new ArrayList<>(PopulationUtils.getSortedPersons(population).keySet()), streamed);
+	}
+
+	private static Population createPopulation() {
+		Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig());
+		population.setName("the name");
+		population.getAttributes().putAttribute("answer", 42);
+		PopulationFactory factory = population.getFactory();
+		for (int i = 0; i < NUMBER_OF_PERSONS; i++) {
+			Person person = factory.createPerson(Id.create(i, Person.class));
+			PersonUtils.setAge(person, i % 90);
+			PersonUtils.setEmployed(person, i % 3 == 0);
+			person.getAttributes().putAttribute("income", 1000.5 * i);
+			for (int p = 0; p < 1 + i % 3; p++) {
+				Plan plan = factory.createPlan();
+				plan.setScore(i % 5 == 0 ? null : Double.valueOf(-i * 0.5 + p));
+				Activity home = factory.createActivityFromCoord("home", new Coord(i, -i));
+				home.setEndTime(7 * 3600 + i);
+				home.getAttributes().putAttribute("since", (long) i);
+				plan.addActivity(home);
+				Leg car = factory.createLeg(TransportMode.car);
+				car.setDepartureTime(7 * 3600 + i);
+				car.setTravelTime(1200.25);
+				NetworkRoute route = new LinkNetworkRouteImpl(Id.create("a" + p, Link.class),
+						Arrays.asList(Id.create("b", Link.class), Id.create("c" + i, Link.class)), Id.create("d", Link.class));
+				route.setDistance(4321.5);
+				route.setTravelTime(1200.25);
+				route.setVehicleId(Id.create(i, Vehicle.class));
+				car.setRoute(route);
+				plan.addLeg(car);
+				Activity work = factory.createActivityFromLinkId("work", Id.create("d", Link.class));
+				work.setCoord(new Coord(1000, 2000, 3));
+				work.setMaximumDuration(8 * 3600);
+				plan.addActivity(work);
+				Leg walk = factory.createLeg(TransportMode.walk);
+				GenericRouteImpl walkRoute = new GenericRouteImpl(Id.create("d", Link.class), Id.create("a0", Link.class));
+				walkRoute.setRouteDescription("by the river");
+				walkRoute.setDistance(987.0);
+				walk.setRoute(walkRoute);
+				plan.addLeg(walk);
+				plan.addActivity(factory.createActivityFromCoord("home", new Coord(i, -i)));
+				person.addPlan(plan);
+				if (p == i % 2) {
+					person.setSelectedPlan(plan);
+				}
+			}
+			population.addPerson(person);
+		}
+		return population;
+	}
+
+	private static void assertSamePerson(Person expected, Person actual) {
+		Assert.assertNotNull(actual);
+		Assert.assertEquals(expected.getId(), actual.getId());
+		Assert.assertEquals(PersonUtils.getAge(expected), PersonUtils.getAge(actual));
+		Assert.assertEquals(PersonUtils.isEmployed(expected), PersonUtils.isEmployed(actual));
+		Assert.assertEquals(expected.getAttributes().getAttribute("income"), actual.getAttributes().getAttribute("income"));
+		Assert.assertEquals(expected.getPlans().size(), actual.getPlans().size());
+		for (int p = 0; p < expected.getPlans().size(); p++) {
+			Plan expectedPlan = expected.getPlans().get(p);
+			Plan actualPlan = actual.getPlans().get(p);
+			Assert.assertEquals(expectedPlan.getScore(), actualPlan.getScore());
+			Assert.assertEquals(expected.getSelectedPlan() == expectedPlan, actual.getSelectedPlan() == actualPlan);
+			Assert.assertEquals(expectedPlan.getPlanElements().size(), actualPlan.getPlanElements().size());
+
+			Activity home = (Activity) actualPlan.getPlanElements().get(0);
+			Activity expectedHome = (Activity) expectedPlan.getPlanElements().get(0);
+			Assert.assertEquals("home", home.getType());
+			Assert.assertEquals(expectedHome.getCoord(), home.getCoord());
+			Assert.assertNull(home.getLinkId());
+			Assert.assertEquals(expectedHome.getEndTime(), home.getEndTime(), 0.0);
+			Assert.assertEquals(Time.UNDEFINED_TIME, home.getStartTime(), 0.0);
+			Assert.assertEquals(expectedHome.getAttributes().getAttribute("since"), home.getAttributes().getAttribute("since"));
+
+			Leg car = (Leg) actualPlan.getPlanElements().get(1);
+			Leg expectedCar = (Leg) expectedPlan.getPlanElements().get(1);
+			Assert.assertEquals(TransportMode.car, car.getMode());
+			Assert.assertEquals(expectedCar.getDepartureTime(), car.getDepartureTime(), 0.0);
+			Assert.assertEquals(1200.25, car.getTravelTime(), 0.0);
+			NetworkRoute route = (NetworkRoute) car.getRoute();
+			NetworkRoute expectedRoute = (NetworkRoute) expectedCar.getRoute();
+			Assert.assertEquals(expectedRoute.getStartLinkId(), route.getStartLinkId());
+			Assert.assertEquals(expectedRoute.getLinkIds(), route.getLinkIds());
+			Assert.assertEquals(expectedRoute.getEndLinkId(), route.getEndLinkId());
+			Assert.assertEquals(expectedRoute.getVehicleId(), route.getVehicleId());
+			Assert.assertEquals(4321.5, route.getDistance(), 0.0);
+
+			Activity work = (Activity) actualPlan.getPlanElements().get(2);
+			Assert.assertEquals(Id.create("d", Link.class), work.getLinkId());
+			Assert.assertEquals(3.0, work.getCoord().getZ(), 0.0);
+			Assert.assertEquals(8 * 3600, work.getMaximumDuration(), 0.0);
+
+			Leg walk = (Leg) actualPlan.getPlanElements().get(3);
+			Assert.assertEquals("by the river", walk.getRoute().getRouteDescription());
+			Assert.assertEquals(987.0, walk.getRoute().getDistance(), 0.0);
+		}
+	}
+
+}
@@ -26,8 +26,14 @@ import org.junit.Test;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * @author mrieser
  */
@@ -60,6 +66,33 @@ public class AbstractMultithreadedModuleTest {
 
 	}
 
+	@Test
+	public void testAllPlansHandled() {
+		for (boolean loadBalancing : new boolean[] { false, true }) {
+			Config config = new Config();
+			config.addCoreModules();
+			config.global().setNumberOfThreads(3);
+			config.global().setReplanningLoadBalancing(loadBalancing);
+			CountingModule testee = new CountingModule(config.global());
+			List<Plan> plans = new ArrayList<>();
+			for (int i = 0; i < 1000; i++) {
+				plans.add(PopulationUtils.createPlan());
+			}
+			for (int iteration = 0; iteration < 2; iteration++) {
+				testee.handled.clear();
+				testee.prepareReplanning(null);
+				for (Plan plan : plans) {
+					testee.handlePlan(plan);
+				}
+				testee.finishReplanning();
+				Assert.assertEquals(plans.size(), testee.handled.size());
+				for (Plan plan : plans) {
+					Assert.assertEquals(1, testee.handled.get(plan).intValue());
+				}
+			}
+		}
+	}
+
 	private static class DummyAbstractMultithreadedModule extends AbstractMultithreadedModule {
 		public DummyAbstractMultithreadedModule(GlobalConfigGroup globalConfigGroup) {
 			super(globalConfigGroup);
@@ -86,4 +119,23 @@ public class AbstractMultithreadedModuleTest {
 			throw new IllegalArgumentException("just some exception to crash this thread.");
 		}
 	}
+
+	private static class CountingModule extends AbstractMultithreadedModule {
+		final Map<Plan, Integer> handled = new ConcurrentHashMap<>();
+		public CountingModule(GlobalConfigGroup globalConfigGroup) {
+			super(globalConfigGroup);
+		}
+		@Override
+		public PlanAlgorithm getPlanAlgoInstance() {
+			return new PlanAlgorithm() {
+				@Override
+				public void run(Plan plan) {
+					Integer previous = handled.put(plan, 1);
+					if (previous != null) {
+						handled.put(plan, previous + 1);
+					}
+				}
+			};
+		}
+	}
 }
@@ -0,0 +1,276 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CachingLeastCostPathCalculatorTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Provider;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.groups.PlansCalcRouteConfigGroup;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.PersonIndependentTravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.utils.misc.ParallelUtils;
+import org.matsim.vehicles.Vehicle;
+
+public class CachingLeastCostPathCalculatorTest {
+
+	@Test
+	public void testCachedPathIsReused() {
+		Fixture f = new Fixture(10);
+		Path first = f.router.calcLeastCostPath(f.node12, f.node15, 8 * 3600, null, null);
+		Path second = f.router.calcLeastCostPath(f.node12, f.node15, 8 * 3600 + 100, null, null);
+		Assert.assertEquals(1, f.delegate.calls);
+		Assert.assertEquals(1, f.cache.getMisses());
+		Assert.assertEquals(1, f.cache.getHits());
+		Assert.assertEquals(first.links, second.links);
+		Assert.assertEquals(first.travelTime, second.travelTime, 1e-8);
+		Assert.assertEquals(first.travelCost, second.travelCost, 1e-8);
+
+		// another time bin
+		f.router.calcLeastCostPath(f.node12, f.node15, 9 * 3600, null, null);
+		Assert.assertEquals(2, f.delegate.calls);
+		Assert.assertEquals(2, f.cache.getMisses());
+	}
+
+	@Test
+	public void testChangedCostsInvalidatePath() {
+		Fixture f = new Fixture(10);
+		Path first = f.router.calcLeastCostPath(f.node12, f.node15, 8 * 3600, null, null);
+
+		// a small change is tolerated, but the travel time is updated
+		f.costs.factor = 1.005;
+		Path second = f.router.calcLeastCostPath(f.node12, f.node15, 8 * 3600, null, null);
+		Assert.assertEquals(1, f.delegate.calls);
+		Assert.assertEquals(first.travelTime * 1.005, second.travelTime, 1e-6);
+
+		f.costs.factor = 2.0;
+		Path third = f.router.calcLeastCostPath(f.node12, f.node15, 8 * 3600, null, null);
+		Assert.assertEquals(2, f.delegate.calls);
+		Assert.assertEquals(1, f.cache.getInvalidations());
+		Assert.assertEquals(first.travelTime * 2.0, third.travelTime, 1e-6);
+
+		// the recalculated path replaced the old one
+		f.router.calcLeastCostPath(f.node12, f.node15, 8 * 3600, null, null);
+		Assert.assertEquals(2, f.delegate.calls);
+	}
+
+	@Test
+	public void testLeastRecentlyUsedPathIsEvicted() {
+		Fixture f = new Fixture(2);
+		Node node13 = f.network.getNodes().get(Id.create("13", Node.class));
+		f.router.calcLeastCostPath(f.node12, f.node15, 8 * 3600, null, null);
+		f.router.calcLeastCostPath(f.node12, node13, 8 * 3600, null, null);
+		f.router.calcLeastCostPath(f.node12, f.node15, 8 * 3600, null, null);
+		f.router.calcLeastCostPath(node13, f.node15, 8 * 3600, null, null);
+		Assert.assertEquals(3, f.delegate.calls);
+		Assert.assertEquals(1, f.cache.getEvictions());
+		Assert.assertEquals(2, f.cache.size());
+
+		f.router.calcLeastCostPath(f.node12, f.node15, 8 * 3600, null, null);
+		Assert.assertEquals(3, f.delegate.calls);
+		f.router.calcLeastCostPath(f.node12, node13, 8 * 3600, null, null);
+		Assert.assertEquals(4, f.delegate.calls);
+	}
+
+	@Test
+	public void testNextVersionInvalidatesPaths() {
+		Fixture f = new Fixture(10);
+		f.router.calcLeastCostPath(f.node12, f.node15, 8 * 3600, null, null);
+		f.cache.nextVersion();
+		Assert.assertEquals(0, f.cache.size());
+		f.router.calcLeastCostPath(f.node12, f.node15, 8 * 3600, null, null);
+		Assert.assertEquals(2, f.delegate.calls);
+		Assert.assertEquals(2, f.cache.getMisses());
+
+		// a path calculated with the travel times of an older version is not returned
+		Path path = f.router.calcLeastCostPath(f.node12, f.node15, 9 * 3600, null, null);
+		int oldVersion = f.cache.getVersion();
+		f.cache.nextVersion();
+		f.cache.put(f.node12, f.node15, 9 * 3600, path, oldVersion);
+		Assert.assertNull(f.cache.get(f.node12, f.node15, 9 * 3600));
+		f.cache.put(f.node12, f.node15, 9 * 3600, path);
+		Assert.assertSame(path, f.cache.get(f.node12, f.node15, 9 * 3600));
+	}
+
+	/**
+	 * The paths are kept across iterations as long as the published travel times do not change.
+	 */
+	@Test
+	public void testPathIsReusedAcrossIterations() {
+		final Fixture f = new Fixture(10);
+		PlansCalcRouteConfigGroup config = new PlansCalcRouteConfigGroup();
+		config.setRouteCacheSize(10);
+		PathCaches caches = new PathCaches(config, new TravelTimeCalculatorConfigGroup(), f.network, new Provider<Map<String, TravelTime>>() {
+			@Override
+			public Map<String, TravelTime> get() {
+				return Collections.<String, TravelTime>singletonMap("car", f.costs);
+			}
+		});
+		PathCache cache = caches.getPathCache("car", f.costs);
+		CachingLeastCostPathCalculator router = new CachingLeastCostPathCalculator(f.delegate, cache, f.costs, f.costs, 0.01);
+
+		// the paths of the first iteration were calculated before any travel times were published
+		router.calcLeastCostPath(f.node12, f.node15, 8 * 3600, null, null);
+		caches.notifyIterationEnds(null);
+		Assert.assertEquals(0, cache.size());
+
+		router.calcLeastCostPath(f.node12, f.node15, 8 * 3600, null, null);
+		Assert.assertEquals(2, f.delegate.calls);
+		caches.notifyIterationEnds(null);
+		Assert.assertEquals(1, cache.size());
+		router.calcLeastCostPath(f.node12, f.node15, 8 * 3600, null, null);
+		Assert.assertEquals(2, f.delegate.calls);
+		Assert.assertEquals(1, cache.getHits());
+
+		f.costs.factor = 2.0;
+		caches.notifyIterationEnds(null);
+		Assert.assertEquals(0, cache.size());
+		router.calcLeastCostPath(f.node12, f.node15, 8 * 3600, null, null);
+		Assert.assertEquals(3, f.delegate.calls);
+	}
+
+	@Test
+	public void testPersonDependentDisutilityIsNotCached() {
+		Fixture f = new Fixture(10);
+		PlansCalcRouteConfigGroup config = new PlansCalcRouteConfigGroup();
+		config.setRouteCacheSize(10);
+		PathCaches caches = new PathCaches(config, new TravelTimeCalculatorConfigGroup(), f.network, null);
+		f.costs.personIndependent = false;
+		Assert.assertNull(caches.getPathCache("car", f.costs));
+		try {
+			new CachingLeastCostPathCalculator(f.delegate, f.cache, f.costs, f.costs, 0.01);
+			Assert.fail("expected an exception, since the paths depend on the person.");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * The routers of several threads share a striped cache and get the same paths as without the cache.
+	 */
+	@Test
+	public void testConcurrentUse() {
+		final Fixture f = new Fixture(4 * PathCache.PATHS_PER_STRIPE);
+		final List<Node> nodes = new ArrayList<>(f.network.getNodes().values());
+		final int threads = 4;
+		final CachingLeastCostPathCalculator[] routers = new CachingLeastCostPathCalculator[threads];
+		for (int t = 0; t < threads; t++) {
+			routers[t] = new CachingLeastCostPathCalculator(new Dijkstra(f.network, f.costs, f.costs), f.cache, f.costs, f.costs, 0.01);
+		}
+		final int requests = 20 * nodes.size() * nodes.size();
+		final Path[] paths = new Path[requests];
+		ParallelUtils.runRows(requests, 16, threads, new ParallelUtils.RowTask() {
+			@Override
+			public void calcRow(int row, int thread) {
+				Node from = nodes.get(row % nodes.size());
+				Node to = nodes.get((row / nodes.size()) % nodes.size());
+				paths[row] = routers[thread].calcLeastCostPath(from, to, 8 * 3600, null, null);
+			}
+		});
+
+		Dijkstra dijkstra = new Dijkstra(f.network, f.costs, f.costs);
+		for (int row = 0; row < requests; row++) {
+			Node from = nodes.get(row % nodes.size());
+			Node to = nodes.get((row / nodes.size()) % nodes.size());
+			Path expected = dijkstra.calcLeastCostPath(from, to, 8 * 3600, null, null);
+			Assert.assertEquals(expected.links, paths[row].links);
+			Assert.assertEquals(expected.travelCost, paths[row].travelCost, 1e-8);
+		}
+		Assert.assertEquals(nodes.size() * nodes.size(), f.cache.size());
+		Assert.assertEquals(requests, f.cache.getHits() + f.cache.getMisses());
+		Assert.assertTrue(f.cache.getHits() >= requests - threads * nodes.size() * nodes.size());
+	}
+
+	private static class Fixture {
+		final Network network = NetworkUtils.createNetwork();
+		final Node node12;
+		final Node node15;
+		final ScaledFreespeed costs = new ScaledFreespeed();
+		final CountingRouter delegate;
+		final PathCache cache;
+		final CachingLeastCostPathCalculator router;
+
+		Fixture(final int cacheSize) {
+			new MatsimNetworkReader(this.network).readFile("test/scenarios/equil/network.xml");
+			this.node12 = this.network.getNodes().get(Id.create("12", Node.class));
+			this.node15 = this.network.getNodes().get(Id.create("15", Node.class));
+			this.delegate = new CountingRouter(new Dijkstra(this.network, this.costs, this.costs));
+			this.cache = new PathCache(cacheSize, 900);
+			this.router = new CachingLeastCostPathCalculator(this.delegate, this.cache, this.costs, this.costs, 0.01);
+		}
+	}
+
+	private static class ScaledFreespeed implements TravelTime, PersonIndependentTravelDisutility {
+		double factor = 1.0;
+		boolean personIndependent = true;
+
+		@Override
+		public double getLinkTravelTime(Link link, double time, Person person, Vehicle vehicle) {
+			return this.factor * link.getLength() / link.getFreespeed();
+		}
+
+		@Override
+		public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+			return getLinkTravelTime(link, time, person, vehicle);
+		}
+
+		@Override
+		public double getLinkMinimumTravelDisutility(Link link) {
+			return link.getLength() / link.getFreespeed();
+		}
+
+		@Override
+		public boolean isPersonIndependent() {
+			return this.personIndependent;
+		}
+	}
+
+	private static class CountingRouter implements LeastCostPathCalculator {
+		private final LeastCostPathCalculator delegate;
+		int calls = 0;
+
+		CountingRouter(final LeastCostPathCalculator delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public Path calcLeastCostPath(Node fromNode, Node toNode, double starttime, Person person, Vehicle vehicle) {
+			this.calls++;
+			return this.delegate.calcLeastCostPath(fromNode, toNode, starttime, person, vehicle);
+		}
+	}
+
+}
@@ -0,0 +1,220 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchiesTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.Random;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.util.ContractionHierarchiesFactory;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.PreProcessContractionHierarchies;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+public class ContractionHierarchiesTest extends AbstractLeastCostPathCalculatorTest {
+
+	@Override
+	protected LeastCostPathCalculator getLeastCostPathCalculator(Network network) {
+		FreespeedTravelTime travelTime = new FreespeedTravelTime();
+		PreProcessContractionHierarchies preProcessData = new PreProcessContractionHierarchies();
+		preProcessData.run(network);
+		return new ContractionHierarchies(preProcessData, travelTime, travelTime, 900, 30 * 3600);
+	}
+
+	/**
+	 * With costs that do not depend on time, the paths must be as cheap as the ones found by Dijkstra.
+	 */
+	public void testCalcLeastCostPath_SameCostsAsDijkstra() {
+		Network network = createGridNetwork(12, new Random(4711));
+		FreespeedTravelTime travelTime = new FreespeedTravelTime();
+		LeastCostPathCalculator dijkstra = new Dijkstra(network, travelTime, travelTime);
+		LeastCostPathCalculator contractionHierarchies = getLeastCostPathCalculator(network);
+
+		Node[] nodes = network.getNodes().values().toArray(new Node[0]);
+		Random random = new Random(42);
+		for (int i = 0; i < 500; i++) {
+			Node fromNode = nodes[random.nextInt(nodes.length)];
+			Node toNode = nodes[random.nextInt(nodes.length)];
+			Path expected = dijkstra.calcLeastCostPath(fromNode, toNode, 8.0*3600, null, null);
+			Path path = contractionHierarchies.calcLeastCostPath(fromNode, toNode, 8.0*3600, null, null);
+			if (expected == null) {
+				assertNull("found a path from " + fromNode.getId() + " to " + toNode.getId(), path);
+				continue;
+			}
+
+			assertEquals("wrong cost from " + fromNode.getId() + " to " + toNode.getId(), expected.travelCost, path.travelCost, 1e-6);
+			assertEquals("wrong travel time from " + fromNode.getId() + " to " + toNode.getId(), expected.travelTime, path.travelTime, 1e-6);
+			assertEquals(fromNode, path.nodes.get(0));
+			assertEquals(toNode, path.nodes.get(path.nodes.size() - 1));
+			assertEquals(path.links.size() + 1, path.nodes.size());
+			for (int l = 0; l < path.links.size(); l++) {
+				assertEquals(path.nodes.get(l), path.links.get(l).getFromNode());
+				assertEquals(path.nodes.get(l + 1), path.links.get(l).getToNode());
+			}
+		}
+	}
+
+	public void testCalcLeastCostPath_NoPath() {
+		Network network = NetworkUtils.createNetwork();
+		Node node1 = NetworkUtils.createAndAddNode(network, Id.create(1, Node.class), new Coord(0, 0));
+		Node node2 = NetworkUtils.createAndAddNode(network, Id.create(2, Node.class), new Coord(1000, 0));
+		Node node3 = NetworkUtils.createAndAddNode(network, Id.create(3, Node.class), new Coord(2000, 0));
+		NetworkUtils.createAndAddLink(network, Id.create(1, Link.class), node1, node2, 1000, 10, 1000, 1);
+		NetworkUtils.createAndAddLink(network, Id.create(2, Link.class), node3, node2, 1000, 10, 1000, 1);
+
+		LeastCostPathCalculator routerAlgo = getLeastCostPathCalculator(network);
+		assertNull(routerAlgo.calcLeastCostPath(node1, node3, 8.0*3600, null, null));
+		assertNull(routerAlgo.calcLeastCostPath(node2, node1, 8.0*3600, null, null));
+		assertEquals(1, routerAlgo.calcLeastCostPath(node3, node2, 8.0*3600, null, null).links.size());
+	}
+
+	/**
+	 * The routers of a factory share the customization until the next iteration starts, and then use
+	 * the changed costs.
+	 */
+	public void testFactory_CustomizationSharedWithinIteration() {
+		Network network = NetworkUtils.createNetwork();
+		Node node1 = NetworkUtils.createAndAddNode(network, Id.create(1, Node.class), new Coord(0, 0));
+		Node node2 = NetworkUtils.createAndAddNode(network, Id.create(2, Node.class), new Coord(1000, 1000));
+		Node node3 = NetworkUtils.createAndAddNode(network, Id.create(3, Node.class), new Coord(1000, -1000));
+		Node node4 = NetworkUtils.createAndAddNode(network, Id.create(4, Node.class), new Coord(2000, 0));
+		Link link12 = NetworkUtils.createAndAddLink(network, Id.create(12, Link.class), node1, node2, 1000, 10, 1000, 1);
+		NetworkUtils.createAndAddLink(network, Id.create(24, Link.class), node2, node4, 1000, 10, 1000, 1);
+		Link link13 = NetworkUtils.createAndAddLink(network, Id.create(13, Link.class), node1, node3, 1500, 10, 1000, 1);
+		NetworkUtils.createAndAddLink(network, Id.create(34, Link.class), node3, node4, 1000, 10, 1000, 1);
+
+		FreespeedTravelTime travelTime = new FreespeedTravelTime();
+		ContractionHierarchiesFactory factory = new ContractionHierarchiesFactory(900, 30 * 3600);
+		Path path = factory.createPathCalculator(network, travelTime, travelTime).calcLeastCostPath(node1, node4, 8.0*3600, null, null);
+		assertEquals(link12, path.links.get(0));
+
+		travelTime.penalizedLink = link12;
+		path = factory.createPathCalculator(network, travelTime, travelTime).calcLeastCostPath(node1, node4, 8.0*3600, null, null);
+		assertEquals("the customization of the first router should be used", link12, path.links.get(0));
+		assertEquals("the cost of the path should be computed with the current costs", 1100.0, path.travelCost, 1e-6);
+
+		factory.notifyIterationStarts(new IterationStartsEvent(null, 1));
+		path = factory.createPathCalculator(network, travelTime, travelTime).calcLeastCostPath(node1, node4, 8.0*3600, null, null);
+		assertEquals(link13, path.links.get(0));
+	}
+
+	/**
+	 * Routers with different disutilities over the same travel time get their own customization.
+	 */
+	public void testFactory_CustomizationPerDisutility() {
+		Network network = NetworkUtils.createNetwork();
+		Node node1 = NetworkUtils.createAndAddNode(network, Id.create(1, Node.class), new Coord(0, 0));
+		Node node2 = NetworkUtils.createAndAddNode(network, Id.create(2, Node.class), new Coord(1000, 1000));
+		Node node3 = NetworkUtils.createAndAddNode(network, Id.create(3, Node.class), new Coord(1000, -1000));
+		Node node4 = NetworkUtils.createAndAddNode(network, Id.create(4, Node.class), new Coord(2000, 0));
+		final Link link12 = NetworkUtils.createAndAddLink(network, Id.create(12, Link.class), node1, node2, 1000, 10, 1000, 1);
+		NetworkUtils.createAndAddLink(network, Id.create(24, Link.class), node2, node4, 1000, 10, 1000, 1);
+		Link link13 = NetworkUtils.createAndAddLink(network, Id.create(13, Link.class), node1, node3, 1500, 10, 1000, 1);
+		NetworkUtils.createAndAddLink(network, Id.create(34, Link.class), node3, node4, 1000, 10, 1000, 1);
+
+		final FreespeedTravelTime travelTime = new FreespeedTravelTime();
+		TravelDisutility penalizing = new TravelDisutility() {
+			@Override
+			public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+				return travelTime.getLinkTravelDisutility(link, time, person, vehicle) + (link == link12 ? 1000 : 0);
+			}
+
+			@Override
+			public double getLinkMinimumTravelDisutility(Link link) {
+				return travelTime.getLinkMinimumTravelDisutility(link);
+			}
+		};
+		ContractionHierarchiesFactory factory = new ContractionHierarchiesFactory(900, 30 * 3600);
+		Path path = factory.createPathCalculator(network, travelTime, travelTime).calcLeastCostPath(node1, node4, 8.0*3600, null, null);
+		assertEquals(link12, path.links.get(0));
+
+		path = factory.createPathCalculator(network, penalizing, travelTime).calcLeastCostPath(node1, node4, 8.0*3600, null, null);
+		assertEquals(link13, path.links.get(0));
+		assertEquals(250.0, path.travelCost, 1e-6);
+
+		path = factory.createPathCalculator(network, travelTime, travelTime).calcLeastCostPath(node1, node4, 8.0*3600, null, null);
+		assertEquals(link12, path.links.get(0));
+	}
+
+	/**
+	 * A grid with links of random length and speed in both directions, some of them missing.
+	 */
+	private static Network createGridNetwork(final int size, final Random random) {
+		Network network = NetworkUtils.createNetwork();
+		Node[][] nodes = new Node[size][size];
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.create(x * size + y, Node.class), new Coord(x * 1000, y * 1000));
+			}
+		}
+		int linkId = 0;
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				if (x + 1 < size) {
+					linkId = addLinks(network, linkId, nodes[x][y], nodes[x + 1][y], random);
+				}
+				if (y + 1 < size) {
+					linkId = addLinks(network, linkId, nodes[x][y], nodes[x][y + 1], random);
+				}
+			}
+		}
+		return network;
+	}
+
+	private static int addLinks(final Network network, int linkId, final Node node1, final Node node2, final Random random) {
+		if (random.nextDouble() < 0.9) {
+			NetworkUtils.createAndAddLink(network, Id.create(linkId++, Link.class), node1, node2, 1000 + random.nextInt(500), 5 + random.nextInt(30), 1000, 1);
+		}
+		if (random.nextDouble() < 0.9) {
+			NetworkUtils.createAndAddLink(network, Id.create(linkId++, Link.class), node2, node1, 1000 + random.nextInt(500), 5 + random.nextInt(30), 1000, 1);
+		}
+		return linkId;
+	}
+
+	private static class FreespeedTravelTime implements TravelTime, TravelDisutility {
+		Link penalizedLink = null;
+
+		@Override
+		public double getLinkTravelTime(Link link, double time, Person person, Vehicle vehicle) {
+			return link.getLength() / link.getFreespeed();
+		}
+
+		@Override
+		public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+			return link.getLength() / link.getFreespeed() + (link == this.penalizedLink ? 1000 : 0);
+		}
+
+		@Override
+		public double getLinkMinimumTravelDisutility(Link link) {
+			return link.getLength() / link.getFreespeed();
+		}
+	}
+
+}
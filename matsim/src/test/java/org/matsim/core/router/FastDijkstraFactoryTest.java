@@ -0,0 +1,82 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * FastDijkstraFactoryTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.util.FastDijkstraFactory;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.utils.misc.ParallelUtils;
+
+public class FastDijkstraFactoryTest {
+
+	/**
+	 * The routers of one factory share the routing network, and find the same paths as a router of its own, also when
+	 * they are used by several threads at the same time.
+	 */
+	@Test
+	public void testRoutersShareRoutingNetwork() {
+		Network network = NetworkUtils.createNetwork();
+		new MatsimNetworkReader(network).readFile("test/scenarios/equil/network.xml");
+		FreespeedTravelTimeAndDisutility costs = new FreespeedTravelTimeAndDisutility(-6.0 / 3600, 6.0 / 3600, 0.0);
+
+		FastDijkstraFactory factory = new FastDijkstraFactory();
+		final FastDijkstra[] routers = new FastDijkstra[4];
+		for (int i = 0; i < routers.length; i++) {
+			routers[i] = (FastDijkstra) factory.createPathCalculator(network, costs, costs);
+			Assert.assertSame(routers[0].getRoutingNetwork(), routers[i].getRoutingNetwork());
+		}
+
+		final List<Node> nodes = new ArrayList<>(network.getNodes().values());
+		final int requests = 10 * nodes.size() * nodes.size();
+		final Path[] paths = new Path[requests];
+		ParallelUtils.runRows(requests, 8, routers.length, new ParallelUtils.RowTask() {
+			@Override
+			public void calcRow(int row, int thread) {
+				Node from = nodes.get(row % nodes.size());
+				Node to = nodes.get((row / nodes.size()) % nodes.size());
+				paths[row] = routers[thread].calcLeastCostPath(from, to, 8 * 3600, null, null);
+			}
+		});
+
+		// a router with its own routing network, used by a single thread
+		FastDijkstra single = (FastDijkstra) new FastDijkstraFactory().createPathCalculator(network, costs, costs);
+		Assert.assertNotSame(routers[0].getRoutingNetwork(), single.getRoutingNetwork());
+		Dijkstra dijkstra = new Dijkstra(network, costs, costs);
+		for (int row = 0; row < requests; row++) {
+			Node from = nodes.get(row % nodes.size());
+			Node to = nodes.get((row / nodes.size()) % nodes.size());
+			Path expected = single.calcLeastCostPath(from, to, 8 * 3600, null, null);
+			Assert.assertEquals(expected.links, paths[row].links);
+			Assert.assertEquals(expected.travelTime, paths[row].travelTime, 1e-8);
+			Assert.assertEquals(dijkstra.calcLeastCostPath(from, to, 8 * 3600, null, null).travelCost, paths[row].travelCost, 1e-8);
+		}
+	}
+
+}
@@ -38,6 +38,65 @@ public class ScoringFunctionsForPopulationStressIT {
 		scoringFunctionsForPopulation.finishScoringFunctions();
 	}
 
+	@Test(expected = RuntimeException.class)
+	public void exceptionInShardedScoringFunctionPropagates() {
+		Config config = ConfigUtils.createConfig();
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		Id<Person> personId = Id.createPersonId(1);
+		scenario.getPopulation().addPerson(scenario.getPopulation().getFactory().createPerson(personId));
+		EventsManager events = EventsUtils.createEventsManager(config);
+		ControlerListenerManagerImpl controlerListenerManager = new ControlerListenerManagerImpl();
+		ScoringFunctionFactory throwingScoringFunctionFactory = new ThrowingScoringFunctionFactory();
+		ScoringFunctionsForPopulation scoringFunctionsForPopulation = new ScoringFunctionsForPopulation(controlerListenerManager, events, new EventsToActivities(controlerListenerManager, events), new EventsToLegs(scenario.getNetwork(), events), config.plans(), scenario.getNetwork(), scenario.getPopulation(), throwingScoringFunctionFactory, 4);
+		controlerListenerManager.fireControlerIterationStartsEvent(0);
+		events.processEvent(new PersonMoneyEvent(3600.0, personId, 3.4));
+		scoringFunctionsForPopulation.finishScoringFunctions();
+	}
+
+	@Test
+	public void shardedScoringGivesSameScores() {
+		Config config = ConfigUtils.createConfig();
+		PlanCalcScoreConfigGroup.ActivityParams work = new PlanCalcScoreConfigGroup.ActivityParams("work");
+		work.setTypicalDuration(100.0);
+		config.planCalcScore().addActivityParams(work);
+		PlanCalcScoreConfigGroup.ModeParams car = new PlanCalcScoreConfigGroup.ModeParams("car");
+		car.setConstant(-1.0);
+		config.planCalcScore().addModeParams(car);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		int nPersons = 1000;
+		for (int p = 0; p < nPersons; p++) {
+			scenario.getPopulation().addPerson(scenario.getPopulation().getFactory().createPerson(Id.createPersonId(p)));
+		}
+		ControlerListenerManagerImpl controlerListenerManager = new ControlerListenerManagerImpl();
+		EventsManager events = EventsUtils.createEventsManager(config);
+		ScoringFunctionFactory scoringFunctionFactory = new CharyparNagelScoringFunctionFactory(scenario);
+		ScoringFunctionsForPopulation sequential = new ScoringFunctionsForPopulation(controlerListenerManager, events, new EventsToActivities(controlerListenerManager, events), new EventsToLegs(scenario.getNetwork(), events), config.plans(), scenario.getNetwork(), scenario.getPopulation(), scoringFunctionFactory, 1);
+		ScoringFunctionsForPopulation sharded = new ScoringFunctionsForPopulation(controlerListenerManager, events, new EventsToActivities(controlerListenerManager, events), new EventsToLegs(scenario.getNetwork(), events), config.plans(), scenario.getNetwork(), scenario.getPopulation(), scoringFunctionFactory, 4);
+		// twice, to see that the shards are set up again for the next iteration
+		for (int iteration = 0; iteration < 2; iteration++) {
+			controlerListenerManager.fireControlerIterationStartsEvent(iteration);
+			events.initProcessing();
+			for (int i = 0; i < 10; i++) {
+				for (int p = 0; p < nPersons; p++) {
+					Id<Person> personId = Id.createPersonId(p);
+					events.processEvent(new PersonMoneyEvent(i*200, personId, p % 7));
+					events.processEvent(new ActivityStartEvent(i*200, personId, Id.createLinkId(0), null, "work"));
+					events.processEvent(new ActivityEndEvent(i*200 + 10 + p % 90, personId, Id.createLinkId(0), null, "work"));
+					events.processEvent(new PersonDepartureEvent(i*200 + 100, personId, Id.createLinkId(0), "car"));
+					events.processEvent(new PersonArrivalEvent(i*200 + 200, personId, Id.createLinkId(0), "car"));
+				}
+				events.afterSimStep(i*200 + 200);
+			}
+			events.finishProcessing();
+			sequential.finishScoringFunctions();
+			sharded.finishScoringFunctions();
+			for (int p = 0; p < nPersons; p++) {
+				Id<Person> personId = Id.createPersonId(p);
+				assertEquals(sequential.getScoringFunctionForAgent(personId).getScore(), sharded.getScoringFunctionForAgent(personId).getScore(), 1e-9);
+			}
+		}
+	}
+
 	private class ThrowingScoringFunctionFactory implements ScoringFunctionFactory {
 		@Override
 		public ScoringFunction createNewScoringFunction(Person person) {
@@ -103,4 +103,34 @@ public class LinkToLinkTravelTimeCalculatorTest extends MatsimTestCase {
 		assertEquals( 1 * 60, ttcalc.getLinkToLinkTravelTimes().getLinkToLinkTravelTime(link1, link3, 7.0 * 3600 + 5 * 60 + 4*timeBinSize), EPSILON);  // linkTravelTime3 - 1*timeBinSize
 		assertEquals(10     , ttcalc.getLinkToLinkTravelTimes().getLinkToLinkTravelTime(link1, link3, 7.0 * 3600 + 5 * 60 + 5*timeBinSize), EPSILON);  // freespeedTravelTime > linkTravelTime2b - 2*timeBinSize
 	}
+
+	/**
+	 * Link-to-link travel times are stored per turn of the network. Pairs of links which
+	 * are not connected must still be recorded, e.g. if a vehicle was teleported in between.
+	 */
+	public void testLinkToLinkTravelTime_linksNotConnected() {
+		MutableScenario scenario = (MutableScenario) ScenarioUtils.createScenario(loadConfig(null));
+		scenario.getConfig().travelTimeCalculator().setCalculateLinkToLinkTravelTimes(true);
+		Network network = (Network) scenario.getNetwork();
+		Node node1 = NetworkUtils.createAndAddNode(network, Id.create(1, Node.class), new Coord((double) 0, (double) 0));
+		Node node2 = NetworkUtils.createAndAddNode(network, Id.create(2, Node.class), new Coord((double) 1000, (double) 0));
+		Node node3 = NetworkUtils.createAndAddNode(network, Id.create(3, Node.class), new Coord((double) 2000, (double) 0));
+		Link link1 = NetworkUtils.createAndAddLink(network,Id.create(1, Link.class), node1, node2, 1000.0, 100.0, 3600.0, 1.0 );
+		Link link2 = NetworkUtils.createAndAddLink(network,Id.create(2, Link.class), node2, node3, 1000.0, 100.0, 3600.0, 1.0 );
+
+		int timeBinSize = 15*60;
+		TravelTimeCalculator ttcalc = new TravelTimeCalculator(network, timeBinSize, 12*3600, scenario.getConfig().travelTimeCalculator());
+
+		Id<Vehicle> vehId1 = Id.create(11, Vehicle.class);
+		ttcalc.handleEvent(new LinkEnterEvent(7.0 * 3600, vehId1, link2.getId()));
+		ttcalc.handleEvent(new LinkLeaveEvent(7.0 * 3600 + 100, vehId1, link2.getId()));
+		ttcalc.handleEvent(new LinkEnterEvent(7.0 * 3600 + 300, vehId1, link1.getId()));
+		ttcalc.handleEvent(new LinkLeaveEvent(7.0 * 3600 + 350, vehId1, link1.getId()));
+		ttcalc.handleEvent(new LinkEnterEvent(7.0 * 3600 + 350, vehId1, link2.getId()));
+
+		assertEquals(100, ttcalc.getLinkTravelTimes().getLinkTravelTime(link2, 7.0 * 3600, null, null), EPSILON);
+		assertEquals(50, ttcalc.getLinkTravelTimes().getLinkTravelTime(link1, 7.0 * 3600, null, null), EPSILON);
+		assertEquals(300, ttcalc.getLinkToLinkTravelTimes().getLinkToLinkTravelTime(link2, link1, 7.0 * 3600), EPSILON);
+		assertEquals(50, ttcalc.getLinkToLinkTravelTimes().getLinkToLinkTravelTime(link1, link2, 7.0 * 3600), EPSILON);
+	}
 }
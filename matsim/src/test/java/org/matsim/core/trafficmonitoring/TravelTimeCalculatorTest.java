@@ -52,8 +52,10 @@ import org.matsim.core.events.EventsUtils;
 import org.matsim.core.events.MatsimEventsReader;
 import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.router.util.TravelTime;
 import org.matsim.core.scenario.MutableScenario;
 import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.collections.CollectionUtils;
 import org.matsim.core.utils.io.IOUtils;
 import org.matsim.pt.transitSchedule.api.TransitStopFacility;
 import org.matsim.testcases.MatsimTestCase;
@@ -585,4 +587,65 @@ public class TravelTimeCalculatorTest extends MatsimTestCase {
 		assertEquals(14.0 * 60, ttcalc.getLinkTravelTimes().getLinkTravelTime(link1, linkEnterTime3, null, null));
 		assertEquals(19.0 * 60, ttcalc.getLinkTravelTimes().getLinkTravelTime(link1, 7.0 * 3600.0 + 11.0 * 60, null, null));
 	}
+
+	public void testShardsAndSnapshot() {
+		Network network = NetworkUtils.createNetwork();
+		Node n1 = network.getFactory().createNode(Id.create(1, Node.class), new Coord(0, 0));
+		Node n2 = network.getFactory().createNode(Id.create(2, Node.class), new Coord(1000, 0));
+		Node n3 = network.getFactory().createNode(Id.create(3, Node.class), new Coord(2000, 0));
+		network.addNode(n1);
+		network.addNode(n2);
+		network.addNode(n3);
+		Link link1 = network.getFactory().createLink(Id.create(1, Link.class), n1, n2);
+		Link link2 = network.getFactory().createLink(Id.create(2, Link.class), n2, n3);
+		for (Link link : new Link[] {link1, link2}) {
+			link.setLength(1000.0);
+			link.setFreespeed(10.0);
+			network.addLink(link);
+		}
+
+		TravelTimeCalculator single = new TravelTimeCalculator(network, 900, 12 * 3600, true, false, false, CollectionUtils.stringToSet(TransportMode.car), 1);
+		TravelTimeCalculator sharded = new TravelTimeCalculator(network, 900, 12 * 3600, true, false, false, CollectionUtils.stringToSet(TransportMode.car), 3);
+		EventsManager events = EventsUtils.createEventsManager();
+		single.addEventHandlers(events);
+		sharded.addEventHandlers(events);
+
+		Id<Vehicle> vehId1 = Id.create(1, Vehicle.class);
+		Id<Vehicle> vehId2 = Id.create(2, Vehicle.class);
+		events.processEvent(new LinkEnterEvent(100, vehId1, link1.getId()));
+		events.processEvent(new LinkEnterEvent(150, vehId2, link1.getId()));
+		events.processEvent(new LinkLeaveEvent(300, vehId1, link1.getId()));
+		events.processEvent(new LinkEnterEvent(300, vehId1, link2.getId()));
+		events.processEvent(new LinkLeaveEvent(450, vehId2, link1.getId()));
+		events.processEvent(new LinkEnterEvent(450, vehId2, link2.getId()));
+		events.processEvent(new LinkLeaveEvent(1000, vehId1, link2.getId()));
+		events.processEvent(new LinkLeaveEvent(1400, vehId2, link2.getId()));
+
+		for (double time = 0; time < 3600; time += 300) {
+			for (Link link : new Link[] {link1, link2}) {
+				double expected = single.getLinkTravelTimes().getLinkTravelTime(link, time, null, null);
+				Assert.assertEquals(expected, sharded.getLinkTravelTimes().getLinkTravelTime(link, time, null, null), 1e-8);
+			}
+		}
+		Assert.assertEquals(250.0, sharded.getLinkTravelTimes().getLinkTravelTime(link1, 200, null, null), 1e-8);
+		Assert.assertEquals(825.0, sharded.getLinkTravelTimes().getLinkTravelTime(link2, 400, null, null), 1e-8);
+
+		sharded.publishSnapshot();
+		for (double time = 0; time < 3600; time += 300) {
+			for (Link link : new Link[] {link1, link2}) {
+				double expected = single.getLinkTravelTimes().getLinkTravelTime(link, time, null, null);
+				Assert.assertEquals(expected, sharded.getLinkTravelTimes().getLinkTravelTime(link, time, null, null), 1e-8);
+			}
+		}
+
+		TravelTime copy = TravelTimeCalculator.copyLinkTravelTimes(sharded.getLinkTravelTimes());
+		Assert.assertNull(TravelTimeCalculator.copyLinkTravelTimes(new FreeSpeedTravelTime()));
+
+		events.resetHandlers(1);
+		Assert.assertEquals(100.0, sharded.getLinkTravelTimes().getLinkTravelTime(link1, 200, null, null), 1e-8);
+		Assert.assertEquals(100.0, sharded.getLinkTravelTimes().getLinkTravelTime(link2, 400, null, null), 1e-8);
+		// the copy keeps the travel times of the last iteration
+		Assert.assertEquals(250.0, copy.getLinkTravelTime(link1, 200, null, null), 1e-8);
+		Assert.assertEquals(825.0, copy.getLinkTravelTime(link2, 400, null, null), 1e-8);
+	}
 }
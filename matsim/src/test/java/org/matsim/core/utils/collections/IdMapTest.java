@@ -0,0 +1,155 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.collections;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+
+public class IdMapTest {
+
+	@Test
+	public void testPutGetRemove() {
+		Map<Id<TA>, String> map = new IdMap<>(TA.class, 2);
+		Id<TA> id1 = Id.create("putGet1", TA.class);
+		Id<TA> id2 = Id.create("putGet2", TA.class);
+		Id<TA> id3 = Id.create("putGet3", TA.class);
+
+		Assert.assertEquals(0, map.size());
+		Assert.assertNull(map.put(id1, "one"));
+		Assert.assertNull(map.put(id3, "three"));
+		Assert.assertEquals(2, map.size());
+		Assert.assertEquals("one", map.get(id1));
+		Assert.assertNull(map.get(id2));
+		Assert.assertEquals("three", map.get(id3));
+		Assert.assertTrue(map.containsKey(id3));
+		Assert.assertFalse(map.containsKey(id2));
+		Assert.assertFalse(map.containsKey("putGet1"));
+
+		Assert.assertEquals("one", map.put(id1, "eins"));
+		Assert.assertEquals(2, map.size());
+		Assert.assertEquals("eins", map.get(id1));
+
+		Assert.assertEquals("eins", map.remove(id1));
+		Assert.assertNull(map.remove(id1));
+		Assert.assertEquals(1, map.size());
+		Assert.assertNull(map.get(id1));
+
+		map.clear();
+		Assert.assertEquals(0, map.size());
+		Assert.assertNull(map.get(id3));
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	@Test
+	public void testIdsOfOtherType() {
+		Map<Id<TA>, String> map = new IdMap<>(TA.class);
+		Id<TA> idA = Id.create("other1", TA.class);
+		Id<TB> idB = Id.create("other1", TB.class);
+		Id<TB> idB2 = Id.create("other2", TB.class);
+
+		map.put(idA, "a");
+		// as in the hash based maps, Ids of another type are found if they are equal
+		Assert.assertEquals(idA, idB);
+		Assert.assertEquals("a", map.get(idB));
+		Assert.assertNull(map.get(idB2));
+		Assert.assertTrue(map.containsKey(idB));
+		Assert.assertFalse(map.containsKey(idB2));
+		Assert.assertNull(map.remove(idB2));
+		Assert.assertEquals(1, map.size());
+		Assert.assertEquals("a", map.remove(idB));
+		Assert.assertEquals(0, map.size());
+		Assert.assertNull(map.get(idA));
+
+		// the Id of another type is stored as the Id of the map's type
+		Id<TB> idB3 = Id.create("other3", TB.class);
+		map.put((Id) idB3, "b");
+		Assert.assertEquals("b", map.get(idB3));
+		Assert.assertEquals("b", map.get(Id.get("other3", TA.class)));
+		Assert.assertSame(Id.get("other3", TA.class), map.keySet().iterator().next());
+	}
+
+	@Test
+	public void testIteration() {
+		Map<Id<TA>, String> map = new IdMap<>(TA.class, 1);
+		Id<TA> id1 = Id.create("iter1", TA.class);
+		Id<TA> id2 = Id.create("iter2", TA.class);
+		Id<TA> id3 = Id.create("iter3", TA.class);
+		map.put(id3, "three");
+		map.put(id1, "one");
+		map.put(id2, "two");
+
+		// iteration order is the order in which the Ids were created
+		Iterator<Map.Entry<Id<TA>, String>> iter = map.entrySet().iterator();
+		Assert.assertEquals(id1, iter.next().getKey());
+		Map.Entry<Id<TA>, String> e = iter.next();
+		Assert.assertEquals(id2, e.getKey());
+		Assert.assertEquals("two", e.setValue("zwei"));
+		Assert.assertEquals("zwei", map.get(id2));
+		iter.remove();
+		Assert.assertEquals(id3, iter.next().getKey());
+		Assert.assertFalse(iter.hasNext());
+
+		Assert.assertEquals(2, map.size());
+		Assert.assertFalse(map.containsKey(id2));
+		Set<Id<TA>> keys = map.keySet();
+		Assert.assertTrue(keys.contains(id1));
+		Assert.assertTrue(keys.contains(id3));
+	}
+
+	@Test
+	public void testIteration_concurrentModification() {
+		Map<Id<TA>, String> map = new IdMap<>(TA.class);
+		map.put(Id.create("cme1", TA.class), "one");
+		map.put(Id.create("cme2", TA.class), "two");
+		Iterator<String> iter = map.values().iterator();
+		iter.next();
+		map.put(Id.create("cme3", TA.class), "three");
+		try {
+			iter.next();
+			Assert.fail("expected exception, got none");
+		} catch (ConcurrentModificationException e) {
+			// expected exception
+		}
+	}
+
+	@Test
+	public void testEqualsHashMap() {
+		Map<Id<TA>, String> map = new IdMap<>(TA.class);
+		Map<Id<TA>, String> hashMap = new java.util.HashMap<>();
+		for (int i = 0; i < 10; i++) {
+			Id<TA> id = Id.create("eq" + i, TA.class);
+			map.put(id, "v" + i);
+			hashMap.put(id, "v" + i);
+		}
+		Assert.assertEquals(hashMap, map);
+		Assert.assertEquals(map, hashMap);
+		Assert.assertEquals(hashMap.hashCode(), map.hashCode());
+	}
+
+	private static class TA {}
+	private static class TB {}
+
+}
@@ -0,0 +1,66 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.collections;
+
+import java.util.Iterator;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+
+public class IdSetTest {
+
+	@Test
+	public void testAddContainsRemove() {
+		Set<Id<TA>> set = new IdSet<>(TA.class, 1);
+		Id<TA> id1 = Id.create("set1", TA.class);
+		Id<TA> id2 = Id.create("set2", TA.class);
+		Id<TA> id3 = Id.create("set3", TA.class);
+		Id<TB> idB = Id.create("set3", TB.class);
+
+		Assert.assertTrue(set.add(id3));
+		Assert.assertTrue(set.add(id1));
+		Assert.assertFalse(set.add(id1));
+		Assert.assertEquals(2, set.size());
+		Assert.assertTrue(set.contains(id1));
+		Assert.assertFalse(set.contains(id2));
+		// Ids of another type are not found, see IdMap
+		Assert.assertFalse(set.contains(idB));
+
+		Iterator<Id<TA>> iter = set.iterator();
+		Assert.assertEquals(id1, iter.next());
+		Assert.assertEquals(id3, iter.next());
+		Assert.assertFalse(iter.hasNext());
+
+		Assert.assertFalse(set.remove(idB));
+		Assert.assertTrue(set.remove(id3));
+		Assert.assertFalse(set.remove(id3));
+		Assert.assertEquals(1, set.size());
+
+		set.clear();
+		Assert.assertTrue(set.isEmpty());
+		Assert.assertFalse(set.contains(id1));
+	}
+
+	private static class TA {}
+	private static class TB {}
+
+}
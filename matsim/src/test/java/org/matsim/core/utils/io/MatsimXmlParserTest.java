@@ -20,11 +20,16 @@
 package org.matsim.core.utils.io;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
 import java.util.Stack;
 
 import junit.framework.Assert;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.matsim.testcases.MatsimTestUtils;
 import org.xml.sax.Attributes;
 
 /**
@@ -32,6 +37,9 @@ import org.xml.sax.Attributes;
  */
 public class MatsimXmlParserTest {
 
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
 	@Test
 	public void testParsingReservedEntities_AttributeValue() {
 		String str = "<?xml version='1.0' encoding='UTF-8'?>\n" +
@@ -131,4 +139,125 @@ public class MatsimXmlParserTest {
 		Assert.assertEquals("value+value", parser.lastAttributes.getValue("someAttribute"));
 	}
 
+	@Test
+	public void testPullParsingSameAsSax() {
+		String str = "<?xml version='1.0' encoding='UTF-8'?>\n" +
+				"<root xmlns:x=\"http://www.matsim.org/x\" x:a=\"1\">before<inner b=\"2\" c=\"3\">inner&amp;<![CDATA[<data>]]></inner>\n" +
+				"<empty/>after</root>";
+
+		String sax = parseAndRecord(str, false);
+		String pull = parseAndRecord(str, true);
+		Assert.assertEquals(sax, pull);
+		Assert.assertTrue(pull.contains("end inner [root] inner&<data>"));
+		Assert.assertTrue(pull.contains("end root [] before\nafter"));
+		Assert.assertTrue(pull.contains("start root [] x:a=1;1;"));
+	}
+
+	@Test
+	public void testPullParsingReportsDtdDefaults() {
+		String str = "<?xml version='1.0' encoding='UTF-8'?>\n" +
+				"<!DOCTYPE root [<!ATTLIST inner d CDATA \"4\">]>\n" +
+				"<root><inner b=\"2\" c=\"3\"/>\n\t<inner c=\"5\" d=\"6\"/>\n\t</root>";
+
+		String sax = parseAndRecord(str, false);
+		String pull = parseAndRecord(str, true);
+		Assert.assertEquals(sax, pull);
+		Assert.assertTrue(pull.contains("start inner [root] b=2;c=3;d=4;"));
+		Assert.assertTrue(pull.contains("start inner [root] c=5;d=6;"));
+		Assert.assertTrue(pull.contains("end root [] \n\t\n\t"));
+	}
+
+	/**
+	 * Parsers validate by default, also if pull parsing is enabled.
+	 */
+	@Test
+	public void testValidatingParserRejectsInvalidFile() throws IOException {
+		File dtd = new File(this.utils.getOutputDirectory() + "test_v1.dtd");
+		try (PrintWriter writer = new PrintWriter(dtd, "UTF-8")) {
+			writer.println("<!ELEMENT root EMPTY>");
+			writer.println("<!ATTLIST root a CDATA \"1\">");
+		}
+		String str = "<?xml version='1.0' encoding='UTF-8'?>\n" +
+				"<!DOCTYPE root SYSTEM \"" + dtd.toURI() + "\">\n" +
+				"<root undeclared=\"2\"/>";
+
+		String previous = System.getProperty("matsim.xmlPullParsing");
+		System.setProperty("matsim.xmlPullParsing", "true");
+		try {
+			TestParser parser = new TestParser();
+			try {
+				parser.parse(new ByteArrayInputStream(str.getBytes()));
+				Assert.fail("expected an exception, since the attribute is not declared in the DTD.");
+			} catch (UncheckedIOException e) {
+				// expected
+			}
+
+			parser = new TestParser();
+			parser.setValidating(false);
+			parser.parse(new ByteArrayInputStream(str.getBytes()));
+			Assert.assertEquals("1", parser.lastAttributes.getValue("a"));
+			Assert.assertEquals("2", parser.lastAttributes.getValue("undeclared"));
+		} finally {
+			if (previous == null) {
+				System.clearProperty("matsim.xmlPullParsing");
+			} else {
+				System.setProperty("matsim.xmlPullParsing", previous);
+			}
+		}
+	}
+
+	@Test
+	public void testPullParsingSchemaLocation() {
+		String str = "<?xml version='1.0' encoding='UTF-8'?>\n" +
+				"<root xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"" +
+				" xsi:noNamespaceSchemaLocation=\"http://matsim.org/files/dtd/counts_v1.xsd\"/>";
+
+		String previous = System.getProperty("matsim.xmlPullParsing");
+		System.setProperty("matsim.xmlPullParsing", "true");
+		try {
+			TestParser parser = new TestParser();
+			parser.setValidating(false);
+			parser.parse(new ByteArrayInputStream(str.getBytes()));
+			Assert.assertEquals("counts_v1.xsd", parser.getDoctype());
+		} finally {
+			if (previous == null) {
+				System.clearProperty("matsim.xmlPullParsing");
+			} else {
+				System.setProperty("matsim.xmlPullParsing", previous);
+			}
+		}
+	}
+
+	private static String parseAndRecord(final String str, final boolean pullParsing) {
+		String previous = System.getProperty("matsim.xmlPullParsing");
+		System.setProperty("matsim.xmlPullParsing", Boolean.toString(pullParsing));
+		try {
+			final StringBuilder events = new StringBuilder();
+			MatsimXmlParser parser = new MatsimXmlParser() {
+				@Override
+				public void startTag(String name, Attributes atts, Stack<String> context) {
+					events.append("start ").append(name).append(' ').append(context).append(' ');
+					for (int i = 0; i < atts.getLength(); i++) {
+						events.append(atts.getQName(i)).append('=').append(atts.getValue(i)).append(';');
+					}
+					events.append(atts.getValue("x:a")).append(';').append(atts.getValue("c")).append('\n');
+				}
+
+				@Override
+				public void endTag(String name, String content, Stack<String> context) {
+					events.append("end ").append(name).append(' ').append(context).append(' ').append(content).append('\n');
+				}
+			};
+			parser.setValidating(false);
+			parser.parse(new ByteArrayInputStream(str.getBytes()));
+			return events.toString();
+		} finally {
+			if (previous == null) {
+				System.clearProperty("matsim.xmlPullParsing");
+			} else {
+				System.setProperty("matsim.xmlPullParsing", previous);
+			}
+		}
+	}
+
 }
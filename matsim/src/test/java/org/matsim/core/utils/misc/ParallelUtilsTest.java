@@ -0,0 +1,95 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelUtilsTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.misc;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ParallelUtilsTest {
+
+	@Test
+	public void testRunRows_eachRowOnce() {
+		final int rowCount = 1000;
+		final AtomicIntegerArray calls = new AtomicIntegerArray(rowCount);
+		final AtomicIntegerArray threads = new AtomicIntegerArray(4);
+		ParallelUtils.runRows(rowCount, 7, 4, new ParallelUtils.RowTask() {
+			@Override
+			public void calcRow(int row, int thread) {
+				calls.incrementAndGet(row);
+				threads.incrementAndGet(thread);
+			}
+		});
+		int total = 0;
+		for (int row = 0; row < rowCount; row++) {
+			Assert.assertEquals(1, calls.get(row));
+		}
+		for (int t = 0; t < 4; t++) {
+			total += threads.get(t);
+		}
+		Assert.assertEquals(rowCount, total);
+	}
+
+	@Test
+	public void testRunRows_singleThreadOnCallingThread() {
+		final Thread caller = Thread.currentThread();
+		final AtomicInteger rows = new AtomicInteger(0);
+		ParallelUtils.runRows(10, 64, 4, new ParallelUtils.RowTask() {
+			@Override
+			public void calcRow(int row, int thread) {
+				// a single block is computed by the calling thread alone
+				Assert.assertSame(caller, Thread.currentThread());
+				Assert.assertEquals(0, thread);
+				rows.incrementAndGet();
+			}
+		});
+		Assert.assertEquals(10, rows.get());
+	}
+
+	@Test
+	public void testRunThreads_failureThrownAfterAllThreadsFinished() {
+		final AtomicInteger finished = new AtomicInteger(0);
+		final IllegalStateException failure = new IllegalStateException("thread 2 failed");
+		try {
+			ParallelUtils.runThreads(4, new ParallelUtils.ThreadTask() {
+				@Override
+				public void run(int thread) {
+					if (thread == 2) {
+						throw failure;
+					}
+					try {
+						Thread.sleep(50);
+					} catch (InterruptedException e) {
+						throw new RuntimeException(e);
+					}
+					finished.incrementAndGet();
+				}
+			});
+			Assert.fail("the failure of thread 2 should be thrown");
+		} catch (IllegalStateException e) {
+			Assert.assertSame(failure, e);
+		}
+		Assert.assertEquals(3, finished.get());
+	}
+
+}
@@ -0,0 +1,135 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.pt.router;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.population.routes.LinkNetworkRouteImpl;
+import org.matsim.core.utils.misc.ParallelUtils;
+import org.matsim.pt.transitSchedule.TransitScheduleFactoryImpl;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitScheduleFactory;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+public class PreparedTransitScheduleTest {
+
+	private final TransitScheduleFactory factory = new TransitScheduleFactoryImpl();
+	private final TransitSchedule schedule = this.factory.createTransitSchedule();
+	private final TransitStopFacility stop1 = this.factory.createTransitStopFacility(Id.create("1", TransitStopFacility.class), new Coord(0, 0), false);
+	private final TransitStopFacility stop2 = this.factory.createTransitStopFacility(Id.create("2", TransitStopFacility.class), new Coord(1000, 0), false);
+
+	/**
+	 * The departures are sorted in the constructor, so they may be added in any order.
+	 */
+	@Test
+	public void testNextDepartureTime_unsortedDepartures() {
+		TransitRoute route = addRoute("a", 9 * 3600, 7 * 3600, 23 * 3600, 8 * 3600);
+		PreparedTransitSchedule prepared = new PreparedTransitSchedule(this.schedule);
+		TransitRouteStop first = route.getStops().get(0);
+		TransitRouteStop second = route.getStops().get(1);
+
+		Assert.assertEquals(7 * 3600, prepared.getNextDepartureTime(route, first, 6 * 3600), 0.0);
+		Assert.assertEquals(7 * 3600, prepared.getNextDepartureTime(route, first, 7 * 3600), 0.0);
+		Assert.assertEquals(8 * 3600, prepared.getNextDepartureTime(route, first, 7 * 3600 + 1), 0.0);
+		Assert.assertEquals(8 * 3600 + 300, prepared.getNextDepartureTime(route, second, 7 * 3600 + 600), 0.0);
+		Assert.assertEquals(23 * 3600 + 300, prepared.getNextDepartureTime(route, second, 22 * 3600), 0.0);
+		// after the last departure, the first one of the next day
+		Assert.assertEquals(31 * 3600, prepared.getNextDepartureTime(route, first, 23 * 3600 + 1), 0.0);
+		Assert.assertEquals(31 * 3600 + 300, prepared.getNextDepartureTime(route, second, 23 * 3600 + 301), 0.0);
+	}
+
+	/**
+	 * Routes added to the schedule after the construction are sorted when they are first asked for.
+	 */
+	@Test
+	public void testNextDepartureTime_routeAddedLater() {
+		addRoute("a", 7 * 3600);
+		PreparedTransitSchedule prepared = new PreparedTransitSchedule(this.schedule);
+		TransitRoute later = addRoute("b", 10 * 3600, 9 * 3600);
+		Assert.assertEquals(9 * 3600, prepared.getNextDepartureTime(later, later.getStops().get(0), 8 * 3600), 0.0);
+		Assert.assertEquals(10 * 3600, prepared.getNextDepartureTime(later, later.getStops().get(0), 9 * 3600 + 1), 0.0);
+	}
+
+	/**
+	 * One instance answers the queries of several threads like the lazily filled cache did on a single thread.
+	 */
+	@Test
+	public void testNextDepartureTime_sharedByThreads() {
+		final List<TransitRoute> routes = new ArrayList<>();
+		for (int r = 0; r < 10; r++) {
+			double[] times = new double[20];
+			for (int d = 0; d < times.length; d++) {
+				// in descending order, shifted per route
+				times[d] = 20 * 3600 - d * 1800 + r * 60;
+			}
+			routes.add(addRoute("r" + r, times));
+		}
+		final PreparedTransitSchedule shared = new PreparedTransitSchedule(this.schedule);
+		@SuppressWarnings("deprecation")
+		PreparedTransitSchedule lazy = new PreparedTransitSchedule();
+
+		final int queries = 20000;
+		final double[] results = new double[queries];
+		ParallelUtils.runRows(queries, 100, 4, new ParallelUtils.RowTask() {
+			@Override
+			public void calcRow(int row, int thread) {
+				TransitRoute route = routes.get(row % routes.size());
+				TransitRouteStop stop = route.getStops().get(row % 2);
+				results[row] = shared.getNextDepartureTime(route, stop, (row * 7) % (24 * 3600));
+			}
+		});
+		for (int row = 0; row < queries; row++) {
+			TransitRoute route = routes.get(row % routes.size());
+			TransitRouteStop stop = route.getStops().get(row % 2);
+			Assert.assertEquals(lazy.getNextDepartureTime(route, stop, (row * 7) % (24 * 3600)), results[row], 0.0);
+		}
+	}
+
+	private TransitRoute addRoute(final String name, final double... departureTimes) {
+		if (!this.schedule.getFacilities().containsKey(this.stop1.getId())) {
+			this.schedule.addStopFacility(this.stop1);
+			this.schedule.addStopFacility(this.stop2);
+		}
+		List<TransitRouteStop> stops = new ArrayList<>();
+		stops.add(this.factory.createTransitRouteStop(this.stop1, 0, 0));
+		stops.add(this.factory.createTransitRouteStop(this.stop2, 300, 300));
+		LinkNetworkRouteImpl networkRoute = new LinkNetworkRouteImpl(Id.create("1", Link.class), Id.create("2", Link.class));
+		TransitRoute route = this.factory.createTransitRoute(Id.create(name, TransitRoute.class), networkRoute, stops, "bus");
+		for (int d = 0; d < departureTimes.length; d++) {
+			Departure departure = this.factory.createDeparture(Id.create(name + "_" + d, Departure.class), departureTimes[d]);
+			route.addDeparture(departure);
+		}
+		TransitLine line = this.factory.createTransitLine(Id.create(name, TransitLine.class));
+		line.addRoute(route);
+		this.schedule.addTransitLine(line);
+		return route;
+	}
+
+}
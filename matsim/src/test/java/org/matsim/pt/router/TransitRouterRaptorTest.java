@@ -0,0 +1,138 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TransitRouterRaptorTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.pt.router;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.core.utils.geometry.CoordUtils;
+import org.matsim.pt.routes.ExperimentalTransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.testcases.MatsimTestCase;
+
+public class TransitRouterRaptorTest {
+
+	private static TransitRouterConfig createConfig(final Fixture f) {
+		return new TransitRouterConfig(f.scenario.getConfig().planCalcScore(),
+				f.scenario.getConfig().plansCalcRoute(), f.scenario.getConfig().transitRouter(),
+				f.scenario.getConfig().vspExperimental());
+	}
+
+	@Test
+	public void testSingleLine() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig config = createConfig(f);
+		TransitRouterRaptor router = new TransitRouterRaptor(config, f.schedule);
+		Coord toCoord = new Coord((double) 16100, (double) 5050);
+		List<Leg> legs = router.calcRoute(new FakeFacility(new Coord((double) 3800, (double) 5100)), new FakeFacility(toCoord), 5.0*3600, null);
+		assertEquals(3, legs.size());
+		assertEquals(TransportMode.transit_walk, legs.get(0).getMode());
+		assertEquals(TransportMode.pt, legs.get(1).getMode());
+		assertEquals(TransportMode.transit_walk, legs.get(2).getMode());
+		ExperimentalTransitRoute ptRoute = (ExperimentalTransitRoute) legs.get(1).getRoute();
+		assertEquals(Id.create("0", TransitStopFacility.class), ptRoute.getAccessStopId());
+		assertEquals(Id.create("6", TransitStopFacility.class), ptRoute.getEgressStopId());
+		assertEquals(f.blueLine.getId(), ptRoute.getLineId());
+		assertEquals(Id.create("blue A > I", TransitRoute.class), ptRoute.getRouteId());
+		double expectedTravelTime = 29.0 * 60 + // agent takes the *:06 course, arriving in D at *:29
+				CoordUtils.calcEuclideanDistance(f.schedule.getFacilities().get(Id.create("6", TransitStopFacility.class)).getCoord(), toCoord) / config.getBeelineWalkSpeed();
+		assertEquals(expectedTravelTime, calcTravelTime(legs), MatsimTestCase.EPSILON);
+	}
+
+	@Test
+	public void testFromToSameStop() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterRaptor router = new TransitRouterRaptor(createConfig(f), f.schedule);
+		List<Leg> legs = router.calcRoute(new FakeFacility(new Coord((double) 3800, (double) 5100)), new FakeFacility(new Coord((double) 4100, (double) 5050)), 5.0*3600, null);
+		assertEquals(1, legs.size());
+		assertEquals(TransportMode.transit_walk, legs.get(0).getMode());
+	}
+
+	@Test
+	public void testLineChange() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterRaptor router = new TransitRouterRaptor(createConfig(f), f.schedule);
+		List<Leg> legs = router.calcRoute(new FakeFacility(new Coord((double) 3800, (double) 5100)), new FakeFacility(new Coord((double) 16100, (double) 10050)), 6.0*3600, null);
+		assertEquals(5, legs.size());
+		ExperimentalTransitRoute ptRoute = (ExperimentalTransitRoute) legs.get(1).getRoute();
+		assertEquals(Id.create("0", TransitStopFacility.class), ptRoute.getAccessStopId());
+		assertEquals(Id.create("4", TransitStopFacility.class), ptRoute.getEgressStopId());
+		assertEquals(TransportMode.transit_walk, legs.get(2).getMode());
+		ptRoute = (ExperimentalTransitRoute) legs.get(3).getRoute();
+		assertEquals(Id.create("18", TransitStopFacility.class), ptRoute.getAccessStopId());
+		assertEquals(Id.create("19", TransitStopFacility.class), ptRoute.getEgressStopId());
+		assertEquals(f.greenLine.getId(), ptRoute.getLineId());
+	}
+
+	@Test
+	public void testTransferWeights() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig config = createConfig(f);
+		config.setUtilityOfLineSwitch_utl(0);
+		TransitRouterRaptor router = new TransitRouterRaptor(config, f.schedule);
+		Coord fromCoord = new Coord((double) 11900, (double) 5100);
+		Coord toCoord = new Coord((double) 24100, (double) 4950);
+		List<Leg> legs = router.calcRoute(new FakeFacility(fromCoord), new FakeFacility(toCoord), 6.0*3600 - 5.0*60, null);
+		assertEquals(5, legs.size());
+		assertEquals(f.redLine.getId(), ((ExperimentalTransitRoute) legs.get(1).getRoute()).getLineId());
+		assertEquals(f.blueLine.getId(), ((ExperimentalTransitRoute) legs.get(3).getRoute()).getLineId());
+
+		config.setUtilityOfLineSwitch_utl(300.0 * config.getMarginalUtilityOfTravelTimePt_utl_s()); // corresponds to 5 minutes transit travel time
+		legs = router.calcRoute(new FakeFacility(fromCoord), new FakeFacility(toCoord), 6.0*3600 - 5.0*60, null);
+		assertEquals(3, legs.size());
+		assertEquals(f.blueLine.getId(), ((ExperimentalTransitRoute) legs.get(1).getRoute()).getLineId());
+	}
+
+	@Test
+	public void testAfterMidnight() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig config = createConfig(f);
+		config.setBeelineWalkSpeed(0.1); // something very slow, so the agent does not walk over night
+		TransitRouterRaptor router = new TransitRouterRaptor(config, f.schedule);
+		Coord toCoord = new Coord((double) 16100, (double) 5050);
+		List<Leg> legs = router.calcRoute(new FakeFacility(new Coord((double) 3800, (double) 5100)), new FakeFacility(toCoord), 25.0*3600, null);
+		assertEquals(3, legs.size());
+		double expectedTravelTime = 4*3600 + 29.0 * 60 + // arrival at 05:29 at D
+				CoordUtils.calcEuclideanDistance(f.schedule.getFacilities().get(Id.create("6", TransitStopFacility.class)).getCoord(), toCoord) / config.getBeelineWalkSpeed();
+		assertEquals(expectedTravelTime, calcTravelTime(legs), MatsimTestCase.EPSILON);
+	}
+
+	private static double calcTravelTime(final List<Leg> legs) {
+		double travelTime = 0.0;
+		for (Leg leg : legs) {
+			travelTime += leg.getTravelTime();
+		}
+		return travelTime;
+	}
+
+}
@@ -33,7 +33,7 @@ import org.matsim.api.core.v01.network.Link;
 import org.matsim.contrib.dvrp.data.Vehicle;
 import org.matsim.contrib.dvrp.path.VrpPathWithTravelData;
 import org.matsim.contrib.dvrp.path.VrpPaths;
-import org.matsim.contrib.dvrp.router.DefaultLeastCostPathCalculatorWithCache;
+import org.matsim.contrib.dvrp.router.BoundedLeastCostPathCalculatorWithCache;
 import org.matsim.contrib.dvrp.router.LeastCostPathCalculatorWithCache;
 import org.matsim.contrib.dvrp.util.LinkTimePair;
 import org.matsim.contrib.dvrp.util.TimeDiscretizer;
@@ -67,8 +67,9 @@ public class FifoOptimizer extends AbstractTaxibusOptimizer {
 		this.dispatcher = dispatcher;
 		LeastCostPathCalculator router = new Dijkstra(optimContext.scenario.getNetwork(),
 				optimContext.travelDisutility, optimContext.travelTime);
-		routerWithCache = new DefaultLeastCostPathCalculatorWithCache(router,
-		        TimeDiscretizer.OPEN_ENDED_15_MIN);
+		routerWithCache = new BoundedLeastCostPathCalculatorWithCache(router,
+		        optimContext.scenario.getNetwork(), TimeDiscretizer.OPEN_ENDED_15_MIN,
+		        BoundedLeastCostPathCalculatorWithCache.DEFAULT_MAX_BYTES);
 		for (Id<TaxibusLine> line : this.dispatcher.getLines().keySet()) {
 			this.currentRequestPathForLine.put(line, null);
 			this.currentTwMax.put(line, null);